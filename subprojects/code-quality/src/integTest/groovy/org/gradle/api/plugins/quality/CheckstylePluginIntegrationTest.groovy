@@ -20,6 +20,7 @@ import org.hamcrest.Matcher
 
 import static org.gradle.util.Matchers.containsLine
 import static org.hamcrest.Matchers.containsString
+import static org.hamcrest.Matchers.not
 import static org.hamcrest.Matchers.startsWith
 
 class CheckstylePluginIntegrationTest extends WellBehavedPluginTest {
@@ -101,6 +102,83 @@ class CheckstylePluginIntegrationTest extends WellBehavedPluginTest {
         then:
         succeeds("checkstyleMain") && ":checkstyleMain" in nonSkippedTasks
     }
+
+    def "analyzes changed source files and keeps the results for unchanged source files when incremental"() {
+        given:
+        goodCode()
+        file("src/main/java/org/gradle/class3.java") << "package org.gradle; class class3 { }"
+        buildFile << "checkstyleMain { incremental = true; ignoreFailures = true }"
+        succeeds("checkstyleMain")
+
+        when:
+        file("src/main/java/org/gradle/Class1.java").text = "package org.gradle; class Class1 { int x; }"
+
+        then:
+        succeeds("checkstyleMain")
+        output.contains("Checkstyle rule violations were found. See the report at:")
+        !errorOutput.contains("Name 'class3' must match pattern")
+        file("build/reports/checkstyle/main.xml").assertContents(containsClass("org.gradle.Class1"))
+        file("build/reports/checkstyle/main.xml").assertContents(containsClass("org.gradle.Class2"))
+        file("build/reports/checkstyle/main.xml").assertContents(containsClass("org.gradle.class3"))
+    }
+
+    def "finds violations in changed source files when incremental"() {
+        given:
+        goodCode()
+        buildFile << "checkstyleMain.incremental = true"
+        succeeds("checkstyleMain")
+
+        when:
+        file("src/main/java/org/gradle/class3.java") << "package org.gradle; class class3 { }"
+
+        then:
+        fails("checkstyleMain")
+        failure.assertThatCause(startsWith("Checkstyle rule violations were found. See the report at:"))
+        failure.error.contains("Name 'class3' must match pattern")
+        file("build/reports/checkstyle/main.xml").assertContents(containsClass("org.gradle.Class1"))
+        file("build/reports/checkstyle/main.xml").assertContents(containsClass("org.gradle.class3"))
+    }
+
+    def "removes results for removed source files when incremental"() {
+        given:
+        goodCode()
+        buildFile << "checkstyleMain.incremental = true"
+        succeeds("checkstyleMain")
+
+        when:
+        file("src/main/groovy/org/gradle/Class2.java").delete()
+
+        then:
+        succeeds("checkstyleMain")
+        file("build/reports/checkstyle/main.xml").assertContents(containsClass("org.gradle.Class1"))
+        file("build/reports/checkstyle/main.xml").assertContents(not(containsClass("org.gradle.Class2")))
+    }
+
+    def "analyzes all source files when configuration changes and incremental"() {
+        given:
+        goodCode()
+        buildFile << "checkstyleMain.incremental = true"
+        succeeds("checkstyleMain")
+
+        when:
+        file("config/checkstyle/checkstyle.xml").text = """
+<!DOCTYPE module PUBLIC
+        "-//Puppy Crawl//DTD Check Configuration 1.2//EN"
+        "http://www.puppycrawl.com/dtds/configuration_1_2.dtd">
+<module name="Checker">
+    <module name="TreeWalker">
+        <module name="TypeName">
+            <property name="format" value="^[a-z]+\$"/>
+        </module>
+    </module>
+</module>
+        """
+
+        then:
+        fails("checkstyleMain")
+        failure.error.readLines().any { it.contains("Class1.java") && it.contains("must match pattern") }
+        failure.error.readLines().any { it.contains("Class2.java") && it.contains("must match pattern") }
+    }
     
     def "can configure reporting"() {
         given:
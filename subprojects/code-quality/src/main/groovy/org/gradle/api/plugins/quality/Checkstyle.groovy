@@ -16,19 +16,27 @@
 package org.gradle.api.plugins.quality
 
 import org.gradle.api.GradleException
+import org.gradle.api.Incubating
 import org.gradle.api.file.FileCollection
+import org.gradle.api.internal.changedetection.RebuildIncrementalTaskInputs
 import org.gradle.api.internal.project.IsolatedAntBuilder
 import org.gradle.api.plugins.quality.internal.CheckstyleReportsImpl
 import org.gradle.api.reporting.Reporting
 import org.gradle.api.tasks.*
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs
 import org.gradle.internal.reflect.Instantiator
 import org.gradle.logging.ConsoleRenderer
 import org.gradle.util.DeprecationLogger
+import org.gradle.util.GFileUtils
 
 import javax.inject.Inject
 
 /**
  * Runs Checkstyle against some source files.
+ *
+ * <p>When the {@code incremental} property is set and the XML report is enabled, only the source files which have changed since the last execution are analyzed,
+ * and their results are merged into the existing report. All source files are analyzed again when the configuration file, the class path or the
+ * Checkstyle library changes.</p>
  */
 class Checkstyle extends SourceTask implements VerificationTask, Reporting<CheckstyleReports> {
     /**
@@ -153,14 +161,47 @@ class Checkstyle extends SourceTask implements VerificationTask, Reporting<Check
      */
     boolean showViolations = true
 
-    @TaskAction
+    /**
+     * Whether only the source files which have changed since the last execution are to be analyzed. This requires the XML report to be enabled.
+     * Checks which compare several source files, such as {@code StrictDuplicateCode} or {@code Translation}, do not see the unchanged source
+     * files, and so can give different results when this is set. Defaults to false.
+     */
+    @Incubating
+    boolean incremental
+
+    /**
+     * Analyzes all source files.
+     */
     public void run() {
+        run(new RebuildIncrementalTaskInputs(this))
+    }
+
+    @TaskAction
+    public void run(IncrementalTaskInputs inputs) {
+        Set<File> changed = [] as Set
+        boolean incremental = getIncremental() && inputs.incremental && reports.xml.enabled && reports.xml.destination.file
+        if (incremental) {
+            inputs.outOfDate { changed << it.file }
+            inputs.removed { changed << it.file }
+            // The results for unchanged source files depend only on the configuration, the classpath and the Checkstyle implementation
+            incremental = !(getConfigFile() in changed) && !containsAny(getCheckstyleClasspath(), changed) && !containsAny(getClasspath(), changed)
+        }
+
+        FileCollection source = getSource()
+        File previousReport = null
+        if (incremental) {
+            source = getSource().matching { include { it.directory || it.file in changed } }
+            previousReport = new File(getTemporaryDir(), "previous.xml")
+            GFileUtils.copyFile(reports.xml.destination, previousReport)
+        }
+
         def propertyName = "org.gradle.checkstyle.violations"
+        boolean violations = false
         antBuilder.withClasspath(getCheckstyleClasspath()).execute {
             ant.taskdef(name: 'checkstyle', classname: 'com.puppycrawl.tools.checkstyle.CheckStyleTask')
 
             ant.checkstyle(config: getConfigFile(), failOnViolation: false, failureProperty: propertyName) {
-                getSource().addToAntBuilder(ant, 'fileset', FileCollection.AntType.FileSet)
+                source.addToAntBuilder(ant, 'fileset', FileCollection.AntType.FileSet)
                 getClasspath().addToAntBuilder(ant, 'classpath')
                 if (showViolations) {
                     formatter(type: 'plain', useFile: false)
@@ -174,19 +215,54 @@ class Checkstyle extends SourceTask implements VerificationTask, Reporting<Check
                 }
             }
 
-            if (ant.project.properties[propertyName]) {
-                def message = "Checkstyle rule violations were found."
-                def report = reports.firstEnabled
-                if (report) {
-                    def reportUrl = new ConsoleRenderer().asClickableFileUrl(report.destination)
-                    message += " See the report at: $reportUrl"
-                }
-                if (getIgnoreFailures()) {
-                    logger.warn(message)
-                } else {
-                    throw new GradleException(message)
-                }
+            violations = ant.project.properties[propertyName] as boolean
+        }
+
+        if (previousReport != null) {
+            violations = mergeReports(previousReport, reports.xml.destination, changed)
+            previousReport.delete()
+        }
+
+        if (violations) {
+            def message = "Checkstyle rule violations were found."
+            def report = reports.firstEnabled
+            if (report) {
+                def reportUrl = new ConsoleRenderer().asClickableFileUrl(report.destination)
+                message += " See the report at: $reportUrl"
+            }
+            if (getIgnoreFailures()) {
+                logger.warn(message)
+            } else {
+                throw new GradleException(message)
+            }
+        }
+    }
+
+    /**
+     * Returns true if any of the given changed files is one of the given files, or is beneath one of the given directories.
+     */
+    private static boolean containsAny(FileCollection files, Set<File> changed) {
+        Set<File> roots = files.files
+        return changed.any { File file -> roots.any { File root -> file == root || file.path.startsWith(root.path + File.separator) } }
+    }
+
+    /**
+     * Adds the results for the source files which were not analyzed by this execution from the previous XML report to the new XML report.
+     *
+     * @return true if the merged report contains any rule violations.
+     */
+    private boolean mergeReports(File previousReport, File report, Set<File> changed) {
+        def parser = new XmlParser()
+        Node merged = parser.parse(report)
+        parser.parse(previousReport).file.each { Node file ->
+            if (!(new File(file.@name) in changed)) {
+                merged.append(file)
             }
         }
+        report.withPrintWriter("UTF-8") { writer ->
+            writer.println('<?xml version="1.0" encoding="UTF-8"?>')
+            new XmlNodePrinter(writer).print(merged)
+        }
+        return merged.file.error.any { it.@severity == 'error' }
     }
 }
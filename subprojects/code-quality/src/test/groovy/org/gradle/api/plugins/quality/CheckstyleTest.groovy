@@ -36,6 +36,7 @@ class CheckstyleTest extends Specification {
             reports.xml.outputType == Report.OutputType.FILE
             !ignoreFailures
             showViolations
+            !incremental
         }
     }
 }
@@ -53,10 +53,22 @@ public class DefaultCacheLockingManager implements CacheLockingManager {
         cache.useCache(operationDisplayName, action);
     }
 
+    public <T> T readCache(String operationDisplayName, Factory<? extends T> action) {
+        return cache.readCache(operationDisplayName, action);
+    }
+
     public <T> T longRunningOperation(String operationDisplayName, Factory<? extends T> action) {
         return cache.longRunningOperation(operationDisplayName, action);
     }
 
+    public <T> T concurrentOperation(String operationDisplayName, Factory<? extends T> action) {
+        return cache.concurrentOperation(operationDisplayName, action);
+    }
+
+    public void concurrentOperation(String operationDisplayName, Runnable action) {
+        cache.concurrentOperation(operationDisplayName, action);
+    }
+
     public <K, V> PersistentIndexedCache<K, V> createCache(File cacheFile, Class<K> keyType, Class<V> valueType) {
         return cache.createCache(cacheFile, keyType, valueType);
     }
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.externalresource.transport.http;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.gradle.api.internal.changedetection.TaskOutputCache;
+import org.gradle.util.hash.HashValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+
+/**
+ * A {@link TaskOutputCache} which stores each entry as a resource on an HTTP server. An entry is loaded using a GET request and stored using a
+ * PUT request. The entry is streamed directly to and from the server. When the server cannot be reached, the cache is disabled for the remainder
+ * of the build, so that each task does not have to wait for the server.
+ */
+public class HttpTaskOutputCache implements TaskOutputCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpTaskOutputCache.class);
+    private final URI root;
+    private final HttpClientHelper http;
+    private volatile boolean disabled;
+
+    public HttpTaskOutputCache(URI root, HttpClientHelper http) {
+        this.root = root.getPath().endsWith("/") ? root : URI.create(root.toString() + "/");
+        this.http = http;
+    }
+
+    public String getDisplayName() {
+        return String.format("remote task output cache (%s)", root);
+    }
+
+    public boolean load(HashValue key, Reader reader) throws IOException {
+        if (disabled) {
+            return false;
+        }
+        URI uri = getUri(key);
+        HttpResponse response = perform(new HttpGet(uri));
+        try {
+            if (http.wasMissing(response)) {
+                return false;
+            }
+            if (!http.wasSuccessful(response)) {
+                throw new IOException(String.format("Could not GET '%s'. Received status code %s from server: %s",
+                        uri, response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase()));
+            }
+            InputStream content = response.getEntity().getContent();
+            try {
+                reader.readFrom(content);
+            } finally {
+                content.close();
+            }
+            return true;
+        } finally {
+            EntityUtils.consume(response.getEntity());
+        }
+    }
+
+    public void store(HashValue key, final Writer writer) throws IOException {
+        if (disabled) {
+            return;
+        }
+        URI uri = getUri(key);
+        HttpPut method = new HttpPut(uri);
+        method.setEntity(new WriterEntity(writer));
+        HttpResponse response = perform(method);
+        EntityUtils.consume(response.getEntity());
+        if (!http.wasSuccessful(response)) {
+            throw new IOException(String.format("Could not PUT '%s'. Received status code %s from server: %s",
+                    uri, response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase()));
+        }
+    }
+
+    private URI getUri(HashValue key) {
+        return root.resolve(key.asCompactString());
+    }
+
+    private HttpResponse perform(HttpRequestBase request) throws IOException {
+        try {
+            return http.performHttpRequest(request);
+        } catch (IOException e) {
+            disabled = true;
+            LOGGER.warn("Could not connect to {}. The cache is disabled for the remainder of this build.", getDisplayName());
+            throw e;
+        }
+    }
+
+    /**
+     * An entity which streams the entry to the server as it is written. The entry is not buffered, so the entity can be written only once and its content
+     * cannot be read.
+     */
+    private static class WriterEntity extends AbstractHttpEntity {
+        private final Writer writer;
+
+        public WriterEntity(Writer writer) {
+            this.writer = writer;
+            setContentType(ContentType.APPLICATION_OCTET_STREAM.toString());
+            setChunked(true);
+        }
+
+        public boolean isRepeatable() {
+            return false;
+        }
+
+        public long getContentLength() {
+            return -1;
+        }
+
+        public InputStream getContent() {
+            throw new UnsupportedOperationException("The content of a task output cache entry can only be written to a stream.");
+        }
+
+        public void writeTo(OutputStream outstream) throws IOException {
+            writer.writeTo(outstream);
+        }
+
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+}
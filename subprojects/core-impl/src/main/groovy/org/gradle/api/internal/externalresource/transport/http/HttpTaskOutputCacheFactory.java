@@ -0,0 +1,51 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.externalresource.transport.http;
+
+import org.gradle.api.internal.artifacts.repositories.DefaultPasswordCredentials;
+import org.gradle.api.internal.changedetection.RemoteTaskOutputCacheFactory;
+import org.gradle.api.internal.changedetection.TaskOutputCache;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+public class HttpTaskOutputCacheFactory implements RemoteTaskOutputCacheFactory {
+    /**
+     * Creates a cache for the given HTTP URI. Any user info in the URI is used as the credentials for the server.
+     */
+    public TaskOutputCache createCache(URI uri) {
+        if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme())) {
+            throw new IllegalArgumentException(String.format("Cannot use '%s' as a remote task output cache, as only HTTP and HTTPS are supported.", uri));
+        }
+        DefaultPasswordCredentials credentials = new DefaultPasswordCredentials();
+        String userInfo = uri.getUserInfo();
+        if (userInfo != null) {
+            int separator = userInfo.indexOf(':');
+            credentials.setUsername(separator < 0 ? userInfo : userInfo.substring(0, separator));
+            credentials.setPassword(separator < 0 ? null : userInfo.substring(separator + 1));
+        }
+        return new HttpTaskOutputCache(withoutUserInfo(uri), new HttpClientHelper(new DefaultHttpSettings(credentials)));
+    }
+
+    private static URI withoutUserInfo(URI uri) {
+        try {
+            return new URI(uri.getScheme(), null, uri.getHost(), uri.getPort(), uri.getPath(), uri.getQuery(), uri.getFragment());
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.externalresource.transport.http
+
+import org.gradle.api.internal.changedetection.TaskOutputCache
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.hash.HashValue
+import org.junit.Rule
+import spock.lang.Specification
+
+class HttpTaskOutputCacheTest extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+    @Rule final FileBackedHttpServer server = new FileBackedHttpServer()
+    final HashValue key = new HashValue("1234")
+
+    def setup() {
+        server.dir = tmpDir.file("server")
+    }
+
+    def "loads entry which has been stored"() {
+        def cache = new HttpTaskOutputCacheFactory().createCache(server.uri)
+        def content = null
+
+        when:
+        cache.store(key, { OutputStream outputStream -> outputStream.write("content".bytes) } as TaskOutputCache.Writer)
+
+        then:
+        cache.load(key, { content = it.text } as TaskOutputCache.Reader)
+        content == "content"
+        server.requests == ["PUT " + key.asCompactString(), "GET " + key.asCompactString()]
+    }
+
+    def "does not load entry which is not present on server"() {
+        def cache = new HttpTaskOutputCacheFactory().createCache(server.uri)
+        TaskOutputCache.Reader reader = Mock()
+
+        when:
+        def found = cache.load(key, reader)
+
+        then:
+        !found
+        0 * reader._
+    }
+
+    def "fails when server responds with an error"() {
+        def cache = new HttpTaskOutputCacheFactory().createCache(server.uri)
+        server.failWithStatus = 500
+
+        when:
+        cache.load(key, Mock(TaskOutputCache.Reader))
+
+        then:
+        IOException e = thrown()
+        e.message.startsWith("Could not GET '${server.uri}${key.asCompactString()}'. Received status code 500 from server")
+
+        when:
+        cache.store(key, Mock(TaskOutputCache.Writer))
+
+        then:
+        e = thrown()
+        e.message.startsWith("Could not PUT '${server.uri}${key.asCompactString()}'. Received status code 500 from server")
+    }
+
+    def "is disabled for the remainder of the build when server cannot be reached"() {
+        def cache = new HttpTaskOutputCacheFactory().createCache(server.uri)
+        TaskOutputCache.Reader reader = Mock()
+        TaskOutputCache.Writer writer = Mock()
+        server.stop()
+
+        when:
+        cache.load(key, reader)
+
+        then:
+        thrown(IOException)
+
+        when:
+        def found = cache.load(key, reader)
+        cache.store(key, writer)
+
+        then:
+        !found
+        0 * reader._
+        0 * writer._
+    }
+
+    def "does not accept URI which does not use HTTP"() {
+        when:
+        new HttpTaskOutputCacheFactory().createCache(new URI("file:/tmp/cache"))
+
+        then:
+        IllegalArgumentException e = thrown()
+        e.message == "Cannot use 'file:/tmp/cache' as a remote task output cache, as only HTTP and HTTPS are supported."
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.externalresource.transport.http
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpHandler
+import com.sun.net.httpserver.HttpServer
+import org.junit.rules.ExternalResource
+
+/**
+ * A tiny HTTP server which serves GET requests from, and stores PUT requests to, a directory. Can be used as a remote task output cache in tests.
+ */
+class FileBackedHttpServer extends ExternalResource {
+    private HttpServer server
+    final List<String> requests = Collections.synchronizedList([])
+    File dir
+    int failWithStatus
+
+    URI getUri() {
+        return new URI("http://localhost:${server.address.port}/cache/")
+    }
+
+    @Override
+    protected void before() {
+        start()
+    }
+
+    @Override
+    protected void after() {
+        stop()
+    }
+
+    void start() {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0)
+        server.createContext("/cache/", { HttpExchange exchange ->
+            try {
+                handle(exchange)
+            } finally {
+                exchange.close()
+            }
+        } as HttpHandler)
+        server.start()
+    }
+
+    void stop() {
+        server?.stop(0)
+        server = null
+    }
+
+    private void handle(HttpExchange exchange) {
+        def file = new File(dir, exchange.requestURI.path.substring("/cache/".length()))
+        requests << "${exchange.requestMethod} ${file.name}".toString()
+        if (failWithStatus) {
+            exchange.sendResponseHeaders(failWithStatus, -1)
+            return
+        }
+        switch (exchange.requestMethod) {
+            case "GET":
+                if (!file.file) {
+                    exchange.sendResponseHeaders(404, -1)
+                    return
+                }
+                exchange.sendResponseHeaders(200, file.length())
+                file.withInputStream { exchange.responseBody << it }
+                break
+            case "PUT":
+                file.parentFile.mkdirs()
+                file.withOutputStream { it << exchange.requestBody }
+                exchange.sendResponseHeaders(201, -1)
+                break
+            default:
+                exchange.sendResponseHeaders(405, -1)
+        }
+    }
+}
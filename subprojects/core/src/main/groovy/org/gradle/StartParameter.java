@@ -67,6 +67,8 @@ public class StartParameter extends LoggingConfiguration implements Serializable
     private boolean refreshDependencies;
     private boolean recompileScripts;
     private int parallelThreadCount;
+    private int maxForkedProcessCount;
+    private String maxForkedHeapSize;
 
     /**
      * Sets the project's cache location. Set to null to use the default location.
@@ -132,6 +134,8 @@ public class StartParameter extends LoggingConfiguration implements Serializable
         startParameter.offline = offline;
         startParameter.refreshDependencies = refreshDependencies;
         startParameter.parallelThreadCount = parallelThreadCount;
+        startParameter.maxForkedProcessCount = maxForkedProcessCount;
+        startParameter.maxForkedHeapSize = maxForkedHeapSize;
         return startParameter;
     }
 
@@ -155,6 +159,8 @@ public class StartParameter extends LoggingConfiguration implements Serializable
         startParameter.recompileScripts = recompileScripts;
         startParameter.refreshDependencies = refreshDependencies;
         startParameter.parallelThreadCount = parallelThreadCount;
+        startParameter.maxForkedProcessCount = maxForkedProcessCount;
+        startParameter.maxForkedHeapSize = maxForkedHeapSize;
         return startParameter;
     }
 
@@ -608,6 +614,43 @@ public class StartParameter extends LoggingConfiguration implements Serializable
         this.parallelThreadCount = parallelThreadCount;
     }
 
+    /**
+     * Returns the maximum number of processes that tasks may fork at the same time when building in parallel. Tasks which fork processes, such as tests and
+     * forking compilers, are not started while this limit would be exceeded.
+     *
+     *  0: No limit.
+     * >0: Use at most this many forked processes.
+     */
+    public int getMaxForkedProcessCount() {
+        return maxForkedProcessCount;
+    }
+
+    /**
+     * Specifies the maximum number of processes that tasks may fork at the same time when building in parallel.
+     *
+     * @see #getMaxForkedProcessCount()
+     */
+    public void setMaxForkedProcessCount(int maxForkedProcessCount) {
+        this.maxForkedProcessCount = maxForkedProcessCount;
+    }
+
+    /**
+     * Returns the maximum combined heap size of the processes that tasks may fork at the same time when building in parallel, for example {@code 4g}. Returns
+     * null when there is no limit.
+     */
+    public String getMaxForkedHeapSize() {
+        return maxForkedHeapSize;
+    }
+
+    /**
+     * Specifies the maximum combined heap size of the processes that tasks may fork at the same time when building in parallel. Use null for no limit.
+     *
+     * @see #getMaxForkedHeapSize()
+     */
+    public void setMaxForkedHeapSize(String maxForkedHeapSize) {
+        this.maxForkedHeapSize = maxForkedHeapSize;
+    }
+
     @Override
     public String toString() {
         return "StartParameter{"
@@ -19,11 +19,36 @@ package org.gradle.api.internal;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.TaskOutputs;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+
+import java.io.File;
+import java.util.Set;
 
 public interface TaskOutputsInternal extends TaskOutputs {
     Spec<? super TaskInternal> getUpToDateSpec();
 
+    /**
+     * Returns the spec which determines whether the outputs of this task can be cached. Is not satisfied when no predicates have been declared.
+     */
+    Spec<? super TaskInternal> getCacheSpec();
+
     FileCollection getPreviousFiles();
 
+    /**
+     * Returns the changes to the input files of this task which the current execution of the task should process.
+     */
+    IncrementalTaskInputs getInputChanges();
+
+    /**
+     * Records that the given output file or directory has been changed by the current execution of this task. When any changes are recorded, only
+     * the recorded files are snapshotted after the task has executed, so a task which records its changes must record every change it makes.
+     */
+    void recordChangedFile(File file);
+
+    /**
+     * Returns the output files and directories recorded as changed by the current execution of this task, or null when no changes have been recorded.
+     */
+    Set<File> getRecordedChanges();
+
     void setHistory(TaskExecutionHistory history);
 }
@@ -21,10 +21,10 @@ public class CacheBackedFileSnapshotRepository implements FileSnapshotRepository
     private final PersistentIndexedCache<Object, Object> cache;
 
     public CacheBackedFileSnapshotRepository(TaskArtifactStateCacheAccess cacheAccess) {
-        cache = cacheAccess.createCache("fileSnapshots", Object.class, Object.class);
+        cache = cacheAccess.createCache("fileSnapshots", Object.class, Object.class, new FileSnapshotSerializer());
     }
 
-    public Long add(FileCollectionSnapshot snapshot) {
+    public synchronized Long add(FileCollectionSnapshot snapshot) {
         Long id = (Long) cache.get("nextId");
         if (id == null) {
             id = 1L;
@@ -17,7 +17,6 @@ package org.gradle.api.internal.changedetection;
 
 import org.gradle.internal.Factory;
 import org.gradle.api.internal.TaskInternal;
-import org.gradle.cache.DefaultSerializer;
 import org.gradle.cache.PersistentIndexedCache;
 
 import java.io.File;
@@ -31,7 +30,7 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
     private final TaskArtifactStateCacheAccess cacheAccess;
     private final FileSnapshotRepository snapshotRepository;
     private final PersistentIndexedCache<String, TaskHistory> taskHistoryCache;
-    private final DefaultSerializer<TaskHistory> serializer = new DefaultSerializer<TaskHistory>();
+    private final TaskHistorySerializer serializer = new TaskHistorySerializer();
 
     public CacheBackedTaskHistoryRepository(TaskArtifactStateCacheAccess cacheAccess, FileSnapshotRepository snapshotRepository) {
         this.cacheAccess = cacheAccess;
@@ -82,15 +81,20 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         };
     }
 
-    private TaskHistory loadHistory(TaskInternal task) {
-        ClassLoader original = serializer.getClassLoader();
-        serializer.setClassLoader(task.getClass().getClassLoader());
-        try {
-            TaskHistory history = taskHistoryCache.get(task.getPath());
-            return history == null ? new TaskHistory() : history;
-        } finally {
-            serializer.setClassLoader(original);
-        }
+    private TaskHistory loadHistory(final TaskInternal task) {
+        // Hold the lock while the serializer is using the task's ClassLoader, as the serializer is shared by all threads
+        return cacheAccess.useCache(String.format("load history for %s", task), new Factory<TaskHistory>() {
+            public TaskHistory create() {
+                ClassLoader original = serializer.getClassLoader();
+                serializer.setClassLoader(task.getClass().getClassLoader());
+                try {
+                    TaskHistory history = taskHistoryCache.get(task.getPath());
+                    return history == null ? new TaskHistory() : history;
+                } finally {
+                    serializer.setClassLoader(original);
+                }
+            }
+        });
     }
 
     private static Set<String> outputFiles(TaskInternal task) {
@@ -126,14 +130,14 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         return bestMatch;
     }
 
-    private static class TaskHistory implements Serializable {
+    static class TaskHistory implements Serializable {
         private static final int MAX_HISTORY_ENTRIES = 3;
-        private final List<LazyTaskExecution> configurations = new ArrayList<LazyTaskExecution>();
+        final List<LazyTaskExecution> configurations = new ArrayList<LazyTaskExecution>();
     }
 
-    private static class LazyTaskExecution extends TaskExecution {
-        private Long inputFilesSnapshotId;
-        private Long outputFilesSnapshotId;
+    static class LazyTaskExecution extends TaskExecution {
+        Long inputFilesSnapshotId;
+        Long outputFilesSnapshotId;
         private transient FileSnapshotRepository snapshotRepository;
         private transient FileCollectionSnapshot inputFilesSnapshot;
         private transient FileCollectionSnapshot outputFilesSnapshot;
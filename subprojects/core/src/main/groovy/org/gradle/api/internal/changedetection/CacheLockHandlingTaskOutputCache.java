@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.util.hash.HashValue;
+
+import java.io.IOException;
+
+/**
+ * A {@link TaskOutputCache} which releases the task artifact cache lock while entries are loaded and stored, as this may take some time.
+ */
+public class CacheLockHandlingTaskOutputCache implements TaskOutputCache {
+    private final TaskOutputCache cache;
+    private final TaskArtifactStateCacheAccess cacheAccess;
+
+    public CacheLockHandlingTaskOutputCache(TaskOutputCache cache, TaskArtifactStateCacheAccess cacheAccess) {
+        this.cache = cache;
+        this.cacheAccess = cacheAccess;
+    }
+
+    public String getDisplayName() {
+        return cache.getDisplayName();
+    }
+
+    public boolean load(final HashValue key, final Reader reader) throws IOException {
+        try {
+            return cacheAccess.longRunningOperation(String.format("load %s from %s", key.asCompactString(), getDisplayName()), new Factory<Boolean>() {
+                public Boolean create() {
+                    try {
+                        return cache.load(key, reader);
+                    } catch (IOException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    }
+                }
+            });
+        } catch (UncheckedException e) {
+            throw unwrap(e);
+        }
+    }
+
+    public void store(final HashValue key, final Writer writer) throws IOException {
+        try {
+            cacheAccess.longRunningOperation(String.format("store %s in %s", key.asCompactString(), getDisplayName()), new Runnable() {
+                public void run() {
+                    try {
+                        cache.store(key, writer);
+                    } catch (IOException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    }
+                }
+            });
+        } catch (UncheckedException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static IOException unwrap(UncheckedException e) {
+        if (e.getCause() instanceof IOException) {
+            return (IOException) e.getCause();
+        }
+        throw e;
+    }
+}
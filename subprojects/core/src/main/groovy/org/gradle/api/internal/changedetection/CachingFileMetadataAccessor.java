@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.file.FileCollection;
+import org.gradle.internal.nativeplatform.filesystem.FileMetadata;
+import org.gradle.internal.nativeplatform.filesystem.FileMetadataAccessor;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * A {@link FileMetadataAccessor} which caches the metadata of files for the duration of a build, so that the metadata of a file which is used by several
+ * tasks, or which is checked several times by a task, is read once per build. Entries are discarded when the files they belong to are invalidated using
+ * the {@link FileCacheListener} methods, which happens before and after a task executes. When the cache grows beyond the maximum number of entries, all
+ * entries are discarded.
+ */
+public class CachingFileMetadataAccessor implements FileMetadataAccessor, FileCacheListener {
+    private final FileMetadataAccessor accessor;
+    private final int maxEntries;
+    private final TreeMap<String, FileMetadata> entries = new TreeMap<String, FileMetadata>();
+    // Incremented on each invalidation, so that metadata read before an invalidation is not added afterwards
+    private long generation;
+
+    public CachingFileMetadataAccessor(FileMetadataAccessor accessor, int maxEntries) {
+        this.accessor = accessor;
+        this.maxEntries = maxEntries;
+    }
+
+    public FileMetadata stat(File file) {
+        String path = file.getAbsolutePath();
+        long generation;
+        synchronized (this) {
+            FileMetadata metadata = entries.get(path);
+            if (metadata != null) {
+                return metadata;
+            }
+            generation = this.generation;
+        }
+
+        FileMetadata metadata = accessor.stat(file);
+        synchronized (this) {
+            if (generation == this.generation) {
+                if (entries.size() >= maxEntries) {
+                    entries.clear();
+                }
+                entries.put(path, metadata);
+            }
+        }
+        return metadata;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public void cacheable(FileCollection files) {
+    }
+
+    public void invalidate(FileCollection files) {
+        List<String> paths = new ArrayList<String>();
+        for (File file : files) {
+            paths.add(file.getAbsolutePath());
+        }
+        synchronized (this) {
+            generation++;
+            for (String path : paths) {
+                entries.remove(path);
+                // The paths beneath a directory are adjacent, as they share the same prefix
+                entries.subMap(path + File.separatorChar, path + (char) (File.separatorChar + 1)).clear();
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+}
@@ -16,44 +16,123 @@
 package org.gradle.api.internal.changedetection;
 
 import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.nativeplatform.filesystem.FallbackFileMetadataAccessor;
+import org.gradle.internal.nativeplatform.filesystem.FileMetadata;
+import org.gradle.internal.nativeplatform.filesystem.FileMetadataAccessor;
 import org.gradle.messaging.serialize.Serializer;
 
 import java.io.*;
 
 public class CachingHasher implements Hasher {
     private final PersistentIndexedCache<File, FileInfo> cache;
+    private final InMemoryFileHashCache inMemoryCache;
+    private final FileMetadataAccessor metadataAccessor;
     private final Hasher hasher;
-    private long timestamp;
+    private final String algorithm;
 
     public CachingHasher(Hasher hasher, TaskArtifactStateCacheAccess cacheAccess) {
+        this(hasher, cacheAccess, new InMemoryFileHashCache(0));
+    }
+
+    public CachingHasher(Hasher hasher, TaskArtifactStateCacheAccess cacheAccess, InMemoryFileHashCache inMemoryCache) {
+        this(hasher, cacheAccess, inMemoryCache, new FallbackFileMetadataAccessor());
+    }
+
+    /**
+     * @param inMemoryCache The in-memory cache to use in front of the persistent cache. Hashes are written to both caches.
+     * @param metadataAccessor The accessor to use to read the length and timestamp of files.
+     */
+    public CachingHasher(Hasher hasher, TaskArtifactStateCacheAccess cacheAccess, InMemoryFileHashCache inMemoryCache, FileMetadataAccessor metadataAccessor) {
         this.hasher = hasher;
+        this.inMemoryCache = inMemoryCache;
+        this.metadataAccessor = metadataAccessor;
+        algorithm = hasher.getAlgorithm();
         cache = cacheAccess.createCache("fileHashes", File.class, FileInfo.class, new FileInfoSerializer());
     }
 
     public byte[] hash(File file) {
-        FileInfo info = cache.get(file);
+        long mark = inMemoryCache.mark();
+        FileInfo info = inMemoryCache.getConfirmed(file, algorithm);
+        if (info != null) {
+            return info.hash;
+        }
 
-        long length = file.length();
-        timestamp = file.lastModified();
-        if (info != null && length == info.length && timestamp == info.timestamp) {
+        FileMetadata metadata = metadataAccessor.stat(file);
+        long length = metadata.getLength();
+        long timestamp = metadata.getLastModified();
+
+        info = inMemoryCache.getUnchanged(file, algorithm, length, timestamp);
+        if (info != null) {
+            inMemoryCache.put(file, info, mark);
             return info.hash;
         }
 
+        // A file which the watcher has reported as changed may have been changed without a change to its length or timestamp
+        if (!inMemoryCache.isChanged(file)) {
+            info = cache.get(file);
+            if (isUpToDate(info, length, timestamp)) {
+                inMemoryCache.put(file, info, mark);
+                return info.hash;
+            }
+        }
+
         byte[] hash = hasher.hash(file);
-        cache.put(file, new FileInfo(hash, length, timestamp));
+        info = new FileInfo(algorithm, hash, length, timestamp);
+        cache.put(file, info);
+        inMemoryCache.put(file, info, mark);
         return hash;
     }
 
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Returns true when the hash of the given file is cached, and the file has not changed since its hash was calculated.
+     */
+    public boolean isCached(File file) {
+        if (inMemoryCache.getConfirmed(file, algorithm) != null) {
+            return true;
+        }
+        FileMetadata metadata = metadataAccessor.stat(file);
+        long length = metadata.getLength();
+        long timestamp = metadata.getLastModified();
+        return inMemoryCache.getUnchanged(file, algorithm, length, timestamp) != null
+                || !inMemoryCache.isChanged(file) && isUpToDate(cache.get(file), length, timestamp);
+    }
+
+    private boolean isUpToDate(FileInfo info, long length, long timestamp) {
+        return info != null && length == info.length && timestamp == info.timestamp && algorithm.equals(info.algorithm);
+    }
+
     public static class FileInfo implements Serializable {
+        private final String algorithm;
         private final byte[] hash;
         private final long timestamp;
         private final long length;
 
-        public FileInfo(byte[] hash, long length, long timestamp) {
+        public FileInfo(String algorithm, byte[] hash, long length, long timestamp) {
+            this.algorithm = algorithm;
             this.hash = hash;
             this.length = length;
             this.timestamp = timestamp;
         }
+
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        public byte[] getHash() {
+            return hash;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public long getLength() {
+            return length;
+        }
     }
 
     private static class FileInfoSerializer implements Serializer<FileInfo> {
@@ -64,7 +143,14 @@ public class CachingHasher implements Hasher {
             input.readFully(hash);
             long timestamp = input.readLong();
             long length = input.readLong();
-            return new FileInfo(hash, length, timestamp);
+            String algorithm;
+            try {
+                algorithm = input.readUTF();
+            } catch (EOFException e) {
+                // Written before the algorithm was recorded, when all files were hashed using MD5
+                algorithm = "MD5";
+            }
+            return new FileInfo(algorithm, hash, length, timestamp);
         }
 
         public void write(OutputStream outstr, FileInfo value) throws Exception {
@@ -73,6 +159,7 @@ public class CachingHasher implements Hasher {
             output.write(value.hash);
             output.writeLong(value.timestamp);
             output.writeLong(value.length);
+            output.writeUTF(value.algorithm);
             output.flush();
         }
     }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.Action;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.api.tasks.incremental.InputFileDetails;
+import org.gradle.util.ChangeListener;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@link IncrementalTaskInputs} for a task whose only changes since its last execution are changes to its input files. Reports only the input
+ * files which have been added, modified or removed since the last execution.
+ */
+public class ChangesOnlyIncrementalTaskInputs implements IncrementalTaskInputs {
+    private final List<InputFileDetails> outOfDate = new ArrayList<InputFileDetails>();
+    private final List<InputFileDetails> removed = new ArrayList<InputFileDetails>();
+
+    public ChangesOnlyIncrementalTaskInputs(FileCollectionSnapshot currentInputFiles, FileCollectionSnapshot previousInputFiles) {
+        currentInputFiles.changesSince(previousInputFiles, new ChangeListener<File>() {
+            public void added(File file) {
+                outOfDate.add(new DefaultInputFileDetails(file, true, false, false));
+            }
+
+            public void changed(File file) {
+                outOfDate.add(new DefaultInputFileDetails(file, false, true, false));
+            }
+
+            public void removed(File file) {
+                removed.add(new DefaultInputFileDetails(file, false, false, true));
+            }
+        });
+    }
+
+    public boolean isIncremental() {
+        return true;
+    }
+
+    public void outOfDate(Action<? super InputFileDetails> outOfDateAction) {
+        for (InputFileDetails details : outOfDate) {
+            outOfDateAction.execute(details);
+        }
+    }
+
+    public void removed(Action<? super InputFileDetails> removedAction) {
+        for (InputFileDetails details : removed) {
+            removedAction.execute(details);
+        }
+    }
+}
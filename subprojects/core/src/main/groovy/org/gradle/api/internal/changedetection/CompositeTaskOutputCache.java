@@ -0,0 +1,72 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.util.hash.HashValue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link TaskOutputCache} which loads an entry from the first of a list of caches which contains it, and stores entries in all of them. A
+ * failure to use one of the caches is logged, and does not prevent the other caches from being used.
+ */
+public class CompositeTaskOutputCache implements TaskOutputCache {
+    private static final Logger LOGGER = Logging.getLogger(CompositeTaskOutputCache.class);
+    private final List<TaskOutputCache> caches;
+
+    public CompositeTaskOutputCache(List<? extends TaskOutputCache> caches) {
+        this.caches = new ArrayList<TaskOutputCache>(caches);
+    }
+
+    public String getDisplayName() {
+        StringBuilder builder = new StringBuilder();
+        for (TaskOutputCache cache : caches) {
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            builder.append(cache.getDisplayName());
+        }
+        return builder.toString();
+    }
+
+    public boolean load(HashValue key, Reader reader) throws IOException {
+        for (TaskOutputCache cache : caches) {
+            try {
+                if (cache.load(key, reader)) {
+                    return true;
+                }
+            } catch (Exception e) {
+                LOGGER.warn(String.format("Could not load entry %s from %s.", key.asCompactString(), cache.getDisplayName()), e);
+            }
+        }
+        return false;
+    }
+
+    public void store(HashValue key, Writer writer) throws IOException {
+        for (TaskOutputCache cache : caches) {
+            try {
+                cache.store(key, writer);
+            } catch (Exception e) {
+                LOGGER.warn(String.format("Could not store entry %s in %s.", key.asCompactString(), cache.getDisplayName()), e);
+            }
+        }
+    }
+}
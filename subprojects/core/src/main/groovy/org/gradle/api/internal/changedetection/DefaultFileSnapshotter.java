@@ -18,48 +18,335 @@ package org.gradle.api.internal.changedetection;
 
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.file.collections.SimpleFileCollection;
+import org.gradle.internal.Stoppable;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.internal.nativeplatform.filesystem.FallbackFileMetadataAccessor;
+import org.gradle.internal.nativeplatform.filesystem.FileMetadata;
+import org.gradle.internal.nativeplatform.filesystem.FileMetadataAccessor;
 import org.gradle.util.ChangeListener;
 import org.gradle.util.NoOpChangeListener;
 
 import java.io.File;
 import java.io.Serializable;
+import java.lang.reflect.Array;
 import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class DefaultFileSnapshotter implements FileSnapshotter {
+/**
+ * Takes a snapshot of the contents of a file collection. When created with an {@link ExecutorFactory}, the files of large collections are hashed in batches
+ * using several threads. The calling thread always walks the file collection and takes part in hashing the files, so the result is the same as when hashing
+ * the files using a single thread.
+ */
+public class DefaultFileSnapshotter implements FileSnapshotter, Stoppable {
+    private static final int BATCH_SIZE = 200;
+    // The coarsest resolution of file timestamps on the supported file systems, in milliseconds
+    private static final long TIMESTAMP_RESOLUTION = 2000;
     private final Hasher hasher;
+    private final InMemoryFileHashCache fileHashCache;
+    private final FileSnapshotStore snapshotStore;
+    private final FileMetadataAccessor metadataAccessor;
+    private final TaskArtifactStateCacheAccess cacheAccess;
+    private final ExecutorFactory executorFactory;
+    private final int maxWorkers;
+    private final Object lock = new Object();
+    private StoppableExecutor executor;
+    private int workers;
+    private boolean stopped;
 
     public DefaultFileSnapshotter(Hasher hasher) {
+        this(hasher, null, null, 0);
+    }
+
+    public DefaultFileSnapshotter(Hasher hasher, TaskArtifactStateCacheAccess cacheAccess, ExecutorFactory executorFactory, int maxWorkers) {
+        this(hasher, null, cacheAccess, executorFactory, maxWorkers);
+    }
+
+    public DefaultFileSnapshotter(Hasher hasher, InMemoryFileHashCache fileHashCache, TaskArtifactStateCacheAccess cacheAccess, ExecutorFactory executorFactory,
+                                  int maxWorkers) {
+        this(hasher, fileHashCache, null, null, cacheAccess, executorFactory, maxWorkers);
+    }
+
+    /**
+     * @param fileHashCache The cache to use to find the files which are known not to have changed since they were hashed. May be null.
+     * @param snapshotStore The store to share the snapshots of files with other snapshots taken during the build. May be null.
+     * @param metadataAccessor The accessor to use to read the type, length and timestamp of files. May be null.
+     * @param maxWorkers The maximum number of threads, in addition to the calling threads, which hash files at any time.
+     */
+    public DefaultFileSnapshotter(Hasher hasher, InMemoryFileHashCache fileHashCache, FileSnapshotStore snapshotStore, FileMetadataAccessor metadataAccessor,
+                                  TaskArtifactStateCacheAccess cacheAccess, ExecutorFactory executorFactory, int maxWorkers) {
         this.hasher = hasher;
+        this.fileHashCache = fileHashCache;
+        this.snapshotStore = snapshotStore;
+        this.metadataAccessor = metadataAccessor == null ? new FallbackFileMetadataAccessor() : metadataAccessor;
+        this.cacheAccess = cacheAccess;
+        this.executorFactory = executorFactory;
+        this.maxWorkers = maxWorkers;
     }
 
     public FileCollectionSnapshot emptySnapshot() {
-        return new FileCollectionSnapshotImpl(new HashMap<String, FileSnapshot>());
+        return new FileCollectionSnapshotImpl(new String[0], new FileSnapshot[0]);
     }
 
     public FileCollectionSnapshot snapshot(FileCollection sourceFiles) {
-        Map<String, FileSnapshot> snapshots = new HashMap<String, FileSnapshot>();
+        return snapshot(sourceFiles, null);
+    }
+
+    public FileCollectionSnapshot snapshot(FileCollection sourceFiles, FileCollectionSnapshot previous) {
+        List<File> files = new ArrayList<File>();
         for (File file : sourceFiles.getAsFileTree()) {
-            if (file.isFile()) {
-                snapshots.put(file.getAbsolutePath(), new FileHashSnapshot(hasher.hash(file)));
-            } else if (file.isDirectory()) {
-                snapshots.put(file.getAbsolutePath(), new DirSnapshot());
+            files.add(file);
+        }
+        return snapshot(files, previous instanceof FileCollectionSnapshotImpl ? (FileCollectionSnapshotImpl) previous : null);
+    }
+
+    public FileCollectionSnapshot update(FileCollectionSnapshot previous, Iterable<File> changedFiles) {
+        Set<String> changedPaths = new HashSet<String>();
+        List<File> files = new ArrayList<File>();
+        FileCollectionSnapshotImpl previousSnapshot = (FileCollectionSnapshotImpl) previous;
+        for (File file : changedFiles) {
+            if (changedPaths.add(file.getAbsolutePath())) {
+                if (metadataAccessor.stat(file).isDirectory() && previousSnapshot.get(file.getAbsolutePath()) != null) {
+                    files.add(file);
+                }
+                collectFiles(file, files);
+            }
+        }
+        return previousSnapshot.replace(changedPaths, snapshot(files, previousSnapshot));
+    }
+
+    /**
+     * Collects the given file, or the files and directories beneath the given directory, in the same way as a file tree.
+     */
+    private static void collectFiles(File file, List<File> files) {
+        if (file.isFile()) {
+            files.add(file);
+            return;
+        }
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    files.add(child);
+                }
+                collectFiles(child, files);
+            }
+        }
+    }
+
+    private FileCollectionSnapshotImpl snapshot(List<File> files, FileCollectionSnapshotImpl previous) {
+        FileSnapshot[] fileSnapshots = new FileSnapshot[files.size()];
+        if (maxWorkers > 0 && files.size() > BATCH_SIZE) {
+            snapshotInParallel(files, fileSnapshots, previous);
+        } else {
+            snapshot(files, fileSnapshots, previous, 0, files.size());
+        }
+
+        String[] paths = new String[files.size()];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = files.get(i).getAbsolutePath();
+        }
+        return FileCollectionSnapshotImpl.sort(paths, fileSnapshots);
+    }
+
+    private void snapshot(List<File> files, FileSnapshot[] fileSnapshots, FileCollectionSnapshotImpl previous, int start, int end) {
+        for (int i = start; i < end; i++) {
+            File file = files.get(i);
+            CachingHasher.FileInfo confirmed = fileHashCache == null ? null : fileHashCache.getConfirmed(file, hasher.getAlgorithm());
+            if (confirmed != null) {
+                fileSnapshots[i] = fileSnapshot(file, confirmed.getHash(), confirmed.getLength(), confirmed.getTimestamp());
+                continue;
+            }
+            FileMetadata metadata = metadataAccessor.stat(file);
+            if (metadata.isFile()) {
+                CachingHasher.FileInfo unchanged = fileHashCache == null ? null
+                        : fileHashCache.getUnchanged(file, hasher.getAlgorithm(), metadata.getLength(), metadata.getLastModified());
+                if (unchanged != null) {
+                    fileSnapshots[i] = fileSnapshot(file, unchanged.getHash(), unchanged.getLength(), unchanged.getTimestamp());
+                } else {
+                    fileSnapshots[i] = snapshotFile(file, metadata, previous);
+                }
+            } else if (metadata.isDirectory()) {
+                fileSnapshots[i] = new DirSnapshot();
             } else {
-                snapshots.put(file.getAbsolutePath(), new MissingFileSnapshot());
+                fileSnapshots[i] = new MissingFileSnapshot();
             }
         }
-        return new FileCollectionSnapshotImpl(snapshots);
     }
 
-    private interface FileSnapshot extends Serializable {
+    /**
+     * Reuses the snapshot taken earlier in the build, or the hash from the previous snapshot, when the length and last modified time of the file have not
+     * changed since that snapshot was taken, unless the file hash cache knows the file has changed.
+     */
+    private FileHashSnapshot snapshotFile(File file, FileMetadata metadata, FileCollectionSnapshotImpl previous) {
+        long length = metadata.getLength();
+        long lastModified = metadata.getLastModified();
+        if (fileHashCache != null && fileHashCache.isChanged(file)) {
+            // The file may have been changed without a change to its length or last modified time
+            return fileSnapshot(file, hasher.hash(file), length, lastModified);
+        }
+        if (snapshotStore != null) {
+            FileHashSnapshot shared = snapshotStore.get(file.getAbsolutePath(), length, lastModified);
+            if (shared != null) {
+                return shared;
+            }
+        }
+        if (previous != null) {
+            FileSnapshot previousSnapshot = previous.get(file.getAbsolutePath());
+            if (previousSnapshot instanceof FileHashSnapshot && ((FileHashSnapshot) previousSnapshot).isUnchanged(length, lastModified)) {
+                return (FileHashSnapshot) previousSnapshot;
+            }
+        }
+        return fileSnapshot(file, hasher.hash(file), length, lastModified);
+    }
+
+    private FileHashSnapshot fileSnapshot(File file, byte[] hash, long length, long lastModified) {
+        if (lastModified > System.currentTimeMillis() - TIMESTAMP_RESOLUTION) {
+            // The file may be changed again without a change to its timestamp, so do not reuse this hash
+            return new FileHashSnapshot(hash);
+        }
+        if (snapshotStore != null) {
+            return snapshotStore.add(file.getAbsolutePath(), hash, length, lastModified);
+        }
+        return new FileHashSnapshot(hash, length, lastModified);
+    }
+
+    private void snapshotInParallel(List<File> files, FileSnapshot[] fileSnapshots, FileCollectionSnapshotImpl previous) {
+        final Batches batches = new Batches(files, fileSnapshots, previous);
+        // The hasher uses the cache from the worker threads, so release the cache lock for other threads while hashing
+        cacheAccess.concurrentOperation("snapshot files", new Runnable() {
+            public void run() {
+                startWorkers(batches, batches.batchCount - 1);
+                batches.run();
+                batches.waitForCompletion();
+            }
+        });
+    }
+
+    private void startWorkers(final Batches batches, int requested) {
+        synchronized (lock) {
+            if (stopped) {
+                return;
+            }
+            while (workers < maxWorkers && requested > 0) {
+                if (executor == null) {
+                    executor = executorFactory.create("file snapshotter");
+                }
+                workers++;
+                requested--;
+                executor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            batches.run();
+                        } finally {
+                            synchronized (lock) {
+                                workers--;
+                            }
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Stops the worker threads. Any snapshot in progress is completed by the calling thread.
+     */
+    public void stop() {
+        StoppableExecutor executor;
+        synchronized (lock) {
+            stopped = true;
+            executor = this.executor;
+            this.executor = null;
+        }
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+
+    /**
+     * The batches of files to snapshot. Each thread which runs this claims batches until there are none left.
+     */
+    private class Batches implements Runnable {
+        private final List<File> files;
+        private final FileSnapshot[] fileSnapshots;
+        private final FileCollectionSnapshotImpl previous;
+        private final int batchCount;
+        private final AtomicInteger nextBatch = new AtomicInteger();
+        private int active;
+        private Throwable failure;
+
+        public Batches(List<File> files, FileSnapshot[] fileSnapshots, FileCollectionSnapshotImpl previous) {
+            this.files = files;
+            this.fileSnapshots = fileSnapshots;
+            this.previous = previous;
+            batchCount = (files.size() + BATCH_SIZE - 1) / BATCH_SIZE;
+        }
+
+        public void run() {
+            synchronized (this) {
+                active++;
+            }
+            try {
+                int batch;
+                while ((batch = nextBatch.getAndIncrement()) < batchCount) {
+                    int start = batch * BATCH_SIZE;
+                    snapshot(files, fileSnapshots, previous, start, Math.min(start + BATCH_SIZE, files.size()));
+                }
+            } catch (Throwable t) {
+                nextBatch.set(batchCount);
+                synchronized (this) {
+                    if (failure == null) {
+                        failure = t;
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    active--;
+                    notifyAll();
+                }
+            }
+        }
+
+        public synchronized void waitForCompletion() {
+            // A thread claims batches only while active, so once no threads are active, every batch has been completed
+            while (active > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+            if (failure != null) {
+                throw UncheckedException.throwAsUncheckedException(failure);
+            }
+        }
+    }
+
+    interface FileSnapshot extends Serializable {
         boolean isUpToDate(FileSnapshot snapshot);
     }
 
-    private static class FileHashSnapshot implements FileSnapshot {
-        private final byte[] hash;
+    static class FileHashSnapshot implements FileSnapshot {
+        final byte[] hash;
+        // The state of the file when it was hashed. Is not persisted, so is only available for snapshots taken by this process
+        private final transient long length;
+        private final transient long lastModified;
 
         public FileHashSnapshot(byte[] hash) {
+            this(hash, -1, -1);
+        }
+
+        public FileHashSnapshot(byte[] hash, long length, long lastModified) {
             this.hash = hash;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        boolean isUnchanged(long length, long lastModified) {
+            return this.length >= 0 && this.length == length && this.lastModified == lastModified;
         }
 
         public boolean isUpToDate(FileSnapshot snapshot) {
@@ -77,66 +364,167 @@ public class DefaultFileSnapshotter implements FileSnapshotter {
         }
     }
 
-    private static class DirSnapshot implements FileSnapshot {
+    static class DirSnapshot implements FileSnapshot {
         public boolean isUpToDate(FileSnapshot snapshot) {
             return snapshot instanceof DirSnapshot;
         }
     }
 
-    private static class MissingFileSnapshot implements FileSnapshot {
+    static class MissingFileSnapshot implements FileSnapshot {
         public boolean isUpToDate(FileSnapshot snapshot) {
             return snapshot instanceof MissingFileSnapshot;
         }
     }
 
-    private static class FileCollectionSnapshotImpl implements FileCollectionSnapshot {
-        private final Map<String, FileSnapshot> snapshots;
+    /**
+     * A snapshot of a collection of files, held as arrays of paths and file snapshots, sorted by path. This allows snapshots to be compared by
+     * walking both snapshots in order, without creating an object for each file which has not changed.
+     */
+    static class FileCollectionSnapshotImpl implements FileCollectionSnapshot {
+        final String[] paths;
+        final FileSnapshot[] snapshots;
 
-        public FileCollectionSnapshotImpl(Map<String, FileSnapshot> snapshots) {
+        /**
+         * Creates a snapshot from paths which are already sorted and unique.
+         */
+        FileCollectionSnapshotImpl(String[] paths, FileSnapshot[] snapshots) {
+            this.paths = paths;
             this.snapshots = snapshots;
         }
 
-        public FileCollection getFiles() {
-            List<File> files = new ArrayList<File>();
-            for (Map.Entry<String, FileSnapshot> entry : snapshots.entrySet()) {
-                if (entry.getValue() instanceof FileHashSnapshot) {
-                    files.add(new File(entry.getKey()));
+        static FileCollectionSnapshotImpl sort(Map<String, FileSnapshot> snapshots) {
+            return sort(snapshots.keySet().toArray(new String[snapshots.size()]), snapshots.values().toArray(new FileSnapshot[snapshots.size()]));
+        }
+
+        /**
+         * Creates a snapshot from paths in any order. When a path occurs more than once, the last snapshot for the path is used.
+         */
+        static FileCollectionSnapshotImpl sort(final String[] paths, FileSnapshot[] snapshots) {
+            Integer[] order = new Integer[paths.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            // The sort is stable, so duplicate paths remain in their original order
+            Arrays.sort(order, new Comparator<Integer>() {
+                public int compare(Integer left, Integer right) {
+                    return paths[left].compareTo(paths[right]);
+                }
+            });
+
+            String[] sortedPaths = new String[paths.length];
+            FileSnapshot[] sortedSnapshots = new FileSnapshot[paths.length];
+            int count = 0;
+            for (Integer index : order) {
+                if (count > 0 && sortedPaths[count - 1].equals(paths[index])) {
+                    count--;
                 }
+                sortedPaths[count] = paths[index];
+                sortedSnapshots[count] = snapshots[index];
+                count++;
             }
-            return new SimpleFileCollection(files);
+            return new FileCollectionSnapshotImpl(trim(sortedPaths, count), trim(sortedSnapshots, count));
         }
 
-        public void changesSince(FileCollectionSnapshot oldSnapshot, final ChangeListener<File> listener) {
-            FileCollectionSnapshotImpl other = (FileCollectionSnapshotImpl) oldSnapshot;
-            diff(snapshots, other.snapshots, new ChangeListener<Map.Entry<String, FileSnapshot>>() {
-                public void added(Map.Entry<String, FileSnapshot> element) {
-                    listener.added(new File(element.getKey()));
+        private static <T> T[] trim(T[] array, int length) {
+            if (array.length == length) {
+                return array;
+            }
+            T[] trimmed = (T[]) Array.newInstance(array.getClass().getComponentType(), length);
+            System.arraycopy(array, 0, trimmed, 0, length);
+            return trimmed;
+        }
+
+        /**
+         * Returns the snapshot of the file with the given path, or null if this snapshot does not contain the file.
+         */
+        FileSnapshot get(String path) {
+            int index = Arrays.binarySearch(paths, path);
+            return index >= 0 ? snapshots[index] : null;
+        }
+
+        /**
+         * Returns a copy of this snapshot, in which the files with the given paths, and the files beneath them, are replaced by the files of the given
+         * snapshot. The replacement files must all have one of the given paths, or be beneath one of them.
+         */
+        FileCollectionSnapshotImpl replace(Collection<String> replacedPaths, FileCollectionSnapshotImpl replacement) {
+            boolean[] replaced = new boolean[paths.length];
+            for (String path : replacedPaths) {
+                int index = Arrays.binarySearch(paths, path);
+                if (index >= 0) {
+                    replaced[index] = true;
+                }
+                // The paths beneath a directory are adjacent, as they share the same prefix
+                String prefix = path + File.separator;
+                index = Arrays.binarySearch(paths, prefix);
+                for (index = index >= 0 ? index : -index - 1; index < paths.length && paths[index].startsWith(prefix); index++) {
+                    replaced[index] = true;
                 }
+            }
 
-                public void removed(Map.Entry<String, FileSnapshot> element) {
-                    listener.removed(new File(element.getKey()));
+            String[] mergedPaths = new String[paths.length + replacement.paths.length];
+            FileSnapshot[] mergedSnapshots = new FileSnapshot[mergedPaths.length];
+            int count = 0;
+            int j = 0;
+            for (int i = 0; i < paths.length; i++) {
+                if (replaced[i]) {
+                    continue;
+                }
+                while (j < replacement.paths.length && replacement.paths[j].compareTo(paths[i]) < 0) {
+                    mergedPaths[count] = replacement.paths[j];
+                    mergedSnapshots[count++] = replacement.snapshots[j++];
                 }
+                mergedPaths[count] = paths[i];
+                mergedSnapshots[count++] = snapshots[i];
+            }
+            while (j < replacement.paths.length) {
+                mergedPaths[count] = replacement.paths[j];
+                mergedSnapshots[count++] = replacement.snapshots[j++];
+            }
+            return new FileCollectionSnapshotImpl(trim(mergedPaths, count), trim(mergedSnapshots, count));
+        }
 
-                public void changed(Map.Entry<String, FileSnapshot> element) {
-                    listener.changed(new File(element.getKey()));
+        public FileCollection getFiles() {
+            List<File> files = new ArrayList<File>();
+            for (int i = 0; i < paths.length; i++) {
+                if (snapshots[i] instanceof FileHashSnapshot) {
+                    files.add(new File(paths[i]));
                 }
-            });
+            }
+            return new SimpleFileCollection(files);
         }
 
-        private void diff(Map<String, FileSnapshot> snapshots, Map<String, FileSnapshot> oldSnapshots,
-                          ChangeListener<Map.Entry<String, FileSnapshot>> listener) {
-            Map<String, FileSnapshot> otherSnapshots = new HashMap<String, FileSnapshot>(oldSnapshots);
-            for (Map.Entry<String, FileSnapshot> entry : snapshots.entrySet()) {
-                FileSnapshot otherFile = otherSnapshots.remove(entry.getKey());
-                if (otherFile == null) {
-                    listener.added(entry);
-                } else if (!entry.getValue().isUpToDate(otherFile)) {
-                    listener.changed(entry);
+        public void changesSince(FileCollectionSnapshot oldSnapshot, final ChangeListener<File> listener) {
+            FileCollectionSnapshotImpl other = (FileCollectionSnapshotImpl) oldSnapshot;
+            int i = 0;
+            int j = 0;
+            while (i < paths.length || j < other.paths.length) {
+                int diff = compare(other, i, j);
+                if (diff < 0) {
+                    listener.added(new File(paths[i++]));
+                } else if (diff > 0) {
+                    listener.removed(new File(other.paths[j++]));
+                } else {
+                    if (!snapshots[i].isUpToDate(other.snapshots[j])) {
+                        listener.changed(new File(paths[i]));
+                    }
+                    i++;
+                    j++;
                 }
             }
-            for (Map.Entry<String, FileSnapshot> entry : otherSnapshots.entrySet()) {
-                listener.removed(entry);
+        }
+
+        /**
+         * Compares the path at index i of this snapshot with the path at index j of the other snapshot, where a path beyond the end of a snapshot
+         * is considered to come after every path.
+         */
+        private int compare(FileCollectionSnapshotImpl other, int i, int j) {
+            if (i == paths.length) {
+                return 1;
+            }
+            if (j == other.paths.length) {
+                return -1;
             }
+            return paths[i].compareTo(other.paths[j]);
         }
 
         public Diff changesSince(final FileCollectionSnapshot oldSnapshot) {
@@ -146,13 +534,81 @@ public class DefaultFileSnapshotter implements FileSnapshotter {
                     return applyTo(snapshot, new NoOpChangeListener<Merge>());
                 }
 
-                public FileCollectionSnapshot applyTo(FileCollectionSnapshot snapshot, final ChangeListener<Merge> listener) {
-                    FileCollectionSnapshotImpl target = (FileCollectionSnapshotImpl) snapshot;
-                    final Map<String, FileSnapshot> newSnapshots = new HashMap<String, FileSnapshot>(target.snapshots);
-                    diff(snapshots, other.snapshots, new MapMergeChangeListener<String, FileSnapshot>(listener, newSnapshots));
-                    return new FileCollectionSnapshotImpl(newSnapshots);
+                public FileCollectionSnapshot applyTo(FileCollectionSnapshot snapshot, ChangeListener<Merge> listener) {
+                    return merge(other, (FileCollectionSnapshotImpl) snapshot, listener);
                 }
             };
         }
+
+        /**
+         * Applies the changes between the old snapshot and this snapshot to the target snapshot, walking all three snapshots in path order.
+         */
+        private FileCollectionSnapshotImpl merge(FileCollectionSnapshotImpl old, FileCollectionSnapshotImpl target, ChangeListener<Merge> listener) {
+            String[] mergedPaths = new String[target.paths.length + paths.length];
+            FileSnapshot[] mergedSnapshots = new FileSnapshot[mergedPaths.length];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < paths.length || j < old.paths.length) {
+                int diff = compare(old, i, j);
+                String path = diff > 0 ? old.paths[j] : paths[i];
+
+                // Copy the target entries which come before the next path in this diff
+                while (k < target.paths.length && target.paths[k].compareTo(path) < 0) {
+                    mergedPaths[count] = target.paths[k];
+                    mergedSnapshots[count++] = target.snapshots[k++];
+                }
+                FileSnapshot targetSnapshot = null;
+                if (k < target.paths.length && target.paths[k].equals(path)) {
+                    targetSnapshot = target.snapshots[k++];
+                }
+
+                FileSnapshot mergedSnapshot = targetSnapshot;
+                if (diff < 0) {
+                    DefaultMerge merge = new DefaultMerge();
+                    listener.added(merge);
+                    if (!merge.ignore) {
+                        mergedSnapshot = snapshots[i];
+                    }
+                    i++;
+                } else if (diff > 0) {
+                    DefaultMerge merge = new DefaultMerge();
+                    listener.removed(merge);
+                    if (!merge.ignore) {
+                        mergedSnapshot = null;
+                    }
+                    j++;
+                } else {
+                    if (!snapshots[i].isUpToDate(old.snapshots[j])) {
+                        DefaultMerge merge = new DefaultMerge();
+                        listener.changed(merge);
+                        if (!merge.ignore) {
+                            mergedSnapshot = snapshots[i];
+                        }
+                    }
+                    i++;
+                    j++;
+                }
+
+                if (mergedSnapshot != null) {
+                    mergedPaths[count] = path;
+                    mergedSnapshots[count++] = mergedSnapshot;
+                }
+            }
+            while (k < target.paths.length) {
+                mergedPaths[count] = target.paths[k];
+                mergedSnapshots[count++] = target.snapshots[k++];
+            }
+            return new FileCollectionSnapshotImpl(trim(mergedPaths, count), trim(mergedSnapshots, count));
+        }
+    }
+
+    private static class DefaultMerge implements FileCollectionSnapshot.Merge {
+        private boolean ignore;
+
+        public void ignore() {
+            ignore = true;
+        }
     }
 }
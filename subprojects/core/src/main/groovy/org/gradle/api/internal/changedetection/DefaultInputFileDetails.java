@@ -0,0 +1,56 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.tasks.incremental.InputFileDetails;
+
+import java.io.File;
+
+public class DefaultInputFileDetails implements InputFileDetails {
+    private final File file;
+    private final boolean added;
+    private final boolean modified;
+    private final boolean removed;
+
+    public DefaultInputFileDetails(File file, boolean added, boolean modified, boolean removed) {
+        this.file = file;
+        this.added = added;
+        this.modified = modified;
+        this.removed = removed;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public boolean isAdded() {
+        return added;
+    }
+
+    public boolean isModified() {
+        return modified;
+    }
+
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+}
@@ -36,7 +36,7 @@ public class DefaultTaskArtifactStateCacheAccess implements TaskArtifactStateCac
         this.cacheRepository = cacheRepository;
     }
 
-    private PersistentCache getCache() {
+    private synchronized PersistentCache getCache() {
         if (cache == null) {
             cache = cacheRepository
                     .cache("taskArtifacts")
@@ -54,7 +54,7 @@ public class DefaultTaskArtifactStateCacheAccess implements TaskArtifactStateCac
                 return getCache().createCache(cacheFile(cacheName), keyType, valueType);
             }
         };
-        return new LazyCreationProxy<PersistentIndexedCache>(PersistentIndexedCache.class, factory).getSource();
+        return new LockingIndexedCache<K, V>(cacheName, new LazyCreationProxy<PersistentIndexedCache>(PersistentIndexedCache.class, factory).getSource());
     }
 
     public <K, V> PersistentIndexedCache<K, V> createCache(final String cacheName, final Class<K> keyType, final Class<V> valueType, final Serializer<V> valueSerializer) {
@@ -63,8 +63,7 @@ public class DefaultTaskArtifactStateCacheAccess implements TaskArtifactStateCac
                 return getCache().createCache(cacheFile(cacheName), keyType, valueSerializer);
             }
         };
-        return new LazyCreationProxy<PersistentIndexedCache>(PersistentIndexedCache.class, factory).getSource();
-
+        return new LockingIndexedCache<K, V>(cacheName, new LazyCreationProxy<PersistentIndexedCache>(PersistentIndexedCache.class, factory).getSource());
     }
 
     private File cacheFile(String cacheName) {
@@ -82,4 +81,46 @@ public class DefaultTaskArtifactStateCacheAccess implements TaskArtifactStateCac
     public void longRunningOperation(String operationDisplayName, Runnable action) {
         getCache().longRunningOperation(operationDisplayName, action);
     }
+
+    public void concurrentOperation(String operationDisplayName, Runnable action) {
+        getCache().concurrentOperation(operationDisplayName, action);
+    }
+
+    /**
+     * Holds the cache lock for each individual operation, rather than requiring the caller to hold it.
+     */
+    private class LockingIndexedCache<K, V> implements PersistentIndexedCache<K, V> {
+        private final String cacheName;
+        private final PersistentIndexedCache<K, V> delegate;
+
+        public LockingIndexedCache(String cacheName, PersistentIndexedCache<K, V> delegate) {
+            this.cacheName = cacheName;
+            this.delegate = delegate;
+        }
+
+        public V get(final K key) {
+            // Lookups can run at the same time as each other, such as when hashing files using several threads
+            return getCache().readCache(String.format("read %s", cacheName), new Factory<V>() {
+                public V create() {
+                    return delegate.get(key);
+                }
+            });
+        }
+
+        public void put(final K key, final V value) {
+            useCache(String.format("write %s", cacheName), new Runnable() {
+                public void run() {
+                    delegate.put(key, value);
+                }
+            });
+        }
+
+        public void remove(final K key) {
+            useCache(String.format("write %s", cacheName), new Runnable() {
+                public void run() {
+                    delegate.remove(key);
+                }
+            });
+        }
+    }
 }
\ No newline at end of file
@@ -22,6 +22,8 @@ import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.file.collections.SimpleFileCollection;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.util.hash.HashValue;
 
 import java.util.ArrayList;
 import java.util.Formatter;
@@ -34,14 +36,23 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
     private static final Logger LOGGER = Logging.getLogger(DefaultTaskArtifactStateRepository.class);
     private final TaskHistoryRepository taskHistoryRepository;
     private final UpToDateRule upToDateRule;
+    private final UpToDateRule inputFilesRule;
+    private final TaskCacheKeyCalculator cacheKeyCalculator;
 
     public DefaultTaskArtifactStateRepository(TaskHistoryRepository taskHistoryRepository, FileSnapshotter inputFilesSnapshotter, FileSnapshotter outputFilesSnapshotter) {
+        this(taskHistoryRepository, inputFilesSnapshotter, outputFilesSnapshotter, new TaskCacheKeyCalculator());
+    }
+
+    public DefaultTaskArtifactStateRepository(TaskHistoryRepository taskHistoryRepository, FileSnapshotter inputFilesSnapshotter, FileSnapshotter outputFilesSnapshotter,
+                                              TaskCacheKeyCalculator cacheKeyCalculator) {
         this.taskHistoryRepository = taskHistoryRepository;
+        this.cacheKeyCalculator = cacheKeyCalculator;
+        // The input files are checked separately, so that changes to only the input files can be processed incrementally by the task
         upToDateRule = new CompositeUpToDateRule(
                 new TaskTypeChangedUpToDateRule(),
                 new InputPropertiesChangedUpToDateRule(),
-                new OutputFilesChangedUpToDateRule(outputFilesSnapshotter),
-                new InputFilesChangedUpToDateRule(inputFilesSnapshotter));
+                new OutputFilesChangedUpToDateRule(outputFilesSnapshotter));
+        inputFilesRule = new InputFilesChangedUpToDateRule(inputFilesSnapshotter);
     }
 
     public TaskArtifactState getStateFor(final TaskInternal task) {
@@ -53,7 +64,11 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
 
         boolean snapshot();
 
+        HashValue getCacheKey();
+
         FileCollection getPreviousOutputFiles();
+
+        IncrementalTaskInputs getInputChanges();
     }
 
     private static class HistoricExecution implements TaskExecutionState {
@@ -61,14 +76,23 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
         private final TaskExecution lastExecution;
         private boolean upToDate;
         private final UpToDateRule rule;
+        private final UpToDateRule inputFilesRule;
+        private final TaskCacheKeyCalculator cacheKeyCalculator;
         private TaskExecution thisExecution;
         private UpToDateRule.TaskUpToDateState upToDateState;
+        private UpToDateRule.TaskUpToDateState inputFilesState;
+        private Boolean otherChanges;
+        private HashValue cacheKey;
+        private boolean cacheKeyCalculated;
 
-        public HistoricExecution(TaskInternal task, TaskHistoryRepository.History history, UpToDateRule rule) {
+        public HistoricExecution(TaskInternal task, TaskHistoryRepository.History history, UpToDateRule rule, UpToDateRule inputFilesRule,
+                                 TaskCacheKeyCalculator cacheKeyCalculator) {
             this.task = task;
             this.lastExecution = history.getPreviousExecution();
             this.thisExecution = history.getCurrentExecution();
             this.rule = rule;
+            this.inputFilesRule = inputFilesRule;
+            this.cacheKeyCalculator = cacheKeyCalculator;
         }
 
         private void calcCurrentState() {
@@ -78,6 +102,19 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
 
             // Calculate initial state - note this is potentially expensive
             upToDateState = rule.create(task, lastExecution, thisExecution);
+            inputFilesState = inputFilesRule.create(task, lastExecution, thisExecution);
+        }
+
+        /**
+         * Returns true if anything other than the input files of the task has changed since its last execution.
+         */
+        private boolean hasOtherChanges() {
+            if (otherChanges == null) {
+                List<String> messages = new ArrayList<String>();
+                upToDateState.checkUpToDate(messages);
+                otherChanges = !messages.isEmpty();
+            }
+            return otherChanges;
         }
 
         public FileCollection getPreviousOutputFiles() {
@@ -94,6 +131,10 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
 
             List<String> messages = new ArrayList<String>();
             upToDateState.checkUpToDate(messages);
+            otherChanges = !messages.isEmpty();
+            if (messages.isEmpty()) {
+                inputFilesState.checkUpToDate(messages);
+            }
 
             if (messages.isEmpty()) {
                 upToDate = true;
@@ -101,6 +142,15 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
             return messages;
         }
 
+        public IncrementalTaskInputs getInputChanges() {
+            calcCurrentState();
+
+            if (lastExecution == null || lastExecution.getInputFilesSnapshot() == null || hasOtherChanges()) {
+                return new RebuildIncrementalTaskInputs(task);
+            }
+            return new ChangesOnlyIncrementalTaskInputs(thisExecution.getInputFilesSnapshot(), lastExecution.getInputFilesSnapshot());
+        }
+
         public boolean snapshot() {
             calcCurrentState();
             
@@ -109,8 +159,19 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
             }
 
             upToDateState.snapshotAfterTask();
+            inputFilesState.snapshotAfterTask();
             return true;
         }
+
+        public HashValue getCacheKey() {
+            calcCurrentState();
+
+            if (!cacheKeyCalculated) {
+                cacheKey = cacheKeyCalculator.calculate(task, thisExecution);
+                cacheKeyCalculated = true;
+            }
+            return cacheKey;
+        }
     }
 
     private class TaskArtifactStateImpl implements TaskArtifactState, TaskExecutionHistory {
@@ -149,12 +210,20 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
             return execution.getPreviousOutputFiles();
         }
 
+        public IncrementalTaskInputs getInputChanges() {
+            return execution.getInputChanges();
+        }
+
         public TaskExecutionHistory getExecutionHistory() {
             return this;
         }
 
+        public HashValue getCacheKey() {
+            return execution.getCacheKey();
+        }
+
         public TaskExecutionState getExecution() {
-            return new HistoricExecution(task, history, upToDateRule);
+            return new HistoricExecution(task, history, upToDateRule, inputFilesRule, cacheKeyCalculator);
         }
 
         public void afterTask() {
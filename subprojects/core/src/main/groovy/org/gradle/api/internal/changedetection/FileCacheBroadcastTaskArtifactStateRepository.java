@@ -15,8 +15,13 @@
  */
 package org.gradle.api.internal.changedetection;
 
+import groovy.lang.Closure;
+import org.gradle.api.Action;
+import org.gradle.api.Task;
 import org.gradle.api.internal.TaskExecutionHistory;
 import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.tasks.ImplementationAwareTaskAction;
+import org.gradle.util.hash.HashValue;
 
 public class FileCacheBroadcastTaskArtifactStateRepository implements TaskArtifactStateRepository {
     private final TaskArtifactStateRepository repository;
@@ -30,6 +35,8 @@ public class FileCacheBroadcastTaskArtifactStateRepository implements TaskArtifa
     public TaskArtifactState getStateFor(final TaskInternal task) {
         final TaskArtifactState state = repository.getStateFor(task);
         return new TaskArtifactState() {
+            private boolean executing;
+
             public boolean isUpToDate() {
                 listener.cacheable(task.getInputs().getFiles());
                 listener.cacheable(task.getOutputs().getFiles());
@@ -37,24 +44,60 @@ public class FileCacheBroadcastTaskArtifactStateRepository implements TaskArtifa
                 return state.isUpToDate();
             }
 
+            public HashValue getCacheKey() {
+                return state.getCacheKey();
+            }
+
             public void beforeTask() {
-                if (task.getOutputs().getHasOutput()) {
-                    listener.invalidate(task.getOutputs().getFiles());
-                } else {
-                    listener.invalidateAll();
-                }
+                invalidateOutputs();
+                executing = true;
                 state.beforeTask();
             }
 
             public void afterTask() {
+                // The task actions may have changed the outputs since they were invalidated
+                executing = false;
+                invalidateChangedFiles();
                 listener.cacheable(task.getOutputs().getFiles());
                 state.afterTask();
             }
 
             public void finished() {
+                if (executing) {
+                    // The task failed, and may have changed its outputs
+                    executing = false;
+                    invalidateChangedFiles();
+                }
                 state.finished();
             }
 
+            private void invalidateChangedFiles() {
+                // Closures added to the task by a build script may write files which the task does not declare as outputs
+                if (hasClosureActions()) {
+                    listener.invalidateAll();
+                } else {
+                    invalidateOutputs();
+                }
+            }
+
+            private boolean hasClosureActions() {
+                for (Action<? super Task> action : task.getActions()) {
+                    if (action instanceof ImplementationAwareTaskAction
+                            && Closure.class.isAssignableFrom(((ImplementationAwareTaskAction) action).getImplementationClass())) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            private void invalidateOutputs() {
+                if (task.getOutputs().getHasOutput()) {
+                    listener.invalidate(task.getOutputs().getFiles());
+                } else {
+                    listener.invalidateAll();
+                }
+            }
+
             public TaskExecutionHistory getExecutionHistory() {
                 return state.getExecutionHistory();
             }
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.cache.DefaultSerializer;
+import org.gradle.internal.io.ClassLoaderObjectInputStream;
+import org.gradle.messaging.serialize.Serializer;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Serializes the values of the file snapshot cache. Snapshots of file collections are written with their paths in sorted order, and each path is written as
+ * the length of the prefix it shares with the previous path followed by the remaining characters. Each file is written as a type tag followed by its hash,
+ * if any. The length of the hashes is written once per snapshot.
+ *
+ * <p>Other values are written using Java serialization. Values written using Java serialization by earlier versions, without a tag, can still be read.
+ * Snapshots in these values are read using legacy classes which have the same fields as the classes which wrote them, and which are then replaced by the
+ * current snapshot classes.</p>
+ */
+public class FileSnapshotSerializer implements Serializer<Object> {
+    private static final int JAVA_SERIALIZATION_MAGIC = 0xAC;
+    private static final byte SERIALIZED_OBJECT = 1;
+    private static final byte LONG = 2;
+    private static final byte FILE_COLLECTION_SNAPSHOT = 3;
+    private static final byte OUTPUT_FILES_SNAPSHOT = 4;
+
+    private static final byte MISSING_FILE = 0;
+    private static final byte DIRECTORY = 1;
+    private static final byte FILE = 2;
+    private static final byte FILE_WITH_HASH_LENGTH = 3;
+
+    private static final Map<String, Class<?>> LEGACY_TYPES = new HashMap<String, Class<?>>();
+
+    static {
+        LEGACY_TYPES.put(DefaultFileSnapshotter.class.getName() + "$FileCollectionSnapshotImpl", LegacyFileCollectionSnapshot.class);
+        LEGACY_TYPES.put(DefaultFileSnapshotter.class.getName() + "$FileHashSnapshot", LegacyFileHashSnapshot.class);
+        LEGACY_TYPES.put(DefaultFileSnapshotter.class.getName() + "$DirSnapshot", LegacyDirSnapshot.class);
+        LEGACY_TYPES.put(DefaultFileSnapshotter.class.getName() + "$MissingFileSnapshot", LegacyMissingFileSnapshot.class);
+        LEGACY_TYPES.put(OutputFilesSnapshotter.class.getName() + "$OutputFilesSnapshot", OutputFilesSnapshotter.OutputFilesSnapshot.class);
+    }
+
+    private final Serializer<Object> objectSerializer = new DefaultSerializer<Object>(getClass().getClassLoader());
+
+    public Object read(InputStream instr) throws Exception {
+        PushbackInputStream pushbackInput = new PushbackInputStream(instr, 1);
+        int tag = pushbackInput.read();
+        if (tag == JAVA_SERIALIZATION_MAGIC) {
+            pushbackInput.unread(tag);
+            return readLegacyValue(pushbackInput);
+        }
+
+        DataInputStream input = new DataInputStream(pushbackInput);
+        switch (tag) {
+            case SERIALIZED_OBJECT:
+                return objectSerializer.read(input);
+            case LONG:
+                return input.readLong();
+            case FILE_COLLECTION_SNAPSHOT:
+                return readFileCollectionSnapshot(input);
+            case OUTPUT_FILES_SNAPSHOT:
+                return readOutputFilesSnapshot(input);
+            default:
+                throw new StreamCorruptedException(String.format("Unexpected file snapshot tag %s.", tag));
+        }
+    }
+
+    public void write(OutputStream outstr, Object value) throws Exception {
+        DataOutputStream output = new DataOutputStream(outstr);
+        if (value instanceof Long) {
+            output.writeByte(LONG);
+            output.writeLong((Long) value);
+        } else if (value instanceof DefaultFileSnapshotter.FileCollectionSnapshotImpl) {
+            output.writeByte(FILE_COLLECTION_SNAPSHOT);
+            writeFileCollectionSnapshot(output, (DefaultFileSnapshotter.FileCollectionSnapshotImpl) value);
+        } else if (value instanceof OutputFilesSnapshotter.OutputFilesSnapshot
+                && ((OutputFilesSnapshotter.OutputFilesSnapshot) value).filesSnapshot instanceof DefaultFileSnapshotter.FileCollectionSnapshotImpl) {
+            output.writeByte(OUTPUT_FILES_SNAPSHOT);
+            writeOutputFilesSnapshot(output, (OutputFilesSnapshotter.OutputFilesSnapshot) value);
+        } else {
+            output.writeByte(SERIALIZED_OBJECT);
+            output.flush();
+            objectSerializer.write(outstr, value);
+        }
+        output.flush();
+    }
+
+    private Object readLegacyValue(InputStream instr) throws Exception {
+        try {
+            return new LegacySnapshotInputStream(instr, getClass().getClassLoader()).readObject();
+        } catch (StreamCorruptedException e) {
+            return null;
+        }
+    }
+
+    private OutputFilesSnapshotter.OutputFilesSnapshot readOutputFilesSnapshot(DataInputStream input) throws IOException {
+        int count = readSmallInt(input);
+        Map<String, Long> rootFileIds = new HashMap<String, Long>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            String path = input.readUTF();
+            rootFileIds.put(path, input.readBoolean() ? input.readLong() : null);
+        }
+        return new OutputFilesSnapshotter.OutputFilesSnapshot(rootFileIds, readFileCollectionSnapshot(input));
+    }
+
+    private void writeOutputFilesSnapshot(DataOutputStream output, OutputFilesSnapshotter.OutputFilesSnapshot snapshot) throws IOException {
+        writeSmallInt(output, snapshot.rootFileIds.size());
+        for (Map.Entry<String, Long> entry : snapshot.rootFileIds.entrySet()) {
+            output.writeUTF(entry.getKey());
+            output.writeBoolean(entry.getValue() != null);
+            if (entry.getValue() != null) {
+                output.writeLong(entry.getValue());
+            }
+        }
+        writeFileCollectionSnapshot(output, (DefaultFileSnapshotter.FileCollectionSnapshotImpl) snapshot.filesSnapshot);
+    }
+
+    private DefaultFileSnapshotter.FileCollectionSnapshotImpl readFileCollectionSnapshot(DataInputStream input) throws IOException {
+        int count = readSmallInt(input);
+        int hashLength = readSmallInt(input);
+        String[] paths = new String[count];
+        DefaultFileSnapshotter.FileSnapshot[] snapshots = new DefaultFileSnapshotter.FileSnapshot[count];
+        String previousPath = "";
+        for (int i = 0; i < count; i++) {
+            int prefixLength = readSmallInt(input);
+            String path = previousPath.substring(0, prefixLength) + input.readUTF();
+            byte type = input.readByte();
+            switch (type) {
+                case MISSING_FILE:
+                    snapshots[i] = new DefaultFileSnapshotter.MissingFileSnapshot();
+                    break;
+                case DIRECTORY:
+                    snapshots[i] = new DefaultFileSnapshotter.DirSnapshot();
+                    break;
+                case FILE:
+                    snapshots[i] = new DefaultFileSnapshotter.FileHashSnapshot(readHash(input, hashLength));
+                    break;
+                case FILE_WITH_HASH_LENGTH:
+                    snapshots[i] = new DefaultFileSnapshotter.FileHashSnapshot(readHash(input, readSmallInt(input)));
+                    break;
+                default:
+                    throw new StreamCorruptedException(String.format("Unexpected file type tag %s.", type));
+            }
+            paths[i] = path;
+            previousPath = path;
+        }
+        // The paths were written in sorted order
+        return new DefaultFileSnapshotter.FileCollectionSnapshotImpl(paths, snapshots);
+    }
+
+    private void writeFileCollectionSnapshot(DataOutputStream output, DefaultFileSnapshotter.FileCollectionSnapshotImpl snapshot) throws IOException {
+        int hashLength = 0;
+        for (DefaultFileSnapshotter.FileSnapshot fileSnapshot : snapshot.snapshots) {
+            if (fileSnapshot instanceof DefaultFileSnapshotter.FileHashSnapshot) {
+                hashLength = ((DefaultFileSnapshotter.FileHashSnapshot) fileSnapshot).hash.length;
+                break;
+            }
+        }
+
+        writeSmallInt(output, snapshot.paths.length);
+        writeSmallInt(output, hashLength);
+        String previousPath = "";
+        for (int i = 0; i < snapshot.paths.length; i++) {
+            String path = snapshot.paths[i];
+            int prefixLength = commonPrefixLength(previousPath, path);
+            writeSmallInt(output, prefixLength);
+            output.writeUTF(path.substring(prefixLength));
+            DefaultFileSnapshotter.FileSnapshot fileSnapshot = snapshot.snapshots[i];
+            if (fileSnapshot instanceof DefaultFileSnapshotter.FileHashSnapshot) {
+                byte[] hash = ((DefaultFileSnapshotter.FileHashSnapshot) fileSnapshot).hash;
+                if (hash.length == hashLength) {
+                    output.writeByte(FILE);
+                } else {
+                    output.writeByte(FILE_WITH_HASH_LENGTH);
+                    writeSmallInt(output, hash.length);
+                }
+                output.write(hash);
+            } else if (fileSnapshot instanceof DefaultFileSnapshotter.DirSnapshot) {
+                output.writeByte(DIRECTORY);
+            } else {
+                output.writeByte(MISSING_FILE);
+            }
+            previousPath = path;
+        }
+    }
+
+    private static byte[] readHash(DataInputStream input, int length) throws IOException {
+        byte[] hash = new byte[length];
+        input.readFully(hash);
+        return hash;
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int maxLength = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < maxLength && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Writes a non-negative int using 7 bits per byte, so that small values take a single byte.
+     */
+    static void writeSmallInt(DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    static int readSmallInt(DataInputStream input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Malformed int.");
+    }
+
+    /**
+     * Reads the snapshot classes of earlier versions as the legacy classes with the same fields, regardless of their serial version.
+     */
+    private static class LegacySnapshotInputStream extends ClassLoaderObjectInputStream {
+        public LegacySnapshotInputStream(InputStream in, ClassLoader loader) throws IOException {
+            super(in, loader);
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            ObjectStreamClass descriptor = super.readClassDescriptor();
+            Class<?> legacyType = LEGACY_TYPES.get(descriptor.getName());
+            return legacyType == null ? descriptor : ObjectStreamClass.lookup(legacyType);
+        }
+    }
+
+    private static class LegacyFileCollectionSnapshot implements Serializable {
+        private Map<String, DefaultFileSnapshotter.FileSnapshot> snapshots;
+
+        private Object readResolve() {
+            return DefaultFileSnapshotter.FileCollectionSnapshotImpl.sort(snapshots);
+        }
+    }
+
+    private static class LegacyFileHashSnapshot implements Serializable {
+        private byte[] hash;
+
+        private Object readResolve() {
+            return new DefaultFileSnapshotter.FileHashSnapshot(hash);
+        }
+    }
+
+    private static class LegacyDirSnapshot implements Serializable {
+        private Object readResolve() {
+            return new DefaultFileSnapshotter.DirSnapshot();
+        }
+    }
+
+    private static class LegacyMissingFileSnapshot implements Serializable {
+        private Object readResolve() {
+            return new DefaultFileSnapshotter.MissingFileSnapshot();
+        }
+    }
+}
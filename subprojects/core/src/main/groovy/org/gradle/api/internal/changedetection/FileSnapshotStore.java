@@ -0,0 +1,116 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.file.FileCollection;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * The snapshots of the files used by the tasks of a build. A file which is an input or output of several tasks is hashed once per build, and the
+ * snapshots of these tasks share a single snapshot of the file. A stored snapshot is used only when the length and last modified time of the file are the
+ * same as when the snapshot was taken. Hashes are also shared by content, so that files with the same content share a single hash, and snapshots which
+ * share a hash are compared without comparing the hash.
+ *
+ * <p>Entries are discarded when the files they belong to are invalidated using the {@link FileCacheListener} methods.</p>
+ */
+public class FileSnapshotStore implements FileCacheListener {
+    private final TreeMap<String, DefaultFileSnapshotter.FileHashSnapshot> snapshots = new TreeMap<String, DefaultFileSnapshotter.FileHashSnapshot>();
+    private final Map<HashKey, HashKey> hashes = new HashMap<HashKey, HashKey>();
+
+    /**
+     * Returns the snapshot of the file with the given path, if the file had the given length and last modified time when the snapshot was taken.
+     *
+     * @return The snapshot, or null if there is no such snapshot.
+     */
+    synchronized DefaultFileSnapshotter.FileHashSnapshot get(String path, long length, long lastModified) {
+        DefaultFileSnapshotter.FileHashSnapshot snapshot = snapshots.get(path);
+        return snapshot != null && snapshot.isUnchanged(length, lastModified) ? snapshot : null;
+    }
+
+    /**
+     * Adds the hash of the file with the given path, calculated when the file had the given length and last modified time. Should only be used for files
+     * which cannot be changed without a change to their length or last modified time.
+     *
+     * @return The snapshot to use for the file. This is the snapshot added by another thread for the same state of the file, if any.
+     */
+    synchronized DefaultFileSnapshotter.FileHashSnapshot add(String path, byte[] hash, long length, long lastModified) {
+        DefaultFileSnapshotter.FileHashSnapshot snapshot = get(path, length, lastModified);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        snapshot = new DefaultFileSnapshotter.FileHashSnapshot(intern(hash), length, lastModified);
+        snapshots.put(path, snapshot);
+        return snapshot;
+    }
+
+    private byte[] intern(byte[] hash) {
+        HashKey key = new HashKey(hash);
+        HashKey existing = hashes.get(key);
+        if (existing != null) {
+            return existing.hash;
+        }
+        hashes.put(key, key);
+        return hash;
+    }
+
+    synchronized int size() {
+        return snapshots.size();
+    }
+
+    public void cacheable(FileCollection files) {
+    }
+
+    public void invalidate(FileCollection files) {
+        List<String> paths = new ArrayList<String>();
+        for (File file : files) {
+            paths.add(file.getAbsolutePath());
+        }
+        synchronized (this) {
+            for (String path : paths) {
+                snapshots.remove(path);
+                // The paths beneath a directory are adjacent, as they share the same prefix
+                snapshots.subMap(path + File.separatorChar, path + (char) (File.separatorChar + 1)).clear();
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        snapshots.clear();
+    }
+
+    private static class HashKey {
+        private final byte[] hash;
+        private final int hashCode;
+
+        private HashKey(byte[] hash) {
+            this.hash = hash;
+            hashCode = Arrays.hashCode(hash);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof HashKey && Arrays.equals(hash, ((HashKey) obj).hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -17,6 +17,8 @@ package org.gradle.api.internal.changedetection;
 
 import org.gradle.api.file.FileCollection;
 
+import java.io.File;
+
 public interface FileSnapshotter {
     /**
      * Creates an empty snapshot, which changes can be later merged into.
@@ -32,4 +34,24 @@ public interface FileSnapshotter {
      * @return The snapshot.
      */
     FileCollectionSnapshot snapshot(FileCollection files);
+
+    /**
+     * Creates a snapshot of the contents of the given collection, reusing the hashes of the files from the given snapshot which have not changed
+     * since it was taken. The previous snapshot should have been taken by this process.
+     *
+     * @param files The files to snapshot
+     * @param previous A snapshot previously created by this snapshotter.
+     * @return The snapshot.
+     */
+    FileCollectionSnapshot snapshot(FileCollection files, FileCollectionSnapshot previous);
+
+    /**
+     * Creates a snapshot from the given snapshot, in which only the given files and directories are snapshotted again. All other files are assumed
+     * to be unchanged.
+     *
+     * @param previous A snapshot previously created by this snapshotter.
+     * @param changedFiles The files and directories which may have changed since the previous snapshot was taken.
+     * @return The snapshot.
+     */
+    FileCollectionSnapshot update(FileCollectionSnapshot previous, Iterable<File> changedFiles);
 }
@@ -19,4 +19,9 @@ import java.io.File;
 
 public interface Hasher {
     byte[] hash(File file);
+
+    /**
+     * Returns the name of the algorithm used to calculate hashes. Hashes calculated using different algorithms cannot be compared.
+     */
+    String getAlgorithm();
 }
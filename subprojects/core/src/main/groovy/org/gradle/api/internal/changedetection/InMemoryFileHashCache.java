@@ -0,0 +1,267 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.file.FileCollection;
+import org.gradle.internal.Stoppable;
+import org.gradle.internal.nativeplatform.filesystem.FallbackFileWatcher;
+import org.gradle.internal.nativeplatform.filesystem.FileWatcher;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * An in-memory cache of file hashes, which is shared by all builds in a process, so that a long running process does not need to read the hashes of files
+ * from the persistent cache for each build. Holds a bounded number of entries, discarding the least recently used entries first.
+ *
+ * <p>An entry is used only when the length and timestamp of the file are the same as those of the entry, the same as for entries from the persistent cache.
+ * In addition, entries are discarded when the files they belong to are invalidated using the {@link FileCacheListener} methods.</p>
+ *
+ * <p>When created with a {@link FileWatcher}, the directories containing the cached files are watched. An entry which was added while its directory was
+ * being watched is confirmed, and is used without checking the length and timestamp of the file until the watcher reports a change to the file. A file
+ * which the watcher reports as changed is remembered until its hash is added again, so that its hash is calculated again rather than read from the
+ * persistent cache, and a change which does not alter the length or timestamp of the file is still noticed. When the watcher may have missed some changes
+ * to a directory, or when everything is invalidated, the entries are no longer confirmed, and are checked against the length and timestamp of the file
+ * again. A directory is no longer watched once there are no entries for the files in it.</p>
+ */
+public class InMemoryFileHashCache implements FileCacheListener, Stoppable {
+    private final Map<File, CachingHasher.FileInfo> entries;
+    // The files which have an entry, by absolute path
+    private final TreeMap<String, File> paths = new TreeMap<String, File>();
+    // The files whose entry is used without checking the file
+    private final Set<File> confirmedFiles = new HashSet<File>();
+    // The files which the watcher has reported as changed since their entry was added, with the sequence number of the latest change
+    private final Map<File, Long> changedFiles;
+    // The directories which contain the files which have an entry
+    private final Map<File, WatchedDir> dirs = new HashMap<File, WatchedDir>();
+    private final FileWatcher watcher;
+    // Incremented when a directory starts being watched, and for each change reported by the watcher
+    private long sequence;
+    private final FileWatcher.Listener changeListener = new FileWatcher.Listener() {
+        public void entryChanged(File file) {
+            if (dirs.containsKey(file.getParentFile())) {
+                changedFiles.put(file, ++sequence);
+                discard(file);
+            }
+        }
+
+        public void directoryChanged(File dir) {
+            WatchedDir watchedDir = dirs.get(dir);
+            if (watchedDir == null) {
+                return;
+            }
+            // The directory may no longer be watched, so register it again when the next entry is added
+            watchedDir.registered = false;
+            for (File file : filesBeneath(dir.getAbsolutePath())) {
+                if (dir.equals(file.getParentFile())) {
+                    confirmedFiles.remove(file);
+                }
+            }
+        }
+    };
+
+    public InMemoryFileHashCache(int maxEntries) {
+        this(maxEntries, new FallbackFileWatcher());
+    }
+
+    public InMemoryFileHashCache(final int maxEntries, FileWatcher watcher) {
+        this.watcher = watcher;
+        entries = new LinkedHashMap<File, CachingHasher.FileInfo>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<File, CachingHasher.FileInfo> eldest) {
+                if (size() > maxEntries) {
+                    removed(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+        changedFiles = new LinkedHashMap<File, Long>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<File, Long> eldest) {
+                // A file which is forgotten here is checked against the length and timestamp of its persistent entry instead
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized CachingHasher.FileInfo get(File file) {
+        return entries.get(file);
+    }
+
+    /**
+     * Returns a mark which is passed to {@link #put(File, CachingHasher.FileInfo, long)}, to find out whether the file has been watched since before its
+     * state was read. Should be called before reading the state of the file.
+     */
+    public synchronized long mark() {
+        return sequence;
+    }
+
+    /**
+     * Returns the entry for the given file when the watcher has confirmed that the file has not changed since the entry was added, so that the file
+     * does not need to be checked.
+     *
+     * @return The entry, or null when there is no confirmed entry for the file.
+     */
+    public synchronized CachingHasher.FileInfo getConfirmed(File file, String algorithm) {
+        watcher.pollChanges(changeListener);
+        if (!confirmedFiles.contains(file)) {
+            return null;
+        }
+        CachingHasher.FileInfo info = entries.get(file);
+        return info.getAlgorithm().equals(algorithm) ? info : null;
+    }
+
+    /**
+     * Returns the entry for the given file when the file has not changed since the entry was added.
+     *
+     * @return The entry, or null when there is no entry for the file which is known to be up-to-date.
+     */
+    public synchronized CachingHasher.FileInfo getUnchanged(File file, String algorithm, long length, long timestamp) {
+        CachingHasher.FileInfo info = entries.get(file);
+        if (info == null || !info.getAlgorithm().equals(algorithm) || info.getLength() != length || info.getTimestamp() != timestamp) {
+            return null;
+        }
+        return info;
+    }
+
+    /**
+     * Returns true when the watcher has reported a change to the given file since its entry was added. The entry in the persistent cache for such a file
+     * should not be used, as the change may not have altered the length or timestamp of the file.
+     */
+    public synchronized boolean isChanged(File file) {
+        return changedFiles.containsKey(file);
+    }
+
+    /**
+     * Adds an entry which is not confirmed by the watcher.
+     */
+    public synchronized void put(File file, CachingHasher.FileInfo info) {
+        add(file, info);
+        confirmedFiles.remove(file);
+    }
+
+    /**
+     * Adds an entry for a file whose state was read after {@link #mark()} returned the given mark. The entry is confirmed when the directory of the file
+     * was being watched at the time of the mark, and no change to the file has been reported since. The entry is discarded when a change to the file has
+     * been reported since the mark, as the state of the file may have been read before the change.
+     */
+    public synchronized void put(File file, CachingHasher.FileInfo info, long mark) {
+        watcher.pollChanges(changeListener);
+        Long changed = changedFiles.get(file);
+        if (changed != null && changed > mark) {
+            discard(file);
+            return;
+        }
+        changedFiles.remove(file);
+        WatchedDir watchedDir = add(file, info);
+        if (entries.containsKey(file) && watchedDir.registered && watchedDir.since <= mark) {
+            confirmedFiles.add(file);
+        } else {
+            confirmedFiles.remove(file);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private WatchedDir add(File file, CachingHasher.FileInfo info) {
+        File dir = file.getParentFile();
+        WatchedDir watchedDir = dirs.get(dir);
+        if (watchedDir == null) {
+            watchedDir = new WatchedDir();
+            dirs.put(dir, watchedDir);
+        }
+        if (!watchedDir.registered && dir != null && watcher.watch(dir)) {
+            watchedDir.registered = true;
+            watchedDir.since = ++sequence;
+        }
+        if (!entries.containsKey(file)) {
+            // Count the entry before adding it, so that the directory is not removed when the eldest entry is discarded to make room
+            watchedDir.entries++;
+            paths.put(file.getAbsolutePath(), file);
+        }
+        entries.put(file, info);
+        return watchedDir;
+    }
+
+    public void cacheable(FileCollection files) {
+    }
+
+    public void invalidate(FileCollection files) {
+        List<String> roots = new ArrayList<String>();
+        for (File file : files) {
+            roots.add(file.getAbsolutePath());
+        }
+        synchronized (this) {
+            for (String path : roots) {
+                File file = paths.get(path);
+                if (file != null) {
+                    discard(file);
+                }
+                for (File child : filesBeneath(path)) {
+                    discard(child);
+                }
+            }
+        }
+    }
+
+    private List<File> filesBeneath(String path) {
+        // The paths beneath a directory are adjacent, as they share the same prefix
+        SortedMap<String, File> children = paths.subMap(path + File.separatorChar, path + (char) (File.separatorChar + 1));
+        return new ArrayList<File>(children.values());
+    }
+
+    private void discard(File file) {
+        if (entries.remove(file) != null) {
+            removed(file);
+        }
+    }
+
+    private void removed(File file) {
+        paths.remove(file.getAbsolutePath());
+        confirmedFiles.remove(file);
+        File dir = file.getParentFile();
+        WatchedDir watchedDir = dirs.get(dir);
+        watchedDir.entries--;
+        if (watchedDir.entries == 0) {
+            dirs.remove(dir);
+            watcher.unwatch(dir);
+        }
+    }
+
+    /**
+     * Keeps the entries, as they are checked against the length and timestamp of the file before use, but no longer uses them without this check, as
+     * the watcher may not yet have reported changes made during the build.
+     */
+    public synchronized void invalidateAll() {
+        confirmedFiles.clear();
+    }
+
+    public synchronized void stop() {
+        watcher.stop();
+    }
+
+    private static class WatchedDir {
+        // The number of entries for the files in the directory
+        int entries;
+        boolean registered;
+        // The sequence number at which the directory was registered with the watcher
+        long since;
+    }
+}
@@ -33,6 +33,7 @@ public class InputFilesChangedUpToDateRule implements UpToDateRule {
 
     public TaskUpToDateState create(final TaskInternal task, final TaskExecution previousExecution, final TaskExecution currentExecution) {
         final FileCollectionSnapshot inputFilesSnapshot = inputFilesSnapshotter.snapshot(task.getInputs().getFiles());
+        currentExecution.setInputFilesSnapshot(inputFilesSnapshot);
 
         return new TaskUpToDateState() {
             public void checkUpToDate(final Collection<String> messages) {
@@ -56,7 +57,6 @@ public class InputFilesChangedUpToDateRule implements UpToDateRule {
             }
 
             public void snapshotAfterTask() {
-                currentExecution.setInputFilesSnapshot(inputFilesSnapshot);
             }
         };
     }
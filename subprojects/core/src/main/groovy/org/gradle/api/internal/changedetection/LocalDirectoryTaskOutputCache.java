@@ -0,0 +1,153 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.util.hash.HashValue;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A {@link TaskOutputCache} which stores each entry as a file in a local directory. Entries are shared between builds and processes. When
+ * the total size of the entries grows beyond the given maximum, the least recently used entries are discarded.
+ */
+public class LocalDirectoryTaskOutputCache implements TaskOutputCache {
+    private static final Logger LOGGER = Logging.getLogger(LocalDirectoryTaskOutputCache.class);
+    private static final String ENTRY_SUFFIX = ".zip";
+    private final File dir;
+    private final long maxSize;
+    private final Object lock = new Object();
+    private long size = -1;
+
+    public LocalDirectoryTaskOutputCache(File dir, long maxSize) {
+        this.dir = dir;
+        this.maxSize = maxSize;
+    }
+
+    public String getDisplayName() {
+        return String.format("local task output cache (%s)", dir);
+    }
+
+    public boolean load(HashValue key, Reader reader) throws IOException {
+        File file = getFile(key);
+        InputStream inputStream;
+        try {
+            inputStream = new FileInputStream(file);
+        } catch (FileNotFoundException e) {
+            return false;
+        }
+        try {
+            reader.readFrom(new BufferedInputStream(inputStream));
+        } finally {
+            inputStream.close();
+        }
+        // Record the access, so that eviction discards the least recently used entries first
+        file.setLastModified(System.currentTimeMillis());
+        return true;
+    }
+
+    public void store(HashValue key, Writer writer) throws IOException {
+        dir.mkdirs();
+        File tempFile = File.createTempFile("entry", ".tmp", dir);
+        try {
+            OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(tempFile));
+            try {
+                writer.writeTo(outputStream);
+            } finally {
+                outputStream.close();
+            }
+            File file = getFile(key);
+            // Another build may have stored the same entry concurrently. The entries are equivalent, so either one can be kept
+            file.delete();
+            if (!tempFile.renameTo(file) && !file.isFile()) {
+                throw new IOException(String.format("Could not move task output cache entry to '%s'.", file));
+            }
+            entryAdded(file.length());
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    private File getFile(HashValue key) {
+        return new File(dir, key.asCompactString() + ENTRY_SUFFIX);
+    }
+
+    private void entryAdded(long entrySize) {
+        synchronized (lock) {
+            if (size < 0) {
+                size = cleanup();
+                return;
+            }
+            size += entrySize;
+            if (size > maxSize) {
+                size = cleanup();
+            }
+        }
+    }
+
+    /**
+     * Discards the least recently used entries until the total size of the entries falls below the maximum size, leaving some space for new
+     * entries.
+     *
+     * @return the total size of the remaining entries.
+     */
+    private long cleanup() {
+        File[] entries = dir.listFiles(new FileFilter() {
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(ENTRY_SUFFIX);
+            }
+        });
+        if (entries == null) {
+            return 0;
+        }
+        long total = 0;
+        final long[] lastModified = new long[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            total += entries[i].length();
+            lastModified[i] = entries[i].lastModified();
+        }
+        if (total <= maxSize) {
+            return total;
+        }
+
+        Integer[] order = new Integer[entries.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer left, Integer right) {
+                return lastModified[left] < lastModified[right] ? -1 : lastModified[left] == lastModified[right] ? 0 : 1;
+            }
+        });
+
+        long targetSize = maxSize / 10 * 8;
+        int removed = 0;
+        for (int i = 0; i < order.length && total > targetSize; i++) {
+            File entry = entries[order[i]];
+            long length = entry.length();
+            if (entry.delete()) {
+                total -= length;
+                removed++;
+            }
+        }
+        LOGGER.info("Removed {} entries from {}.", removed, getDisplayName());
+        return total;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.util.hash.MurmurHash3;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link Hasher} which uses the 128-bit MurmurHash3 hash, reading the file through a direct buffer. This is several times faster than MD5 for large files.
+ *
+ * <p>The file is not memory mapped, as a mapped file cannot be deleted on Windows until the mapping is garbage collected.</p>
+ */
+public class Murmur3Hasher implements Hasher {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+    };
+
+    public byte[] hash(File file) {
+        MurmurHash3 hash = new MurmurHash3();
+        ByteBuffer buffer = buffers.get();
+        try {
+            FileInputStream instr = new FileInputStream(file);
+            try {
+                FileChannel channel = instr.getChannel();
+                buffer.clear();
+                while (channel.read(buffer) >= 0) {
+                    buffer.flip();
+                    hash.update(buffer);
+                    buffer.clear();
+                }
+            } finally {
+                instr.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return hash.digest().asByteArray();
+    }
+
+    public String getAlgorithm() {
+        return "MURMUR3-128";
+    }
+}
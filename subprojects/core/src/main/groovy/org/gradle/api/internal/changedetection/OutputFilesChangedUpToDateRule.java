@@ -20,6 +20,7 @@ import org.gradle.util.ChangeListener;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.Set;
 
 /**
  * A rule which marks a task out-of-date when its output files change.
@@ -77,7 +78,11 @@ public class OutputFilesChangedUpToDateRule implements UpToDateRule {
                                 // Update any files which were change since the task was last executed
                             }
                         });
-                FileCollectionSnapshot outputFilesAfter = outputFilesSnapshotter.snapshot(task.getOutputs().getFiles());
+                // Only the output files which have changed during execution need to be hashed again
+                Set<File> changedOutputFiles = task.getOutputs().getRecordedChanges();
+                FileCollectionSnapshot outputFilesAfter = changedOutputFiles == null
+                        ? outputFilesSnapshotter.snapshot(task.getOutputs().getFiles(), outputFilesBefore)
+                        : outputFilesSnapshotter.update(outputFilesBefore, changedOutputFiles);
                 currentExecution.setOutputFilesSnapshot(outputFilesAfter.changesSince(outputFilesBefore).applyTo(newOutputFiles));
             }
         };
@@ -19,12 +19,16 @@ package org.gradle.api.internal.changedetection;
 import org.gradle.api.file.FileCollection;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.internal.id.IdGenerator;
+import org.gradle.internal.nativeplatform.filesystem.FallbackFileMetadataAccessor;
+import org.gradle.internal.nativeplatform.filesystem.FileMetadataAccessor;
 import org.gradle.util.ChangeListener;
 import org.gradle.util.DiffUtil;
 import org.gradle.util.NoOpChangeListener;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -42,11 +46,18 @@ public class OutputFilesSnapshotter implements FileSnapshotter {
     private final FileSnapshotter snapshotter;
     private final IdGenerator<Long> idGenerator;
     private final PersistentIndexedCache<String, Long> dirIdentiferCache;
+    private final FileMetadataAccessor metadataAccessor;
 
     public OutputFilesSnapshotter(FileSnapshotter snapshotter, IdGenerator<Long> idGenerator,
                                   TaskArtifactStateCacheAccess cacheAccess) {
+        this(snapshotter, idGenerator, cacheAccess, new FallbackFileMetadataAccessor());
+    }
+
+    public OutputFilesSnapshotter(FileSnapshotter snapshotter, IdGenerator<Long> idGenerator,
+                                  TaskArtifactStateCacheAccess cacheAccess, FileMetadataAccessor metadataAccessor) {
         this.snapshotter = snapshotter;
         this.idGenerator = idGenerator;
+        this.metadataAccessor = metadataAccessor;
         dirIdentiferCache = cacheAccess.createCache("outputFileStates", String.class, Long.class);
     }
 
@@ -55,10 +66,28 @@ public class OutputFilesSnapshotter implements FileSnapshotter {
     }
 
     public FileCollectionSnapshot snapshot(FileCollection files) {
+        return new OutputFilesSnapshot(getRootFileIds(files), snapshotter.snapshot(files));
+    }
+
+    public FileCollectionSnapshot snapshot(FileCollection files, FileCollectionSnapshot previous) {
+        OutputFilesSnapshot other = (OutputFilesSnapshot) previous;
+        return new OutputFilesSnapshot(getRootFileIds(files), snapshotter.snapshot(files, other.filesSnapshot));
+    }
+
+    public FileCollectionSnapshot update(FileCollectionSnapshot previous, Iterable<File> changedFiles) {
+        OutputFilesSnapshot other = (OutputFilesSnapshot) previous;
+        List<File> rootFiles = new ArrayList<File>();
+        for (String path : other.rootFileIds.keySet()) {
+            rootFiles.add(new File(path));
+        }
+        return new OutputFilesSnapshot(getRootFileIds(rootFiles), snapshotter.update(other.filesSnapshot, changedFiles));
+    }
+
+    private Map<String, Long> getRootFileIds(Iterable<File> files) {
         Map<String, Long> snapshotDirIds = new HashMap<String, Long>();
         for (File file : files) {
             Long dirId;
-            if (file.exists()) {
+            if (metadataAccessor.stat(file).exists()) {
                 dirId = dirIdentiferCache.get(file.getAbsolutePath());
                 if (dirId == null) {
                     dirId = idGenerator.generateId();
@@ -70,12 +99,12 @@ public class OutputFilesSnapshotter implements FileSnapshotter {
             }
             snapshotDirIds.put(file.getAbsolutePath(), dirId);
         }
-        return new OutputFilesSnapshot(snapshotDirIds, snapshotter.snapshot(files));
+        return snapshotDirIds;
     }
 
-    private static class OutputFilesSnapshot implements FileCollectionSnapshot {
-        private final Map<String, Long> rootFileIds;
-        private final FileCollectionSnapshot filesSnapshot;
+    static class OutputFilesSnapshot implements FileCollectionSnapshot {
+        final Map<String, Long> rootFileIds;
+        final FileCollectionSnapshot filesSnapshot;
 
         public OutputFilesSnapshot(Map<String, Long> rootFileIds, FileCollectionSnapshot filesSnapshot) {
             this.rootFileIds = rootFileIds;
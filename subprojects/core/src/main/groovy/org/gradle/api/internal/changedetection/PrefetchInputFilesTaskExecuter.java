@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.Task;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.tasks.TaskExecuter;
+import org.gradle.api.internal.tasks.TaskStateInternal;
+import org.gradle.api.specs.Spec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * A {@link TaskExecuter} which, before checking whether a task is up-to-date, starts hashing the input files of the tasks that are due to execute next, so
+ * that these hashes are available by the time the up-to-date checks for those tasks run. Only those declared input files whose cached hash is out-of-date
+ * are hashed. The input files are found and checked in the background, so that the executing task does not wait for them.
+ *
+ * <p>Only upcoming tasks from the same project as the executing task, and whose dependencies have all executed, are considered. The input files of
+ * these tasks can be resolved while the executing task runs, as no other worker uses the project, and the tasks which produce the input files have
+ * finished. The walk of the input files of a task is cancelled when the task starts to execute.</p>
+ */
+public class PrefetchInputFilesTaskExecuter implements TaskExecuter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrefetchInputFilesTaskExecuter.class);
+    private static final int LOOKAHEAD = 20;
+    private static final int MAX_UPCOMING_TASKS = 2;
+    private final TaskExecuter executer;
+    private final CachingHasher cachingHasher;
+    private final PrefetchingHasher prefetchingHasher;
+    private final Set<Task> prefetched = new HashSet<Task>();
+    private final Map<Task, PrefetchingHasher.Walk> walks = new HashMap<Task, PrefetchingHasher.Walk>();
+    private List<Task> tasks = Collections.emptyList();
+    private Map<Task, Integer> positions = Collections.emptyMap();
+
+    public PrefetchInputFilesTaskExecuter(TaskExecuter executer, CachingHasher cachingHasher, PrefetchingHasher prefetchingHasher) {
+        this.executer = executer;
+        this.cachingHasher = cachingHasher;
+        this.prefetchingHasher = prefetchingHasher;
+    }
+
+    public void execute(TaskInternal task, TaskStateInternal state) {
+        cancelWalk(task);
+        for (TaskInternal upcomingTask : findUpcomingTasks(task)) {
+            prefetch(upcomingTask);
+        }
+        executer.execute(task, state);
+    }
+
+    private void cancelWalk(TaskInternal task) {
+        PrefetchingHasher.Walk walk;
+        synchronized (this) {
+            walk = walks.remove(task);
+        }
+        if (walk != null) {
+            // The task resolves its own input files from here on
+            walk.cancel();
+        }
+    }
+
+    private synchronized List<TaskInternal> findUpcomingTasks(TaskInternal task) {
+        Integer position = positions.get(task);
+        if (position == null) {
+            tasks = task.getProject().getGradle().getTaskGraph().getAllTasks();
+            positions = new HashMap<Task, Integer>();
+            for (int i = 0; i < tasks.size(); i++) {
+                positions.put(tasks.get(i), i);
+            }
+            position = positions.get(task);
+            if (position == null) {
+                return Collections.emptyList();
+            }
+        }
+
+        List<TaskInternal> upcomingTasks = new ArrayList<TaskInternal>();
+        int end = Math.min(tasks.size(), position + 1 + LOOKAHEAD);
+        for (int i = position + 1; i < end && upcomingTasks.size() < MAX_UPCOMING_TASKS; i++) {
+            TaskInternal candidate = (TaskInternal) tasks.get(i);
+            if (candidate.getProject() == task.getProject() && !candidate.getState().getExecuted() && !prefetched.contains(candidate)
+                    && dependenciesExecuted(candidate)) {
+                prefetched.add(candidate);
+                upcomingTasks.add(candidate);
+            }
+        }
+        return upcomingTasks;
+    }
+
+    private static boolean dependenciesExecuted(TaskInternal task) {
+        try {
+            for (Task dependency : task.getTaskDependencies().getDependencies(task)) {
+                if (!dependency.getState().getExecuted()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            LOGGER.debug(String.format("Could not determine the dependencies of %s.", task), e);
+            return false;
+        }
+    }
+
+    private void prefetch(TaskInternal task) {
+        PrefetchingHasher.Walk walk;
+        try {
+            walk = prefetchingHasher.prefetch(task.getInputs().getFiles().getAsFileTree(), new Spec<File>() {
+                public boolean isSatisfiedBy(File file) {
+                    return !cachingHasher.isCached(file);
+                }
+            });
+        } catch (Exception e) {
+            // Ignore, the up-to-date check for the task will hash its input files when it executes
+            LOGGER.debug(String.format("Could not prefetch the input files of %s.", task), e);
+            return;
+        }
+        synchronized (this) {
+            walks.put(task, walk);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.specs.Spec;
+import org.gradle.internal.Stoppable;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link Hasher} which can calculate the hashes of files in the background, before they are needed. A hash calculated in the background is used only when the
+ * length and timestamp of the file are the same as they were when the hash was calculated. Otherwise, the hash is calculated again.
+ *
+ * <p>When several threads need the hash of the same file at the same time, the file is hashed by one thread and the other threads wait for its hash, in the
+ * same way as for a hash which is being calculated in the background.</p>
+ *
+ * <p>The files to hash can also be found in the background, by walking a collection of files and selecting those whose hashes are needed.</p>
+ */
+public class PrefetchingHasher implements Hasher, Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrefetchingHasher.class);
+    private static final int DEFAULT_MAX_PREFETCHED_FILES = 10000;
+    private static final long TIMESTAMP_GRANULARITY = 2000;
+    private static final int WALK_BATCH_SIZE = 100;
+    private final Hasher hasher;
+    private final ExecutorFactory executorFactory;
+    private final int maxWorkers;
+    private final int maxPrefetchedFiles;
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private final LinkedList<Prefetch> queue = new LinkedList<Prefetch>();
+    private final Map<File, Prefetch> prefetches = new HashMap<File, Prefetch>();
+    private StoppableExecutor executor;
+    private int workers;
+    private volatile boolean stopped;
+
+    public PrefetchingHasher(Hasher hasher, ExecutorFactory executorFactory, int maxWorkers) {
+        this(hasher, executorFactory, maxWorkers, DEFAULT_MAX_PREFETCHED_FILES);
+    }
+
+    /**
+     * @param maxPrefetchedFiles The maximum number of files which may be queued, being hashed or waiting to be used at the same time.
+     */
+    public PrefetchingHasher(Hasher hasher, ExecutorFactory executorFactory, int maxWorkers, int maxPrefetchedFiles) {
+        this.hasher = hasher;
+        this.executorFactory = executorFactory;
+        this.maxWorkers = maxWorkers;
+        this.maxPrefetchedFiles = maxPrefetchedFiles;
+    }
+
+    /**
+     * Starts calculating the hashes of the given files in the background.
+     */
+    public void prefetch(Iterable<File> files) {
+        lock.lock();
+        try {
+            if (stopped) {
+                return;
+            }
+            for (File file : files) {
+                if (prefetches.size() >= maxPrefetchedFiles) {
+                    discardCompletedPrefetches();
+                    if (prefetches.size() >= maxPrefetchedFiles) {
+                        break;
+                    }
+                }
+                if (!prefetches.containsKey(file)) {
+                    Prefetch prefetch = new Prefetch(file);
+                    prefetches.put(file, prefetch);
+                    queue.add(prefetch);
+                }
+            }
+            while (workers < maxWorkers && workers < queue.size()) {
+                getExecutor().execute(new Worker());
+                workers++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Walks the given files in the background, and starts calculating the hashes of those files which are accepted by the given filter. The filter is
+     * also called in the background.
+     *
+     * @return A handle which can be used to cancel the walk.
+     */
+    public Walk prefetch(Iterable<File> files, Spec<? super File> filter) {
+        BackgroundWalk walk = new BackgroundWalk(files, filter);
+        lock.lock();
+        try {
+            if (!stopped) {
+                getExecutor().execute(walk);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return walk;
+    }
+
+    /**
+     * Must be called while holding the lock.
+     */
+    private StoppableExecutor getExecutor() {
+        if (executor == null) {
+            executor = executorFactory.create("file hash prefetcher");
+        }
+        return executor;
+    }
+
+    public byte[] hash(File file) {
+        Prefetch prefetch;
+        Prefetch claimed = null;
+        lock.lock();
+        try {
+            prefetch = takePrefetch(file);
+            if (prefetch == null) {
+                // Other threads which need the hash of this file wait for this thread to calculate it
+                claimed = new Prefetch(file);
+                claimed.state = State.Hashing;
+                prefetches.put(file, claimed);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (claimed != null) {
+            return hashClaimed(claimed);
+        }
+        if (prefetch.hash != null && prefetch.length == file.length() && prefetch.timestamp == file.lastModified()) {
+            return prefetch.hash;
+        }
+        return hasher.hash(file);
+    }
+
+    private byte[] hashClaimed(Prefetch prefetch) {
+        File file = prefetch.file;
+        try {
+            long length = file.length();
+            long timestamp = file.lastModified();
+            byte[] hash = hasher.hash(file);
+            // Hand the hash to the waiting threads only if the file did not change while it was being hashed
+            if (length == file.length() && timestamp == file.lastModified()) {
+                prefetch.length = length;
+                prefetch.timestamp = timestamp;
+                prefetch.hash = hash;
+            }
+            return hash;
+        } finally {
+            lock.lock();
+            try {
+                prefetch.state = State.Complete;
+                if (prefetches.get(file) == prefetch) {
+                    prefetches.remove(file);
+                }
+                condition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public String getAlgorithm() {
+        return hasher.getAlgorithm();
+    }
+
+    /**
+     * Discards the hashes which have been calculated in the background but not used, to make room for new prefetches. Must be called while holding the lock.
+     */
+    private void discardCompletedPrefetches() {
+        Iterator<Prefetch> iterator = prefetches.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().state == State.Complete) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Takes the hash of the given file which has been calculated by another thread, waiting for the hash if it is still being calculated. Must be called
+     * while holding the lock.
+     *
+     * @return The completed prefetch, or null when no other thread has started to calculate the hash.
+     */
+    private Prefetch takePrefetch(File file) {
+        Prefetch prefetch = prefetches.get(file);
+        if (prefetch == null) {
+            return null;
+        }
+        if (prefetch.state == State.Queued) {
+            // Quicker to hash the file now than to wait for a worker to get to it
+            prefetches.remove(file);
+            prefetch.state = State.Cancelled;
+            return null;
+        }
+        while (prefetch.state == State.Hashing) {
+            try {
+                condition.await();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        // Other threads may have been waiting for the same hash, so the prefetch may already have been removed
+        if (prefetches.get(file) == prefetch) {
+            prefetches.remove(file);
+        }
+        return prefetch;
+    }
+
+    /**
+     * Discards any hashes that have not been used, and stops the background workers.
+     */
+    public void stop() {
+        StoppableExecutor executor;
+        lock.lock();
+        try {
+            stopped = true;
+            for (Prefetch prefetch : queue) {
+                prefetch.state = State.Cancelled;
+            }
+            queue.clear();
+            prefetches.clear();
+            executor = this.executor;
+            this.executor = null;
+        } finally {
+            lock.unlock();
+        }
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+
+    private enum State {
+        Queued, Hashing, Complete, Cancelled
+    }
+
+    private static class Prefetch {
+        final File file;
+        State state = State.Queued;
+        byte[] hash;
+        long length;
+        long timestamp;
+
+        private Prefetch(File file) {
+            this.file = file;
+        }
+    }
+
+    /**
+     * A walk of a collection of files in the background.
+     */
+    public interface Walk {
+        /**
+         * Requests that the walk stop before it visits the next file. Does not wait for the walk to stop, as the filter of the walk may be waiting for
+         * a lock held by the caller.
+         */
+        void cancel();
+    }
+
+    private class BackgroundWalk implements Walk, Runnable {
+        private final Iterable<File> files;
+        private final Spec<? super File> filter;
+        private volatile boolean cancelled;
+
+        private BackgroundWalk(Iterable<File> files, Spec<? super File> filter) {
+            this.files = files;
+            this.filter = filter;
+        }
+
+        public void run() {
+            try {
+                List<File> batch = new ArrayList<File>();
+                for (File file : files) {
+                    if (cancelled || stopped) {
+                        return;
+                    }
+                    if (filter.isSatisfiedBy(file)) {
+                        batch.add(file);
+                    }
+                    if (batch.size() >= WALK_BATCH_SIZE) {
+                        prefetch(batch);
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    prefetch(batch);
+                }
+            } catch (Exception e) {
+                // Ignore, the files will be hashed when they are needed
+                LOGGER.debug(String.format("Could not walk %s in the background.", files), e);
+            }
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private class Worker implements Runnable {
+        public void run() {
+            while (true) {
+                Prefetch prefetch;
+                lock.lock();
+                try {
+                    do {
+                        if (queue.isEmpty()) {
+                            workers--;
+                            return;
+                        }
+                        prefetch = queue.removeFirst();
+                    } while (prefetch.state != State.Queued);
+                    prefetch.state = State.Hashing;
+                } finally {
+                    lock.unlock();
+                }
+
+                calculateHash(prefetch);
+
+                lock.lock();
+                try {
+                    prefetch.state = State.Complete;
+                    condition.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        private void calculateHash(Prefetch prefetch) {
+            File file = prefetch.file;
+            try {
+                long start = System.currentTimeMillis();
+                long length = file.length();
+                long timestamp = file.lastModified();
+                if (!file.isFile() || timestamp > start - TIMESTAMP_GRANULARITY) {
+                    // Don't use the hash of a recently modified file, as a change made shortly after the hash is calculated may not update its timestamp
+                    return;
+                }
+                byte[] hash = hasher.hash(file);
+                // Discard the hash if the file changed while it was being hashed
+                if (length == file.length() && timestamp == file.lastModified()) {
+                    prefetch.length = length;
+                    prefetch.timestamp = timestamp;
+                    prefetch.hash = hash;
+                }
+            } catch (Exception e) {
+                // Ignore, the file will be hashed again when it is needed
+                LOGGER.debug(String.format("Could not hash %s in the background.", file), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.api.tasks.incremental.InputFileDetails;
+
+import java.io.File;
+
+/**
+ * The {@link IncrementalTaskInputs} for a task which must rebuild all of its outputs. Reports every input file of the task as out-of-date.
+ */
+public class RebuildIncrementalTaskInputs implements IncrementalTaskInputs {
+    private final Task task;
+
+    public RebuildIncrementalTaskInputs(Task task) {
+        this.task = task;
+    }
+
+    public boolean isIncremental() {
+        return false;
+    }
+
+    public void outOfDate(Action<? super InputFileDetails> outOfDateAction) {
+        for (File file : task.getInputs().getFiles().getAsFileTree()) {
+            outOfDateAction.execute(new DefaultInputFileDetails(file, false, false, false));
+        }
+    }
+
+    public void removed(Action<? super InputFileDetails> removedAction) {
+    }
+}
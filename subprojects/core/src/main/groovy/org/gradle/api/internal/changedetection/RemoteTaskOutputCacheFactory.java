@@ -0,0 +1,30 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import java.net.URI;
+
+/**
+ * Creates {@link TaskOutputCache} instances which share entries between machines by storing them on a remote server. The implementation is
+ * provided by the dependency management services, as it uses the same transport as the remote repositories.
+ */
+public interface RemoteTaskOutputCacheFactory {
+    /**
+     * Creates a cache which stores its entries beneath the given URI.
+     */
+    TaskOutputCache createCache(URI uri);
+}
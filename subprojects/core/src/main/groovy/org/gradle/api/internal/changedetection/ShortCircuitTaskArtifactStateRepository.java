@@ -22,6 +22,8 @@ import org.gradle.api.internal.TaskExecutionHistory;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.util.hash.HashValue;
 
 public class ShortCircuitTaskArtifactStateRepository implements TaskArtifactStateRepository {
     private static final Logger LOGGER = Logging.getLogger(ShortCircuitTaskArtifactStateRepository.class);
@@ -38,14 +40,24 @@ public class ShortCircuitTaskArtifactStateRepository implements TaskArtifactStat
             return new ShortCircuitArtifactState(task, repository.getStateFor(task));
         }
         LOGGER.info(String.format("%s has not declared any outputs, assuming that it is out-of-date.", StringUtils.capitalize(task.toString())));
-        return new NoHistoryArtifactState();
+        return new NoHistoryArtifactState(task);
     }
 
     private static class NoHistoryArtifactState implements TaskArtifactState, TaskExecutionHistory {
+        private final TaskInternal task;
+
+        public NoHistoryArtifactState(TaskInternal task) {
+            this.task = task;
+        }
+
         public boolean isUpToDate() {
             return false;
         }
 
+        public HashValue getCacheKey() {
+            return null;
+        }
+
         public void beforeTask() {
         }
 
@@ -62,6 +74,10 @@ public class ShortCircuitTaskArtifactStateRepository implements TaskArtifactStat
         public FileCollection getOutputFiles() {
             throw new UnsupportedOperationException();
         }
+
+        public IncrementalTaskInputs getInputChanges() {
+            return new RebuildIncrementalTaskInputs(task);
+        }
     }
 
     private class ShortCircuitArtifactState implements TaskArtifactState {
@@ -77,8 +93,28 @@ public class ShortCircuitTaskArtifactStateRepository implements TaskArtifactStat
             return !startParameter.isRerunTasks() && task.getOutputs().getUpToDateSpec().isSatisfiedBy(task) && state.isUpToDate();
         }
 
+        public HashValue getCacheKey() {
+            if (startParameter.isRerunTasks() || !task.getOutputs().getCacheSpec().isSatisfiedBy(task)) {
+                return null;
+            }
+            return state.getCacheKey();
+        }
+
         public TaskExecutionHistory getExecutionHistory() {
-            return state.getExecutionHistory();
+            final TaskExecutionHistory history = state.getExecutionHistory();
+            if (!startParameter.isRerunTasks() && task.getOutputs().getUpToDateSpec().isSatisfiedBy(task)) {
+                return history;
+            }
+            // The outputs of the task are being rebuilt regardless of the changes to its inputs
+            return new TaskExecutionHistory() {
+                public FileCollection getOutputFiles() {
+                    return history.getOutputFiles();
+                }
+
+                public IncrementalTaskInputs getInputChanges() {
+                    return new RebuildIncrementalTaskInputs(task);
+                }
+            };
         }
 
         public void beforeTask() {
@@ -16,6 +16,7 @@
 package org.gradle.api.internal.changedetection;
 
 import org.gradle.api.internal.TaskExecutionHistory;
+import org.gradle.util.hash.HashValue;
 
 /**
  * Encapsulates the state of the task when its outputs were last generated.
@@ -26,6 +27,14 @@ public interface TaskArtifactState {
      */
     boolean isUpToDate();
 
+    /**
+     * Returns the key which identifies the outputs of the task, given its current inputs, in the task output cache. Note that {@link #isUpToDate()}
+     * may not necessarily have been called.
+     *
+     * @return The key, or null when the outputs of the task cannot be cached.
+     */
+    HashValue getCacheKey();
+
     /**
      * Called before the task is to be executed. Note that {@link #isUpToDate()} may not necessarily have been called.
      */
@@ -44,7 +44,21 @@ public interface TaskArtifactStateCacheAccess {
      */
     void longRunningOperation(String operationDisplayName, Runnable action);
 
+    /**
+     * Performs some operation during which multiple threads use the cache. Releases the in-process lock while the operation is running, but keeps the
+     * cross-process lock until the end of the operation.
+     */
+    void concurrentOperation(String operationDisplayName, Runnable action);
+
+    /**
+     * Creates an indexed cache. Each operation on the returned cache acquires the locks for the duration of that operation only, so that the cache can be
+     * used from multiple threads.
+     */
     <K, V> PersistentIndexedCache createCache(String cacheName, Class<K> keyType, Class<V> valueType);
 
+    /**
+     * Creates an indexed cache. Each operation on the returned cache acquires the locks for the duration of that operation only, so that the cache can be
+     * used from multiple threads.
+     */
     <K, V> PersistentIndexedCache<K, V> createCache(String cacheName, Class<K> keyType, Class<V> valueType, Serializer<V> valueSerializer);
 }
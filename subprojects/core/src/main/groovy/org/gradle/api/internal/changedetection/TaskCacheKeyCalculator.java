@@ -0,0 +1,223 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.tasks.ImplementationAwareTaskAction;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.UncheckedException;
+import org.gradle.util.GradleVersion;
+import org.gradle.util.hash.HashUtil;
+import org.gradle.util.hash.HashValue;
+
+import java.io.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import static org.gradle.api.internal.changedetection.DefaultFileSnapshotter.*;
+
+/**
+ * Calculates the key under which the outputs of a task are stored in the task output cache. The key is a hash of the Gradle version, the task
+ * implementation, the implementation of each of its actions, the input properties of the task, the paths and hashes of its input files and the
+ * paths of its output files. Paths are relative to the root project directory where possible, so that builds of different checkouts of the same
+ * project can share outputs.
+ *
+ * <p>Input files outside the root project directory, such as the dependency jars in the Gradle user home directory, are identified by their name and
+ * hash rather than their path, as their location differs between machines.</p>
+ */
+public class TaskCacheKeyCalculator {
+    private static final Logger LOGGER = Logging.getLogger(TaskCacheKeyCalculator.class);
+    private final Map<Class<?>, byte[]> implementationHashes = new WeakHashMap<Class<?>, byte[]>();
+
+    /**
+     * Calculates the cache key for the given task execution. The task type, input properties and input files snapshot of the execution must
+     * have been calculated.
+     *
+     * @return the key, or null when the execution does not have a stable key.
+     */
+    public HashValue calculate(TaskInternal task, TaskExecution execution) {
+        FileCollectionSnapshot inputFiles = execution.getInputFilesSnapshot();
+        if (!(inputFiles instanceof FileCollectionSnapshotImpl)) {
+            return null;
+        }
+
+        MessageDigest messageDigest = createMessageDigest();
+        DataOutputStream outputStream = new DataOutputStream(new DigestOutputStream(new DiscardingOutputStream(), messageDigest));
+        try {
+            String rootDir = task.getProject().getRootDir().getAbsolutePath() + File.separator;
+
+            outputStream.writeUTF(GradleVersion.current().getVersion());
+            outputStream.writeUTF(execution.getTaskClass());
+            outputStream.write(getImplementationHash(task.getClass()));
+
+            // Actions added by build scripts, such as doLast closures, are not part of the task class
+            List<Action<? super Task>> actions = task.getActions();
+            outputStream.writeInt(actions.size());
+            for (Action<? super Task> action : actions) {
+                Class<?> actionType = action instanceof ImplementationAwareTaskAction
+                        ? ((ImplementationAwareTaskAction) action).getImplementationClass()
+                        : action.getClass();
+                if (!hasByteCode(actionType)) {
+                    LOGGER.info("Not caching the outputs of {} as the implementation of one of its actions is not known: {}", task, actionType.getName());
+                    return null;
+                }
+                outputStream.write(getImplementationHash(actionType));
+            }
+
+            Map<String, Object> inputProperties = new TreeMap<String, Object>(execution.getInputProperties());
+            outputStream.writeInt(inputProperties.size());
+            for (Map.Entry<String, Object> entry : inputProperties.entrySet()) {
+                outputStream.writeUTF(entry.getKey());
+                ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
+                objectOutputStream.writeObject(entry.getValue());
+                objectOutputStream.flush();
+            }
+
+            FileCollectionSnapshotImpl inputFilesSnapshot = (FileCollectionSnapshotImpl) inputFiles;
+            List<String> externalFiles = new ArrayList<String>();
+            for (int i = 0; i < inputFilesSnapshot.paths.length; i++) {
+                String path = inputFilesSnapshot.paths[i];
+                FileSnapshot fileSnapshot = inputFilesSnapshot.snapshots[i];
+                if (path.startsWith(rootDir)) {
+                    outputStream.writeByte(1);
+                    outputStream.writeUTF(path.substring(rootDir.length()));
+                    writeFileSnapshot(fileSnapshot, outputStream);
+                } else {
+                    externalFiles.add(externalFileKey(path, fileSnapshot));
+                }
+            }
+            outputStream.writeByte(0);
+            // The external files are sorted by name and hash, as their paths, and so the order of their snapshots, differ between machines
+            Collections.sort(externalFiles);
+            outputStream.writeInt(externalFiles.size());
+            for (String externalFile : externalFiles) {
+                outputStream.writeUTF(externalFile);
+            }
+
+            List<String> outputFiles = new ArrayList<String>();
+            for (File file : task.getOutputs().getFiles()) {
+                outputFiles.add(relativePath(rootDir, file.getAbsolutePath()));
+            }
+            Collections.sort(outputFiles);
+            outputStream.writeInt(outputFiles.size());
+            for (String outputFile : outputFiles) {
+                outputStream.writeUTF(outputFile);
+            }
+            outputStream.close();
+        } catch (NotSerializableException e) {
+            LOGGER.info("Not caching the outputs of {} as one of its input properties cannot be serialized: {}", task, e.getMessage());
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new HashValue(messageDigest.digest());
+    }
+
+    private static String relativePath(String rootDir, String path) {
+        return path.startsWith(rootDir) ? path.substring(rootDir.length()) : path;
+    }
+
+    private static void writeFileSnapshot(FileSnapshot fileSnapshot, DataOutputStream outputStream) throws IOException {
+        if (fileSnapshot instanceof FileHashSnapshot) {
+            byte[] hash = ((FileHashSnapshot) fileSnapshot).hash;
+            outputStream.writeByte(2);
+            outputStream.writeInt(hash.length);
+            outputStream.write(hash);
+        } else if (fileSnapshot instanceof DirSnapshot) {
+            outputStream.writeByte(1);
+        } else {
+            outputStream.writeByte(0);
+        }
+    }
+
+    private static String externalFileKey(String path, FileSnapshot fileSnapshot) {
+        String name = new File(path).getName();
+        if (fileSnapshot instanceof FileHashSnapshot) {
+            return name + " " + new HashValue(((FileHashSnapshot) fileSnapshot).hash).asHexString();
+        } else if (fileSnapshot instanceof DirSnapshot) {
+            return name + " dir";
+        } else {
+            return name + " missing";
+        }
+    }
+
+    /**
+     * Returns a hash of the byte code of the given class and its super classes, so that the outputs of a task are not reused when the task
+     * implementation changes. Classes generated at runtime, such as the decorated task classes, have no byte code available and contribute
+     * only their name.
+     */
+    private byte[] getImplementationHash(Class<?> implementationType) throws IOException {
+        synchronized (implementationHashes) {
+            byte[] hash = implementationHashes.get(implementationType);
+            if (hash == null) {
+                MessageDigest messageDigest = createMessageDigest();
+                for (Class<?> type = implementationType; type != null && type != Object.class; type = type.getSuperclass()) {
+                    messageDigest.update(type.getName().getBytes());
+                    ClassLoader classLoader = type.getClassLoader();
+                    InputStream byteCode = classLoader == null ? null : classLoader.getResourceAsStream(byteCodeResource(type));
+                    if (byteCode != null) {
+                        try {
+                            messageDigest.update(HashUtil.createHash(byteCode, "MD5").asByteArray());
+                        } finally {
+                            byteCode.close();
+                        }
+                    }
+                }
+                hash = messageDigest.digest();
+                implementationHashes.put(implementationType, hash);
+            }
+            return hash;
+        }
+    }
+
+    /**
+     * Returns whether the byte code of the given class is available, so that a change to the class changes its implementation hash. The name of
+     * a closure class in a build script, for example, stays the same when the closure is edited.
+     */
+    private static boolean hasByteCode(Class<?> type) {
+        ClassLoader classLoader = type.getClassLoader();
+        return classLoader != null && classLoader.getResource(byteCodeResource(type)) != null;
+    }
+
+    private static String byteCodeResource(Class<?> type) {
+        return type.getName().replace('.', '/') + ".class";
+    }
+
+    private static MessageDigest createMessageDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private static class DiscardingOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.internal.io.ClassLoaderObjectInputStream;
+import org.gradle.messaging.serialize.Serializer;
+
+import java.io.*;
+import java.util.*;
+
+import static org.gradle.api.internal.changedetection.FileSnapshotSerializer.readSmallInt;
+import static org.gradle.api.internal.changedetection.FileSnapshotSerializer.writeSmallInt;
+
+/**
+ * Serializes the history of a task. The history is written as a version tag followed by the executions of the task. Each string is written once per
+ * history, and later occurrences of the string are written as a reference to the first occurrence. The strings which are read are shared by the
+ * executions of the history.
+ *
+ * <p>Input property values of well known types, and collections of these values, are written directly. Other input property values are written using Java
+ * serialization, using the ClassLoader of the task to read them. Histories written using Java serialization by earlier versions can still be read.</p>
+ */
+class TaskHistorySerializer implements Serializer<CacheBackedTaskHistoryRepository.TaskHistory> {
+    private static final int JAVA_SERIALIZATION_MAGIC = 0xAC;
+    private static final byte VERSION_1 = 1;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte BOOLEAN = 2;
+    private static final byte INTEGER = 3;
+    private static final byte LONG = 4;
+    private static final byte FILE = 5;
+    private static final byte LIST = 6;
+    private static final byte SET = 7;
+    private static final byte MAP = 8;
+    private static final byte SERIALIZED_OBJECT = 9;
+
+    // Longer strings may not fit in the modified UTF-8 encoding used by DataOutput.writeUTF()
+    private static final int MAX_STRING_LENGTH = 65535 / 3;
+    private static final Map<String, Class<?>> LEGACY_TYPES = new HashMap<String, Class<?>>();
+
+    static {
+        LEGACY_TYPES.put(CacheBackedTaskHistoryRepository.TaskHistory.class.getName(), CacheBackedTaskHistoryRepository.TaskHistory.class);
+        LEGACY_TYPES.put(CacheBackedTaskHistoryRepository.LazyTaskExecution.class.getName(), CacheBackedTaskHistoryRepository.LazyTaskExecution.class);
+    }
+
+    private ClassLoader classLoader = getClass().getClassLoader();
+
+    public ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    public void setClassLoader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    public CacheBackedTaskHistoryRepository.TaskHistory read(InputStream instr) throws Exception {
+        PushbackInputStream pushbackInput = new PushbackInputStream(instr, 1);
+        int tag = pushbackInput.read();
+        if (tag == JAVA_SERIALIZATION_MAGIC) {
+            pushbackInput.unread(tag);
+            return readLegacyValue(pushbackInput);
+        }
+        if (tag != VERSION_1) {
+            throw new StreamCorruptedException(String.format("Unexpected task history version %s.", tag));
+        }
+
+        Reader reader = new Reader(new DataInputStream(pushbackInput));
+        CacheBackedTaskHistoryRepository.TaskHistory history = new CacheBackedTaskHistoryRepository.TaskHistory();
+        int count = readSmallInt(reader.input);
+        for (int i = 0; i < count; i++) {
+            history.configurations.add(reader.readExecution());
+        }
+        return history;
+    }
+
+    public void write(OutputStream outstr, CacheBackedTaskHistoryRepository.TaskHistory value) throws Exception {
+        DataOutputStream output = new DataOutputStream(outstr);
+        output.writeByte(VERSION_1);
+        Writer writer = new Writer(output);
+        writeSmallInt(output, value.configurations.size());
+        for (CacheBackedTaskHistoryRepository.LazyTaskExecution execution : value.configurations) {
+            writer.writeExecution(execution);
+        }
+        output.flush();
+    }
+
+    private CacheBackedTaskHistoryRepository.TaskHistory readLegacyValue(InputStream instr) throws Exception {
+        try {
+            return (CacheBackedTaskHistoryRepository.TaskHistory) new LegacyTaskHistoryInputStream(instr, classLoader).readObject();
+        } catch (StreamCorruptedException e) {
+            return null;
+        }
+    }
+
+    private static boolean isWrittenDirectly(Object value) {
+        if (value == null || value instanceof Boolean || value instanceof Integer || value instanceof Long || value instanceof File) {
+            return true;
+        }
+        if (value instanceof String) {
+            return ((String) value).length() <= MAX_STRING_LENGTH;
+        }
+        // Collections are read using standard collection types, which are equal to any other standard collection with the same elements
+        if (!value.getClass().getName().startsWith("java.util.")) {
+            return false;
+        }
+        if (value instanceof List || (value instanceof Set && !(value instanceof SortedSet))) {
+            for (Object element : (Collection<?>) value) {
+                if (!isWrittenDirectly(element)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (value instanceof Map && !(value instanceof SortedMap)) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!isWrittenDirectly(entry.getKey()) || !isWrittenDirectly(entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static class Writer {
+        private final DataOutputStream output;
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+        private Writer(DataOutputStream output) {
+            this.output = output;
+        }
+
+        void writeExecution(CacheBackedTaskHistoryRepository.LazyTaskExecution execution) throws IOException {
+            writeString(execution.getTaskClass());
+            writeId(execution.inputFilesSnapshotId);
+            writeId(execution.outputFilesSnapshotId);
+            Set<String> outputFiles = execution.getOutputFiles();
+            writeSmallInt(output, outputFiles == null ? 0 : outputFiles.size() + 1);
+            if (outputFiles != null) {
+                for (String outputFile : outputFiles) {
+                    writeString(outputFile);
+                }
+            }
+            Map<String, Object> inputProperties = execution.getInputProperties();
+            writeSmallInt(output, inputProperties == null ? 0 : inputProperties.size() + 1);
+            if (inputProperties != null) {
+                for (Map.Entry<String, Object> entry : inputProperties.entrySet()) {
+                    writeString(entry.getKey());
+                    writeValue(entry.getValue());
+                }
+            }
+        }
+
+        private void writeId(Long id) throws IOException {
+            output.writeBoolean(id != null);
+            if (id != null) {
+                output.writeLong(id);
+            }
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (!isWrittenDirectly(value)) {
+                output.writeByte(SERIALIZED_OBJECT);
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                ObjectOutputStream objectOutput = new ObjectOutputStream(bytes);
+                objectOutput.writeObject(value);
+                objectOutput.close();
+                writeSmallInt(output, bytes.size());
+                bytes.writeTo(output);
+            } else if (value == null) {
+                output.writeByte(NULL);
+            } else if (value instanceof String) {
+                output.writeByte(STRING);
+                writeString((String) value);
+            } else if (value instanceof Boolean) {
+                output.writeByte(BOOLEAN);
+                output.writeBoolean((Boolean) value);
+            } else if (value instanceof Integer) {
+                output.writeByte(INTEGER);
+                output.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                output.writeByte(LONG);
+                output.writeLong((Long) value);
+            } else if (value instanceof File) {
+                output.writeByte(FILE);
+                writeString(((File) value).getPath());
+            } else if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                output.writeByte(MAP);
+                writeSmallInt(output, map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    writeValue(entry.getKey());
+                    writeValue(entry.getValue());
+                }
+            } else {
+                Collection<?> collection = (Collection<?>) value;
+                output.writeByte(value instanceof List ? LIST : SET);
+                writeSmallInt(output, collection.size());
+                for (Object element : collection) {
+                    writeValue(element);
+                }
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                writeSmallInt(output, 0);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index != null) {
+                writeSmallInt(output, index + 2);
+                return;
+            }
+            strings.put(value, strings.size());
+            writeSmallInt(output, 1);
+            output.writeUTF(value);
+        }
+    }
+
+    private class Reader {
+        private final DataInputStream input;
+        private final List<String> strings = new ArrayList<String>();
+
+        private Reader(DataInputStream input) {
+            this.input = input;
+        }
+
+        CacheBackedTaskHistoryRepository.LazyTaskExecution readExecution() throws Exception {
+            CacheBackedTaskHistoryRepository.LazyTaskExecution execution = new CacheBackedTaskHistoryRepository.LazyTaskExecution();
+            execution.setTaskClass(readString());
+            execution.inputFilesSnapshotId = readId();
+            execution.outputFilesSnapshotId = readId();
+            int outputFileCount = readSmallInt(input);
+            if (outputFileCount > 0) {
+                Set<String> outputFiles = new HashSet<String>();
+                for (int i = 1; i < outputFileCount; i++) {
+                    outputFiles.add(readString());
+                }
+                execution.setOutputFiles(outputFiles);
+            }
+            int propertyCount = readSmallInt(input);
+            if (propertyCount > 0) {
+                Map<String, Object> inputProperties = new HashMap<String, Object>();
+                for (int i = 1; i < propertyCount; i++) {
+                    String name = readString();
+                    inputProperties.put(name, readValue());
+                }
+                execution.setInputProperties(inputProperties);
+            }
+            return execution;
+        }
+
+        private Long readId() throws IOException {
+            return input.readBoolean() ? input.readLong() : null;
+        }
+
+        private Object readValue() throws Exception {
+            byte tag = input.readByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return readString();
+                case BOOLEAN:
+                    return input.readBoolean();
+                case INTEGER:
+                    return input.readInt();
+                case LONG:
+                    return input.readLong();
+                case FILE:
+                    return new File(readString());
+                case LIST:
+                case SET:
+                    int size = readSmallInt(input);
+                    Collection<Object> collection = tag == LIST ? new ArrayList<Object>(size) : new LinkedHashSet<Object>();
+                    for (int i = 0; i < size; i++) {
+                        collection.add(readValue());
+                    }
+                    return collection;
+                case MAP:
+                    int entries = readSmallInt(input);
+                    Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+                    for (int i = 0; i < entries; i++) {
+                        Object key = readValue();
+                        map.put(key, readValue());
+                    }
+                    return map;
+                case SERIALIZED_OBJECT:
+                    byte[] bytes = new byte[readSmallInt(input)];
+                    input.readFully(bytes);
+                    return new ClassLoaderObjectInputStream(new ByteArrayInputStream(bytes), classLoader).readObject();
+                default:
+                    throw new StreamCorruptedException(String.format("Unexpected input property tag %s.", tag));
+            }
+        }
+
+        private String readString() throws IOException {
+            int index = readSmallInt(input);
+            if (index == 0) {
+                return null;
+            }
+            if (index == 1) {
+                String value = input.readUTF();
+                strings.add(value);
+                return value;
+            }
+            return strings.get(index - 2);
+        }
+    }
+
+    /**
+     * Reads the history classes written by earlier versions, regardless of their serial version.
+     */
+    private static class LegacyTaskHistoryInputStream extends ClassLoaderObjectInputStream {
+        public LegacyTaskHistoryInputStream(InputStream in, ClassLoader loader) throws IOException {
+            super(in, loader);
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            ObjectStreamClass descriptor = super.readClassDescriptor();
+            Class<?> type = LEGACY_TYPES.get(descriptor.getName());
+            return type == null ? descriptor : ObjectStreamClass.lookup(type);
+        }
+    }
+}
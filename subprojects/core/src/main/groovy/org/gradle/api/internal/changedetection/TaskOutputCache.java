@@ -0,0 +1,50 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.util.hash.HashValue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A store for the packed outputs of task executions, keyed by the cache key of the task. See {@link TaskCacheKeyCalculator}.
+ */
+public interface TaskOutputCache {
+    /**
+     * Loads the entry with the given key, if present.
+     *
+     * @return true if the entry was found and passed to the reader, false if there is no such entry.
+     */
+    boolean load(HashValue key, Reader reader) throws IOException;
+
+    /**
+     * Stores an entry with the given key, replacing any existing entry with the same key.
+     */
+    void store(HashValue key, Writer writer) throws IOException;
+
+    String getDisplayName();
+
+    interface Reader {
+        void readFrom(InputStream inputStream) throws IOException;
+    }
+
+    interface Writer {
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+}
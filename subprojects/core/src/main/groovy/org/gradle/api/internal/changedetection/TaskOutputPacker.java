@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.util.GFileUtils;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Packs the output files of a task into a zip stream, and unpacks them again. Each output file or directory of the task is identified in the
+ * stream by its index in the output files of the task, ordered by path, so that the outputs can be unpacked into a different location.
+ */
+public class TaskOutputPacker implements TaskOutputCache.Reader, TaskOutputCache.Writer {
+    private final List<File> roots;
+
+    public TaskOutputPacker(TaskInternal task) {
+        this(new ArrayList<File>(task.getOutputs().getFiles().getFiles()));
+    }
+
+    public TaskOutputPacker(List<File> roots) {
+        this.roots = new ArrayList<File>(roots);
+        Collections.sort(this.roots, new Comparator<File>() {
+            public int compare(File left, File right) {
+                return left.getPath().compareTo(right.getPath());
+            }
+        });
+    }
+
+    public void writeTo(OutputStream outputStream) throws IOException {
+        ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+        for (int i = 0; i < roots.size(); i++) {
+            File root = roots.get(i);
+            if (root.isFile()) {
+                packFile(root, String.valueOf(i), zipOutputStream);
+            } else if (root.isDirectory()) {
+                packDirectory(root, i + "/", zipOutputStream);
+            }
+        }
+        zipOutputStream.finish();
+    }
+
+    private void packDirectory(File dir, String path, ZipOutputStream zipOutputStream) throws IOException {
+        zipOutputStream.putNextEntry(new ZipEntry(path));
+        zipOutputStream.closeEntry();
+        File[] children = dir.listFiles();
+        if (children == null) {
+            throw new IOException(String.format("Could not list contents of directory '%s'.", dir));
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                packDirectory(child, path + child.getName() + "/", zipOutputStream);
+            } else {
+                packFile(child, path + child.getName(), zipOutputStream);
+            }
+        }
+    }
+
+    private void packFile(File file, String path, ZipOutputStream zipOutputStream) throws IOException {
+        ZipEntry entry = new ZipEntry(path);
+        entry.setTime(file.lastModified());
+        zipOutputStream.putNextEntry(entry);
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            IOUtils.copy(inputStream, zipOutputStream);
+        } finally {
+            inputStream.close();
+        }
+        zipOutputStream.closeEntry();
+    }
+
+    /**
+     * Replaces the output files of the task with the packed outputs read from the given stream.
+     */
+    public void readFrom(InputStream inputStream) throws IOException {
+        for (File root : roots) {
+            if (root.exists()) {
+                GFileUtils.forceDelete(root);
+            }
+        }
+
+        ZipInputStream zipInputStream = new ZipInputStream(inputStream);
+        for (ZipEntry entry = zipInputStream.getNextEntry(); entry != null; entry = zipInputStream.getNextEntry()) {
+            File file = resolve(entry.getName());
+            if (entry.isDirectory()) {
+                GFileUtils.mkdirs(file);
+                continue;
+            }
+            GFileUtils.parentMkdirs(file);
+            OutputStream outputStream = new FileOutputStream(file);
+            try {
+                IOUtils.copy(zipInputStream, outputStream);
+            } finally {
+                outputStream.close();
+            }
+            if (entry.getTime() != -1) {
+                file.setLastModified(entry.getTime());
+            }
+        }
+    }
+
+    private File resolve(String entryName) throws IOException {
+        int separator = entryName.indexOf('/');
+        String index = separator < 0 ? entryName : entryName.substring(0, separator);
+        String path = separator < 0 ? "" : entryName.substring(separator + 1);
+        int rootIndex;
+        try {
+            rootIndex = Integer.parseInt(index);
+        } catch (NumberFormatException e) {
+            throw new IOException(String.format("Unexpected entry '%s' found in packed task outputs.", entryName));
+        }
+        if (rootIndex < 0 || rootIndex >= roots.size() || path.equals("..") || path.startsWith("../") || path.contains("/../") || path.endsWith("/..")) {
+            throw new IOException(String.format("Unexpected entry '%s' found in packed task outputs.", entryName));
+        }
+        File root = roots.get(rootIndex);
+        return path.length() == 0 ? root : new File(root, path);
+    }
+}
@@ -20,6 +20,7 @@ import org.gradle.api.Action;
 import org.gradle.api.file.*;
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.specs.Spec;
+import org.gradle.api.specs.Specs;
 import org.gradle.internal.nativeplatform.filesystem.FileSystems;
 
 import java.io.FilterReader;
@@ -58,10 +59,28 @@ public class CopyActionImpl implements CopyAction, CopySpecSource {
     }
 
     public void execute() {
+        execute(Specs.<FileTreeElement>satisfyAll());
+    }
+
+    /**
+     * Copies only those source files which are accepted by the given spec. All source directories are visited.
+     */
+    public void execute(final Spec<? super FileTreeElement> sourceFileSpec) {
+        FileVisitor filteringVisitor = new FileVisitor() {
+            public void visitDir(FileVisitDetails dirDetails) {
+                visitor.visitDir(dirDetails);
+            }
+
+            public void visitFile(FileVisitDetails fileDetails) {
+                if (sourceFileSpec.isSatisfiedBy(fileDetails)) {
+                    visitor.visitFile(fileDetails);
+                }
+            }
+        };
         visitor.startVisit(this);
         for (ReadableCopySpec spec : root.getAllSpecs()) {
             visitor.visitSpec(spec);
-            spec.getSource().visit(visitor);
+            spec.getSource().visit(filteringVisitor);
         }
         visitor.endVisit();
     }
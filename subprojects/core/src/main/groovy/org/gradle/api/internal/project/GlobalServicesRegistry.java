@@ -18,6 +18,7 @@ package org.gradle.api.internal.project;
 
 import org.gradle.StartParameter;
 import org.gradle.api.internal.*;
+import org.gradle.api.internal.changedetection.InMemoryFileHashCache;
 import org.gradle.api.internal.classpath.DefaultModuleRegistry;
 import org.gradle.api.internal.classpath.DefaultPluginModuleRegistry;
 import org.gradle.api.internal.classpath.ModuleRegistry;
@@ -76,7 +77,11 @@ public class GlobalServicesRegistry extends DefaultServiceRegistry {
     }
 
     protected Factory<CacheFactory> createCacheFactory() {
-        return new DefaultCacheFactory(get(FileLockManager.class));
+        return new DefaultCacheFactory(get(FileLockManager.class), get(BlockCacheStatisticsRegistry.class));
+    }
+
+    protected BlockCacheStatisticsRegistry createBlockCacheStatisticsRegistry() {
+        return new BlockCacheStatisticsRegistry();
     }
 
     protected ClassLoaderRegistry createClassLoaderRegistry() {
@@ -107,6 +112,10 @@ public class GlobalServicesRegistry extends DefaultServiceRegistry {
         return new ClassGeneratorBackedInstantiator(get(ClassGenerator.class), new DirectInstantiator());
     }
 
+    protected InMemoryFileHashCache createInMemoryFileHashCache() {
+        return new InMemoryFileHashCache(100000);
+    }
+
     protected FileLockManager createFileLockManager() {
         return new DefaultFileLockManager(new DefaultProcessMetaDataProvider(get(ProcessEnvironment.class)));
     }
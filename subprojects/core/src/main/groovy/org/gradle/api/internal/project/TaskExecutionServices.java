@@ -15,22 +15,41 @@
  */
 package org.gradle.api.internal.project;
 
+import org.gradle.BuildAdapter;
+import org.gradle.BuildResult;
 import org.gradle.StartParameter;
 import org.gradle.api.execution.TaskActionListener;
 import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.api.internal.artifacts.DependencyManagementServices;
 import org.gradle.api.internal.changedetection.*;
 import org.gradle.api.internal.tasks.TaskExecuter;
 import org.gradle.api.internal.tasks.execution.*;
 import org.gradle.api.invocation.Gradle;
 import org.gradle.cache.CacheRepository;
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.internal.FileLockManager;
 import org.gradle.execution.taskgraph.TaskPlanExecutor;
 import org.gradle.execution.taskgraph.TaskPlanExecutorFactory;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.id.RandomLongIdGenerator;
+import org.gradle.internal.nativeplatform.filesystem.FileMetadataAccessor;
 import org.gradle.internal.service.DefaultServiceRegistry;
 import org.gradle.internal.service.ServiceRegistry;
+import org.gradle.listener.ListenerBroadcast;
 import org.gradle.listener.ListenerManager;
+import org.gradle.process.internal.HeapSize;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 
 public class TaskExecutionServices extends DefaultServiceRegistry {
+    private static final String FILE_HASH_ALGORITHM_PROPERTY = "org.gradle.internal.filehash";
+    private static final String TASK_OUTPUT_CACHE_PROPERTY = "org.gradle.cache.tasks";
+    private static final String TASK_OUTPUT_CACHE_MAX_SIZE_PROPERTY = "org.gradle.cache.tasks.maxsize";
+    private static final String TASK_OUTPUT_CACHE_URL_PROPERTY = "org.gradle.cache.tasks.url";
+    private static final long DEFAULT_TASK_OUTPUT_CACHE_MAX_SIZE_MB = 5 * 1024;
+    private static final int MAX_CACHED_FILE_METADATA = 500000;
     private final Gradle gradle;
 
     public TaskExecutionServices(ServiceRegistry parent, Gradle gradle) {
@@ -44,44 +63,121 @@ public class TaskExecutionServices extends DefaultServiceRegistry {
                         new SkipTaskWithNoActionsExecuter(
                                 new SkipEmptySourceFilesTaskExecuter(
                                         new ValidatingTaskExecuter(
-                                                new SkipUpToDateTaskExecuter(
-                                                        new CacheLockHandlingTaskExecuter(
-                                                                new PostExecutionAnalysisTaskExecuter(
-                                                                        new ExecuteActionsTaskExecuter(
-                                                                                get(ListenerManager.class).getBroadcaster(TaskActionListener.class))),
-                                                                get(TaskArtifactStateCacheAccess.class)),
-                                                        get(TaskArtifactStateRepository.class)))))));
+                                                new PrefetchInputFilesTaskExecuter(
+                                                        new SkipUpToDateTaskExecuter(
+                                                                new CacheLockHandlingTaskExecuter(
+                                                                        new PostExecutionAnalysisTaskExecuter(
+                                                                                new ExecuteActionsTaskExecuter(
+                                                                                        get(ListenerManager.class).getBroadcaster(TaskActionListener.class))),
+                                                                        get(TaskArtifactStateCacheAccess.class)),
+                                                                get(TaskArtifactStateRepository.class),
+                                                                taskOutputCache()),
+                                                        get(CachingHasher.class),
+                                                        get(PrefetchingHasher.class))))));
+    }
+
+    private TaskOutputCache taskOutputCache() {
+        List<TaskOutputCache> caches = new ArrayList<TaskOutputCache>();
+        if (Boolean.getBoolean(TASK_OUTPUT_CACHE_PROPERTY)) {
+            long maxSizeMb = Long.getLong(TASK_OUTPUT_CACHE_MAX_SIZE_PROPERTY, DEFAULT_TASK_OUTPUT_CACHE_MAX_SIZE_MB);
+            PersistentCache cache = get(CacheRepository.class).cache("taskOutputs").withLockMode(FileLockManager.LockMode.None).open();
+            caches.add(new LocalDirectoryTaskOutputCache(cache.getBaseDir(), maxSizeMb * 1024 * 1024));
+        }
+        String url = System.getProperty(TASK_OUTPUT_CACHE_URL_PROPERTY);
+        if (url != null) {
+            RemoteTaskOutputCacheFactory cacheFactory = get(DependencyManagementServices.class).get(RemoteTaskOutputCacheFactory.class);
+            caches.add(cacheFactory.createCache(URI.create(url)));
+        }
+        if (caches.isEmpty()) {
+            return null;
+        }
+        TaskOutputCache outputCache = caches.size() == 1 ? caches.get(0) : new CompositeTaskOutputCache(caches);
+        return new CacheLockHandlingTaskOutputCache(outputCache, get(TaskArtifactStateCacheAccess.class));
     }
 
     protected TaskArtifactStateCacheAccess createCacheAccess() {
         return new DefaultTaskArtifactStateCacheAccess(gradle, get(CacheRepository.class));
     }
 
+    protected PrefetchingHasher createPrefetchingHasher() {
+        int workers = Math.min(4, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        final PrefetchingHasher hasher = new PrefetchingHasher(contentHasher(), get(ExecutorFactory.class), workers);
+        gradle.addBuildListener(new BuildAdapter() {
+            @Override
+            public void buildFinished(BuildResult result) {
+                hasher.stop();
+            }
+        });
+        return hasher;
+    }
+
+    private Hasher contentHasher() {
+        // The hashes are recorded with the algorithm used, so switching between algorithms causes files to be hashed again
+        if ("md5".equalsIgnoreCase(System.getProperty(FILE_HASH_ALGORITHM_PROPERTY))) {
+            return new DefaultHasher();
+        }
+        return new Murmur3Hasher();
+    }
+
+    protected CachingHasher createCachingHasher() {
+        return new CachingHasher(get(PrefetchingHasher.class), get(TaskArtifactStateCacheAccess.class), get(InMemoryFileHashCache.class),
+                get(CachingFileMetadataAccessor.class));
+    }
+
+    protected CachingFileMetadataAccessor decorateFileMetadataAccessor(FileMetadataAccessor accessor) {
+        return new CachingFileMetadataAccessor(accessor, MAX_CACHED_FILE_METADATA);
+    }
+
+    protected FileSnapshotStore createFileSnapshotStore() {
+        return new FileSnapshotStore();
+    }
+
+    protected TaskHistoryRepository createTaskHistoryRepository() {
+        TaskArtifactStateCacheAccess cacheAccess = get(TaskArtifactStateCacheAccess.class);
+        return new CacheBackedTaskHistoryRepository(cacheAccess, new CacheBackedFileSnapshotRepository(cacheAccess));
+    }
+
     protected TaskArtifactStateRepository createTaskArtifactStateRepository() {
         TaskArtifactStateCacheAccess cacheAccess = get(TaskArtifactStateCacheAccess.class);
 
-        FileSnapshotter fileSnapshotter = new DefaultFileSnapshotter(
-                new CachingHasher(
-                        new DefaultHasher(),
-                        cacheAccess));
+        int workers = Runtime.getRuntime().availableProcessors() - 1;
+        CachingFileMetadataAccessor metadataAccessor = get(CachingFileMetadataAccessor.class);
+        final DefaultFileSnapshotter fileSnapshotter = new DefaultFileSnapshotter(get(CachingHasher.class), get(InMemoryFileHashCache.class),
+                get(FileSnapshotStore.class), metadataAccessor, cacheAccess, get(ExecutorFactory.class), workers);
+        gradle.addBuildListener(new BuildAdapter() {
+            @Override
+            public void buildFinished(BuildResult result) {
+                fileSnapshotter.stop();
+            }
+        });
 
-        FileSnapshotter outputFilesSnapshotter = new OutputFilesSnapshotter(fileSnapshotter, new RandomLongIdGenerator(), cacheAccess);
+        FileSnapshotter outputFilesSnapshotter = new OutputFilesSnapshotter(fileSnapshotter, new RandomLongIdGenerator(), cacheAccess, metadataAccessor);
 
-        TaskHistoryRepository taskHistoryRepository = new CacheBackedTaskHistoryRepository(cacheAccess, new CacheBackedFileSnapshotRepository(cacheAccess));
+        ListenerBroadcast<FileCacheListener> fileCacheListeners = new ListenerBroadcast<FileCacheListener>(FileCacheListener.class);
+        fileCacheListeners.add(new DefaultFileCacheListener());
+        fileCacheListeners.add(get(InMemoryFileHashCache.class));
+        fileCacheListeners.add(get(FileSnapshotStore.class));
+        fileCacheListeners.add(metadataAccessor);
 
         return new FileCacheBroadcastTaskArtifactStateRepository(
                 new ShortCircuitTaskArtifactStateRepository(
                         get(StartParameter.class),
                         new DefaultTaskArtifactStateRepository(
-                                taskHistoryRepository,
+                                get(TaskHistoryRepository.class),
                                 fileSnapshotter,
                                 outputFilesSnapshotter)),
-                new DefaultFileCacheListener());
+                fileCacheListeners.getSource());
+    }
+
+    protected TaskDurationRepository createTaskDurationRepository() {
+        return new CacheBackedTaskDurationRepository(get(TaskArtifactStateCacheAccess.class));
     }
 
     protected TaskPlanExecutor createTaskExecutorFactory() {
         StartParameter startParameter = gradle.getStartParameter();
         TaskArtifactStateCacheAccess cacheAccess = get(TaskArtifactStateCacheAccess.class);
-        return new TaskPlanExecutorFactory(cacheAccess, startParameter.getParallelThreadCount(), get(DocumentationRegistry.class)).create();
+        int maxForkHeapMb = Math.max(HeapSize.toMegabytes(startParameter.getMaxForkedHeapSize()), 0);
+        return new TaskPlanExecutorFactory(cacheAccess, get(TaskDurationRepository.class), startParameter.getParallelThreadCount(),
+                startParameter.getMaxForkedProcessCount(), maxForkHeapMb, get(DocumentationRegistry.class)).create();
     }
 }
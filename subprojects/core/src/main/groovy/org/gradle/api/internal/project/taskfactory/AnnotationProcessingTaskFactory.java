@@ -24,6 +24,7 @@ import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.tasks.execution.TaskValidator;
 import org.gradle.api.tasks.*;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.util.ReflectionUtil;
 
@@ -144,7 +145,9 @@ public class AnnotationProcessingTaskFactory implements ITaskFactory {
             throw new GradleException(String.format("Cannot use @TaskAction annotation on static method %s.%s().",
                     method.getDeclaringClass().getSimpleName(), method.getName()));
         }
-        if (method.getParameterTypes().length > 0) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        final boolean incremental = parameterTypes.length == 1 && parameterTypes[0].equals(IncrementalTaskInputs.class);
+        if (parameterTypes.length > 0 && !incremental) {
             throw new GradleException(String.format(
                     "Cannot use @TaskAction annotation on method %s.%s() as this method takes parameters.",
                     method.getDeclaringClass().getSimpleName(), method.getName()));
@@ -153,6 +156,10 @@ public class AnnotationProcessingTaskFactory implements ITaskFactory {
             return;
         }
         methods.add(method.getName());
+        if (incremental) {
+            actions.add(new IncrementalTaskAction(method));
+            return;
+        }
         actions.add(new Action<Task>() {
             public void execute(Task task) {
                 ClassLoader original = Thread.currentThread().getContextClassLoader();
@@ -166,6 +173,28 @@ public class AnnotationProcessingTaskFactory implements ITaskFactory {
         });
     }
 
+    /**
+     * Executes a task action method which accepts the changes to the input files of the task.
+     */
+    private static class IncrementalTaskAction implements Action<Task> {
+        private final Method method;
+
+        public IncrementalTaskAction(Method method) {
+            this.method = method;
+        }
+
+        public void execute(Task task) {
+            IncrementalTaskInputs inputChanges = ((TaskInternal) task).getOutputs().getInputChanges();
+            ClassLoader original = Thread.currentThread().getContextClassLoader();
+            Thread.currentThread().setContextClassLoader(method.getDeclaringClass().getClassLoader());
+            try {
+                ReflectionUtil.invoke(task, method.getName(), inputChanges);
+            } finally {
+                Thread.currentThread().setContextClassLoader(original);
+            }
+        }
+    }
+
     private static boolean isGetter(Method method) {
         return method.getName().startsWith("get") && method.getReturnType() != Void.TYPE
                 && method.getParameterTypes().length == 0 && !Modifier.isStatic(method.getModifiers());
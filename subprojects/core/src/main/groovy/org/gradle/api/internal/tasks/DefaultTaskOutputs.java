@@ -22,19 +22,30 @@ import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.TaskExecutionHistory;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.TaskOutputsInternal;
+import org.gradle.api.internal.changedetection.RebuildIncrementalTaskInputs;
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.internal.file.collections.DefaultConfigurableFileCollection;
 import org.gradle.api.specs.AndSpec;
 import org.gradle.api.specs.Spec;
+import org.gradle.api.specs.Specs;
 import org.gradle.api.tasks.TaskOutputs;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+
+import java.io.File;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 public class DefaultTaskOutputs implements TaskOutputsInternal {
     private final DefaultConfigurableFileCollection outputFiles;
+    private final TaskInternal task;
     private AndSpec<TaskInternal> upToDateSpec = new AndSpec<TaskInternal>();
+    private AndSpec<TaskInternal> cacheSpec = new AndSpec<TaskInternal>();
     private TaskExecutionHistory history;
+    private Set<File> recordedChanges;
     private final TaskStatusNagger taskStatusNagger;
 
     public DefaultTaskOutputs(FileResolver resolver, TaskInternal task, TaskStatusNagger taskStatusNagger) {
+        this.task = task;
         this.taskStatusNagger = taskStatusNagger;
         outputFiles = new DefaultConfigurableFileCollection(String.format("%s output files", task), resolver, null);
         outputFiles.builtBy(task);
@@ -54,6 +65,23 @@ public class DefaultTaskOutputs implements TaskOutputsInternal {
         this.upToDateSpec = this.upToDateSpec.and(upToDateSpec);
     }
 
+    public Spec<? super TaskInternal> getCacheSpec() {
+        if (cacheSpec.getSpecs().isEmpty()) {
+            return Specs.satisfyNone();
+        }
+        return cacheSpec;
+    }
+
+    public void cacheIf(Closure cacheClosure) {
+        taskStatusNagger.nagIfTaskNotInConfigurableState("TaskOutputs.cacheIf(Closure)");
+        cacheSpec = cacheSpec.and(cacheClosure);
+    }
+
+    public void cacheIf(Spec<? super Task> cacheSpec) {
+        taskStatusNagger.nagIfTaskNotInConfigurableState("TaskOutputs.cacheIf(Spec)");
+        this.cacheSpec = this.cacheSpec.and(cacheSpec);
+    }
+
     public boolean getHasOutput() {
         return !outputFiles.getFrom().isEmpty() || !upToDateSpec.getSpecs().isEmpty();
     }
@@ -87,7 +115,27 @@ public class DefaultTaskOutputs implements TaskOutputsInternal {
         return history.getOutputFiles();
     }
 
+    public IncrementalTaskInputs getInputChanges() {
+        if (history == null) {
+            // Not executed using the task history, so all outputs need to be rebuilt
+            return new RebuildIncrementalTaskInputs(task);
+        }
+        return history.getInputChanges();
+    }
+
+    public void recordChangedFile(File file) {
+        if (recordedChanges == null) {
+            recordedChanges = new LinkedHashSet<File>();
+        }
+        recordedChanges.add(file);
+    }
+
+    public Set<File> getRecordedChanges() {
+        return recordedChanges;
+    }
+
     public void setHistory(TaskExecutionHistory history) {
         this.history = history;
+        recordedChanges = null;
     }
 }
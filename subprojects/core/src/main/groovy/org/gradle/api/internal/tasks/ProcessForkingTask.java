@@ -0,0 +1,33 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks;
+
+/**
+ * A task which forks processes when it executes. A parallel build uses this information to limit the number of processes, and the amount of heap, in use at the
+ * same time.
+ */
+public interface ProcessForkingTask {
+    /**
+     * Returns the maximum number of processes this task runs at the same time, or 0 if it does not fork any processes.
+     */
+    int getMaxForkedProcessCount();
+
+    /**
+     * Returns the approximate maximum heap size of each forked process, in megabytes, or -1 when not known.
+     */
+    int getForkedProcessHeapSizeMb();
+}
@@ -19,22 +19,32 @@ package org.gradle.api.internal.tasks.execution;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.changedetection.TaskArtifactState;
 import org.gradle.api.internal.changedetection.TaskArtifactStateRepository;
+import org.gradle.api.internal.changedetection.TaskOutputCache;
+import org.gradle.api.internal.changedetection.TaskOutputPacker;
 import org.gradle.api.internal.tasks.TaskExecuter;
 import org.gradle.api.internal.tasks.TaskStateInternal;
+import org.gradle.util.hash.HashValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * A {@link TaskExecuter} which skips tasks whose outputs are up-to-date.
+ * A {@link TaskExecuter} which skips tasks whose outputs are up-to-date. When a task output cache is available, the outputs of a task which is
+ * not up-to-date are restored from the cache instead of executing the task, if possible.
  */
 public class SkipUpToDateTaskExecuter implements TaskExecuter {
     private static final Logger LOGGER = LoggerFactory.getLogger(SkipUpToDateTaskExecuter.class);
     private final TaskExecuter executer;
     private final TaskArtifactStateRepository repository;
+    private final TaskOutputCache outputCache;
 
     public SkipUpToDateTaskExecuter(TaskExecuter executer, TaskArtifactStateRepository repository) {
+        this(executer, repository, null);
+    }
+
+    public SkipUpToDateTaskExecuter(TaskExecuter executer, TaskArtifactStateRepository repository, TaskOutputCache outputCache) {
         this.executer = executer;
         this.repository = repository;
+        this.outputCache = outputCache;
     }
 
     public void execute(TaskInternal task, TaskStateInternal state) {
@@ -49,12 +59,23 @@ public class SkipUpToDateTaskExecuter implements TaskExecuter {
             }
             LOGGER.debug("{} is not up-to-date", task);
 
+            HashValue cacheKey = outputCache == null ? null : taskArtifactState.getCacheKey();
+
             taskArtifactState.beforeTask();
+            if (cacheKey != null && loadFromCache(task, cacheKey)) {
+                state.skipped("FROM-CACHE");
+                taskArtifactState.afterTask();
+                return;
+            }
+
             task.getOutputs().setHistory(taskArtifactState.getExecutionHistory());
             try {
                 executer.execute(task, state);
                 if (state.getFailure() == null) {
                     taskArtifactState.afterTask();
+                    if (cacheKey != null) {
+                        storeInCache(task, cacheKey);
+                    }
                 }
             } finally {
                 task.getOutputs().setHistory(null);
@@ -63,4 +84,24 @@ public class SkipUpToDateTaskExecuter implements TaskExecuter {
             taskArtifactState.finished();
         }
     }
+
+    private boolean loadFromCache(TaskInternal task, HashValue cacheKey) {
+        try {
+            if (outputCache.load(cacheKey, new TaskOutputPacker(task))) {
+                LOGGER.info("Restored the outputs of {} from {}.", task, outputCache.getDisplayName());
+                return true;
+            }
+        } catch (Exception e) {
+            LOGGER.warn(String.format("Could not load the outputs of %s from %s. Executing the task instead.", task, outputCache.getDisplayName()), e);
+        }
+        return false;
+    }
+
+    private void storeInCache(TaskInternal task, HashValue cacheKey) {
+        try {
+            outputCache.store(cacheKey, new TaskOutputPacker(task));
+        } catch (Exception e) {
+            LOGGER.warn(String.format("Could not store the outputs of %s in %s.", task, outputCache.getDisplayName()), e);
+        }
+    }
 }
@@ -16,11 +16,18 @@
 
 package org.gradle.api.tasks;
 
+import org.gradle.api.Action;
+import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.internal.file.copy.FileCopyActionImpl;
 import org.gradle.api.internal.file.copy.FileCopySpecVisitor;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.api.tasks.incremental.InputFileDetails;
 
 import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * Copies files into a destination directory.  This task can also rename and filter files as it copies. The task
@@ -65,6 +72,59 @@ public class Copy extends AbstractCopyTask {
         copyAction = new FileCopyActionImpl(fileResolver, new FileCopySpecVisitor());
     }
 
+    /**
+     * Copies the source files which have changed since the last execution of this task. Copies all source files when the changes are not known.
+     * Replaces {@link AbstractCopyTask#copy()} as the action of this task.
+     *
+     * <p>A subclass which overrides {@link #copy()} without also overriding this method always copies all source files using {@link #copy()}.</p>
+     */
+    @TaskAction
+    protected void copy(IncrementalTaskInputs inputs) {
+        if (!inputs.isIncremental() || overridesFullCopyOnly()) {
+            copy();
+            return;
+        }
+
+        final Set<File> outOfDate = new HashSet<File>();
+        inputs.outOfDate(new Action<InputFileDetails>() {
+            public void execute(InputFileDetails details) {
+                outOfDate.add(details.getFile());
+            }
+        });
+
+        configureRootSpec();
+        getCopyAction().execute(new Spec<FileTreeElement>() {
+            public boolean isSatisfiedBy(FileTreeElement element) {
+                return outOfDate.contains(element.getFile());
+            }
+        });
+        setDidWork(getCopyAction().getDidWork());
+    }
+
+    /**
+     * Returns true if the class of this task overrides {@link #copy()} in a subclass of the class which declares {@link #copy(IncrementalTaskInputs)}.
+     */
+    private boolean overridesFullCopyOnly() {
+        for (Class<?> type = getClass(); type != Copy.class; type = type.getSuperclass()) {
+            if (declares(type, IncrementalTaskInputs.class)) {
+                return false;
+            }
+            if (declares(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean declares(Class<?> type, Class<?>... parameterTypes) {
+        try {
+            type.getDeclaredMethod("copy", parameterTypes);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
     protected void configureRootSpec() {
         super.configureRootSpec();
         if (getCopyAction().getDestinationDir() == null) {
@@ -17,6 +17,7 @@
 package org.gradle.api.tasks;
 
 import groovy.lang.Closure;
+import org.gradle.api.Incubating;
 import org.gradle.api.Task;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.specs.Spec;
@@ -51,6 +52,30 @@ public interface TaskOutputs {
      */
     void upToDateWhen(Spec<? super Task> upToDateSpec);
 
+    /**
+     * <p>Adds a predicate to determine whether the outputs of this task can be stored in and restored from the task output cache. The given closure
+     * is executed at task execution time. The closure is passed the task as a parameter.</p>
+     *
+     * <p>When the task output cache is enabled, the outputs of a task are cached only when the task has declared at least one such predicate and all
+     * of them return true. Such a task must produce the same output files whenever it is executed with the same inputs.</p>
+     *
+     * @param cacheClosure The closure to use to determine whether the task outputs can be cached.
+     */
+    @Incubating
+    void cacheIf(Closure cacheClosure);
+
+    /**
+     * <p>Adds a predicate to determine whether the outputs of this task can be stored in and restored from the task output cache. The given spec is
+     * evaluated at task execution time.</p>
+     *
+     * <p>When the task output cache is enabled, the outputs of a task are cached only when the task has declared at least one such predicate and all
+     * of them return true. Such a task must produce the same output files whenever it is executed with the same inputs.</p>
+     *
+     * @param cacheSpec The spec to use to determine whether the task outputs can be cached.
+     */
+    @Incubating
+    void cacheIf(Spec<? super Task> cacheSpec);
+
     /**
      * Returns true if this task has declared any outputs. Note that a task may be able to produce output files and
      * still have an empty set of output files.
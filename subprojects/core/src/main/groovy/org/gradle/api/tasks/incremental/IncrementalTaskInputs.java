@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.tasks.incremental;
+
+import org.gradle.api.Action;
+import org.gradle.api.Incubating;
+
+/**
+ * <p>Provides access to the input files of a task which need to be processed by an incremental task action.</p>
+ *
+ * <p>A task action is incremental when it is a method annotated with {@link org.gradle.api.tasks.TaskAction} which accepts a single
+ * {@code IncrementalTaskInputs} parameter. When the task is executed, the action is passed the input files which are out-of-date, and those
+ * which have been removed, since the last time the task was executed successfully:</p>
+ *
+ * <pre autoTested=''>
+ * class IncrementalReverseTask extends DefaultTask {
+ *     &#64;InputDirectory
+ *     def File inputDir
+ *
+ *     &#64;OutputDirectory
+ *     def File outputDir
+ *
+ *     &#64;TaskAction
+ *     void execute(IncrementalTaskInputs inputs) {
+ *         inputs.outOfDate { change -&gt;
+ *             def targetFile = new File(outputDir, change.file.name)
+ *             targetFile.text = change.file.text.reverse()
+ *         }
+ *         inputs.removed { change -&gt;
+ *             new File(outputDir, change.file.name).delete()
+ *         }
+ *     }
+ * }
+ * </pre>
+ *
+ * <p>When Gradle cannot determine which input files have changed, for example because the task has not been executed before, or the input
+ * properties, output files or implementation of the task have changed, every input file is considered out-of-date and no files are reported as
+ * removed. The task action should then rebuild all of its outputs. {@link #isIncremental()} can be used to detect this case.</p>
+ */
+@Incubating
+public interface IncrementalTaskInputs {
+    /**
+     * Returns true if only the input files which have changed since the last execution of the task are reported as out-of-date. Returns false when
+     * every input file is reported as out-of-date, in which case the task action should discard any outputs produced by earlier executions.
+     *
+     * @return true if the changes are reported incrementally.
+     */
+    boolean isIncremental();
+
+    /**
+     * Executes the given action for each input file which is out-of-date. A file is out-of-date when it has been added or modified since the last
+     * execution of the task, or when {@link #isIncremental()} is false.
+     *
+     * @param outOfDateAction The action to execute for each out-of-date file.
+     */
+    void outOfDate(Action<? super InputFileDetails> outOfDateAction);
+
+    /**
+     * Executes the given action for each input file which has been removed since the last execution of the task. No files are reported as removed
+     * when {@link #isIncremental()} is false.
+     *
+     * @param removedAction The action to execute for each removed file.
+     */
+    void removed(Action<? super InputFileDetails> removedAction);
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.tasks.incremental;
+
+import org.gradle.api.Incubating;
+
+import java.io.File;
+
+/**
+ * A change to an input file of a task, as reported to an incremental task action by {@link IncrementalTaskInputs}.
+ */
+@Incubating
+public interface InputFileDetails {
+    /**
+     * Returns true if the file has been added since the last execution of the task.
+     */
+    boolean isAdded();
+
+    /**
+     * Returns true if the file has been modified since the last execution of the task.
+     */
+    boolean isModified();
+
+    /**
+     * Returns true if the file has been removed since the last execution of the task.
+     */
+    boolean isRemoved();
+
+    /**
+     * Returns the input file.
+     */
+    File getFile();
+}
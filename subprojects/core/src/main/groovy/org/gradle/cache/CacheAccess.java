@@ -37,6 +37,17 @@ public interface CacheAccess {
      */
     void useCache(String operationDisplayName, Runnable action);
 
+    /**
+     * Performs some work against the cache which only reads from the cache. Several such actions can run at the same time in this process, when the
+     * cross-process locks are already held. Otherwise, the action runs in the same way as for {@link #useCache(String, org.gradle.internal.Factory)}.
+     *
+     * <p>When the action needs to update the cache, it is abandoned and is run again in the same way as for
+     * {@link #useCache(String, org.gradle.internal.Factory)}. The action should therefore have no side effects other than reading the cache.</p>
+     *
+     * <p>This method is re-entrant, so that an action can call back into this method.</p>
+     */
+    <T> T readCache(String operationDisplayName, Factory<? extends T> action);
+
     /**
      * Performs some long running operation within an action invoked by {@link #useCache(String, org.gradle.internal.Factory)}. Releases all
      * locks while the operation is running, and reacquires the locks at the end of the long running operation.
@@ -52,4 +63,22 @@ public interface CacheAccess {
      * <p>This method is re-entrant, so that an action can call back into this method.</p>
      */
     void longRunningOperation(String operationDisplayName, Runnable action);
+
+    /**
+     * Performs some operation within an action invoked by {@link #useCache(String, org.gradle.internal.Factory)}, during which other threads in this process use
+     * the cache. Releases the in-process lock while the operation is running, so that other threads can call {@link #useCache(String, org.gradle.internal.Factory)},
+     * but keeps any cross-process locks until the end of the operation, so that these threads do not need to reacquire them.
+     *
+     * <p>A thread that calls {@link #longRunningOperation(String, org.gradle.internal.Factory)} or this method during the operation without holding the lock simply runs the action.</p>
+     */
+    <T> T concurrentOperation(String operationDisplayName, Factory<? extends T> action);
+
+    /**
+     * Performs some operation within an action invoked by {@link #useCache(String, org.gradle.internal.Factory)}, during which other threads in this process use
+     * the cache. Releases the in-process lock while the operation is running, so that other threads can call {@link #useCache(String, Runnable)},
+     * but keeps any cross-process locks until the end of the operation, so that these threads do not need to reacquire them.
+     *
+     * <p>A thread that calls {@link #longRunningOperation(String, Runnable)} or this method during the operation without holding the lock simply runs the action.</p>
+     */
+    void concurrentOperation(String operationDisplayName, Runnable action);
 }
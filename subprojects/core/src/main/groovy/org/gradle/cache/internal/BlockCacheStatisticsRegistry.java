@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.gradle.cache.internal.btree.BlockCacheStatistics;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the block cache statistics of the indexed caches used by this process. The statistics of a cache are kept when the cache is
+ * closed, and are shared by each instance of the cache.
+ */
+public class BlockCacheStatisticsRegistry {
+    private final Map<File, BlockCacheStatistics> statistics = new LinkedHashMap<File, BlockCacheStatistics>();
+
+    public synchronized BlockCacheStatistics getStatistics(File cacheFile) {
+        BlockCacheStatistics cacheStatistics = statistics.get(cacheFile);
+        if (cacheStatistics == null) {
+            cacheStatistics = new BlockCacheStatistics(cacheFile.getPath());
+            statistics.put(cacheFile, cacheStatistics);
+        }
+        return cacheStatistics;
+    }
+
+    /**
+     * Returns the statistics of the caches which have been used since the statistics were last reset.
+     */
+    public synchronized List<BlockCacheStatistics> getUsedCaches() {
+        List<BlockCacheStatistics> usedCaches = new ArrayList<BlockCacheStatistics>();
+        for (BlockCacheStatistics cacheStatistics : statistics.values()) {
+            if (cacheStatistics.isUsed()) {
+                usedCaches.add(cacheStatistics);
+            }
+        }
+        return usedCaches;
+    }
+
+    public synchronized void reset() {
+        for (BlockCacheStatistics cacheStatistics : statistics.values()) {
+            cacheStatistics.reset();
+        }
+    }
+}
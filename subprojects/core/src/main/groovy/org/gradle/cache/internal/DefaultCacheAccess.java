@@ -20,6 +20,10 @@ import org.gradle.cache.CacheAccess;
 import org.gradle.cache.DefaultSerializer;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.cache.internal.btree.BlockStore;
+import org.gradle.cache.internal.btree.CachingBlockStore;
+import org.gradle.cache.internal.btree.FileBackedBlockStore;
+import org.gradle.cache.internal.btree.MemoryMappedBlockStore;
 import org.gradle.internal.Factories;
 import org.gradle.internal.Factory;
 import org.gradle.internal.UncheckedException;
@@ -27,8 +31,10 @@ import org.gradle.messaging.serialize.Serializer;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
@@ -38,14 +44,29 @@ import static org.gradle.cache.internal.FileLockManager.LockMode.Exclusive;
 
 @ThreadSafe
 public class DefaultCacheAccess implements CacheAccess {
+    /**
+     * A comma separated list of the names of the indexed caches which should access their file using a memory mapped region, eg
+     * {@code fileHashes,taskArtifacts}. Use {@code *} for all indexed caches.
+     */
+    public static final String MEMORY_MAPPED_CACHES_PROPERTY = "org.gradle.cache.memorymapped";
+    /**
+     * The maximum size of the blocks which each indexed cache keeps in memory, in megabytes.
+     */
+    public static final String BLOCK_CACHE_SIZE_PROPERTY = "org.gradle.cache.blockcache.size";
     private final String cacheDiplayName;
     private final File lockFile;
     private final FileLockManager lockManager;
+    private final BlockCacheStatisticsRegistry statisticsRegistry;
     private final FileAccess fileAccess = new UnitOfWorkFileAccess();
     private final Set<MultiProcessSafePersistentIndexedCache<?, ?>> caches = new HashSet<MultiProcessSafePersistentIndexedCache<?, ?>>();
     private final Lock lock = new ReentrantLock();
     private final Condition condition = lock.newCondition();
     private Thread owner;
+    // The number of nested read actions of each thread which reads the caches without owning them
+    private final Map<Thread, Integer> readers = new HashMap<Thread, Integer>();
+    // The number of threads waiting to own the caches, which new readers give way to
+    private int waitingOwners;
+    private int concurrentOperations;
     private FileLockManager.LockMode lockMode;
     private FileLock fileLock;
     private final ThreadLocal<CacheOperationStack> operationStack = new ThreadLocal<CacheOperationStack>() {
@@ -56,9 +77,14 @@ public class DefaultCacheAccess implements CacheAccess {
     };
 
     public DefaultCacheAccess(String cacheDisplayName, File lockFile, FileLockManager lockManager) {
+        this(cacheDisplayName, lockFile, lockManager, new BlockCacheStatisticsRegistry());
+    }
+
+    public DefaultCacheAccess(String cacheDisplayName, File lockFile, FileLockManager lockManager, BlockCacheStatisticsRegistry statisticsRegistry) {
         this.cacheDiplayName = cacheDisplayName;
         this.lockFile = lockFile;
         this.lockManager = lockManager;
+        this.statisticsRegistry = statisticsRegistry;
     }
 
     /**
@@ -132,16 +158,95 @@ public class DefaultCacheAccess implements CacheAccess {
         }
     }
 
-    private void takeOwnership(String operationDisplayName) {
+    public <T> T readCache(String operationDisplayName, Factory<? extends T> action) {
+        Boolean outermost = startReading(operationDisplayName);
+        if (outermost != null) {
+            try {
+                return action.create();
+            } catch (ReadOnlyAccessException e) {
+                if (!outermost) {
+                    throw e;
+                }
+                // Fall through to run the action again while owning the caches
+            } finally {
+                stopReading(operationDisplayName);
+            }
+        }
+        return useCache(operationDisplayName, action);
+    }
+
+    /**
+     * Starts a read action for the current thread, if it can read the caches without owning them.
+     *
+     * @return null if the current thread must own the caches, otherwise whether this is the outermost read action of the thread.
+     */
+    private Boolean startReading(String operationDisplayName) {
         lock.lock();
         try {
-            while (owner != null && owner != Thread.currentThread()) {
+            Thread current = Thread.currentThread();
+            Integer count = readers.get(current);
+            if (count != null) {
+                readers.put(current, count + 1);
+                operationStack.get().pushCacheAction(operationDisplayName);
+                return false;
+            }
+            if (owner == current) {
+                return null;
+            }
+            while (owner != null || waitingOwners > 0) {
                 try {
                     condition.await();
                 } catch (InterruptedException e) {
                     throw UncheckedException.throwAsUncheckedException(e);
                 }
             }
+            if (fileLock == null) {
+                // Only the owner can acquire the cross-process lock
+                return null;
+            }
+            readers.put(current, 1);
+            operationStack.get().pushCacheAction(operationDisplayName);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void stopReading(String operationDisplayName) {
+        lock.lock();
+        try {
+            operationStack.get().popCacheAction(operationDisplayName);
+            Thread current = Thread.currentThread();
+            int count = readers.get(current);
+            if (count > 1) {
+                readers.put(current, count - 1);
+            } else {
+                readers.remove(current);
+                condition.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void takeOwnership(String operationDisplayName) {
+        lock.lock();
+        try {
+            if (readers.containsKey(Thread.currentThread())) {
+                throw new ReadOnlyAccessException();
+            }
+            waitingOwners++;
+            try {
+                while ((owner != null && owner != Thread.currentThread()) || !readers.isEmpty()) {
+                    try {
+                        condition.await();
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    }
+                }
+            } finally {
+                waitingOwners--;
+            }
             owner = Thread.currentThread();
             operationStack.get().pushCacheAction(operationDisplayName);
         } finally {
@@ -163,7 +268,7 @@ public class DefaultCacheAccess implements CacheAccess {
     }
 
     public <T> T longRunningOperation(String operationDisplayName, Factory<? extends T> action) {
-        if (operationStack.get().isInLongRunningOperation()) {
+        if (operationStack.get().isInLongRunningOperation() || isConcurrentOperationThread()) {
             operationStack.get().pushLongRunningOperation(operationDisplayName);
             try {
                 return action.create();
@@ -185,6 +290,49 @@ public class DefaultCacheAccess implements CacheAccess {
         }
     }
 
+    public <T> T concurrentOperation(String operationDisplayName, Factory<? extends T> action) {
+        if (isConcurrentOperationThread()) {
+            // Already running concurrently with other threads, and does not hold the lock
+            return action.create();
+        }
+
+        // Keep the file lock, so that other threads do not need to reacquire it when they use the cache
+        parkOwner(operationDisplayName);
+        lock.lock();
+        try {
+            concurrentOperations++;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            return action.create();
+        } finally {
+            lock.lock();
+            try {
+                concurrentOperations--;
+            } finally {
+                lock.unlock();
+            }
+            restoreOwner(operationDisplayName);
+        }
+    }
+
+    public void concurrentOperation(String operationDisplayName, Runnable action) {
+        concurrentOperation(operationDisplayName, Factories.toFactory(action));
+    }
+
+    /**
+     * Returns true if the current thread is running as part of a concurrent operation, and does not hold the lock.
+     */
+    private boolean isConcurrentOperationThread() {
+        lock.lock();
+        try {
+            return concurrentOperations > 0 && owner != Thread.currentThread();
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private void checkThreadIsOwner() {
         lock.lock();
         try {
@@ -214,12 +362,17 @@ public class DefaultCacheAccess implements CacheAccess {
     private void restoreOwner(String description) {
         lock.lock();
         try {
-            while (owner != null) {
-                try {
-                    condition.await();
-                } catch (InterruptedException e) {
-                    throw UncheckedException.throwAsUncheckedException(e);
+            waitingOwners++;
+            try {
+                while (owner != null || !readers.isEmpty()) {
+                    try {
+                        condition.await();
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    }
                 }
+            } finally {
+                waitingOwners--;
             }
             owner = Thread.currentThread();
             operationStack.get().popLongRunningOperation(description);
@@ -242,7 +395,7 @@ public class DefaultCacheAccess implements CacheAccess {
                 return doCreateCache(cacheFile, new DefaultSerializer<K>(keyType.getClassLoader()), valueSerializer);
             }
         };
-        MultiProcessSafePersistentIndexedCache<K, V> indexedCache = new MultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess);
+        MultiProcessSafePersistentIndexedCache<K, V> indexedCache = new MultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess, valueSerializer);
         lock.lock();
         try {
             caches.add(indexedCache);
@@ -256,7 +409,36 @@ public class DefaultCacheAccess implements CacheAccess {
     }
 
     <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(final File cacheFile, final Serializer<K> keySerializer, final Serializer<V> valueSerializer) {
-        return new BTreePersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer);
+        BlockStore store = isMemoryMapped(cacheFile) ? new MemoryMappedBlockStore(cacheFile) : new FileBackedBlockStore(cacheFile);
+        return new BTreePersistentIndexedCache<K, V>(cacheFile, store, keySerializer, valueSerializer, getMaxCachedBytes(), statisticsRegistry.getStatistics(cacheFile));
+    }
+
+    private static long getMaxCachedBytes() {
+        String size = System.getProperty(BLOCK_CACHE_SIZE_PROPERTY);
+        if (size == null) {
+            return CachingBlockStore.DEFAULT_MAX_CACHED_BYTES;
+        }
+        try {
+            return Long.parseLong(size.trim()) * 1024 * 1024;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Invalid value '%s' for system property '%s'. Expected a number of megabytes.", size, BLOCK_CACHE_SIZE_PROPERTY), e);
+        }
+    }
+
+    private static boolean isMemoryMapped(File cacheFile) {
+        String caches = System.getProperty(MEMORY_MAPPED_CACHES_PROPERTY);
+        if (caches == null) {
+            return false;
+        }
+        String fileName = cacheFile.getName();
+        String cacheName = fileName.endsWith(".bin") ? fileName.substring(0, fileName.length() - 4) : fileName;
+        for (String name : caches.split(",")) {
+            name = name.trim();
+            if (name.equals("*") || name.equals(cacheName)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private boolean onStartWork() {
@@ -287,10 +469,16 @@ public class DefaultCacheAccess implements CacheAccess {
         return true;
     }
 
-    private FileLock getLock() {
+    private FileLock getLock(boolean write) {
         lock.lock();
         try {
-            if (Thread.currentThread() != owner || fileLock == null) {
+            Thread current = Thread.currentThread();
+            if (current != owner && readers.containsKey(current)) {
+                // Readers hold the cross-process lock with the owner that started the work
+                if (write) {
+                    throw new ReadOnlyAccessException();
+                }
+            } else if (current != owner || fileLock == null) {
                 throw new IllegalStateException(String.format("The %s has not been locked.", cacheDiplayName));
             }
         } finally {
@@ -301,18 +489,24 @@ public class DefaultCacheAccess implements CacheAccess {
 
     private class UnitOfWorkFileAccess extends AbstractFileAccess {
         public <T> T readFile(Factory<? extends T> action) throws LockTimeoutException {
-            return getLock().readFile(action);
+            return getLock(false).readFile(action);
         }
 
         public void updateFile(Runnable action) throws LockTimeoutException {
-            getLock().updateFile(action);
+            getLock(true).updateFile(action);
         }
 
         public void writeFile(Runnable action) throws LockTimeoutException {
-            getLock().writeFile(action);
+            getLock(true).writeFile(action);
         }
     }
 
+    /**
+     * Thrown when a read action attempts to update the caches. The outermost read action is then run again while owning the caches.
+     */
+    private static class ReadOnlyAccessException extends RuntimeException {
+    }
+
     private class CacheOperationStack {
         private final List<CacheOperation> operations = new ArrayList<CacheOperation>();
 
@@ -31,9 +31,15 @@ import static org.gradle.cache.internal.FileLockManager.LockMode;
 public class DefaultCacheFactory implements Factory<CacheFactory> {
     private final Map<File, DirCacheReference> dirCaches = new HashMap<File, DirCacheReference>();
     private final FileLockManager lockManager;
+    private final BlockCacheStatisticsRegistry statisticsRegistry;
 
     public DefaultCacheFactory(FileLockManager fileLockManager) {
+        this(fileLockManager, new BlockCacheStatisticsRegistry());
+    }
+
+    public DefaultCacheFactory(FileLockManager fileLockManager, BlockCacheStatisticsRegistry statisticsRegistry) {
         this.lockManager = fileLockManager;
+        this.statisticsRegistry = statisticsRegistry;
     }
 
     public CacheFactory create() {
@@ -61,13 +67,13 @@ public class DefaultCacheFactory implements Factory<CacheFactory> {
             if (dirCacheReference == null) {
                 if (lockMode.equals(LockMode.None)) {
                     // Create nested cache with LockMode#Exclusive (tb discussed) that is opened and closed on Demand in the DelegateOnDemandPersistentDirectoryCache.
-                    DefaultPersistentDirectoryCache nestedCache = new DefaultPersistentDirectoryCache(canonicalDir, displayName, usage, validator, properties, LockMode.Exclusive, action, lockManager);
+                    DefaultPersistentDirectoryCache nestedCache = new DefaultPersistentDirectoryCache(canonicalDir, displayName, usage, validator, properties, LockMode.Exclusive, action, lockManager, statisticsRegistry);
                     DelegateOnDemandPersistentDirectoryCache onDemandDache = new DelegateOnDemandPersistentDirectoryCache(nestedCache);
                     onDemandDache.open();
                     dirCacheReference = new DirCacheReference(onDemandDache, properties, lockMode);
                     dirCaches.put(canonicalDir, dirCacheReference);
                 } else {
-                    ReferencablePersistentCache cache = new DefaultPersistentDirectoryCache(canonicalDir, displayName, usage, validator, properties, lockMode, action, lockManager);
+                    ReferencablePersistentCache cache = new DefaultPersistentDirectoryCache(canonicalDir, displayName, usage, validator, properties, lockMode, action, lockManager, statisticsRegistry);
                     cache.open();
                     dirCacheReference = new DirCacheReference(cache, properties, lockMode);
                     dirCaches.put(canonicalDir, dirCacheReference);
@@ -97,7 +103,7 @@ public class DefaultCacheFactory implements Factory<CacheFactory> {
             File canonicalDir = GFileUtils.canonicalise(storeDir);
             DirCacheReference dirCacheReference = dirCaches.get(canonicalDir);
             if (dirCacheReference == null) {
-                ReferencablePersistentCache cache = new DefaultPersistentDirectoryStore(canonicalDir, displayName, lockMode, lockManager);
+                ReferencablePersistentCache cache = new DefaultPersistentDirectoryStore(canonicalDir, displayName, lockMode, lockManager, statisticsRegistry);
                 cache.open();
                 dirCacheReference = new DirCacheReference(cache, Collections.<String, Object>emptyMap(), lockMode);
                 dirCaches.put(canonicalDir, dirCacheReference);
@@ -201,7 +207,7 @@ public class DefaultCacheFactory implements Factory<CacheFactory> {
                         return indexedCache;
                     }
                 };
-                MultiProcessSafePersistentIndexedCache<K, V> safeCache = new MultiProcessSafePersistentIndexedCache<K, V>(cacheFactory, getCache().getLock());
+                MultiProcessSafePersistentIndexedCache<K, V> safeCache = new MultiProcessSafePersistentIndexedCache<K, V>(cacheFactory, getCache().getLock(), serializer);
                 this.indexedCache = new IndexedCacheReference<K, V>(safeCache, this);
             }
             return indexedCache;
@@ -43,7 +43,12 @@ public class DefaultPersistentDirectoryCache extends DefaultPersistentDirectoryS
     private boolean didRebuild;
 
     public DefaultPersistentDirectoryCache(File dir, String displayName, CacheUsage cacheUsage, CacheValidator validator, Map<String, ?> properties, LockMode lockMode, Action<? super PersistentCache> initAction, FileLockManager lockManager) {
-        super(dir, displayName, lockMode, lockManager);
+        this(dir, displayName, cacheUsage, validator, properties, lockMode, initAction, lockManager, new BlockCacheStatisticsRegistry());
+    }
+
+    public DefaultPersistentDirectoryCache(File dir, String displayName, CacheUsage cacheUsage, CacheValidator validator, Map<String, ?> properties, LockMode lockMode, Action<? super PersistentCache> initAction, FileLockManager lockManager,
+                                           BlockCacheStatisticsRegistry statisticsRegistry) {
+        super(dir, displayName, lockMode, lockManager, statisticsRegistry);
         if (lockMode == LockMode.None) {
             throw new UnsupportedOperationException("Locking mode None is not supported.");
         }
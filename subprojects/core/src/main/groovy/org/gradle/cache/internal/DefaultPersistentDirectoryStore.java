@@ -29,10 +29,17 @@ public class DefaultPersistentDirectoryStore implements ReferencablePersistentCa
     private final FileLockManager.LockMode lockMode;
     private final FileLockManager lockManager;
     private final String displayName;
+    private final BlockCacheStatisticsRegistry statisticsRegistry;
     private DefaultCacheAccess cacheAccess;
 
     public DefaultPersistentDirectoryStore(File dir, String displayName, FileLockManager.LockMode lockMode, FileLockManager fileLockManager) {
+        this(dir, displayName, lockMode, fileLockManager, new BlockCacheStatisticsRegistry());
+    }
+
+    public DefaultPersistentDirectoryStore(File dir, String displayName, FileLockManager.LockMode lockMode, FileLockManager fileLockManager,
+                                           BlockCacheStatisticsRegistry statisticsRegistry) {
         this.dir = dir;
+        this.statisticsRegistry = statisticsRegistry;
         this.lockMode = lockMode;
         this.lockManager = fileLockManager;
         this.displayName = displayName != null ? String.format("%s (%s)", displayName, dir) : String.format("cache directory %s (%s)", dir.getName(), dir);
@@ -59,7 +66,7 @@ public class DefaultPersistentDirectoryStore implements ReferencablePersistentCa
     }
 
     private DefaultCacheAccess createCacheAccess() {
-        return new DefaultCacheAccess(displayName, getLockTarget(), lockManager);
+        return new DefaultCacheAccess(displayName, getLockTarget(), lockManager, statisticsRegistry);
     }
 
     protected void withExclusiveLock(Action<FileLock> action) {
@@ -130,6 +137,10 @@ public class DefaultPersistentDirectoryStore implements ReferencablePersistentCa
         cacheAccess.useCache(operationDisplayName, action);
     }
 
+    public <T> T readCache(String operationDisplayName, Factory<? extends T> action) {
+        return cacheAccess.readCache(operationDisplayName, action);
+    }
+
     public <T> T longRunningOperation(String operationDisplayName, Factory<? extends T> action) {
         return cacheAccess.longRunningOperation(operationDisplayName, action);
     }
@@ -137,4 +148,12 @@ public class DefaultPersistentDirectoryStore implements ReferencablePersistentCa
     public void longRunningOperation(String operationDisplayName, Runnable action) {
         cacheAccess.longRunningOperation(operationDisplayName, action);
     }
+
+    public <T> T concurrentOperation(String operationDisplayName, Factory<? extends T> action) {
+        return cacheAccess.concurrentOperation(operationDisplayName, action);
+    }
+
+    public void concurrentOperation(String operationDisplayName, Runnable action) {
+        cacheAccess.concurrentOperation(operationDisplayName, action);
+    }
 }
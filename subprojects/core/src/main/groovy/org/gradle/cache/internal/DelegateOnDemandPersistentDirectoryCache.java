@@ -62,6 +62,14 @@ public class DelegateOnDemandPersistentDirectoryCache implements ReferencablePer
         });
     }
 
+    public <T> T readCache(final String operationDisplayName, final Factory<? extends T> action) {
+        return runWithOpenedCache(new Factory<T>() {
+            public T create() {
+                return delegateCache.readCache(operationDisplayName, action);
+            }
+        });
+    }
+
     public <T> T longRunningOperation(final String operationDisplayName, final Factory<? extends T> action) {
         return runWithOpenedCache(new Factory<T>() {
             public T create() {
@@ -79,6 +87,23 @@ public class DelegateOnDemandPersistentDirectoryCache implements ReferencablePer
         });
     }
 
+    public <T> T concurrentOperation(final String operationDisplayName, final Factory<? extends T> action) {
+        return runWithOpenedCache(new Factory<T>() {
+            public T create() {
+                return delegateCache.concurrentOperation(operationDisplayName, action);
+            }
+        });
+    }
+
+    public void concurrentOperation(final String operationDisplayName, final Runnable action) {
+        runWithOpenedCache(new Factory<Void>() {
+            public Void create() {
+                delegateCache.concurrentOperation(operationDisplayName, action);
+                return null;
+            }
+        });
+    }
+
     private <T> T runWithOpenedCache(Factory<T> factory) {
         if (isOpen) {
             delegateCache.open();
@@ -15,23 +15,75 @@
  */
 package org.gradle.cache.internal;
 
+import org.gradle.api.UncheckedIOException;
 import org.gradle.internal.Factory;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.messaging.serialize.Serializer;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * A {@link PersistentIndexedCache} which opens the backing cache when it is first used during a unit of work, and closes it at the end of the
+ * unit of work.
+ *
+ * <p>Puts and removes are held in memory and are written to the backing cache in one batch, at the end of the unit of work or when the size of
+ * the pending values reaches a threshold. Reads see the pending updates. A value is serialized when it is put, so that later changes made by the caller
+ * to the value are not stored, and each read of a pending value returns a new copy, the same as a read from the backing cache.</p>
+ *
+ * <p>When the cache is closed while the backing cache is still open, that is, while the lock is held at the end of the build, the backing cache is
+ * compacted if too much of its file has become free space.</p>
+ *
+ * <p>Entries can be read by several threads at the same time, once the backing cache has been opened. The pending updates are guarded by this cache's
+ * monitor, which readers hold only while looking up the key.</p>
+ */
 public class MultiProcessSafePersistentIndexedCache<K, V> implements PersistentIndexedCache<K, V>, UnitOfWorkParticipant, Closeable {
+    public static final long DEFAULT_MAX_PENDING_BYTES = 8 * 1024 * 1024;
+    /**
+     * The fraction of the backing cache file which must be free space before the file is compacted.
+     */
+    public static final double COMPACTION_THRESHOLD = 0.5;
     private final FileAccess fileAccess;
     private final Factory<BTreePersistentIndexedCache<K, V>> factory;
-    private BTreePersistentIndexedCache<K, V> cache;
+    private final Serializer<V> valueSerializer;
+    private final long maxPendingBytes;
+    private final Map<K, byte[]> pendingPuts = new HashMap<K, byte[]>();
+    private final Set<K> pendingRemoves = new HashSet<K>();
+    private long pendingBytes;
+    private volatile BTreePersistentIndexedCache<K, V> cache;
 
-    public MultiProcessSafePersistentIndexedCache(Factory<BTreePersistentIndexedCache<K, V>> factory, FileAccess fileAccess) {
+    /**
+     * @param valueSerializer The serializer used by the backing cache for its values.
+     */
+    public MultiProcessSafePersistentIndexedCache(Factory<BTreePersistentIndexedCache<K, V>> factory, FileAccess fileAccess, Serializer<V> valueSerializer) {
+        this(factory, fileAccess, valueSerializer, DEFAULT_MAX_PENDING_BYTES);
+    }
+
+    public MultiProcessSafePersistentIndexedCache(Factory<BTreePersistentIndexedCache<K, V>> factory, FileAccess fileAccess, Serializer<V> valueSerializer,
+                                                  long maxPendingBytes) {
         this.factory = factory;
         this.fileAccess = fileAccess;
+        this.valueSerializer = valueSerializer;
+        this.maxPendingBytes = maxPendingBytes;
     }
 
     public V get(final K key) {
+        byte[] pendingValue;
+        synchronized (this) {
+            if (pendingRemoves.contains(key)) {
+                return null;
+            }
+            pendingValue = pendingPuts.get(key);
+        }
+        if (pendingValue != null) {
+            return deserialize(key, pendingValue);
+        }
         final PersistentIndexedCache<K, V> cache = getCache();
         try {
             return fileAccess.readFile(new Factory<V>() {
@@ -44,36 +96,108 @@ public class MultiProcessSafePersistentIndexedCache<K, V> implements PersistentI
         }
     }
 
-    public void put(final K key, final V value) {
-        final PersistentIndexedCache<K, V> cache = getCache();
+    public void put(K key, V value) {
+        byte[] serialisedValue = serialize(key, value);
+        synchronized (this) {
+            pendingRemoves.remove(key);
+            discardPendingPut(key);
+            pendingPuts.put(key, serialisedValue);
+            pendingBytes += serialisedValue.length;
+            maybeFlush();
+        }
+    }
+
+    public synchronized void remove(K key) {
+        discardPendingPut(key);
+        pendingRemoves.add(key);
+    }
+
+    private void discardPendingPut(K key) {
+        byte[] serialisedValue = pendingPuts.remove(key);
+        if (serialisedValue != null) {
+            pendingBytes -= serialisedValue.length;
+        }
+    }
+
+    private byte[] serialize(K key, V value) {
+        ByteArrayOutputStream outstr = new ByteArrayOutputStream();
+        try {
+            valueSerializer.write(outstr, value);
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        }
+        return outstr.toByteArray();
+    }
+
+    private V deserialize(K key, byte[] serialisedValue) {
+        try {
+            return valueSerializer.read(new ByteArrayInputStream(serialisedValue));
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    public void onStartWork(String operationDisplayName) {
+    }
+
+    public synchronized void onEndWork() {
+        try {
+            flush();
+        } finally {
+            closeCache();
+        }
+    }
+
+    public synchronized void close() {
+        try {
+            flush();
+            compact();
+        } finally {
+            closeCache();
+        }
+    }
+
+    private void maybeFlush() {
+        if (pendingBytes >= maxPendingBytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the pending updates to the backing cache.
+     */
+    public synchronized void flush() {
+        if (pendingPuts.isEmpty() && pendingRemoves.isEmpty()) {
+            return;
+        }
+        final Map<K, byte[]> puts = new HashMap<K, byte[]>(pendingPuts);
+        final Set<K> removes = new HashSet<K>(pendingRemoves);
+        pendingPuts.clear();
+        pendingRemoves.clear();
+        pendingBytes = 0;
+        final BTreePersistentIndexedCache<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
         fileAccess.writeFile(new Runnable() {
             public void run() {
-                cache.put(key, value);
+                cache.update(puts, removes);
             }
         });
     }
 
-    public void remove(final K key) {
-        final PersistentIndexedCache<K, V> cache = getCache();
-        // Use writeFile because the cache can internally recover from datafile
-        // corruption, so we don't care at this level if it's corrupt
+    private void compact() {
+        final BTreePersistentIndexedCache<K, V> cache = this.cache;
+        if (cache == null) {
+            return;
+        }
         fileAccess.writeFile(new Runnable() {
             public void run() {
-                cache.remove(key);
+                cache.compact(COMPACTION_THRESHOLD);
             }
         });
     }
 
-    public void onStartWork(String operationDisplayName) {
-    }
-
-    public void onEndWork() {
-        close();
-    }
-
-    public void close() {
+    private void closeCache() {
         if (cache != null) {
             try {
                 fileAccess.writeFile(new Runnable() {
@@ -87,7 +211,15 @@ public class MultiProcessSafePersistentIndexedCache<K, V> implements PersistentI
         }
     }
 
-    private PersistentIndexedCache<K, V> getCache() {
+    private BTreePersistentIndexedCache<K, V> getCache() {
+        BTreePersistentIndexedCache<K, V> cache = this.cache;
+        if (cache != null) {
+            return cache;
+        }
+        return openCache();
+    }
+
+    private synchronized BTreePersistentIndexedCache<K, V> openCache() {
         if (cache == null) {
             // Use writeFile because the cache can internally recover from datafile
             // corruption, so we don't care at this level if it's corrupt
@@ -26,12 +26,13 @@ import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 // todo - stream serialised value to file
 // todo - handle hash collisions (properly, this time)
 // todo - don't store null links to child blocks in leaf index blocks
 // todo - align block boundaries
-// todo - thread safety control
 // todo - remove the check-sum from each block
 // todo - merge small values into a single data block
 // todo - discard when file corrupt
@@ -46,7 +47,11 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
     private final Serializer<V> serializer;
     private final short maxChildIndexEntries;
     private final int minIndexChildNodes;
+    private final int maxFreeListEntries;
+    private final FreeListBlockStore freeListStore;
     private final StateCheckBlockStore store;
+    // Entries can be read by many threads at the same time, but are updated by a single thread
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private HeaderBlock header;
 
     public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
@@ -55,13 +60,32 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
 
     public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer,
                                        short maxChildIndexEntries, int maxFreeListEntries) {
+        this(cacheFile, new FileBackedBlockStore(cacheFile), keySerializer, valueSerializer, maxChildIndexEntries, maxFreeListEntries);
+    }
+
+    public BTreePersistentIndexedCache(File cacheFile, BlockStore backingStore, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                                       long maxCachedBytes, BlockCacheStatistics statistics) {
+        this(cacheFile, backingStore, keySerializer, valueSerializer, (short) 512, 512, maxCachedBytes, statistics);
+    }
+
+    public BTreePersistentIndexedCache(File cacheFile, BlockStore backingStore, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                                       short maxChildIndexEntries, int maxFreeListEntries) {
+        this(cacheFile, backingStore, keySerializer, valueSerializer, maxChildIndexEntries, maxFreeListEntries,
+                CachingBlockStore.DEFAULT_MAX_CACHED_BYTES, new BlockCacheStatistics(cacheFile.getPath()));
+    }
+
+    public BTreePersistentIndexedCache(File cacheFile, BlockStore backingStore, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                                       short maxChildIndexEntries, int maxFreeListEntries, long maxCachedBytes, BlockCacheStatistics statistics) {
         this.cacheFile = cacheFile;
         this.keySerializer = keySerializer;
         this.serializer = valueSerializer;
         this.maxChildIndexEntries = maxChildIndexEntries;
         this.minIndexChildNodes = maxChildIndexEntries / 2;
-        BlockStore cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
-        store = new StateCheckBlockStore(new FreeListBlockStore(cachingStore, maxFreeListEntries));
+        this.maxFreeListEntries = maxFreeListEntries;
+        BlockStore cachingStore = new CachingBlockStore(backingStore, maxCachedBytes, statistics, IndexBlock.class, DataBlock.class,
+                FreeListBlockStore.FreeListBlock.class);
+        freeListStore = new FreeListBlockStore(cachingStore, maxFreeListEntries);
+        store = new StateCheckBlockStore(freeListStore);
         try {
             open();
         } catch (Exception e) {
@@ -114,13 +138,14 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
     public V get(K key) {
         try {
             try {
-                DataBlock block = header.getRoot().get(key);
-                if (block != null) {
-                    return block.getValue();
-                }
-                return null;
+                return doGet(hashKey(key));
             } catch (CorruptedCacheException e) {
-                rebuild();
+                lock.writeLock().lock();
+                try {
+                    rebuild();
+                } finally {
+                    lock.writeLock().unlock();
+                }
                 return null;
             }
         } catch (Exception e) {
@@ -128,46 +153,202 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
     }
 
-    public void put(K key, V value) {
+    private V doGet(long hashCode) throws Exception {
+        lock.readLock().lock();
         try {
-            MessageDigestStream digestStream = new MessageDigestStream();
-            keySerializer.write(digestStream, key);
-            long hashCode = digestStream.getChecksum();
-            Lookup lookup = header.getRoot().find(hashCode);
-            boolean needNewBlock = true;
-            if (lookup.entry != null) {
-                DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
-                needNewBlock = !block.useNewValue(value);
-                if (needNewBlock) {
-                    store.remove(block);
-                }
-            }
-            if (needNewBlock) {
-                DataBlock block = new DataBlock(value);
-                store.write(block);
-                lookup.indexBlock.put(hashCode, block.getPos());
+            DataBlock block = store.read(header.index.rootPos, IndexBlock.class).get(hashCode);
+            if (block != null) {
+                return block.getValue();
             }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        lock.writeLock().lock();
+        try {
+            doPut(hashKey(key), serialize(value));
             store.flush();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     public void remove(K key) {
+        lock.writeLock().lock();
         try {
-            Lookup lookup = header.getRoot().find(key);
-            if (lookup.entry == null) {
-                return;
-            }
-            lookup.indexBlock.remove(lookup.entry);
-            DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
-            store.remove(block);
+            doRemove(hashKey(key));
             store.flush();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds and removes the given entries, and then flushes the changes to the file once. The entries are applied in the order of the index,
+     * so that each index block is visited once while the entries which belong to it are applied.
+     *
+     * @param puts The entries to add, with their values already serialized using the value serializer of this cache.
+     */
+    public void update(Map<K, byte[]> puts, Set<K> removes) {
+        lock.writeLock().lock();
+        try {
+            List<Update> updates = new ArrayList<Update>(puts.size() + removes.size());
+            for (Map.Entry<K, byte[]> entry : puts.entrySet()) {
+                updates.add(new Update(hashKey(entry.getKey()), entry.getValue(), false));
+            }
+            for (K key : removes) {
+                updates.add(new Update(hashKey(key), null, true));
+            }
+            Collections.sort(updates);
+            for (Update update : updates) {
+                if (update.remove) {
+                    doRemove(update.hashCode);
+                } else {
+                    doPut(update.hashCode, update.value);
+                }
+            }
+            store.flush();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not update %s entries in %s.", puts.size() + removes.size(), this), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long hashKey(K key) throws Exception {
+        MessageDigestStream digestStream = new MessageDigestStream();
+        keySerializer.write(digestStream, key);
+        return digestStream.getChecksum();
+    }
+
+    private byte[] serialize(V value) throws Exception {
+        ByteArrayOutputStream outStr = new ByteArrayOutputStream();
+        serializer.write(outStr, value);
+        return outStr.toByteArray();
+    }
+
+    private void doPut(long hashCode, byte[] serialisedValue) throws Exception {
+        Lookup lookup = header.getRoot().find(hashCode);
+        boolean needNewBlock = true;
+        if (lookup.entry != null) {
+            DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
+            needNewBlock = !block.useNewValue(serialisedValue);
+            if (needNewBlock) {
+                store.remove(block);
+            }
+        }
+        if (needNewBlock) {
+            DataBlock block = new DataBlock(serialisedValue);
+            store.write(block);
+            lookup.indexBlock.put(hashCode, block.getPos());
+        }
+    }
+
+    private void doRemove(long hashCode) throws Exception {
+        Lookup lookup = header.getRoot().find(hashCode);
+        if (lookup.entry == null) {
+            return;
+        }
+        lookup.indexBlock.remove(lookup.entry);
+        DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
+        store.remove(block);
+    }
+
+    /**
+     * Rewrites this cache into a new file, with the entries in the order of the index, when the free space in the file is at least the given
+     * fraction of the length of the file. The cache remains open. When the cache cannot be compacted, the existing file is kept.
+     *
+     * @return the number of bytes reclaimed, or 0 when the cache was not compacted.
+     */
+    public long compact(double minFreeFraction) {
+        File compactFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".compact");
+        File oldFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".old");
+        lock.writeLock().lock();
+        try {
+            // Measure the length of the file once it has been closed, as the backing store may reserve space at the end of the file while open
+            long freeBytes = freeListStore.getFreeBytes();
+            close();
+            long length = cacheFile.length();
+            if (freeBytes == 0 || freeBytes < minFreeFraction * length) {
+                open();
+                return 0;
+            }
+
+            long reclaimed = 0;
+            try {
+                LOGGER.debug("Compacting {}", this);
+                replaceWithCompactedFile(compactFile, oldFile);
+                reclaimed = length - cacheFile.length();
+                LOGGER.info("Compacted {}, reclaimed {} bytes.", this, reclaimed);
+            } catch (Exception e) {
+                LOGGER.warn(String.format("Could not compact %s. Continuing with the uncompacted file.", this), e);
+            } finally {
+                compactFile.delete();
+            }
+            open();
+            return reclaimed;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the entries of this cache to the given file, then replaces the file of this cache with it. The existing file is moved aside rather than
+     * deleted until it has been replaced, so that it can be restored when the compacted file cannot be moved into place. This cache is closed on return.
+     */
+    private void replaceWithCompactedFile(File compactFile, File oldFile) throws Exception {
+        compactFile.delete();
+        BTreePersistentIndexedCache<K, V> target = new BTreePersistentIndexedCache<K, V>(compactFile, keySerializer, serializer,
+                maxChildIndexEntries, maxFreeListEntries);
+        try {
+            open();
+            copyTo(header.getRoot(), target);
+            target.store.flush();
+        } finally {
+            target.close();
+            close();
+        }
+
+        oldFile.delete();
+        if (!cacheFile.renameTo(oldFile)) {
+            throw new IOException(String.format("Could not move %s aside to '%s'.", this, oldFile));
+        }
+        if (!compactFile.renameTo(cacheFile)) {
+            oldFile.renameTo(cacheFile);
+            throw new IOException(String.format("Could not replace %s with compacted file '%s'.", this, compactFile));
+        }
+        oldFile.delete();
+    }
+
+    private void copyTo(IndexBlock current, BTreePersistentIndexedCache<K, V> target) throws Exception {
+        for (IndexEntry entry : current.entries) {
+            if (!entry.childIndexBlock.isNull()) {
+                copyTo(store.read(entry.childIndexBlock, IndexBlock.class), target);
+            }
+            DataBlock block = store.read(entry.dataBlock, DataBlock.class);
+            target.append(entry.hashCode, block.serialisedValue);
+        }
+        if (!current.tailPos.isNull()) {
+            copyTo(store.read(current.tailPos, IndexBlock.class), target);
         }
     }
 
+    private void append(long hashCode, byte[] serialisedValue) throws Exception {
+        Lookup lookup = header.getRoot().find(hashCode);
+        DataBlock block = new DataBlock(serialisedValue);
+        store.write(block);
+        lookup.indexBlock.put(hashCode, block.getPos());
+    }
+
     private IndexBlock load(BlockPointer pos, IndexRoot root, IndexBlock parent, int index) {
         IndexBlock block = store.read(pos, IndexBlock.class);
         block.root = root;
@@ -177,20 +358,26 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
     }
 
     public void reset() {
-        close();
+        lock.writeLock().lock();
         try {
+            close();
             open();
         } catch (Exception e) {
             throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     public void close() {
         LOGGER.debug("Closing {}", this);
+        lock.writeLock().lock();
         try {
             store.close();
         } catch (Exception e) {
             throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -206,11 +393,14 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
     }
 
     public void verify() {
+        lock.readLock().lock();
         try {
             doVerify();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Some problems were found when checking the integrity of %s.",
                     this), e);
+        } finally {
+            lock.readLock().unlock();
         }
     }
 
@@ -436,20 +626,30 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
             maybeSplit();
         }
 
-        public DataBlock get(K key) throws Exception {
-            Lookup lookup = find(key);
-            if (lookup.entry == null) {
-                return null;
-            }
-
-            return store.read(lookup.entry.dataBlock, DataBlock.class);
-        }
+        /**
+         * Returns the data block for the given hash code, or null when there is no such entry. Unlike {@link #find(long)}, this does not
+         * update the transient fields of the index blocks which it visits, so it can be used by several readers at the same time.
+         */
+        public DataBlock get(long hashCode) throws Exception {
+            IndexBlock current = this;
+            while (true) {
+                int index = Collections.binarySearch(current.entries, new IndexEntry(hashCode));
+                if (index >= 0) {
+                    return store.read(current.entries.get(index).dataBlock, DataBlock.class);
+                }
 
-        public Lookup find(K key) throws Exception {
-            MessageDigestStream digestStream = new MessageDigestStream();
-            keySerializer.write(digestStream, key);
-            long checksum = digestStream.getChecksum();
-            return find(checksum);
+                index = -index - 1;
+                BlockPointer childBlockPos;
+                if (index == current.entries.size()) {
+                    childBlockPos = current.tailPos;
+                } else {
+                    childBlockPos = current.entries.get(index).childIndexBlock;
+                }
+                if (childBlockPos.isNull()) {
+                    return null;
+                }
+                current = store.read(childBlockPos, IndexBlock.class);
+            }
         }
 
         private Lookup find(long hashCode) throws Exception {
@@ -619,6 +819,22 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
     }
 
+    private class Update implements Comparable<Update> {
+        private final long hashCode;
+        private final byte[] value;
+        private final boolean remove;
+
+        private Update(long hashCode, byte[] value, boolean remove) {
+            this.hashCode = hashCode;
+            this.value = value;
+            this.remove = remove;
+        }
+
+        public int compareTo(Update other) {
+            return hashCode < other.hashCode ? -1 : hashCode == other.hashCode ? 0 : 1;
+        }
+    }
+
     private class Lookup {
         final IndexBlock indexBlock;
         final IndexEntry entry;
@@ -632,28 +848,18 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
     private class DataBlock extends BlockPayload {
         private int size;
         private byte[] serialisedValue;
-        private V value;
 
         private DataBlock() {
         }
 
-        public DataBlock(V value) throws Exception {
-            this.value = value;
-            setValue(value);
+        private DataBlock(byte[] serialisedValue) {
+            this.serialisedValue = serialisedValue;
             size = serialisedValue.length;
         }
 
-        public void setValue(V value) throws Exception {
-            ByteArrayOutputStream outStr = new ByteArrayOutputStream();
-            serializer.write(outStr, value);
-            this.serialisedValue = outStr.toByteArray();
-        }
-
         public V getValue() throws Exception {
-            if (value == null) {
-                value = serializer.read(new ByteArrayInputStream(serialisedValue));
-            }
-            return value;
+            // Data blocks are cached, so deserialize a new value each time rather than handing out the same instance to each caller
+            return serializer.read(new ByteArrayInputStream(serialisedValue));
         }
 
         @Override
@@ -679,8 +885,8 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
             outstr.write(serialisedValue);
         }
 
-        public boolean useNewValue(V value) throws Exception {
-            setValue(value);
+        public boolean useNewValue(byte[] serialisedValue) throws Exception {
+            this.serialisedValue = serialisedValue;
             boolean ok = serialisedValue.length <= size;
             if (ok) {
                 store.write(this);
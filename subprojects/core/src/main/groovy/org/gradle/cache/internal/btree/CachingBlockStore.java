@@ -15,18 +15,34 @@
  */
 package org.gradle.cache.internal.btree;
 
-import org.apache.commons.collections.map.LRUMap;
-
 import java.util.*;
 
+/**
+ * A {@link BlockStore} which keeps written blocks in memory until the store is flushed, and caches the recently used blocks of the given
+ * types. The cache is bounded by the total size of the cached blocks, rather than the number of blocks.
+ *
+ * <p>Blocks can be read by several threads at the same time. Reads which miss the cache are passed to the backing store one at a time. The
+ * other operations must not run at the same time as any other operation.</p>
+ */
 public class CachingBlockStore implements BlockStore {
+    public static final long DEFAULT_MAX_CACHED_BYTES = 8 * 1024 * 1024;
     private final BlockStore store;
+    private final long maxCachedBytes;
+    private final BlockCacheStatistics statistics;
     private final Map<BlockPointer, BlockPayload> dirty = new LinkedHashMap<BlockPointer, BlockPayload>();
-    private final Map<BlockPointer, BlockPayload> indexBlockCache = new LRUMap(100);
+    private final Map<BlockPointer, CachedBlock> blockCache = new LinkedHashMap<BlockPointer, CachedBlock>(16, 0.75f, true);
     private final Set<Class<?>> cachableTypes = new HashSet<Class<?>>();
+    private final Object lock = new Object();
+    private long cachedBytes;
 
     public CachingBlockStore(BlockStore store, Class<? extends BlockPayload>... cacheableBlockTypes) {
+        this(store, DEFAULT_MAX_CACHED_BYTES, new BlockCacheStatistics(store.toString()), cacheableBlockTypes);
+    }
+
+    public CachingBlockStore(BlockStore store, long maxCachedBytes, BlockCacheStatistics statistics, Class<? extends BlockPayload>... cacheableBlockTypes) {
         this.store = store;
+        this.maxCachedBytes = maxCachedBytes;
+        this.statistics = statistics;
         cachableTypes.addAll(Arrays.asList(cacheableBlockTypes));
     }
 
@@ -36,21 +52,25 @@ public class CachingBlockStore implements BlockStore {
 
     public void close() {
         flush();
-        indexBlockCache.clear();
+        discardCachedBlocks();
         store.close();
     }
 
     public void clear() {
-        dirty.clear();
-        indexBlockCache.clear();
+        synchronized (lock) {
+            dirty.clear();
+        }
+        discardCachedBlocks();
         store.clear();
     }
 
     public void flush() {
-        Iterator<BlockPayload> iterator = dirty.values().iterator();
-        while (iterator.hasNext()) {
-            BlockPayload block = iterator.next();
-            iterator.remove();
+        List<BlockPayload> blocks;
+        synchronized (lock) {
+            blocks = new ArrayList<BlockPayload>(dirty.values());
+            dirty.clear();
+        }
+        for (BlockPayload block : blocks) {
             store.write(block);
         }
         store.flush();
@@ -61,27 +81,44 @@ public class CachingBlockStore implements BlockStore {
     }
 
     public void remove(BlockPayload block) {
-        dirty.remove(block.getPos());
-        indexBlockCache.remove(block.getPos());
+        synchronized (lock) {
+            dirty.remove(block.getPos());
+            CachedBlock cachedBlock = blockCache.remove(block.getPos());
+            if (cachedBlock != null) {
+                cachedBytes -= cachedBlock.size;
+            }
+        }
         store.remove(block);
     }
 
     public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
-        T block = store.readFirst(payloadType);
+        T block;
+        synchronized (store) {
+            block = store.readFirst(payloadType);
+        }
         maybeCache(block);
         return block;
     }
 
     public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
-        T block = payloadType.cast(dirty.get(pos));
-        if (block != null) {
-            return block;
+        synchronized (lock) {
+            T block = payloadType.cast(dirty.get(pos));
+            if (block != null) {
+                statistics.hit();
+                return block;
+            }
+            CachedBlock cachedBlock = blockCache.get(pos);
+            if (cachedBlock != null) {
+                statistics.hit();
+                return payloadType.cast(cachedBlock.payload);
+            }
         }
-        block = payloadType.cast(indexBlockCache.get(pos));
-        if (block != null) {
-            return block;
+        statistics.miss();
+        T block;
+        // The backing stores do not support concurrent reads
+        synchronized (store) {
+            block = store.read(pos, payloadType);
         }
-        block = store.read(pos, payloadType);
         maybeCache(block);
         return block;
     }
@@ -89,12 +126,48 @@ public class CachingBlockStore implements BlockStore {
     public void write(BlockPayload block) {
         store.attach(block);
         maybeCache(block);
-        dirty.put(block.getPos(), block);
+        synchronized (lock) {
+            dirty.put(block.getPos(), block);
+        }
     }
 
     private <T extends BlockPayload> void maybeCache(T block) {
-        if (cachableTypes.contains(block.getClass())) {
-            indexBlockCache.put(block.getPos(), block);
+        if (!cachableTypes.contains(block.getClass())) {
+            return;
+        }
+        int size = block.getSize();
+        synchronized (lock) {
+            CachedBlock previous = blockCache.put(block.getPos(), new CachedBlock(block, size));
+            if (previous != null) {
+                cachedBytes -= previous.size;
+            }
+            cachedBytes += size;
+
+            // Discard the least recently used blocks
+            Iterator<CachedBlock> iterator = blockCache.values().iterator();
+            while (cachedBytes > maxCachedBytes && iterator.hasNext()) {
+                CachedBlock cachedBlock = iterator.next();
+                iterator.remove();
+                cachedBytes -= cachedBlock.size;
+                statistics.evicted();
+            }
+        }
+    }
+
+    private void discardCachedBlocks() {
+        synchronized (lock) {
+            blockCache.clear();
+            cachedBytes = 0;
+        }
+    }
+
+    private static class CachedBlock {
+        private final BlockPayload payload;
+        private final int size;
+
+        private CachedBlock(BlockPayload payload, int size) {
+            this.payload = payload;
+            this.size = size;
         }
     }
 }
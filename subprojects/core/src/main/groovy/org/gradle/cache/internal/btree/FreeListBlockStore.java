@@ -92,6 +92,19 @@ public class FreeListBlockStore implements BlockStore {
         store.flush();
     }
 
+    /**
+     * Returns the total size of the free blocks in this store.
+     */
+    public long getFreeBytes() {
+        long total = 0;
+        for (FreeListBlock block = freeListBlock; block != null; block = block.nextBlock.isNull() ? null : block.getNextBlock()) {
+            for (FreeListEntry entry : block.entries) {
+                total += entry.size;
+            }
+        }
+        return total;
+    }
+
     private void verify() {
         FreeListBlock block = store.readFirst(FreeListBlock.class);
         verify(block, Integer.MAX_VALUE);
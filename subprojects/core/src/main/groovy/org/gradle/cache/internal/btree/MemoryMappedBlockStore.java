@@ -0,0 +1,412 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import org.gradle.api.UncheckedIOException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link BlockStore} which reads and writes blocks through a memory mapped region of the cache file, rather than seeking and streaming
+ * through the file for each block. The region grows in chunks as blocks are added to the end of the file, by at least half its size each time,
+ * so that the file is remapped only a few times while it grows. Uses the same file format as {@link FileBackedBlockStore}.
+ *
+ * <p>Writes are visible to other processes as soon as they are made to the region, so {@link #flush()} does nothing. The dirty pages of the
+ * region are synced to disk in one go when the store is closed.</p>
+ *
+ * <p>Mapping the region pads the file to a whole number of chunks. The padding is discarded when the store is closed, where the platform allows.
+ * Otherwise, the end of the last block is found again when the file is next opened, so that the padding is reused rather than added to.</p>
+ */
+public class MemoryMappedBlockStore implements BlockStore {
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    private final File cacheFile;
+    private final int chunkSize;
+    private final CRC32 checksum = new CRC32();
+    private final BlockOutputStream outputBuffer = new BlockOutputStream();
+    private byte[] checksumBuffer = new byte[1024];
+    private RandomAccessFile file;
+    private MappedByteBuffer region;
+    private boolean dirty;
+    private long length;
+    private long nextBlock;
+    private Factory factory;
+
+    public MemoryMappedBlockStore(File cacheFile) {
+        this(cacheFile, DEFAULT_CHUNK_SIZE);
+    }
+
+    public MemoryMappedBlockStore(File cacheFile, int chunkSize) {
+        this.cacheFile = cacheFile;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cache '%s'", cacheFile);
+    }
+
+    public void open(Runnable runnable, Factory factory) {
+        this.factory = factory;
+        try {
+            file = new RandomAccessFile(cacheFile, "rw");
+            region = null;
+            dirty = false;
+            length = file.length();
+            if (length > 0 && length % chunkSize == 0) {
+                // The file may still be padded from when it was last mapped
+                length = findEndOfLastBlock();
+            }
+            nextBlock = length;
+            if (length == 0) {
+                runnable.run();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the position after the last block of the file. The blocks of the file are contiguous, and the padding does not start with a block marker.
+     */
+    private long findEndOfLastBlock() throws IOException {
+        long fileLength = file.length();
+        long pos = 0;
+        while (pos + BlockImpl.HEADER_SIZE <= fileLength) {
+            file.seek(pos);
+            if (file.readUnsignedByte() != BlockImpl.BLOCK_MARKER) {
+                break;
+            }
+            file.readByte();
+            int payloadSize = file.readInt();
+            long end = pos + BlockImpl.HEADER_SIZE + payloadSize + BlockImpl.TAIL_SIZE;
+            if (payloadSize < 0 || end > fileLength) {
+                break;
+            }
+            pos = end;
+        }
+        return pos;
+    }
+
+    public void close() {
+        try {
+            try {
+                sync();
+            } finally {
+                region = null;
+                truncate(length);
+                file.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void clear() {
+        region = null;
+        dirty = false;
+        try {
+            truncate(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        length = 0;
+        nextBlock = 0;
+    }
+
+    public void attach(BlockPayload block) {
+        if (block.getBlock() == null) {
+            block.setBlock(new BlockImpl(block));
+        }
+    }
+
+    public void remove(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        blockImpl.detach();
+    }
+
+    public void flush() {
+    }
+
+    public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
+        return read(new BlockPointer(0), payloadType);
+    }
+
+    public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
+        assert !pos.isNull();
+        try {
+            T payload = payloadType.cast(factory.create(payloadType));
+            BlockImpl block = new BlockImpl(payload, pos);
+            block.read();
+            return payload;
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        try {
+            blockImpl.write();
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long alloc(long length) {
+        long pos = nextBlock;
+        nextBlock += length;
+        return pos;
+    }
+
+    /**
+     * Returns a view of the given range of the file, growing the mapped region to include the range if required.
+     */
+    private ByteBuffer region(long start, long end) throws IOException {
+        if (region == null || end > region.capacity()) {
+            long required = Math.max(end, length);
+            if (region != null) {
+                // The previous region stays mapped until it is garbage collected, so grow by enough to avoid mapping the file many times
+                required = Math.max(required, region.capacity() + region.capacity() / 2L);
+            }
+            long size = Math.min((required + chunkSize - 1) / chunkSize * chunkSize, Integer.MAX_VALUE);
+            if (size < end) {
+                throw new IOException(String.format("Cannot map %s, as it is too large.", this));
+            }
+            sync();
+            region = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        ByteBuffer buffer = region.duplicate();
+        buffer.limit((int) end);
+        buffer.position((int) start);
+        return buffer;
+    }
+
+    private void sync() {
+        if (dirty) {
+            region.force();
+            dirty = false;
+        }
+    }
+
+    /**
+     * Discards the unused part of the last chunk of the file. Some platforms do not allow a file to be truncated while a region of it is
+     * still mapped, in which case the unused part is kept. It is never read, as blocks only refer to the parts of the file which are used,
+     * and it is skipped when the file is next opened.
+     */
+    private void truncate(long length) throws IOException {
+        if (file.length() > length) {
+            try {
+                file.setLength(length);
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+
+    private long checksum(ByteBuffer buffer, int start, int end) {
+        // CRC32 only accepts arrays, so copy the bytes out of the region in one go
+        int count = end - start;
+        if (checksumBuffer.length < count) {
+            checksumBuffer = new byte[count];
+        }
+        ByteBuffer bytes = buffer.duplicate();
+        bytes.limit(end);
+        bytes.position(start);
+        bytes.get(checksumBuffer, 0, count);
+        checksum.reset();
+        checksum.update(checksumBuffer, 0, count);
+        return checksum.getValue();
+    }
+
+    private final class BlockImpl extends Block {
+        private static final int HEADER_SIZE = 2 + INT_SIZE;
+        private static final int TAIL_SIZE = LONG_SIZE;
+        static final int BLOCK_MARKER = 0xCC;
+
+        private BlockPointer pos;
+        private int payloadSize;
+
+        private BlockImpl(BlockPayload payload, BlockPointer pos) {
+            this(payload);
+            setPos(pos);
+        }
+
+        public BlockImpl(BlockPayload payload) {
+            super(payload);
+            pos = null;
+            payloadSize = -1;
+        }
+
+        @Override
+        public boolean hasPos() {
+            return pos != null;
+        }
+
+        @Override
+        public BlockPointer getPos() {
+            if (pos == null) {
+                pos = new BlockPointer(alloc(getSize()));
+            }
+            return pos;
+        }
+
+        @Override
+        public void setPos(BlockPointer pos) {
+            assert this.pos == null && !pos.isNull();
+            this.pos = pos;
+        }
+
+        public int getSize() {
+            if (payloadSize < 0) {
+                payloadSize = getPayload().getSize();
+            }
+            return payloadSize + HEADER_SIZE + TAIL_SIZE;
+        }
+
+        @Override
+        public void setSize(int size) {
+            int newPayloadSize = size - HEADER_SIZE - TAIL_SIZE;
+            assert newPayloadSize >= payloadSize;
+            payloadSize = newPayloadSize;
+        }
+
+        public void write() throws Exception {
+            long pos = getPos().getPos();
+
+            outputBuffer.reset();
+            DataOutputStream outputStream = new DataOutputStream(outputBuffer);
+
+            BlockPayload payload = getPayload();
+
+            // Write header
+            outputStream.writeByte(BLOCK_MARKER);
+            outputStream.writeByte(payload.getType());
+            outputStream.writeInt(payloadSize);
+            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
+
+            // Write body
+            payload.write(outputStream);
+            outputStream.flush();
+
+            // Write checksum
+            checksum.reset();
+            checksum.update(outputBuffer.getBuffer(), 0, outputBuffer.size());
+            outputStream.writeLong(checksum.getValue());
+            outputStream.flush();
+
+            // Copy to the region, padding the file
+            ByteBuffer buffer = region(pos, Math.max(finalSize, pos + outputBuffer.size()));
+            buffer.put(outputBuffer.getBuffer(), 0, outputBuffer.size());
+            dirty = true;
+            if (length < finalSize) {
+                length = finalSize;
+            }
+        }
+
+        public void read() throws Exception {
+            long pos = getPos().getPos();
+            assert pos >= 0;
+            if (pos + HEADER_SIZE >= length) {
+                throw blockCorruptedException();
+            }
+            ByteBuffer buffer = region(pos, length);
+            int start = buffer.position();
+
+            BlockPayload payload = getPayload();
+
+            // Read header
+            if (buffer.get() != (byte) BLOCK_MARKER) {
+                throw blockCorruptedException();
+            }
+            if (buffer.get() != (byte) payload.getType()) {
+                throw blockCorruptedException();
+            }
+
+            // Read body, directly from the region
+            payloadSize = buffer.getInt();
+            if (payloadSize < 0 || pos + HEADER_SIZE + TAIL_SIZE + payloadSize > length) {
+                throw blockCorruptedException();
+            }
+            int tailLimit = buffer.position() + payloadSize + TAIL_SIZE;
+            buffer.limit(buffer.position() + payloadSize);
+            try {
+                payload.read(new DataInputStream(new ByteBufferInputStream(buffer)));
+            } catch (EOFException e) {
+                throw blockCorruptedException();
+            }
+
+            // Read and verify checksum
+            int end = buffer.position();
+            buffer.limit(tailLimit);
+            long actualChecksum = checksum(buffer, start, end);
+            long checksum = buffer.getLong();
+            if (actualChecksum != checksum) {
+                throw blockCorruptedException();
+            }
+        }
+
+        public RuntimeException blockCorruptedException() {
+            return new CorruptedCacheException(String.format("Corrupted %s found in %s.", this,
+                    MemoryMappedBlockStore.this));
+        }
+    }
+
+    private static class BlockOutputStream extends ByteArrayOutputStream {
+        public byte[] getBuffer() {
+            return buf;
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            return buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return buffer.remaining();
+        }
+    }
+}
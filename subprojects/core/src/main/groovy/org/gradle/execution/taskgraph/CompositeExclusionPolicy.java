@@ -0,0 +1,52 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Allows a task to start only when all of the given policies allow it to start.
+ */
+class CompositeExclusionPolicy implements TaskExclusionPolicy {
+    private final List<TaskExclusionPolicy> policies;
+
+    public CompositeExclusionPolicy(TaskExclusionPolicy... policies) {
+        this.policies = Arrays.asList(policies);
+    }
+
+    public boolean canStart(TaskInfo task) {
+        for (TaskExclusionPolicy policy : policies) {
+            if (!policy.canStart(task)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void taskStarted(TaskInfo task) {
+        for (TaskExclusionPolicy policy : policies) {
+            policy.taskStarted(task);
+        }
+    }
+
+    public void taskCompleted(TaskInfo task) {
+        for (TaskExclusionPolicy policy : policies) {
+            policy.taskCompleted(task);
+        }
+    }
+}
@@ -39,56 +39,69 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private final Lock lock = new ReentrantLock();
     private final Condition condition = lock.newCondition();
     private final LinkedHashMap<Task, TaskInfo> executionPlan = new LinkedHashMap<Task, TaskInfo>();
+    // Tasks that have not been started or skipped, in plan order
+    private final Set<TaskInfo> waitingTasks = new LinkedHashSet<TaskInfo>();
+    // Waiting tasks whose dependencies have all completed, longest critical path first and then in plan order
+    private final SortedSet<TaskInfo> readyTasks = new TreeSet<TaskInfo>(new TaskPriorityComparator());
     private final List<Throwable> failures = new ArrayList<Throwable>();
     private Spec<? super Task> filter = Specs.satisfyAll();
 
     private TaskFailureHandler failureHandler = new RethrowingFailureHandler();
+    private TaskExclusionPolicy exclusionPolicy = new NoExclusionPolicy();
 
     public void addToTaskGraph(Collection<? extends Task> tasks) {
+        // Used as a stack: the next task to visit is at the end of the list
         List<Task> queue = new ArrayList<Task>(tasks);
-        Collections.sort(queue);
+        Collections.sort(queue, Collections.reverseOrder());
 
         Set<Task> visiting = new HashSet<Task>();
+        Map<Task, List<Task>> visitingDependencies = new HashMap<Task, List<Task>>();
         CachingTaskDependencyResolveContext context = new CachingTaskDependencyResolveContext();
 
         while (!queue.isEmpty()) {
-            Task task = queue.get(0);
+            Task task = queue.get(queue.size() - 1);
             if (!filter.isSatisfiedBy(task)) {
                 // Filtered - skip
-                queue.remove(0);
+                queue.remove(queue.size() - 1);
                 continue;
             }
             if (executionPlan.containsKey(task)) {
                 // Already in plan - skip
-                queue.remove(0);
+                queue.remove(queue.size() - 1);
                 continue;
             }
 
             if (visiting.add(task)) {
                 // Have not seen this task before - add its dependencies to the head of the queue and leave this
                 // task in the queue
-                Set<Task> dependsOnTasks = new TreeSet<Task>(Collections.reverseOrder());
-                dependsOnTasks.addAll(context.getDependencies(task));
+                List<Task> dependsOnTasks = new ArrayList<Task>(context.getDependencies(task));
+                Collections.sort(dependsOnTasks, Collections.reverseOrder());
                 for (Task dependsOnTask : dependsOnTasks) {
                     if (visiting.contains(dependsOnTask)) {
                         throw new CircularReferenceException(String.format(
                                 "Circular dependency between tasks. Cycle includes [%s, %s].", task, dependsOnTask));
                     }
-                    queue.add(0, dependsOnTask);
+                    queue.add(dependsOnTask);
                 }
+                visitingDependencies.put(task, dependsOnTasks);
             } else {
                 // Have visited this task's dependencies - add it to the end of the plan
-                queue.remove(0);
+                queue.remove(queue.size() - 1);
                 visiting.remove(task);
                 Set<TaskInfo> dependencies = new HashSet<TaskInfo>();
-                for (Task dependency : context.getDependencies(task)) {
+                for (Task dependency : visitingDependencies.remove(task)) {
                     TaskInfo dependencyInfo = executionPlan.get(dependency);
                     if (dependencyInfo != null) {
                         dependencies.add(dependencyInfo);
                     }
                     // else - the dependency has been filtered, so ignore it
                 }
-                executionPlan.put(task, new TaskInfo((TaskInternal) task, dependencies));
+                TaskInfo taskInfo = new TaskInfo((TaskInternal) task, dependencies, executionPlan.size());
+                executionPlan.put(task, taskInfo);
+                waitingTasks.add(taskInfo);
+                if (taskInfo.allDependenciesComplete()) {
+                    readyTasks.add(taskInfo);
+                }
             }
         }
     }
@@ -97,7 +110,10 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         lock.lock();
         try {
             executionPlan.clear();
+            waitingTasks.clear();
+            readyTasks.clear();
             failures.clear();
+            exclusionPolicy = new NoExclusionPolicy();
         } finally {
             lock.unlock();
         }
@@ -115,51 +131,86 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         this.failureHandler = handler;
     }
 
-    public TaskInfo getTaskToExecute(Spec<TaskInfo> criteria) {
+    public void useExclusionPolicy(TaskExclusionPolicy policy) {
         lock.lock();
         try {
+            this.exclusionPolicy = policy;
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            TaskInfo nextMatching;
-            while ((nextMatching = getNextReadyAndMatching(criteria)) != null) {
-                while (!nextMatching.allDependenciesComplete()) {
-                    try {
-                        condition.await();
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(e);
-                    }
+    public void prioritiseByCriticalPath(Map<Task, Long> taskDurations) {
+        lock.lock();
+        try {
+            // A task always appears in the plan after the tasks it depends on, so visit the plan in reverse order
+            List<TaskInfo> tasks = new ArrayList<TaskInfo>(executionPlan.values());
+            for (int i = tasks.size() - 1; i >= 0; i--) {
+                TaskInfo taskInfo = tasks.get(i);
+                long longestDependentPath = 0;
+                for (TaskInfo dependent : taskInfo.getDependents()) {
+                    longestDependentPath = Math.max(longestDependentPath, dependent.getCriticalPath());
                 }
+                Long duration = taskDurations.get(taskInfo.getTask());
+                taskInfo.setCriticalPath(longestDependentPath + (duration == null ? 0 : duration));
+            }
 
-                // The task state could have been modified while we waited for dependency completion. Check that it is still 'ready'.
-                if (!nextMatching.isReady()) {
-                    continue;
-                }
+            // Priorities have changed, so re-sort the ready tasks
+            List<TaskInfo> ready = new ArrayList<TaskInfo>(readyTasks);
+            readyTasks.clear();
+            readyTasks.addAll(ready);
+        } finally {
+            lock.unlock();
+        }
+    }
 
-                if (nextMatching.allDependenciesSuccessful()) {
+    public TaskInfo getTaskToExecute(Spec<TaskInfo> criteria) {
+        lock.lock();
+        try {
+            while (true) {
+                TaskInfo nextMatching = getNextReadyAndMatching(criteria);
+                if (nextMatching != null) {
+                    readyTasks.remove(nextMatching);
+                    waitingTasks.remove(nextMatching);
                     nextMatching.startExecution();
+                    exclusionPolicy.taskStarted(nextMatching);
                     return nextMatching;
-                } else {
-                    nextMatching.skipExecution();
-                    condition.signalAll();
                 }
-            }
 
-            return null;
+                if (!anyWaitingAndMatching(criteria)) {
+                    return null;
+                }
 
+                // Matching tasks remain, but they are waiting on dependencies or conflict with an executing task
+                try {
+                    condition.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
         } finally {
             lock.unlock();
         }
-
     }
 
     private TaskInfo getNextReadyAndMatching(Spec<TaskInfo> criteria) {
-        for (TaskInfo taskInfo : executionPlan.values()) {
-            if (taskInfo.isReady() && criteria.isSatisfiedBy(taskInfo)) {
+        for (TaskInfo taskInfo : readyTasks) {
+            if (criteria.isSatisfiedBy(taskInfo) && exclusionPolicy.canStart(taskInfo)) {
                 return taskInfo;
             }
         }
         return null;
     }
 
+    private boolean anyWaitingAndMatching(Spec<TaskInfo> criteria) {
+        for (TaskInfo taskInfo : waitingTasks) {
+            if (criteria.isSatisfiedBy(taskInfo)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void taskComplete(TaskInfo taskInfo) {
         lock.lock();
         try {
@@ -168,12 +219,40 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             }
 
             taskInfo.finishExecution();
+            exclusionPolicy.taskCompleted(taskInfo);
+            notifyDependents(taskInfo);
             condition.signalAll();
         } finally {
             lock.unlock();
         }
     }
 
+    private void notifyDependents(TaskInfo completedTask) {
+        List<TaskInfo> completed = new ArrayList<TaskInfo>();
+        completed.add(completedTask);
+        while (!completed.isEmpty()) {
+            TaskInfo taskInfo = completed.remove(completed.size() - 1);
+            for (TaskInfo dependent : taskInfo.getDependents()) {
+                if (!dependent.dependencyComplete() || !dependent.isReady()) {
+                    continue;
+                }
+                if (dependent.allDependenciesSuccessful()) {
+                    readyTasks.add(dependent);
+                } else {
+                    // Cannot execute - skip it and notify its own dependents in turn
+                    skip(dependent);
+                    completed.add(dependent);
+                }
+            }
+        }
+    }
+
+    private void skip(TaskInfo taskInfo) {
+        taskInfo.skipExecution();
+        waitingTasks.remove(taskInfo);
+        readyTasks.remove(taskInfo);
+    }
+
     private void handleFailure(TaskInfo taskInfo) {
         Throwable executionFailure = taskInfo.getExecutionFailure();
         if (executionFailure != null) {
@@ -196,11 +275,11 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     private void abortExecution() {
         // Allow currently executing tasks to complete, but skip everything else.
-        for (TaskInfo taskInfo : executionPlan.values()) {
-            if (taskInfo.isReady()) {
-                taskInfo.skipExecution();
-            }
+        for (TaskInfo taskInfo : waitingTasks) {
+            taskInfo.skipExecution();
         }
+        waitingTasks.clear();
+        readyTasks.clear();
     }
 
     public void awaitCompletion() {
@@ -240,6 +319,27 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         return true;
     }
 
+    private static class TaskPriorityComparator implements Comparator<TaskInfo> {
+        public int compare(TaskInfo taskInfo1, TaskInfo taskInfo2) {
+            if (taskInfo1.getCriticalPath() != taskInfo2.getCriticalPath()) {
+                return taskInfo1.getCriticalPath() > taskInfo2.getCriticalPath() ? -1 : 1;
+            }
+            return taskInfo1.getOrdinal() - taskInfo2.getOrdinal();
+        }
+    }
+
+    private static class NoExclusionPolicy implements TaskExclusionPolicy {
+        public boolean canStart(TaskInfo task) {
+            return true;
+        }
+
+        public void taskStarted(TaskInfo task) {
+        }
+
+        public void taskCompleted(TaskInfo task) {
+        }
+    }
+
     private static class RethrowingFailureHandler implements TaskFailureHandler {
         public void onTaskFailure(Task task) {
             task.getState().rethrowFailure();
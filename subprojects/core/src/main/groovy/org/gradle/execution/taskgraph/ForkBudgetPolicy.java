@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.Task;
+import org.gradle.api.internal.tasks.ProcessForkingTask;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Limits the number of forked processes, and their combined heap, that the executing tasks may use at the same time. A task which declares more than the whole
+ * budget is allowed to start once no other forking task is executing, so that it does not block the build forever. Tasks which do not fork processes are always
+ * allowed to start.
+ *
+ * <p>The forked processes of each task are determined once, when the policy is created, so that an invalid value fails the build before any task is
+ * executed.</p>
+ */
+class ForkBudgetPolicy implements TaskExclusionPolicy {
+    private final int maxForks;
+    private final long maxHeapMb;
+    private final Map<Task, Usage> usages = new HashMap<Task, Usage>();
+    private final Map<TaskInfo, Usage> executing = new HashMap<TaskInfo, Usage>();
+    private int usedForks;
+    private long usedHeapMb;
+
+    /**
+     * @param maxForks The maximum number of forked processes, or 0 for no limit.
+     * @param maxHeapMb The maximum combined heap of the forked processes in megabytes, or 0 for no limit.
+     * @param tasks The tasks which will be executed.
+     */
+    public ForkBudgetPolicy(int maxForks, long maxHeapMb, Collection<? extends Task> tasks) {
+        this.maxForks = maxForks;
+        this.maxHeapMb = maxHeapMb;
+        for (Task task : tasks) {
+            Usage usage = usageOf(task);
+            if (usage != null) {
+                usages.put(task, usage);
+            }
+        }
+    }
+
+    public boolean canStart(TaskInfo task) {
+        Usage usage = usages.get(task.getTask());
+        if (usage == null) {
+            return true;
+        }
+        if (maxForks > 0 && usedForks + usage.forks > maxForks) {
+            return false;
+        }
+        return maxHeapMb <= 0 || usedHeapMb + usage.heapMb <= maxHeapMb;
+    }
+
+    public void taskStarted(TaskInfo task) {
+        Usage usage = usages.get(task.getTask());
+        if (usage == null) {
+            return;
+        }
+        executing.put(task, usage);
+        usedForks += usage.forks;
+        usedHeapMb += usage.heapMb;
+    }
+
+    public void taskCompleted(TaskInfo task) {
+        Usage usage = executing.remove(task);
+        if (usage == null) {
+            return;
+        }
+        usedForks -= usage.forks;
+        usedHeapMb -= usage.heapMb;
+    }
+
+    private Usage usageOf(Task task) {
+        if (!(task instanceof ProcessForkingTask)) {
+            return null;
+        }
+        ProcessForkingTask forkingTask = (ProcessForkingTask) task;
+        int forks;
+        int processHeapMb;
+        try {
+            forks = forkingTask.getMaxForkedProcessCount();
+            if (forks <= 0) {
+                return null;
+            }
+            processHeapMb = forkingTask.getForkedProcessHeapSizeMb();
+        } catch (InvalidUserDataException e) {
+            throw new InvalidUserDataException(String.format("Could not determine the processes forked by %s.", task), e);
+        }
+        if (maxForks > 0) {
+            forks = Math.min(forks, maxForks);
+        }
+        // Processes with an unknown heap size count against the process budget only
+        long heapMb = (long) forks * Math.max(processHeapMb, 0);
+        if (maxHeapMb > 0) {
+            heapMb = Math.min(heapMb, maxHeapMb);
+        }
+        return new Usage(forks, heapMb);
+    }
+
+    private static class Usage {
+        final int forks;
+        final long heapMb;
+
+        private Usage(int forks, long heapMb) {
+            this.forks = forks;
+            this.heapMb = heapMb;
+        }
+    }
+}
@@ -20,13 +20,21 @@ import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.execution.TaskExecutionListener;
 import org.gradle.api.internal.changedetection.TaskArtifactStateCacheAccess;
+import org.gradle.api.internal.changedetection.TaskDurationRepository;
 import org.gradle.api.specs.Spec;
+import org.gradle.api.specs.Specs;
+import org.gradle.api.tasks.TaskState;
+import org.gradle.internal.Factory;
+import org.gradle.util.Clock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 class ParallelTaskPlanExecutor extends DefaultTaskPlanExecutor {
@@ -34,9 +42,13 @@ class ParallelTaskPlanExecutor extends DefaultTaskPlanExecutor {
 
     private final List<Thread> executorThreads = new ArrayList<Thread>();
     private final TaskArtifactStateCacheAccess stateCacheAccess;
+    private final TaskDurationRepository durationRepository;
     private final int executorCount;
+    private final int maxForks;
+    private final int maxForkHeapMb;
 
-    public ParallelTaskPlanExecutor(TaskArtifactStateCacheAccess cacheAccess, int numberOfParallelExecutors) {
+    public ParallelTaskPlanExecutor(TaskArtifactStateCacheAccess cacheAccess, TaskDurationRepository durationRepository, int numberOfParallelExecutors,
+                                    int maxForks, int maxForkHeapMb) {
         if (numberOfParallelExecutors < 1) {
             throw new IllegalArgumentException("Not a valid number of parallel executors: " + numberOfParallelExecutors);
         }
@@ -44,30 +56,71 @@ class ParallelTaskPlanExecutor extends DefaultTaskPlanExecutor {
         LOGGER.info("Using {} parallel executor threads", numberOfParallelExecutors);
 
         this.stateCacheAccess = cacheAccess;
+        this.durationRepository = durationRepository;
         this.executorCount = numberOfParallelExecutors;
+        this.maxForks = maxForks;
+        this.maxForkHeapMb = maxForkHeapMb;
     }
 
     public void process(final TaskExecutionPlan taskExecutionPlan, final TaskExecutionListener taskListener) {
-        stateCacheAccess.longRunningOperation("Executing all tasks", new Runnable() {
+        // Tasks from the same project are never executed concurrently, and tasks which fork processes must fit into the budget, when one is set. Any other
+        // ready task may be picked up by any idle worker. The forked processes of each task are determined before the workers start, so that an invalid
+        // value fails the build
+        if (maxForks > 0 || maxForkHeapMb > 0) {
+            ForkBudgetPolicy forkBudgetPolicy = new ForkBudgetPolicy(maxForks, maxForkHeapMb, taskExecutionPlan.getTasks());
+            taskExecutionPlan.useExclusionPolicy(new CompositeExclusionPolicy(new ProjectExclusionPolicy(), forkBudgetPolicy));
+        } else {
+            taskExecutionPlan.useExclusionPolicy(new ProjectExclusionPolicy());
+        }
+        // Start the slowest chains of tasks first, based on how long each task took last time
+        taskExecutionPlan.prioritiseByCriticalPath(loadTaskDurations(taskExecutionPlan));
+
+        final Map<String, Long> taskDurations = Collections.synchronizedMap(new HashMap<String, Long>());
+        try {
+            // Workers lock the task artifact caches for each cache operation, rather than for each task. The cross-process lock is held throughout
+            stateCacheAccess.concurrentOperation("Executing all tasks", new Runnable() {
+                public void run() {
+                    doProcess(taskExecutionPlan, taskListener, taskDurations);
+                    // TODO This needs to wait until all tasks have been executed, not just started....
+                    taskExecutionPlan.awaitCompletion();
+                }
+            });
+        } finally {
+            storeTaskDurations(taskDurations);
+        }
+    }
+
+    private Map<Task, Long> loadTaskDurations(final TaskExecutionPlan taskExecutionPlan) {
+        return stateCacheAccess.useCache("Load task durations", new Factory<Map<Task, Long>>() {
+            public Map<Task, Long> create() {
+                Map<Task, Long> taskDurations = new HashMap<Task, Long>();
+                for (Task task : taskExecutionPlan.getTasks()) {
+                    Long duration = durationRepository.getDuration(task.getPath());
+                    if (duration != null) {
+                        taskDurations.put(task, duration);
+                    }
+                }
+                return taskDurations;
+            }
+        });
+    }
+
+    private void storeTaskDurations(final Map<String, Long> taskDurations) {
+        stateCacheAccess.useCache("Store task durations", new Runnable() {
             public void run() {
-                doProcess(taskExecutionPlan, taskListener);
-                // TODO This needs to wait until all tasks have been executed, not just started....
-                taskExecutionPlan.awaitCompletion();
+                for (Map.Entry<String, Long> entry : taskDurations.entrySet()) {
+                    durationRepository.setDuration(entry.getKey(), entry.getValue());
+                }
             }
         });
     }
 
-    private void doProcess(TaskExecutionPlan taskExecutionPlan, TaskExecutionListener taskListener) {
-        List<Project> projects = getAllProjects(taskExecutionPlan);
-        int numExecutors = Math.min(executorCount, projects.size());
+    private void doProcess(TaskExecutionPlan taskExecutionPlan, TaskExecutionListener taskListener, Map<String, Long> taskDurations) {
+        // With one executing task per project, there is no point in having more workers than projects
+        int numExecutors = Math.min(executorCount, countProjects(taskExecutionPlan));
 
         for (int i = 0; i < numExecutors; i++) {
-            TaskExecutorWorker worker = new TaskExecutorWorker(taskExecutionPlan, taskListener);
-
-            for (int j = i; j < projects.size(); j += numExecutors) {
-                worker.addProject(projects.get(j));
-            }
-
+            TaskExecutorWorker worker = new TaskExecutorWorker(taskExecutionPlan, taskListener, taskDurations);
             executorThreads.add(new Thread(worker));
         }
 
@@ -77,55 +130,46 @@ class ParallelTaskPlanExecutor extends DefaultTaskPlanExecutor {
         }
     }
 
-    private List<Project> getAllProjects(TaskExecutionPlan taskExecutionPlan) {
-        final Set<Project> uniqueProjects = new LinkedHashSet<Project>();
+    private int countProjects(TaskExecutionPlan taskExecutionPlan) {
+        final Set<Project> uniqueProjects = new HashSet<Project>();
         for (Task task : taskExecutionPlan.getTasks()) {
             uniqueProjects.add(task.getProject());
         }
-        return new ArrayList<Project>(uniqueProjects);
+        return uniqueProjects.size();
     }
 
     private class TaskExecutorWorker implements Runnable {
         private final TaskExecutionPlan taskExecutionPlan;
         private final TaskExecutionListener taskListener;
+        private final Map<String, Long> taskDurations;
 
-        private final List<Project> projects = new ArrayList<Project>();
-
-        private TaskExecutorWorker(TaskExecutionPlan taskExecutionPlan, TaskExecutionListener taskListener) {
+        private TaskExecutorWorker(TaskExecutionPlan taskExecutionPlan, TaskExecutionListener taskListener, Map<String, Long> taskDurations) {
             this.taskExecutionPlan = taskExecutionPlan;
             this.taskListener = taskListener;
+            this.taskDurations = taskDurations;
         }
 
         public void run() {
+            Spec<TaskInfo> anyTask = Specs.satisfyAll();
             TaskInfo taskInfo;
-            while ((taskInfo = taskExecutionPlan.getTaskToExecute(getTaskSpec())) != null) {
-                executeTaskWithCacheLock(taskInfo);
+            while ((taskInfo = taskExecutionPlan.getTaskToExecute(anyTask)) != null) {
+                executeTask(taskInfo);
             }
 
             LOGGER.info(Thread.currentThread() + " stopping");
         }
 
-        private void executeTaskWithCacheLock(final TaskInfo taskInfo) {
-            final String taskPath = taskInfo.getTask().getPath();
+        private void executeTask(TaskInfo taskInfo) {
+            String taskPath = taskInfo.getTask().getPath();
             LOGGER.info(taskPath + " (" + Thread.currentThread() + " - start");
-            stateCacheAccess.useCache("Executing " + taskPath, new Runnable() {
-                public void run() {
-                    processTask(taskInfo, taskExecutionPlan, taskListener);
-                }
-            });
+            Clock clock = new Clock();
+            processTask(taskInfo, taskExecutionPlan, taskListener);
+            // Only record the duration when the actions of the task ran, so that an up-to-date or skipped task keeps its previous duration
+            TaskState state = taskInfo.getTask().getState();
+            if (state.getExecuted() && !state.getSkipped()) {
+                taskDurations.put(taskPath, clock.getTimeInMs());
+            }
             LOGGER.info(taskPath + " (" + Thread.currentThread() + ") - complete");
         }
-
-        public void addProject(Project project) {
-            projects.add(project);
-        }
-
-        private Spec<TaskInfo> getTaskSpec() {
-            return new Spec<TaskInfo>() {
-                public boolean isSatisfiedBy(TaskInfo element) {
-                    return projects.contains(element.getTask().getProject());
-                }
-            };
-        }
     }
 }
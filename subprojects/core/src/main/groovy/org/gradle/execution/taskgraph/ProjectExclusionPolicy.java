@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.api.Project;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Allows at most one task from each project to execute at any given time. Tasks from different projects can execute concurrently, as decoupled projects do not share mutable state.
+ */
+class ProjectExclusionPolicy implements TaskExclusionPolicy {
+    private final Set<Project> executingProjects = new HashSet<Project>();
+
+    public boolean canStart(TaskInfo task) {
+        return !executingProjects.contains(task.getTask().getProject());
+    }
+
+    public void taskStarted(TaskInfo task) {
+        executingProjects.add(task.getTask().getProject());
+    }
+
+    public void taskCompleted(TaskInfo task) {
+        executingProjects.remove(task.getTask().getProject());
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+/**
+ * Decides which tasks may execute at the same time. All methods are called by the {@link TaskExecutionPlan} while holding its lock, so implementations do not need to
+ * be threadsafe.
+ */
+interface TaskExclusionPolicy {
+    /**
+     * Returns true if the given task may start executing, given the tasks that are currently executing.
+     */
+    boolean canStart(TaskInfo task);
+
+    /**
+     * Called when the given task starts executing.
+     */
+    void taskStarted(TaskInfo task);
+
+    /**
+     * Called when the given task has finished executing.
+     */
+    void taskCompleted(TaskInfo task);
+}
@@ -20,20 +20,35 @@ import org.gradle.api.Task;
 import org.gradle.api.specs.Spec;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents a graph of dependent tasks, returned in execution order.
  */
 public interface TaskExecutionPlan {
     /**
-     * Provides a ready-to-execute task that matches the specified criteria. A task is ready-to-execute if all of it's dependencies have been completed successfully.
-     * If the next matching task is not ready-to-execute, this method will block until it is ready.
+     * Provides a ready-to-execute task that matches the specified criteria. A task is ready-to-execute if all of it's dependencies have been completed successfully
+     * and the current {@link TaskExclusionPolicy} allows it to start.
+     * If no matching task is ready-to-execute, this method will block until one is ready.
      * If no tasks remain that match the criteria, null will be returned.
      * @param criteria Only tasks matching this Spec will be returned.
      * @return The next matching task, or null if no matching tasks remain.
      */
     TaskInfo getTaskToExecute(Spec<TaskInfo> criteria);
 
+    /**
+     * Uses the given policy to decide which tasks may execute concurrently. The policy is discarded when the plan is cleared.
+     */
+    void useExclusionPolicy(TaskExclusionPolicy policy);
+
+    /**
+     * Orders the ready-to-execute tasks so that the task at the head of the longest remaining chain of work is provided first. Tasks with no known duration are assumed
+     * to take no time. Tasks with equal priority are provided in execution order.
+     *
+     * @param taskDurations The estimated duration of each task, in milliseconds.
+     */
+    void prioritiseByCriticalPath(Map<Task, Long> taskDurations);
+
     /**
      * Signals to the plan that execution of this task has completed. Execution is complete if the task succeeds, fails, or an exception is thrown during execution.
      * @param task the completed task.
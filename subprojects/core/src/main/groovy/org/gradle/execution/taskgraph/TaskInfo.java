@@ -18,6 +18,7 @@ package org.gradle.execution.taskgraph;
 
 import org.gradle.api.internal.TaskInternal;
 
+import java.util.HashSet;
 import java.util.Set;
 
 class TaskInfo {
@@ -28,13 +29,24 @@ class TaskInfo {
 
     private final TaskInternal task;
     private final Set<TaskInfo> dependencies;
+    private final Set<TaskInfo> dependents = new HashSet<TaskInfo>();
+    private final int ordinal;
+    private int incompleteDependencies;
+    private long criticalPath;
     private TaskExecutionState state;
     private Throwable executionFailure;
 
-    public TaskInfo(TaskInternal task, Set<TaskInfo> dependencies) {
+    public TaskInfo(TaskInternal task, Set<TaskInfo> dependencies, int ordinal) {
         this.task = task;
         this.dependencies = dependencies;
+        this.ordinal = ordinal;
         this.state = TaskExecutionState.READY;
+        for (TaskInfo dependency : dependencies) {
+            dependency.dependents.add(this);
+            if (!dependency.isComplete()) {
+                incompleteDependencies++;
+            }
+        }
     }
 
     public TaskInternal getTask() {
@@ -45,6 +57,42 @@ class TaskInfo {
         return dependencies;
     }
 
+    /**
+     * Returns the tasks that depend on this task.
+     */
+    public Set<TaskInfo> getDependents() {
+        return dependents;
+    }
+
+    /**
+     * Returns the position of this task in the execution plan.
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    /**
+     * Returns the estimated time, in milliseconds, to execute this task and the longest chain of tasks that depend on it.
+     */
+    public long getCriticalPath() {
+        return criticalPath;
+    }
+
+    public void setCriticalPath(long criticalPath) {
+        this.criticalPath = criticalPath;
+    }
+
+    /**
+     * Records that one of the dependencies of this task has completed.
+     *
+     * @return true if all dependencies of this task are now complete.
+     */
+    public boolean dependencyComplete() {
+        assert incompleteDependencies > 0;
+        incompleteDependencies--;
+        return incompleteDependencies == 0;
+    }
+
     public boolean isReady() {
         return state == TaskExecutionState.READY;
     }
@@ -90,12 +138,7 @@ class TaskInfo {
     }
 
     public boolean allDependenciesComplete() {
-        for (TaskInfo dependency : getDependencies()) {
-            if (!dependency.isComplete()) {
-                return false;
-            }
-        }
-        return true;
+        return incompleteDependencies == 0;
     }
 
     public boolean allDependenciesSuccessful() {
@@ -18,6 +18,7 @@ package org.gradle.execution.taskgraph;
 
 import org.gradle.api.internal.DocumentationRegistry;
 import org.gradle.api.internal.changedetection.TaskArtifactStateCacheAccess;
+import org.gradle.api.internal.changedetection.TaskDurationRepository;
 import org.gradle.internal.Factory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,12 +28,19 @@ public class TaskPlanExecutorFactory implements Factory<TaskPlanExecutor> {
     private static final Logger LOGGER = LoggerFactory.getLogger(TaskPlanExecutorFactory.class);
 
     private final TaskArtifactStateCacheAccess taskArtifactStateCacheAccess;
+    private final TaskDurationRepository taskDurationRepository;
     private final int parallelThreads;
+    private final int maxForks;
+    private final int maxForkHeapMb;
     private final DocumentationRegistry documentationRegistry;
 
-    public TaskPlanExecutorFactory(TaskArtifactStateCacheAccess taskArtifactStateCacheAccess, int parallelThreads, DocumentationRegistry documentationRegistry) {
+    public TaskPlanExecutorFactory(TaskArtifactStateCacheAccess taskArtifactStateCacheAccess, TaskDurationRepository taskDurationRepository, int parallelThreads,
+                                   int maxForks, int maxForkHeapMb, DocumentationRegistry documentationRegistry) {
         this.taskArtifactStateCacheAccess = taskArtifactStateCacheAccess;
+        this.taskDurationRepository = taskDurationRepository;
         this.parallelThreads = parallelThreads;
+        this.maxForks = maxForks;
+        this.maxForkHeapMb = maxForkHeapMb;
         this.documentationRegistry = documentationRegistry;
     }
 
@@ -44,7 +52,7 @@ public class TaskPlanExecutorFactory implements Factory<TaskPlanExecutor> {
                     documentationRegistry.getFeatureLifecycle()
             );
             LOGGER.warn(parallelWarningMessage);
-            return new ParallelTaskPlanExecutor(taskArtifactStateCacheAccess, options.numberOfParallelThreads());
+            return new ParallelTaskPlanExecutor(taskArtifactStateCacheAccess, taskDurationRepository, options.numberOfParallelThreads(), maxForks, maxForkHeapMb);
         }
         return new DefaultTaskPlanExecutor();
 
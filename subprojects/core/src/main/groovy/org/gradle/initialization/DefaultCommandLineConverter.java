@@ -26,6 +26,7 @@ import org.gradle.cli.*;
 import org.gradle.internal.nativeplatform.filesystem.FileSystems;
 import org.gradle.logging.LoggingConfiguration;
 import org.gradle.logging.internal.LoggingCommandLineConverter;
+import org.gradle.process.internal.HeapSize;
 
 import java.util.Map;
 
@@ -55,6 +56,8 @@ public class DefaultCommandLineConverter extends AbstractCommandLineConverter<St
 
     private static final String PARALLEL = "parallel";
     private static final String PARALLEL_THREADS = "parallel-threads";
+    private static final String MAX_FORKS = "max-forks";
+    private static final String MAX_FORK_HEAP = "max-fork-heap";
 
     private final CommandLineConverter<LoggingConfiguration> loggingConfigurationCommandLineConverter = new LoggingCommandLineConverter();
     private final SystemPropertiesCommandLineConverter systemPropertiesCommandLineConverter = new SystemPropertiesCommandLineConverter();
@@ -87,6 +90,8 @@ public class DefaultCommandLineConverter extends AbstractCommandLineConverter<St
         parser.option(REFRESH_DEPENDENCIES).hasDescription("Refresh the state of dependencies.");
         parser.option(PARALLEL).hasDescription("Build projects in parallel. Gradle will attempt to determine the optimal number of executor threads to use.").incubating();
         parser.option(PARALLEL_THREADS).hasArgument().hasDescription("Build projects in parallel, using the specified number of executor threads.").incubating();
+        parser.option(MAX_FORKS).hasArgument().hasDescription("When building in parallel, limits the number of processes that tasks may fork at the same time.").incubating();
+        parser.option(MAX_FORK_HEAP).hasArgument().hasDescription("When building in parallel, limits the combined heap size of the processes that tasks may fork at the same time, for example '4g'.").incubating();
     }
 
     @Override
@@ -198,6 +203,25 @@ public class DefaultCommandLineConverter extends AbstractCommandLineConverter<St
             }
         }
 
+        if (options.hasOption(MAX_FORKS)) {
+            try {
+                int maxForks = Integer.parseInt(options.option(MAX_FORKS).getValue());
+                startParameter.setMaxForkedProcessCount(maxForks);
+            } catch (NumberFormatException e) {
+                throw new CommandLineArgumentException(String.format("Not a numeric argument for %s", MAX_FORKS));
+            }
+        }
+
+        if (options.hasOption(MAX_FORK_HEAP)) {
+            String maxForkHeap = options.option(MAX_FORK_HEAP).getValue();
+            try {
+                HeapSize.toMegabytes(maxForkHeap);
+            } catch (InvalidUserDataException e) {
+                throw new CommandLineArgumentException(String.format("Not a valid heap size for %s: %s", MAX_FORK_HEAP, maxForkHeap));
+            }
+            startParameter.setMaxForkedHeapSize(maxForkHeap);
+        }
+
         return startParameter;
     }
 
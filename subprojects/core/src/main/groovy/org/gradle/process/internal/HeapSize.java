@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal;
+
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.Nullable;
+
+/**
+ * Converts JVM heap size specifications, such as {@code 512m}, {@code 2g}, {@code 2048k} or {@code 268435456}, to megabytes.
+ */
+public class HeapSize {
+    private static final long KILOBYTE = 1024;
+    private static final long MEGABYTE = 1024 * KILOBYTE;
+    private static final long GIGABYTE = 1024 * MEGABYTE;
+
+    /**
+     * Returns the given heap size in megabytes, rounded up, or -1 when the heap size is not specified. Accepts the same formats as the {@code -Xmx}
+     * option of the JVM: a number of bytes, optionally followed by {@code k}, {@code m} or {@code g}.
+     */
+    public static int toMegabytes(@Nullable String heapSize) {
+        if (heapSize == null) {
+            return -1; // unspecified
+        }
+
+        String normalized = heapSize.trim().toLowerCase();
+        long bytes;
+        try {
+            if (normalized.endsWith("k")) {
+                bytes = toBytes(normalized.substring(0, normalized.length() - 1), KILOBYTE);
+            } else if (normalized.endsWith("m")) {
+                bytes = toBytes(normalized.substring(0, normalized.length() - 1), MEGABYTE);
+            } else if (normalized.endsWith("g")) {
+                bytes = toBytes(normalized.substring(0, normalized.length() - 1), GIGABYTE);
+            } else {
+                bytes = toBytes(normalized, 1);
+            }
+        } catch (NumberFormatException e) {
+            throw new InvalidUserDataException("Cannot parse heap size: " + heapSize, e);
+        }
+        long megabytes = bytes / MEGABYTE + (bytes % MEGABYTE == 0 ? 0 : 1);
+        return (int) Math.min(megabytes, Integer.MAX_VALUE);
+    }
+
+    private static long toBytes(String value, long unit) {
+        long number = Long.parseLong(value);
+        if (number < 0 || number > Long.MAX_VALUE / unit) {
+            throw new NumberFormatException("Heap size out of range: " + value);
+        }
+        return number * unit;
+    }
+}
@@ -18,6 +18,7 @@ package org.gradle.profile;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.ResolvableDependencies;
 import org.gradle.api.invocation.Gradle;
+import org.gradle.cache.internal.btree.BlockCacheStatistics;
 
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -43,6 +44,7 @@ public class BuildProfile {
     private final Gradle gradle;
     private final Map<Project, ProjectProfile> projects = new LinkedHashMap<Project, ProjectProfile>();
     private final Map<String, DependencyResolveProfile> dependencySets = new LinkedHashMap<String, DependencyResolveProfile>();
+    private List<BlockCacheStatistics> blockCaches = new ArrayList<BlockCacheStatistics>();
     private long profilingStarted;
     private long buildStarted;
     private long settingsEvaluated;
@@ -238,6 +240,18 @@ public class BuildProfile {
         return result;
     }
 
+    /**
+     * Get the block cache statistics of the indexed caches used during the build.
+     * @return list
+     */
+    public List<BlockCacheStatistics> getBlockCaches() {
+        return blockCaches;
+    }
+
+    public void setBlockCaches(List<BlockCacheStatistics> blockCaches) {
+        this.blockCaches = blockCaches;
+    }
+
     public boolean isSuccessful() {
         return successful;
     }
@@ -27,6 +27,7 @@ import org.gradle.api.execution.TaskExecutionListener;
 import org.gradle.api.initialization.Settings;
 import org.gradle.api.invocation.Gradle;
 import org.gradle.api.tasks.TaskState;
+import org.gradle.cache.internal.BlockCacheStatisticsRegistry;
 import org.gradle.initialization.BuildRequestMetaData;
 import org.gradle.internal.TimeProvider;
 
@@ -37,12 +38,14 @@ public class ProfileEventAdapter implements BuildListener, ProjectEvaluationList
     private final BuildRequestMetaData buildMetaData;
     private final TimeProvider timeProvider;
     private final ProfileListener listener;
+    private final BlockCacheStatisticsRegistry cacheStatistics;
     private BuildProfile buildProfile;
 
-    public ProfileEventAdapter(BuildRequestMetaData buildMetaData, TimeProvider timeProvider, ProfileListener listener) {
+    public ProfileEventAdapter(BuildRequestMetaData buildMetaData, TimeProvider timeProvider, ProfileListener listener, BlockCacheStatisticsRegistry cacheStatistics) {
         this.buildMetaData = buildMetaData;
         this.timeProvider = timeProvider;
         this.listener = listener;
+        this.cacheStatistics = cacheStatistics;
     }
 
     // BuildListener
@@ -50,6 +53,7 @@ public class ProfileEventAdapter implements BuildListener, ProjectEvaluationList
         buildProfile = new BuildProfile(gradle);
         buildProfile.setBuildStarted(timeProvider.getCurrentTime());
         buildProfile.setProfilingStarted(buildMetaData.getBuildTimeClock().getStartTime());
+        cacheStatistics.reset();
     }
 
     public void settingsEvaluated(Settings settings) {
@@ -67,6 +71,7 @@ public class ProfileEventAdapter implements BuildListener, ProjectEvaluationList
     public void buildFinished(BuildResult result) {
         buildProfile.setBuildFinished(timeProvider.getCurrentTime());
         buildProfile.setSuccessful(result.getFailure() == null);
+        buildProfile.setBlockCaches(cacheStatistics.getUsedCaches());
         try {
             listener.buildFinished(buildProfile);
         } finally {
@@ -98,6 +98,10 @@ public class InMemoryCacheFactory implements CacheFactory {
             action.run();
         }
 
+        public <T> T readCache(String operationDisplayName, Factory<? extends T> action) {
+            return useCache(operationDisplayName, action);
+        }
+
         public <T> T longRunningOperation(String operationDisplayName, Factory<? extends T> action) {
             return action.create();
         }
@@ -105,5 +109,13 @@ public class InMemoryCacheFactory implements CacheFactory {
         public void longRunningOperation(String operationDisplayName, Runnable action) {
             action.run();
         }
+
+        public <T> T concurrentOperation(String operationDisplayName, Factory<? extends T> action) {
+            return action.create();
+        }
+
+        public void concurrentOperation(String operationDisplayName, Runnable action) {
+            action.run();
+        }
     }
 }
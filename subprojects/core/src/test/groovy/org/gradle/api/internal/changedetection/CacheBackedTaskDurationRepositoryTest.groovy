@@ -0,0 +1,59 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection
+
+import org.gradle.cache.PersistentIndexedCache
+import spock.lang.Specification
+
+class CacheBackedTaskDurationRepositoryTest extends Specification {
+    final TaskArtifactStateCacheAccess cacheAccess = Mock()
+    final PersistentIndexedCache<String, Long> indexedCache = Mock()
+    TaskDurationRepository repository
+
+    def setup() {
+        1 * cacheAccess.createCache("taskDurations", String, Long) >> indexedCache
+        repository = new CacheBackedTaskDurationRepository(cacheAccess)
+    }
+
+    def "can fetch the duration of a task"() {
+        when:
+        def result = repository.getDuration(":a")
+
+        then:
+        result == 12
+        1 * indexedCache.get(":a") >> 12L
+        0 * _._
+    }
+
+    def "returns null for a task that has not been executed"() {
+        when:
+        def result = repository.getDuration(":a")
+
+        then:
+        result == null
+        1 * indexedCache.get(":a") >> null
+        0 * _._
+    }
+
+    def "can store the duration of a task"() {
+        when:
+        repository.setDuration(":a", 12)
+
+        then:
+        1 * indexedCache.put(":a", 12)
+        0 * _._
+    }
+}
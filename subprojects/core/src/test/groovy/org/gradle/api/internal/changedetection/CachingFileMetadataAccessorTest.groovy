@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection
+
+import org.gradle.api.internal.file.collections.SimpleFileCollection
+import org.gradle.internal.nativeplatform.filesystem.FileMetadata
+import org.gradle.internal.nativeplatform.filesystem.FileMetadataAccessor
+import spock.lang.Specification
+
+class CachingFileMetadataAccessorTest extends Specification {
+    final FileMetadataAccessor target = Mock()
+    final CachingFileMetadataAccessor accessor = new CachingFileMetadataAccessor(target, 3)
+    final File dir = new File("root/dir").absoluteFile
+    final File file1 = new File(dir, "file1")
+    final File file2 = new File(dir, "sub/file2")
+    final File other = new File("root/dir2/file3").absoluteFile
+    final FileMetadata metadata = new FileMetadata(FileMetadata.Type.File, 12, 1000)
+
+    def "reads metadata of file once"() {
+        when:
+        def result1 = accessor.stat(file1)
+        def result2 = accessor.stat(file1)
+
+        then:
+        result1.is(metadata)
+        result2.is(metadata)
+        1 * target.stat(file1) >> metadata
+        0 * target._
+    }
+
+    def "reads metadata of invalidated files and the files in invalidated directories again"() {
+        given:
+        _ * target.stat(_) >> metadata
+        accessor.stat(file1)
+        accessor.stat(file2)
+        accessor.stat(other)
+
+        when:
+        accessor.invalidate(new SimpleFileCollection(dir))
+        accessor.stat(file1)
+        accessor.stat(file2)
+        accessor.stat(other)
+
+        then:
+        1 * target.stat(file1) >> metadata
+        1 * target.stat(file2) >> metadata
+        0 * target._
+    }
+
+    def "reads metadata of all files again when everything is invalidated"() {
+        given:
+        _ * target.stat(_) >> metadata
+        accessor.stat(file1)
+
+        when:
+        accessor.invalidateAll()
+        accessor.stat(file1)
+
+        then:
+        1 * target.stat(file1) >> metadata
+        0 * target._
+    }
+
+    def "does not cache metadata which was read while files were invalidated"() {
+        when:
+        accessor.stat(file1)
+        accessor.stat(file1)
+
+        then:
+        1 * target.stat(file1) >> { accessor.invalidateAll(); metadata }
+        1 * target.stat(file1) >> metadata
+    }
+
+    def "discards all entries when full"() {
+        given:
+        _ * target.stat(_) >> metadata
+        accessor.stat(file1)
+        accessor.stat(file2)
+        accessor.stat(other)
+
+        when:
+        accessor.stat(new File("root/file4").absoluteFile)
+
+        then:
+        accessor.size() == 1
+    }
+}
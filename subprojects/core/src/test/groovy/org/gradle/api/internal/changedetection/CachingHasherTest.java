@@ -16,6 +16,7 @@
 package org.gradle.api.internal.changedetection;
 
 import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.nativeplatform.filesystem.FileWatcher;
 import org.gradle.messaging.serialize.Serializer;
 import org.gradle.util.TemporaryFolder;
 import org.jmock.Expectations;
@@ -27,6 +28,10 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import static org.gradle.util.Matchers.reflectionEquals;
 import static org.hamcrest.Matchers.*;
@@ -48,6 +53,8 @@ public class CachingHasherTest {
     @Before
     public void setup() {
         context.checking(new Expectations(){{
+            allowing(delegate).getAlgorithm();
+            will(returnValue("ALGORITHM"));
             one(cacheAccess).createCache(with(equalTo("fileHashes")), with(equalTo(File.class)), with(notNullValue(Class.class)), with(notNullValue(Serializer.class)));
             will(returnValue(cache));
         }});
@@ -61,7 +68,7 @@ public class CachingHasherTest {
             will(returnValue(null));
             one(delegate).hash(file);
             will(returnValue(hash));
-            one(cache).put(with(equalTo(file)), with(reflectionEquals(new CachingHasher.FileInfo(hash, file.length(),
+            one(cache).put(with(equalTo(file)), with(reflectionEquals(new CachingHasher.FileInfo("ALGORITHM", hash, file.length(),
                     file.lastModified()))));
         }});
 
@@ -72,10 +79,10 @@ public class CachingHasherTest {
     public void hashesFileWhenLengthHasChanged() {
         context.checking(new Expectations() {{
             one(cache).get(file);
-            will(returnValue(new CachingHasher.FileInfo(hash, 1078, file.lastModified())));
+            will(returnValue(new CachingHasher.FileInfo("ALGORITHM", hash, 1078, file.lastModified())));
             one(delegate).hash(file);
             will(returnValue(hash));
-            one(cache).put(with(equalTo(file)), with(reflectionEquals(new CachingHasher.FileInfo(hash, file.length(),
+            one(cache).put(with(equalTo(file)), with(reflectionEquals(new CachingHasher.FileInfo("ALGORITHM", hash, file.length(),
                     file.lastModified()))));
         }});
 
@@ -86,10 +93,10 @@ public class CachingHasherTest {
     public void hashesFileWhenTimestampHasChanged() {
         context.checking(new Expectations() {{
             one(cache).get(file);
-            will(returnValue(new CachingHasher.FileInfo(hash, file.length(), 12)));
+            will(returnValue(new CachingHasher.FileInfo("ALGORITHM", hash, file.length(), 12)));
             one(delegate).hash(file);
             will(returnValue(hash));
-            one(cache).put(with(equalTo(file)), with(reflectionEquals(new CachingHasher.FileInfo(hash, file.length(),
+            one(cache).put(with(equalTo(file)), with(reflectionEquals(new CachingHasher.FileInfo("ALGORITHM", hash, file.length(),
                     file.lastModified()))));
         }});
 
@@ -100,9 +107,219 @@ public class CachingHasherTest {
     public void doesNotHashFileWhenTimestampAndLengthHaveNotChanged() {
         context.checking(new Expectations() {{
             one(cache).get(file);
-            will(returnValue(new CachingHasher.FileInfo(hash, file.length(), file.lastModified())));
+            will(returnValue(new CachingHasher.FileInfo("ALGORITHM", hash, file.length(), file.lastModified())));
         }});
 
         assertThat(hasher.hash(file), sameInstance(hash));
     }
+
+    @Test
+    public void hashesFileWhenAlgorithmHasChanged() {
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(new CachingHasher.FileInfo("OTHER", hash, file.length(), file.lastModified())));
+            one(delegate).hash(file);
+            will(returnValue(hash));
+            one(cache).put(with(equalTo(file)), with(reflectionEquals(new CachingHasher.FileInfo("ALGORITHM", hash, file.length(),
+                    file.lastModified()))));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+    }
+
+    @Test
+    public void fileIsCachedWhenTimestampAndLengthHaveNotChanged() {
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(new CachingHasher.FileInfo("ALGORITHM", hash, file.length(), file.lastModified())));
+        }});
+
+        assertThat(hasher.isCached(file), equalTo(true));
+    }
+
+    @Test
+    public void fileIsNotCachedWhenTimestampHasChanged() {
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(new CachingHasher.FileInfo("ALGORITHM", hash, file.length(), 12)));
+        }});
+
+        assertThat(hasher.isCached(file), equalTo(false));
+    }
+
+    @Test
+    public void fileIsNotCachedWhenHashNotCached() {
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(null));
+        }});
+
+        assertThat(hasher.isCached(file), equalTo(false));
+    }
+
+    @Test
+    public void usesHashFromInMemoryCacheWhenTimestampAndLengthHaveNotChanged() {
+        InMemoryFileHashCache inMemoryCache = new InMemoryFileHashCache(10);
+        inMemoryCache.put(file, new CachingHasher.FileInfo("ALGORITHM", hash, file.length(), file.lastModified()));
+        CachingHasher hasher = hasherWithInMemoryCache(inMemoryCache);
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+        assertThat(hasher.isCached(file), equalTo(true));
+    }
+
+    @Test
+    public void addsHashFromPersistentCacheToInMemoryCache() {
+        InMemoryFileHashCache inMemoryCache = new InMemoryFileHashCache(10);
+        CachingHasher hasher = hasherWithInMemoryCache(inMemoryCache);
+
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(new CachingHasher.FileInfo("ALGORITHM", hash, file.length(), file.lastModified())));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+        assertThat(hasher.hash(file), sameInstance(hash));
+        assertThat(inMemoryCache.get(file), notNullValue());
+    }
+
+    @Test
+    public void writesHashToPersistentAndInMemoryCache() {
+        InMemoryFileHashCache inMemoryCache = new InMemoryFileHashCache(10);
+        CachingHasher hasher = hasherWithInMemoryCache(inMemoryCache);
+
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(null));
+            one(delegate).hash(file);
+            will(returnValue(hash));
+            one(cache).put(with(equalTo(file)), with(reflectionEquals(new CachingHasher.FileInfo("ALGORITHM", hash, file.length(),
+                    file.lastModified()))));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+        assertThat(hasher.hash(file), sameInstance(hash));
+        assertThat(inMemoryCache.get(file), reflectionEquals(new CachingHasher.FileInfo("ALGORITHM", hash, file.length(), file.lastModified())));
+    }
+
+    @Test
+    public void hashesFileWhenInMemoryEntryIsOutOfDate() {
+        InMemoryFileHashCache inMemoryCache = new InMemoryFileHashCache(10);
+        inMemoryCache.put(file, new CachingHasher.FileInfo("ALGORITHM", "old".getBytes(), file.length(), 12));
+        CachingHasher hasher = hasherWithInMemoryCache(inMemoryCache);
+
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(null));
+            one(delegate).hash(file);
+            will(returnValue(hash));
+            one(cache).put(with(equalTo(file)), with(notNullValue(CachingHasher.FileInfo.class)));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+    }
+
+    @Test
+    public void usesHashConfirmedByWatcherWithoutReadingFile() {
+        TestFileWatcher watcher = new TestFileWatcher();
+        InMemoryFileHashCache inMemoryCache = new InMemoryFileHashCache(10, watcher);
+        CachingHasher hasher = hasherWithInMemoryCache(inMemoryCache);
+
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(new CachingHasher.FileInfo("ALGORITHM", hash, file.length(), file.lastModified())));
+        }});
+
+        // The directory starts being watched when the first hash is added, so the second lookup confirms the hash
+        assertThat(hasher.hash(file), sameInstance(hash));
+        assertThat(hasher.hash(file), sameInstance(hash));
+        assertThat(watcher.watched, hasItem(file.getParentFile()));
+
+        file.delete();
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+        assertThat(hasher.isCached(file), equalTo(true));
+    }
+
+    @Test
+    public void hashesFileWhenWatcherReportsChangeEvenWhenLengthAndTimestampHaveNotChanged() {
+        TestFileWatcher watcher = new TestFileWatcher();
+        InMemoryFileHashCache inMemoryCache = new InMemoryFileHashCache(10, watcher);
+        CachingHasher hasher = hasherWithInMemoryCache(inMemoryCache);
+        final byte[] newHash = "new".getBytes();
+
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(new CachingHasher.FileInfo("ALGORITHM", hash, file.length(), file.lastModified())));
+            one(delegate).hash(file);
+            will(returnValue(newHash));
+            one(cache).put(with(equalTo(file)), with(notNullValue(CachingHasher.FileInfo.class)));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+
+        watcher.changed.add(file);
+
+        assertThat(hasher.isCached(file), equalTo(false));
+        assertThat(hasher.hash(file), sameInstance(newHash));
+        assertThat(hasher.isCached(file), equalTo(true));
+    }
+
+    @Test
+    public void checksLengthAndTimestampOfFileWhenWatcherMayHaveMissedChanges() {
+        TestFileWatcher watcher = new TestFileWatcher();
+        InMemoryFileHashCache inMemoryCache = new InMemoryFileHashCache(10, watcher);
+        CachingHasher hasher = hasherWithInMemoryCache(inMemoryCache);
+
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(new CachingHasher.FileInfo("ALGORITHM", hash, file.length(), file.lastModified())));
+            one(cache).get(file);
+            will(returnValue(null));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+        assertThat(hasher.hash(file), sameInstance(hash));
+
+        watcher.overflowed.add(file.getParentFile());
+        file.delete();
+
+        assertThat(hasher.isCached(file), equalTo(false));
+    }
+
+    private CachingHasher hasherWithInMemoryCache(InMemoryFileHashCache inMemoryCache) {
+        context.checking(new Expectations(){{
+            one(cacheAccess).createCache(with(equalTo("fileHashes")), with(equalTo(File.class)), with(notNullValue(Class.class)), with(notNullValue(Serializer.class)));
+            will(returnValue(cache));
+        }});
+        return new CachingHasher(delegate, cacheAccess, inMemoryCache);
+    }
+
+    private static class TestFileWatcher implements FileWatcher {
+        final Set<File> watched = new HashSet<File>();
+        final List<File> changed = new ArrayList<File>();
+        final List<File> overflowed = new ArrayList<File>();
+
+        public boolean watch(File dir) {
+            watched.add(dir);
+            return true;
+        }
+
+        public void unwatch(File dir) {
+            watched.remove(dir);
+        }
+
+        public void pollChanges(Listener listener) {
+            for (File file : changed) {
+                listener.entryChanged(file);
+            }
+            for (File dir : overflowed) {
+                listener.directoryChanged(dir);
+            }
+            changed.clear();
+            overflowed.clear();
+        }
+
+        public void stop() {
+        }
+    }
 }
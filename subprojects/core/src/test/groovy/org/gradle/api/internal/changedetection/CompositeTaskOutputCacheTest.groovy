@@ -0,0 +1,72 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection
+
+import org.gradle.util.hash.HashValue
+import spock.lang.Specification
+
+class CompositeTaskOutputCacheTest extends Specification {
+    final TaskOutputCache local = Mock()
+    final TaskOutputCache remote = Mock()
+    final TaskOutputCache.Reader reader = Mock()
+    final TaskOutputCache.Writer writer = Mock()
+    final HashValue key = new HashValue("1234")
+    final CompositeTaskOutputCache cache = new CompositeTaskOutputCache([local, remote])
+
+    def "loads entry from first cache which contains it"() {
+        when:
+        def found = cache.load(key, reader)
+
+        then:
+        found
+        1 * local.load(key, reader) >> false
+        1 * remote.load(key, reader) >> true
+    }
+
+    def "does not use remaining caches once entry has been loaded"() {
+        when:
+        def found = cache.load(key, reader)
+
+        then:
+        found
+        1 * local.load(key, reader) >> true
+        0 * remote._
+    }
+
+    def "uses remaining caches when one cache fails to load entry"() {
+        _ * local.displayName >> "local"
+
+        when:
+        def found = cache.load(key, reader)
+
+        then:
+        !found
+        1 * local.load(key, reader) >> { throw new IOException("broken") }
+        1 * remote.load(key, reader) >> false
+    }
+
+    def "stores entry in all caches"() {
+        _ * remote.displayName >> "remote"
+
+        when:
+        cache.store(key, writer)
+
+        then:
+        1 * local.store(key, writer)
+        1 * remote.store(key, writer) >> { throw new IOException("broken") }
+    }
+}
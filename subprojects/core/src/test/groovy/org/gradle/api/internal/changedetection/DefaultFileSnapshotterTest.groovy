@@ -29,6 +29,7 @@ import org.gradle.util.TestFile
 import org.gradle.api.file.FileCollection
 import org.gradle.util.ChangeListener
 import org.gradle.api.file.FileTree
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 
 @RunWith(JMock.class)
 public class DefaultFileSnapshotterTest {
@@ -316,6 +317,186 @@ public class DefaultFileSnapshotterTest {
         target.changesSince(snapshotter.emptySnapshot(), listener)
     }
 
+    @Test
+    public void diffKeepsFilesInTargetSnapshotWhichAreNotInDiff() {
+        TestFile file1 = tmpDir.createFile('file1')
+        TestFile file2 = tmpDir.createFile('file2')
+        TestFile file3 = tmpDir.createFile('file3')
+        TestFile file4 = tmpDir.createFile('file4')
+
+        FileCollectionSnapshot original = snapshotter.snapshot(files(file2, file4))
+        file2.write('new content')
+        FileCollectionSnapshot modified = snapshotter.snapshot(files(file2, file3))
+        FileCollectionSnapshot target = modified.changesSince(original).applyTo(snapshotter.snapshot(files(file4, file1)))
+
+        assertThat(target.files.files as List, equalTo([file1, file2, file3]))
+        target.changesSince(snapshotter.snapshot(files(file3, file1, file2)), listener)
+    }
+
+    @Test
+    public void parallelSnapshotIsTheSameAsSerialSnapshot() {
+        List<File> contents = []
+        1000.times { contents << tmpDir.file("dir${it % 10}/file$it").write("content $it") }
+        contents << tmpDir.file('dir0')
+        contents << tmpDir.file('missing')
+
+        DefaultFileSnapshotter parallelSnapshotter = parallelSnapshotter(hasher)
+        try {
+            FileCollectionSnapshot serialSnapshot = snapshotter.snapshot(files(contents as File[]))
+            FileCollectionSnapshot parallelSnapshot = parallelSnapshotter.snapshot(files(contents as File[]))
+
+            assertThat(parallelSnapshot.files.files, equalTo(serialSnapshot.files.files))
+            parallelSnapshot.changesSince(serialSnapshot, listener)
+
+            contents[500].write('new content')
+
+            context.checking {
+                one(listener).changed(contents[500])
+            }
+            parallelSnapshotter.snapshot(files(contents as File[])).changesSince(serialSnapshot, listener)
+        } finally {
+            parallelSnapshotter.stop()
+        }
+    }
+
+    @Test
+    public void propagatesFailureToHashFileInParallel() {
+        List<File> contents = []
+        1000.times { contents << tmpDir.createFile("file$it") }
+        RuntimeException failure = new RuntimeException('broken')
+        Hasher brokenHasher = [
+                hash: { File file -> if (file == contents[700]) { throw failure }; return hasher.hash(file) },
+                getAlgorithm: { hasher.algorithm }
+        ] as Hasher
+
+        DefaultFileSnapshotter parallelSnapshotter = parallelSnapshotter(brokenHasher)
+        try {
+            parallelSnapshotter.snapshot(files(contents as File[]))
+            fail()
+        } catch (RuntimeException e) {
+            assertThat(e, sameInstance(failure))
+        } finally {
+            parallelSnapshotter.stop()
+        }
+    }
+
+    @Test
+    public void reusesHashOfFileWhichHasNotChangedSincePreviousSnapshot() {
+        TestFile file = tmpDir.createFile('file')
+        file.lastModified = System.currentTimeMillis() - 10000
+        List<File> hashed = []
+        DefaultFileSnapshotter snapshotter = new DefaultFileSnapshotter(recordingHasher(hashed))
+
+        FileCollectionSnapshot previous = snapshotter.snapshot(files(file))
+        FileCollectionSnapshot snapshot = snapshotter.snapshot(files(file), previous)
+
+        assertThat(hashed, equalTo([file] as List))
+        snapshot.changesSince(previous, listener)
+    }
+
+    @Test
+    public void hashesFileWhichHasChangedSincePreviousSnapshot() {
+        TestFile file = tmpDir.createFile('file')
+        file.lastModified = System.currentTimeMillis() - 10000
+        List<File> hashed = []
+        DefaultFileSnapshotter snapshotter = new DefaultFileSnapshotter(recordingHasher(hashed))
+
+        FileCollectionSnapshot previous = snapshotter.snapshot(files(file))
+        file.write('new content')
+        FileCollectionSnapshot snapshot = snapshotter.snapshot(files(file), previous)
+
+        assertThat(hashed, equalTo([file, file] as List))
+        context.checking {
+            one(listener).changed(file)
+        }
+        snapshot.changesSince(previous, listener)
+    }
+
+    @Test
+    public void hashesFileWhichWasRecentlyModifiedWhenPreviousSnapshotWasTaken() {
+        TestFile file = tmpDir.createFile('file')
+        List<File> hashed = []
+        DefaultFileSnapshotter snapshotter = new DefaultFileSnapshotter(recordingHasher(hashed))
+
+        FileCollectionSnapshot previous = snapshotter.snapshot(files(file))
+        snapshotter.snapshot(files(file), previous)
+
+        assertThat(hashed, equalTo([file, file] as List))
+    }
+
+    @Test
+    public void updateSnapshotsOnlyTheChangedFiles() {
+        TestFile dir = tmpDir.createDir('dir')
+        TestFile unchanged = dir.createFile('unchanged')
+        TestFile changedDir = dir.createDir('changed')
+        TestFile changed = changedDir.createFile('file1')
+        TestFile removed = changedDir.createFile('file2')
+        TestFile removedFile = dir.createFile('removed')
+        List<File> hashed = []
+        DefaultFileSnapshotter snapshotter = new DefaultFileSnapshotter(recordingHasher(hashed))
+
+        FileCollectionSnapshot previous = snapshotter.snapshot(files(unchanged, changedDir, changed, removed, removedFile))
+        hashed.clear()
+        changed.write('new content')
+        removed.delete()
+        removedFile.delete()
+        TestFile added = changedDir.createFile('sub/file3')
+        FileCollectionSnapshot snapshot = snapshotter.update(previous, [changedDir, removedFile])
+
+        assertThat(hashed as Set, equalTo([changed, added] as Set))
+        assertThat(snapshot.files.files, equalTo([unchanged, changed, added] as Set))
+        context.checking {
+            one(listener).added(changedDir.file('sub'))
+            one(listener).added(added)
+            one(listener).changed(changed)
+            one(listener).removed(removed)
+            one(listener).removed(removedFile)
+        }
+        snapshot.changesSince(previous, listener)
+    }
+
+    @Test
+    public void sharesSnapshotOfFileWithOtherSnapshotsTakenDuringTheBuild() {
+        TestFile file = tmpDir.createFile('file')
+        file.lastModified = System.currentTimeMillis() - 10000
+        List<File> hashed = []
+        DefaultFileSnapshotter snapshotter = new DefaultFileSnapshotter(recordingHasher(hashed), null, new FileSnapshotStore(), null, null, null, 0)
+
+        DefaultFileSnapshotter.FileCollectionSnapshotImpl snapshot1 = snapshotter.snapshot(files(file))
+        DefaultFileSnapshotter.FileCollectionSnapshotImpl snapshot2 = snapshotter.snapshot(files(tmpDir.dir, file))
+
+        assertThat(hashed, equalTo([file] as List))
+        assertThat(snapshot2.get(file.absolutePath), sameInstance(snapshot1.get(file.absolutePath)))
+    }
+
+    @Test
+    public void doesNotShareSnapshotOfRecentlyModifiedFile() {
+        TestFile file = tmpDir.createFile('file')
+        List<File> hashed = []
+        DefaultFileSnapshotter snapshotter = new DefaultFileSnapshotter(recordingHasher(hashed), null, new FileSnapshotStore(), null, null, null, 0)
+
+        snapshotter.snapshot(files(file))
+        snapshotter.snapshot(files(file))
+
+        assertThat(hashed, equalTo([file, file] as List))
+    }
+
+    private Hasher recordingHasher(List<File> hashed) {
+        return [
+                hash: { File file -> hashed << file; return hasher.hash(file) },
+                getAlgorithm: { hasher.algorithm }
+        ] as Hasher
+    }
+
+    private DefaultFileSnapshotter parallelSnapshotter(Hasher hasher) {
+        TaskArtifactStateCacheAccess cacheAccess = context.mock(TaskArtifactStateCacheAccess.class)
+        context.checking {
+            allowing(cacheAccess).concurrentOperation(withParam(equalTo('snapshot files')), withParam(notNullValue()))
+            will { String name, Runnable action -> action.run() }
+        }
+        return new DefaultFileSnapshotter(hasher, cacheAccess, new DefaultExecutorFactory(), 3)
+    }
+
     private FileCollection files(File... files) {
         FileTree collection = context.mock(FileTree.class)
         context.checking {
@@ -21,6 +21,7 @@ import org.gradle.api.internal.GradleInternal
 import org.gradle.cache.DirectoryCacheBuilder
 import org.gradle.cache.PersistentCache
 import org.gradle.cache.PersistentIndexedCache
+import org.gradle.internal.Factory
 
 class DefaultTaskArtifactStateCacheAccessTest extends Specification {
     final GradleInternal gradle = Mock()
@@ -46,6 +47,7 @@ class DefaultTaskArtifactStateCacheAccessTest extends Specification {
         1 * cacheBuilder.open() >> backingCache
         _ * cacheBuilder._ >> cacheBuilder
         _ * backingCache.baseDir >> new File("baseDir")
+        1 * backingCache.readCache("read some-cache", _) >> { String operation, Factory action -> action.create() }
         1 * backingCache.createCache(new File("baseDir/some-cache.bin"), String, Integer) >> backingIndexedCache
         1 * backingIndexedCache.get("key")
         0 * _._
@@ -17,10 +17,13 @@
 package org.gradle.api.internal.changedetection;
 
 import org.gradle.CacheUsage;
+import org.gradle.api.Action;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.invocation.Gradle;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.api.tasks.incremental.InputFileDetails;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.internal.DefaultCacheRepository;
 import org.gradle.internal.id.RandomLongIdGenerator;
@@ -28,6 +31,7 @@ import org.gradle.testfixtures.internal.InMemoryCacheFactory;
 import org.gradle.util.HelperUtil;
 import org.gradle.util.TemporaryFolder;
 import org.gradle.util.TestFile;
+import org.gradle.util.hash.HashValue;
 import org.hamcrest.Matcher;
 import org.junit.Before;
 import org.junit.Rule;
@@ -512,6 +516,124 @@ public class DefaultTaskArtifactStateRepositoryTest {
         assertThat(state.getExecutionHistory().getOutputFiles().getFiles(), equalTo(toLinkedSet((File) outputDirFile2)));
     }
 
+    @Test
+    public void cacheKeyIsTheSameWhenInputsAreTheSame() {
+        HashValue cacheKey = repository.getStateFor(task()).getCacheKey();
+        assertNotNull(cacheKey);
+
+        execute();
+
+        assertThat(repository.getStateFor(task()).getCacheKey(), equalTo(cacheKey));
+        assertThat(repository.getStateFor(builder().withPath("other").task()).getCacheKey(), equalTo(cacheKey));
+    }
+
+    @Test
+    public void cacheKeyChangesWhenAnyInputFileChanges() {
+        HashValue cacheKey = repository.getStateFor(task()).getCacheKey();
+
+        inputDirFile.write("new content");
+
+        assertThat(repository.getStateFor(task()).getCacheKey(), not(equalTo(cacheKey)));
+    }
+
+    @Test
+    public void cacheKeyChangesWhenAnyInputPropertyChanges() {
+        HashValue cacheKey = repository.getStateFor(task()).getCacheKey();
+
+        assertThat(repository.getStateFor(builder().withProperty("prop", "new value").task()).getCacheKey(), not(equalTo(cacheKey)));
+    }
+
+    @Test
+    public void cacheKeyChangesWhenOutputFilesChange() {
+        HashValue cacheKey = repository.getStateFor(task()).getCacheKey();
+
+        assertThat(repository.getStateFor(builder().withOutputFiles(outputFile).task()).getCacheKey(), not(equalTo(cacheKey)));
+    }
+
+    @Test
+    public void cacheKeyChangesWhenTaskTypeChanges() {
+        HashValue cacheKey = repository.getStateFor(task()).getCacheKey();
+
+        assertThat(repository.getStateFor(builder().withType(TaskSubType.class).task()).getCacheKey(), not(equalTo(cacheKey)));
+    }
+
+    @Test
+    public void reportsAllInputFilesAsOutOfDateWhenTaskHasNeverBeenExecuted() {
+        IncrementalTaskInputs inputChanges = repository.getStateFor(task()).getExecutionHistory().getInputChanges();
+
+        assertFalse(inputChanges.isIncremental());
+        assertThat(outOfDate(inputChanges), equalTo(toSet((File) inputFile, inputDirFile)));
+        assertThat(removed(inputChanges), isEmpty());
+    }
+
+    @Test
+    public void reportsOnlyChangedInputFilesWhenOnlyInputFilesHaveChanged() {
+        execute();
+
+        inputFile.write("some new content");
+        TestFile addedFile = inputDir.file("other-file").createFile();
+        inputDirFile.delete();
+
+        TaskArtifactState state = repository.getStateFor(task());
+        assertFalse(state.isUpToDate());
+        IncrementalTaskInputs inputChanges = state.getExecutionHistory().getInputChanges();
+        assertTrue(inputChanges.isIncremental());
+        assertThat(outOfDate(inputChanges), equalTo(toSet((File) inputFile, addedFile)));
+        assertThat(removed(inputChanges), equalTo(toSet((File) inputDirFile)));
+    }
+
+    @Test
+    public void reportsNoInputFilesAsOutOfDateWhenNothingHasChanged() {
+        execute();
+
+        IncrementalTaskInputs inputChanges = repository.getStateFor(task()).getExecutionHistory().getInputChanges();
+        assertTrue(inputChanges.isIncremental());
+        assertThat(outOfDate(inputChanges), isEmpty());
+        assertThat(removed(inputChanges), isEmpty());
+    }
+
+    @Test
+    public void reportsAllInputFilesAsOutOfDateWhenInputPropertyHasChanged() {
+        execute();
+
+        inputFile.write("some new content");
+
+        IncrementalTaskInputs inputChanges = repository.getStateFor(builder().withProperty("prop", "new value").task()).getExecutionHistory().getInputChanges();
+        assertFalse(inputChanges.isIncremental());
+        assertThat(outOfDate(inputChanges), equalTo(toSet((File) inputFile, inputDirFile)));
+    }
+
+    @Test
+    public void reportsAllInputFilesAsOutOfDateWhenOutputFileHasChanged() {
+        execute();
+
+        outputFile.write("some new content");
+
+        TaskArtifactState state = repository.getStateFor(task());
+        assertFalse(state.isUpToDate());
+        assertFalse(state.getExecutionHistory().getInputChanges().isIncremental());
+    }
+
+    private Set<File> outOfDate(IncrementalTaskInputs inputChanges) {
+        final Set<File> files = new HashSet<File>();
+        inputChanges.outOfDate(new Action<InputFileDetails>() {
+            public void execute(InputFileDetails details) {
+                files.add(details.getFile());
+            }
+        });
+        return files;
+    }
+
+    private Set<File> removed(IncrementalTaskInputs inputChanges) {
+        final Set<File> files = new HashSet<File>();
+        inputChanges.removed(new Action<InputFileDetails>() {
+            public void execute(InputFileDetails details) {
+                files.add(details.getFile());
+            }
+        });
+        return files;
+    }
+
     private void execute() {
         execute(task());
     }
@@ -15,9 +15,11 @@
  */
 package org.gradle.api.internal.changedetection
 
+import org.gradle.api.Action
 import org.gradle.api.file.FileCollection
 import org.gradle.api.internal.TaskInternal
 import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.api.internal.tasks.ImplementationAwareTaskAction
 import org.gradle.api.tasks.TaskInputs
 import spock.lang.Specification
 
@@ -30,6 +32,7 @@ class FileCacheBroadcastTaskArtifactStateRepositoryTest extends Specification {
     final FileCollection outputs = Mock()
     final FileCollection inputs = Mock()
     final FileCacheListener listener = Mock()
+    final List<Action<?>> actions = []
     final FileCacheBroadcastTaskArtifactStateRepository repository = new FileCacheBroadcastTaskArtifactStateRepository(target, listener)
 
     def setup() {
@@ -37,6 +40,7 @@ class FileCacheBroadcastTaskArtifactStateRepositoryTest extends Specification {
         _ * taskInputs.files >> inputs
         _ * task.outputs >> taskOutputs
         _ * taskOutputs.files >> outputs
+        _ * task.actions >> actions
     }
     
     def marksTaskInputsAndOutputsAsCacheableWhenCheckingUpToDate() {
@@ -82,11 +86,17 @@ class FileCacheBroadcastTaskArtifactStateRepositoryTest extends Specification {
         0 * listener._
     }
 
-    def marksTaskOutputsAsCacheableAfterTaskHasExecuted() {
+    def invalidatesTaskOutputsAndMarksThemAsCacheableAfterTaskHasExecuted() {
+        given:
+        taskOutputs.hasOutput >> true
+
         when:
         def state = repository.getStateFor(task)
         state.afterTask()
 
+        then:
+        1 * listener.invalidate(outputs)
+
         then:
         1 * listener.cacheable(outputs)
         1 * target.getStateFor(task) >> targetState
@@ -94,6 +104,99 @@ class FileCacheBroadcastTaskArtifactStateRepositoryTest extends Specification {
         0 * listener._
     }
 
+    def invalidatesEverythingAfterTaskWhichDoesNotDeclareAnyOutputsHasExecuted() {
+        given:
+        taskOutputs.hasOutput >> false
+
+        when:
+        def state = repository.getStateFor(task)
+        state.afterTask()
+
+        then:
+        1 * listener.invalidateAll()
+
+        then:
+        1 * listener.cacheable(outputs)
+        1 * target.getStateFor(task) >> targetState
+        1 * targetState.afterTask()
+        0 * listener._
+    }
+
+    def invalidatesEverythingAfterTaskWithClosureActionsHasExecuted() {
+        given:
+        taskOutputs.hasOutput >> true
+        def closure = { }
+        ImplementationAwareTaskAction closureAction = Mock()
+        _ * closureAction.implementationClass >> closure.getClass()
+        actions << Mock(Action) << closureAction
+
+        when:
+        def state = repository.getStateFor(task)
+        state.afterTask()
+
+        then:
+        1 * listener.invalidateAll()
+
+        then:
+        1 * listener.cacheable(outputs)
+        1 * target.getStateFor(task) >> targetState
+        1 * targetState.afterTask()
+        0 * listener._
+    }
+
+    def invalidatesOnlyTaskOutputsAfterTaskWithOtherActionsHasExecuted() {
+        given:
+        taskOutputs.hasOutput >> true
+        ImplementationAwareTaskAction action = Mock()
+        _ * action.implementationClass >> String
+        actions << action
+
+        when:
+        def state = repository.getStateFor(task)
+        state.afterTask()
+
+        then:
+        1 * listener.invalidate(outputs)
+
+        then:
+        1 * listener.cacheable(outputs)
+        1 * target.getStateFor(task) >> targetState
+        1 * targetState.afterTask()
+        0 * listener._
+    }
+
+    def invalidatesTaskOutputsWhenTaskFailed() {
+        given:
+        taskOutputs.hasOutput >> true
+        target.getStateFor(task) >> targetState
+        def state = repository.getStateFor(task)
+        state.beforeTask()
+
+        when:
+        state.finished()
+
+        then:
+        1 * listener.invalidate(outputs)
+        1 * targetState.finished()
+        0 * listener._
+    }
+
+    def doesNotInvalidateTaskOutputsAgainWhenTaskSucceeded() {
+        given:
+        taskOutputs.hasOutput >> true
+        target.getStateFor(task) >> targetState
+        def state = repository.getStateFor(task)
+        state.beforeTask()
+        state.afterTask()
+
+        when:
+        state.finished()
+
+        then:
+        1 * targetState.finished()
+        0 * listener._
+    }
+
     def delegatesToBackingStateForOtherMethods() {
         when:
         def state = repository.getStateFor(task)
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection
+
+import org.gradle.api.internal.file.collections.SimpleFileCollection
+import org.gradle.cache.DefaultSerializer
+import org.gradle.util.ChangeListener
+import org.gradle.util.TemporaryFolder
+import org.junit.Rule
+import spock.lang.Specification
+
+class FileSnapshotSerializerTest extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+    final FileSnapshotSerializer serializer = new FileSnapshotSerializer()
+    final Hasher hasher = new DefaultHasher()
+    final DefaultFileSnapshotter snapshotter = new DefaultFileSnapshotter(hasher)
+    final ChangeListener<File> listener = Mock()
+
+    def "can write and read a long"() {
+        expect:
+        copy(12L) == 12L
+    }
+
+    def "can write and read a file collection snapshot"() {
+        given:
+        def file1 = tmpDir.createFile("a/b/file1").write("content1")
+        def file2 = tmpDir.createFile("a/b/file2")
+        def snapshot = DefaultFileSnapshotter.FileCollectionSnapshotImpl.sort([
+                (file1.absolutePath): new DefaultFileSnapshotter.FileHashSnapshot(hasher.hash(file1)),
+                (file2.absolutePath): new DefaultFileSnapshotter.FileHashSnapshot(hasher.hash(file2)),
+                (tmpDir.file("a/d").absolutePath): new DefaultFileSnapshotter.DirSnapshot(),
+                (tmpDir.file("missing").absolutePath): new DefaultFileSnapshotter.MissingFileSnapshot()
+        ])
+
+        when:
+        def copy = copy(snapshot)
+
+        then:
+        copy instanceof DefaultFileSnapshotter.FileCollectionSnapshotImpl
+        copy.paths as List == snapshot.paths as List
+        copy.snapshots*.class == snapshot.snapshots*.class
+
+        when:
+        copy.changesSince(snapshot, listener)
+
+        then:
+        0 * listener._
+    }
+
+    def "can write and read a file collection snapshot with hashes of different lengths"() {
+        given:
+        def snapshot = DefaultFileSnapshotter.FileCollectionSnapshotImpl.sort([
+                "a": new DefaultFileSnapshotter.FileHashSnapshot([1, 2] as byte[]),
+                "b": new DefaultFileSnapshotter.FileHashSnapshot([1, 2, 3] as byte[])
+        ])
+
+        when:
+        def copy = copy(snapshot)
+
+        then:
+        copy.snapshots[0].hash == [1, 2] as byte[]
+        copy.snapshots[1].hash == [1, 2, 3] as byte[]
+    }
+
+    def "can write and read an output files snapshot"() {
+        given:
+        def file = tmpDir.createFile("file")
+        def snapshot = new OutputFilesSnapshotter.OutputFilesSnapshot([(file.absolutePath): 12L, "missing": null], snapshotter.snapshot(new SimpleFileCollection(file)))
+
+        when:
+        def copy = copy(snapshot)
+
+        then:
+        copy instanceof OutputFilesSnapshotter.OutputFilesSnapshot
+        copy.rootFileIds == snapshot.rootFileIds
+        copy.filesSnapshot.paths as List == [file.absolutePath]
+    }
+
+    def "uses java serialization for other values"() {
+        expect:
+        copy(["some", "list"]) == ["some", "list"]
+    }
+
+    def "can read snapshots written using java serialization by earlier versions"() {
+        given:
+        def snapshot = new OldFileCollectionSnapshot(snapshots: [
+                "b": new OldFileHashSnapshot(hash: [1, 2, 3] as byte[]),
+                "a": new OldDirSnapshot(),
+                "c": new OldMissingFileSnapshot()])
+        def outstr = new ByteArrayOutputStream()
+        new DefaultSerializer<Object>().write(outstr, snapshot)
+        def bytes = rename(outstr.toByteArray(), [
+                (OldFileCollectionSnapshot): "FileCollectionSnapshotImpl",
+                (OldFileHashSnapshot): "FileHashSnapshot",
+                (OldDirSnapshot): "DirSnapshot",
+                (OldMissingFileSnapshot): "MissingFileSnapshot"])
+
+        when:
+        def copy = serializer.read(new ByteArrayInputStream(bytes))
+
+        then:
+        copy instanceof DefaultFileSnapshotter.FileCollectionSnapshotImpl
+        copy.paths as List == ["a", "b", "c"]
+        copy.snapshots[0] instanceof DefaultFileSnapshotter.DirSnapshot
+        copy.snapshots[1].hash == [1, 2, 3] as byte[]
+        copy.snapshots[2] instanceof DefaultFileSnapshotter.MissingFileSnapshot
+    }
+
+    def "snapshot of many files is much smaller than when using java serialization"() {
+        given:
+        def snapshots = [:]
+        1000.times { snapshots["${tmpDir.dir.absolutePath}/src/main/java/org/gradle/package${it % 20}/SomeClass${it}.java".toString()] = new DefaultFileSnapshotter.FileHashSnapshot(new byte[16]) }
+        def javaSerialized = new ByteArrayOutputStream()
+        new DefaultSerializer<Object>().write(javaSerialized, new HashMap(snapshots))
+        def snapshot = DefaultFileSnapshotter.FileCollectionSnapshotImpl.sort(snapshots)
+
+        when:
+        def outstr = new ByteArrayOutputStream()
+        serializer.write(outstr, snapshot)
+
+        then:
+        outstr.size() * 3 < javaSerialized.size()
+    }
+
+    def copy(Object value) {
+        def outstr = new ByteArrayOutputStream()
+        serializer.write(outstr, value)
+        return serializer.read(new ByteArrayInputStream(outstr.toByteArray()))
+    }
+
+    /**
+     * Replaces the names of the given classes in a Java serialization stream with the names of the snapshot classes of earlier versions.
+     */
+    def rename(byte[] bytes, Map<Class<?>, String> names) {
+        def content = new String(bytes, "ISO-8859-1")
+        names.each { type, name ->
+            content = content.replace(utf(type.name), utf("${DefaultFileSnapshotter.name}\$${name}"))
+        }
+        return content.getBytes("ISO-8859-1")
+    }
+
+    def utf(String value) {
+        return new String([value.length() >> 8, value.length() & 0xFF] as char[]) + value
+    }
+
+    static class OldFileCollectionSnapshot implements Serializable {
+        Map snapshots
+    }
+
+    static class OldFileHashSnapshot implements Serializable {
+        byte[] hash
+    }
+
+    static class OldDirSnapshot implements Serializable {
+    }
+
+    static class OldMissingFileSnapshot implements Serializable {
+    }
+}
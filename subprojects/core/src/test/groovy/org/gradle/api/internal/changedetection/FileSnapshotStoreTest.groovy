@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection
+
+import org.gradle.api.internal.file.collections.SimpleFileCollection
+import spock.lang.Specification
+
+class FileSnapshotStoreTest extends Specification {
+    final FileSnapshotStore store = new FileSnapshotStore()
+    final File dir = new File("root/dir").absoluteFile
+    final File file1 = new File(dir, "file1")
+    final File file2 = new File(dir, "sub/file2")
+    final File other = new File("root/dir2/file3").absoluteFile
+
+    def "uses snapshot when file has the same length and last modified time"() {
+        when:
+        def snapshot = store.add(file1.path, hash("a"), 12, 1000)
+
+        then:
+        store.get(file1.path, 12, 1000).is(snapshot)
+        store.get(file1.path, 13, 1000) == null
+        store.get(file1.path, 12, 2000) == null
+        store.get(file2.path, 12, 1000) == null
+    }
+
+    def "uses existing snapshot when snapshot of the same file state is added again"() {
+        when:
+        def snapshot = store.add(file1.path, hash("a"), 12, 1000)
+
+        then:
+        store.add(file1.path, hash("a"), 12, 1000).is(snapshot)
+        !store.add(file1.path, hash("b"), 12, 2000).is(snapshot)
+        store.size() == 1
+    }
+
+    def "shares hash between files with the same content"() {
+        when:
+        def snapshot1 = store.add(file1.path, hash("a"), 12, 1000)
+        def snapshot2 = store.add(file2.path, hash("a"), 12, 2000)
+        def snapshot3 = store.add(other.path, hash("b"), 12, 1000)
+
+        then:
+        snapshot1.hash.is(snapshot2.hash)
+        !snapshot1.hash.is(snapshot3.hash)
+        snapshot1.isUpToDate(snapshot2)
+        !snapshot1.isUpToDate(snapshot3)
+    }
+
+    def "discards snapshots of invalidated files and the files in invalidated directories"() {
+        given:
+        store.add(file1.path, hash("a"), 12, 1000)
+        store.add(file2.path, hash("a"), 12, 1000)
+        store.add(other.path, hash("a"), 12, 1000)
+        store.add(dir.path + "-other", hash("a"), 12, 1000)
+
+        when:
+        store.invalidate(new SimpleFileCollection(dir))
+
+        then:
+        store.get(file1.path, 12, 1000) == null
+        store.get(file2.path, 12, 1000) == null
+        store.get(other.path, 12, 1000) != null
+        store.get(dir.path + "-other", 12, 1000) != null
+    }
+
+    def "discards all snapshots when everything is invalidated"() {
+        given:
+        store.add(file1.path, hash("a"), 12, 1000)
+        store.add(other.path, hash("a"), 12, 1000)
+
+        when:
+        store.invalidateAll()
+
+        then:
+        store.size() == 0
+    }
+
+    def hash(String value) {
+        return value.bytes
+    }
+}
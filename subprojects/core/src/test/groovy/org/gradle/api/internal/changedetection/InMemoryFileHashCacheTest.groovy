@@ -0,0 +1,295 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection
+
+import org.gradle.api.internal.file.collections.SimpleFileCollection
+import org.gradle.internal.nativeplatform.filesystem.FileWatcher
+import spock.lang.Specification
+
+class InMemoryFileHashCacheTest extends Specification {
+    final InMemoryFileHashCache cache = new InMemoryFileHashCache(3)
+    final File dir = new File("root/dir").absoluteFile
+    final File file1 = new File(dir, "file1")
+    final File file2 = new File(dir, "sub/file2")
+    final File other = new File("root/dir2/file3").absoluteFile
+
+    def "discards least recently used entry when full"() {
+        given:
+        cache.put(file1, info())
+        cache.put(file2, info())
+        cache.put(other, info())
+        cache.get(file1)
+
+        when:
+        cache.put(new File("root/file4").absoluteFile, info())
+
+        then:
+        cache.size() == 3
+        cache.get(file1) != null
+        cache.get(file2) == null
+    }
+
+    def "discards entries for invalidated files and the files in invalidated directories"() {
+        given:
+        cache.put(file1, info())
+        cache.put(file2, info())
+        cache.put(other, info())
+
+        when:
+        cache.invalidate(new SimpleFileCollection(dir))
+
+        then:
+        cache.get(file1) == null
+        cache.get(file2) == null
+        cache.get(other) != null
+    }
+
+    def "keeps entries when everything is invalidated"() {
+        given:
+        cache.put(file1, info())
+        cache.put(other, info())
+
+        when:
+        cache.invalidateAll()
+
+        then:
+        cache.get(file1) != null
+        cache.get(other) != null
+    }
+
+    def "invalidates files whose entries were discarded when full"() {
+        given:
+        cache.put(file1, info())
+        cache.put(file2, info())
+        cache.put(other, info())
+        cache.put(new File("root/file4").absoluteFile, info())
+
+        when:
+        cache.invalidate(new SimpleFileCollection(dir))
+        cache.put(file1, info())
+
+        then:
+        cache.size() == 3
+        cache.get(file1) != null
+        cache.get(file2) == null
+    }
+
+    def "keeps entries for cacheable files"() {
+        given:
+        cache.put(file1, info())
+
+        when:
+        cache.cacheable(new SimpleFileCollection(dir))
+
+        then:
+        cache.get(file1) != null
+    }
+
+    def "uses entry only when length and timestamp of file have not changed"() {
+        given:
+        cache.put(file1, info())
+
+        expect:
+        cache.getUnchanged(file1, "ALGORITHM", 1, 2) != null
+        cache.getUnchanged(file1, "ALGORITHM", 1, 3) == null
+        cache.getUnchanged(file1, "ALGORITHM", 2, 2) == null
+        cache.getUnchanged(file1, "OTHER", 1, 2) == null
+        cache.getUnchanged(other, "ALGORITHM", 1, 2) == null
+    }
+
+    def "confirms entry when directory of file was watched before state of file was read"() {
+        def watcher = Mock(FileWatcher)
+        def cache = new InMemoryFileHashCache(3, watcher)
+        _ * watcher.watch(dir) >> true
+
+        when:
+        cache.put(file1, info(), cache.mark())
+
+        then:
+        cache.getConfirmed(file1, "ALGORITHM") == null
+
+        when:
+        cache.put(file1, info(), cache.mark())
+
+        then:
+        cache.getConfirmed(file1, "ALGORITHM") != null
+        cache.getConfirmed(file1, "OTHER") == null
+        cache.getConfirmed(other, "ALGORITHM") == null
+    }
+
+    def "does not confirm entry when directory of file cannot be watched"() {
+        def watcher = Mock(FileWatcher)
+        def cache = new InMemoryFileHashCache(3, watcher)
+        _ * watcher.watch(dir) >> false
+
+        when:
+        cache.put(file1, info(), cache.mark())
+        cache.put(file1, info(), cache.mark())
+
+        then:
+        cache.getConfirmed(file1, "ALGORITHM") == null
+        cache.getUnchanged(file1, "ALGORITHM", 1, 2) != null
+    }
+
+    def "discards entry and remembers file when watcher reports a change to the file"() {
+        def watcher = Mock(FileWatcher)
+        def cache = new InMemoryFileHashCache(3, watcher)
+        _ * watcher.watch(dir) >> true
+
+        given:
+        cache.put(file1, info(), cache.mark())
+        cache.put(file1, info(), cache.mark())
+
+        when:
+        def confirmed = cache.getConfirmed(file1, "ALGORITHM")
+
+        then:
+        1 * watcher.pollChanges(_) >> { FileWatcher.Listener listener -> listener.entryChanged(file1) }
+        confirmed == null
+        cache.get(file1) == null
+        cache.isChanged(file1)
+
+        when:
+        cache.put(file1, info(), cache.mark())
+
+        then:
+        !cache.isChanged(file1)
+        cache.get(file1) != null
+    }
+
+    def "discards entry when watcher reports a change to the file after its state was read"() {
+        def watcher = Mock(FileWatcher)
+        def cache = new InMemoryFileHashCache(3, watcher)
+        _ * watcher.watch(dir) >> true
+
+        given:
+        cache.put(file1, info(), cache.mark())
+        def mark = cache.mark()
+
+        when:
+        cache.put(file1, info(), mark)
+
+        then:
+        1 * watcher.pollChanges(_) >> { FileWatcher.Listener listener -> listener.entryChanged(file1) }
+        cache.get(file1) == null
+        cache.isChanged(file1)
+    }
+
+    def "checks entries for files in directory when watcher may have missed changes to directory"() {
+        def watcher = Mock(FileWatcher)
+        def cache = new InMemoryFileHashCache(3, watcher)
+        _ * watcher.watch(_) >> true
+
+        given:
+        [file1, other].each { file ->
+            cache.put(file, info(), cache.mark())
+            cache.put(file, info(), cache.mark())
+        }
+
+        when:
+        def confirmed1 = cache.getConfirmed(file1, "ALGORITHM")
+        def confirmed2 = cache.getConfirmed(other, "ALGORITHM")
+
+        then:
+        1 * watcher.pollChanges(_) >> { FileWatcher.Listener listener -> listener.directoryChanged(dir) }
+        confirmed1 == null
+        confirmed2 != null
+        cache.getUnchanged(file1, "ALGORITHM", 1, 2) != null
+        !cache.isChanged(file1)
+
+        when:
+        cache.put(file1, info(), cache.mark())
+
+        then:
+        1 * watcher.watch(dir) >> true
+        cache.getConfirmed(file1, "ALGORITHM") == null
+    }
+
+    def "stops watching directory once there are no entries for the files in it"() {
+        def watcher = Mock(FileWatcher)
+        def cache = new InMemoryFileHashCache(3, watcher)
+        def file3 = new File(dir, "file3")
+
+        when:
+        cache.put(file1, info(), cache.mark())
+        cache.put(file3, info(), cache.mark())
+
+        then:
+        1 * watcher.watch(dir) >> true
+
+        when:
+        cache.invalidate(new SimpleFileCollection(file1))
+
+        then:
+        0 * watcher.unwatch(_)
+
+        when:
+        cache.invalidate(new SimpleFileCollection(file3))
+
+        then:
+        1 * watcher.unwatch(dir)
+    }
+
+    def "stops watching directory when its last entry is discarded because the cache is full"() {
+        def watcher = Mock(FileWatcher)
+        def cache = new InMemoryFileHashCache(1, watcher)
+        _ * watcher.watch(_) >> true
+
+        given:
+        cache.put(file1, info(), cache.mark())
+
+        when:
+        cache.put(other, info(), cache.mark())
+
+        then:
+        1 * watcher.unwatch(dir)
+        cache.get(file1) == null
+    }
+
+    def "keeps watching directories and checks entries when everything is invalidated"() {
+        def watcher = Mock(FileWatcher)
+        def cache = new InMemoryFileHashCache(3, watcher)
+        _ * watcher.watch(dir) >> true
+
+        given:
+        cache.put(file1, info(), cache.mark())
+        cache.put(file1, info(), cache.mark())
+
+        when:
+        cache.invalidateAll()
+
+        then:
+        0 * watcher.unwatch(_)
+        cache.getConfirmed(file1, "ALGORITHM") == null
+        cache.getUnchanged(file1, "ALGORITHM", 1, 2) != null
+    }
+
+    def "stops watcher"() {
+        def watcher = Mock(FileWatcher)
+        def cache = new InMemoryFileHashCache(3, watcher)
+
+        when:
+        cache.stop()
+
+        then:
+        1 * watcher.stop()
+    }
+
+    def info() {
+        return new CachingHasher.FileInfo("ALGORITHM", new byte[0], 1, 2)
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection
+
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.hash.HashValue
+import org.junit.Rule
+import spock.lang.Specification
+
+class LocalDirectoryTaskOutputCacheTest extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+    final HashValue key1 = new HashValue("1234")
+    final HashValue key2 = new HashValue("5678")
+    final HashValue key3 = new HashValue("9abc")
+
+    def "loads entry which has been stored"() {
+        def cache = new LocalDirectoryTaskOutputCache(tmpDir.file("cache"), 1024)
+        def content = null
+
+        when:
+        cache.store(key1, writer("content"))
+
+        then:
+        cache.load(key1, { content = it.text } as TaskOutputCache.Reader)
+        content == "content"
+    }
+
+    def "does not load entry which has not been stored"() {
+        def cache = new LocalDirectoryTaskOutputCache(tmpDir.file("cache"), 1024)
+        TaskOutputCache.Reader reader = Mock()
+
+        when:
+        cache.store(key1, writer("content"))
+
+        then:
+        !cache.load(key2, reader)
+        0 * reader._
+    }
+
+    def "replaces entry with the same key"() {
+        def cache = new LocalDirectoryTaskOutputCache(tmpDir.file("cache"), 1024)
+        def content = null
+
+        when:
+        cache.store(key1, writer("content"))
+        cache.store(key1, writer("new content"))
+
+        then:
+        cache.load(key1, { content = it.text } as TaskOutputCache.Reader)
+        content == "new content"
+        tmpDir.file("cache").listFiles().length == 1
+    }
+
+    def "discards least recently used entries when the maximum size is exceeded"() {
+        def cache = new LocalDirectoryTaskOutputCache(tmpDir.file("cache"), 100)
+        def content = "x" * 40
+
+        given:
+        cache.store(key1, writer(content))
+        cache.store(key2, writer(content))
+        def entries = tmpDir.file("cache").listFiles()
+        entries.each { it.lastModified = System.currentTimeMillis() - 100000 }
+        cache.load(key1, { it.text } as TaskOutputCache.Reader)
+
+        when:
+        cache.store(key3, writer(content))
+
+        then:
+        cache.load(key1, { it.text } as TaskOutputCache.Reader)
+        !cache.load(key2, { it.text } as TaskOutputCache.Reader)
+        cache.load(key3, { it.text } as TaskOutputCache.Reader)
+    }
+
+    def "does not keep partially written entry when writer fails"() {
+        def cache = new LocalDirectoryTaskOutputCache(tmpDir.file("cache"), 1024)
+        def failure = new IOException("broken")
+
+        when:
+        cache.store(key1, { throw failure } as TaskOutputCache.Writer)
+
+        then:
+        IOException e = thrown()
+        e == failure
+        tmpDir.file("cache").listFiles().length == 0
+    }
+
+    def writer(String content) {
+        return { OutputStream outputStream -> outputStream.write(content.bytes) } as TaskOutputCache.Writer
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection
+
+import org.gradle.api.UncheckedIOException
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.hash.MurmurHash3
+import org.junit.Rule
+import spock.lang.Specification
+
+class Murmur3HasherTest extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+    final Murmur3Hasher hasher = new Murmur3Hasher()
+
+    def "hashes content of file"() {
+        def content = new byte[size]
+        new Random(size).nextBytes(content)
+        def file = tmpDir.file("file")
+        file.bytes = content
+        def expected = new MurmurHash3()
+        expected.update(content, 0, content.length)
+
+        expect:
+        hasher.hash(file) == expected.digest().asByteArray()
+
+        where:
+        size << [0, 10, 256 * 1024, 256 * 1024 + 17, 1024 * 1024]
+    }
+
+    def "hashes files with different content differently"() {
+        def file1 = tmpDir.createFile("file1").write("content")
+        def file2 = tmpDir.createFile("file2").write("other")
+
+        expect:
+        hasher.hash(file1) != hasher.hash(file2)
+        hasher.hash(file1) == hasher.hash(file1)
+    }
+
+    def "fails when file does not exist"() {
+        when:
+        hasher.hash(tmpDir.file("missing"))
+
+        then:
+        thrown(UncheckedIOException)
+    }
+}
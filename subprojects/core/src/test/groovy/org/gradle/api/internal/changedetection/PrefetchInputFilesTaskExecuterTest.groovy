@@ -0,0 +1,192 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection
+
+import org.gradle.api.execution.TaskExecutionGraph
+import org.gradle.api.file.FileCollection
+import org.gradle.api.file.FileTree
+import org.gradle.api.internal.GradleInternal
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.api.internal.tasks.TaskExecuter
+import org.gradle.api.internal.tasks.TaskStateInternal
+import org.gradle.api.specs.Spec
+import org.gradle.api.tasks.TaskDependency
+import org.gradle.api.tasks.TaskInputs
+import spock.lang.Specification
+
+class PrefetchInputFilesTaskExecuterTest extends Specification {
+    final TaskExecuter target = Mock()
+    final CachingHasher cachingHasher = Mock()
+    final PrefetchingHasher prefetchingHasher = Mock()
+    final TaskStateInternal state = Mock()
+    final TaskExecutionGraph graph = Mock()
+    final Map<TaskInternal, Set<TaskInternal>> taskDependencies = [:]
+    ProjectInternal project
+    ProjectInternal otherProject
+    final PrefetchInputFilesTaskExecuter executer = new PrefetchInputFilesTaskExecuter(target, cachingHasher, prefetchingHasher)
+
+    def setup() {
+        project = project()
+        otherProject = project()
+    }
+
+    def "walks input files of the next tasks from the same project in the background and then executes task"() {
+        def a = task(project)
+        def b = task(otherProject, new File("ignored"))
+        def c = task(project, new File("c"))
+        def d = task(project, new File("d"))
+        def e = task(project, new File("ignored"))
+        _ * graph.allTasks >> [a, b, c, d, e]
+
+        when:
+        executer.execute(a, state)
+
+        then:
+        1 * prefetchingHasher.prefetch({ it as List == [new File("c")] }, !null)
+        1 * prefetchingHasher.prefetch({ it as List == [new File("d")] }, !null)
+        0 * prefetchingHasher._
+        0 * cachingHasher._
+
+        then:
+        1 * target.execute(a, state)
+    }
+
+    def "selects input files whose hash is not cached"() {
+        def cached = new File("cached")
+        def stale = new File("stale")
+        def a = task(project)
+        def b = task(project, cached, stale)
+        _ * graph.allTasks >> [a, b]
+        Spec<File> filter = null
+
+        when:
+        executer.execute(a, state)
+
+        then:
+        1 * prefetchingHasher.prefetch(_, _) >> { files, spec -> filter = spec; return null }
+
+        when:
+        def cachedSelected = filter.isSatisfiedBy(cached)
+        def staleSelected = filter.isSatisfiedBy(stale)
+
+        then:
+        !cachedSelected
+        staleSelected
+        1 * cachingHasher.isCached(cached) >> true
+        1 * cachingHasher.isCached(stale) >> false
+    }
+
+    def "does not prefetch input files of tasks whose dependencies have not executed"() {
+        def a = task(project)
+        def b = task(project, new File("b"))
+        def c = task(project, new File("c"))
+        def d = task(project, new File("d"))
+        dependsOn(c, a)
+        dependsOn(d, b)
+        b.state.executed >> true
+        _ * graph.allTasks >> [a, b, c, d]
+
+        when:
+        executer.execute(a, state)
+
+        then:
+        1 * prefetchingHasher.prefetch({ it as List == [new File("d")] }, _)
+        0 * prefetchingHasher._
+    }
+
+    def "prefetches input files of each task once only"() {
+        def a = task(project)
+        def b = task(project, new File("b"))
+        def c = task(project, new File("c"))
+        _ * graph.allTasks >> [a, b, c]
+
+        when:
+        executer.execute(a, state)
+        executer.execute(b, state)
+
+        then:
+        1 * prefetchingHasher.prefetch({ it as List == [new File("b")] }, _)
+        1 * prefetchingHasher.prefetch({ it as List == [new File("c")] }, _)
+        0 * prefetchingHasher._
+    }
+
+    def "cancels walk of input files when task starts to execute"() {
+        PrefetchingHasher.Walk walk = Mock()
+        def a = task(project)
+        def b = task(project, new File("b"))
+        _ * graph.allTasks >> [a, b]
+
+        when:
+        executer.execute(a, state)
+
+        then:
+        1 * prefetchingHasher.prefetch(_, _) >> walk
+
+        when:
+        executer.execute(b, state)
+
+        then:
+        1 * walk.cancel()
+
+        then:
+        1 * target.execute(b, state)
+    }
+
+    def "executes task when prefetching fails"() {
+        def a = task(project)
+        def b = task(project, new File("file"))
+        _ * graph.allTasks >> [a, b]
+
+        when:
+        executer.execute(a, state)
+
+        then:
+        1 * prefetchingHasher.prefetch(_, _) >> { throw new RuntimeException("broken") }
+        1 * target.execute(a, state)
+    }
+
+    private ProjectInternal project() {
+        ProjectInternal project = Mock()
+        GradleInternal gradle = Mock()
+        _ * project.gradle >> gradle
+        _ * gradle.taskGraph >> graph
+        return project
+    }
+
+    private TaskInternal task(ProjectInternal project, File... inputFiles) {
+        TaskInternal task = Mock()
+        TaskStateInternal state = Mock()
+        TaskInputs inputs = Mock()
+        FileCollection files = Mock()
+        FileTree tree = Mock()
+        TaskDependency dependencies = Mock()
+        _ * task.project >> project
+        _ * task.state >> state
+        _ * task.taskDependencies >> dependencies
+        _ * dependencies.getDependencies(task) >> { taskDependencies[task] ?: ([] as Set) }
+        _ * task.inputs >> inputs
+        _ * inputs.files >> files
+        _ * files.asFileTree >> tree
+        _ * tree.iterator() >> { (inputFiles as List).iterator() }
+        return task
+    }
+
+    private void dependsOn(TaskInternal task, TaskInternal dependency) {
+        taskDependencies[task] = [dependency] as Set
+    }
+}
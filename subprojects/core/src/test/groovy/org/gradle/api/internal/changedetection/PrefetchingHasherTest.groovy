@@ -0,0 +1,277 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection
+
+import org.gradle.api.specs.Spec
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.StoppableExecutor
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.TestFile
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicInteger
+
+class PrefetchingHasherTest extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+    final Hasher delegate = Mock()
+    final ExecutorFactory executorFactory = Mock()
+    final StoppableExecutor executor = Mock()
+    final PrefetchingHasher hasher = new PrefetchingHasher(delegate, executorFactory, 2)
+    final byte[] hash = "hash".bytes
+    final byte[] otherHash = "other".bytes
+
+    def setup() {
+        _ * executorFactory.create(_) >> executor
+        _ * executor.execute(_) >> { Runnable action -> action.run() }
+    }
+
+    def "uses hash calculated in the background when file has not changed"() {
+        def file = oldFile("file")
+
+        when:
+        hasher.prefetch([file])
+
+        then:
+        1 * delegate.hash(file) >> hash
+
+        when:
+        def result = hasher.hash(file)
+
+        then:
+        result == hash
+        0 * delegate._
+    }
+
+    def "hashes file again when its timestamp has changed since it was hashed in the background"() {
+        def file = oldFile("file")
+
+        given:
+        _ * delegate.hash(file) >>> [hash, otherHash]
+        hasher.prefetch([file])
+
+        when:
+        file.lastModified = file.lastModified() + 4000
+
+        then:
+        hasher.hash(file) == otherHash
+    }
+
+    def "hashes file again when its length has changed since it was hashed in the background"() {
+        def file = oldFile("file")
+
+        given:
+        _ * delegate.hash(file) >>> [hash, otherHash]
+        hasher.prefetch([file])
+
+        when:
+        def timestamp = file.lastModified()
+        file.text = "longer content"
+        file.lastModified = timestamp
+
+        then:
+        hasher.hash(file) == otherHash
+    }
+
+    def "does not hash recently modified files in the background"() {
+        def file = tmpDir.createFile("file").write("content")
+
+        when:
+        hasher.prefetch([file])
+
+        then:
+        0 * delegate._
+
+        when:
+        def result = hasher.hash(file)
+
+        then:
+        1 * delegate.hash(file) >> hash
+        result == hash
+    }
+
+    def "uses background hash at most once"() {
+        def file = oldFile("file")
+
+        given:
+        _ * delegate.hash(file) >>> [hash, otherHash]
+        hasher.prefetch([file])
+
+        expect:
+        hasher.hash(file) == hash
+        hasher.hash(file) == otherHash
+    }
+
+    def "discards unused background hashes to make room for new prefetches"() {
+        def file = oldFile("file")
+        def other = oldFile("other")
+        def hasher = new PrefetchingHasher(delegate, executorFactory, 2, 1)
+
+        when:
+        hasher.prefetch([file])
+        hasher.prefetch([other])
+
+        then:
+        1 * delegate.hash(file) >> hash
+        1 * delegate.hash(other) >> otherHash
+
+        when:
+        def result = hasher.hash(other)
+
+        then:
+        result == otherHash
+        0 * delegate._
+    }
+
+    def "hashes file directly when it has not been prefetched"() {
+        def file = oldFile("file")
+
+        when:
+        def result = hasher.hash(file)
+
+        then:
+        1 * delegate.hash(file) >> hash
+        result == hash
+    }
+
+    def "waits for hash which is being calculated by another thread"() {
+        def file = oldFile("file")
+        def started = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def hashed = new AtomicInteger()
+        def hasher = new PrefetchingHasher([
+                hash: { File f -> hashed.incrementAndGet(); started.countDown(); release.await(); return hash },
+                getAlgorithm: { "test" }
+        ] as Hasher, executorFactory, 2)
+
+        when:
+        def results = Collections.synchronizedList([])
+        def first = Thread.start { results << hasher.hash(file) }
+        started.await()
+        def second = Thread.start { results << hasher.hash(file) }
+        while (second.state != Thread.State.WAITING) {
+            Thread.sleep(10)
+        }
+        release.countDown()
+        first.join()
+        second.join()
+
+        then:
+        hashed.get() == 1
+        results == [hash, hash]
+    }
+
+    def "ignores prefetch requests once stopped"() {
+        def file = oldFile("file")
+
+        when:
+        hasher.stop()
+        hasher.prefetch([file])
+
+        then:
+        0 * delegate._
+        0 * executorFactory._
+    }
+
+    def "walks files in the background and hashes those accepted by the filter"() {
+        def accepted = oldFile("accepted")
+        def rejected = oldFile("rejected")
+        Spec<File> filter = Mock()
+
+        when:
+        hasher.prefetch([accepted, rejected], filter)
+
+        then:
+        1 * filter.isSatisfiedBy(accepted) >> true
+        1 * filter.isSatisfiedBy(rejected) >> false
+        1 * delegate.hash(accepted) >> hash
+        0 * delegate._
+
+        when:
+        def result = hasher.hash(accepted)
+
+        then:
+        result == hash
+        0 * delegate._
+    }
+
+    def "stops walking files when walk is cancelled"() {
+        def file = oldFile("file")
+        def other = oldFile("other")
+        Spec<File> filter = Mock()
+        PrefetchingHasher.Walk walk = null
+        Runnable background = null
+
+        when:
+        walk = hasher.prefetch([file, other], filter)
+
+        then:
+        1 * executor.execute(_) >> { Runnable action -> background = action }
+
+        when:
+        walk.cancel()
+        background.run()
+
+        then:
+        0 * filter._
+        0 * delegate._
+    }
+
+    def "ignores files which cannot be walked"() {
+        def file = oldFile("file")
+        Spec<File> filter = Mock()
+
+        when:
+        hasher.prefetch([file], filter)
+
+        then:
+        1 * filter.isSatisfiedBy(file) >> { throw new RuntimeException("broken") }
+        0 * delegate._
+        notThrown(RuntimeException)
+    }
+
+    def "ignores walk requests once stopped"() {
+        Spec<File> filter = Mock()
+
+        when:
+        hasher.stop()
+        hasher.prefetch([oldFile("file")], filter)
+
+        then:
+        0 * filter._
+        0 * executorFactory._
+    }
+
+    def "stops executor"() {
+        given:
+        _ * delegate.hash(_) >> hash
+        hasher.prefetch([oldFile("file")])
+
+        when:
+        hasher.stop()
+
+        then:
+        1 * executor.stop()
+    }
+
+    private TestFile oldFile(String name) {
+        TestFile file = tmpDir.createFile(name).write("content")
+        file.lastModified = System.currentTimeMillis() - 10000
+        return file
+    }
+}
@@ -21,6 +21,7 @@ import org.gradle.api.internal.TaskExecutionHistory;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.TaskOutputsInternal;
 import org.gradle.api.specs.Spec;
+import org.gradle.util.hash.HashValue;
 import org.jmock.Expectations;
 import org.jmock.integration.junit4.JMock;
 import org.jmock.integration.junit4.JUnit4Mockery;
@@ -38,6 +39,7 @@ public class ShortCircuitTaskArtifactStateRepositoryTest {
     private final TaskArtifactState taskArtifactState = context.mock(TaskArtifactState.class);
     private final TaskOutputsInternal taskOutputsInternal = context.mock(TaskOutputsInternal.class);
     private final Spec<Task> upToDateSpec = context.mock(Spec.class);
+    private final Spec<Task> cacheSpec = context.mock(Spec.class, "cacheSpec");
     private final ShortCircuitTaskArtifactStateRepository repository = new ShortCircuitTaskArtifactStateRepository(startParameter, delegate);
 
     @Test
@@ -47,6 +49,7 @@ public class ShortCircuitTaskArtifactStateRepositoryTest {
         assertNotNull(state);
 
         assertFalse(state.isUpToDate());
+        assertNull(state.getCacheKey());
         state.beforeTask();
         state.afterTask();
         state.finished();
@@ -54,7 +57,7 @@ public class ShortCircuitTaskArtifactStateRepositoryTest {
     
     @Test
     public void delegatesToBackingRepositoryToCreateStateObjectForTaskThatHasDeclaredSomeOutputs() {
-        TaskInternal task = taskWithOutputs();
+        final TaskInternal task = taskWithOutputs();
         expectTaskStateCreated(task);
 
         TaskArtifactState state = repository.getStateFor(task);
@@ -65,6 +68,8 @@ public class ShortCircuitTaskArtifactStateRepositoryTest {
         context.checking(new Expectations() {{
             one(taskArtifactState).getExecutionHistory();
             will(returnValue(executionHistory));
+            one(upToDateSpec).isSatisfiedBy(task);
+            will(returnValue(true));
             one(taskArtifactState).beforeTask();
             one(taskArtifactState).afterTask();
             one(taskArtifactState).finished();
@@ -130,6 +135,67 @@ public class ShortCircuitTaskArtifactStateRepositoryTest {
         assertTrue(state.isUpToDate());
     }
 
+    @Test
+    public void reportsAllInputFilesAsOutOfDateWhenStartParameterOverrideRerunTasksIsSet() {
+        TaskInternal task = taskWithOutputs();
+        expectTaskStateCreated(task);
+
+        TaskArtifactState state = repository.getStateFor(task);
+
+        final TaskExecutionHistory executionHistory = context.mock(TaskExecutionHistory.class);
+        context.checking(new Expectations() {{
+            one(taskArtifactState).getExecutionHistory();
+            will(returnValue(executionHistory));
+        }});
+
+        startParameter.setRerunTasks(true);
+        assertFalse(state.getExecutionHistory().getInputChanges().isIncremental());
+    }
+
+    @Test
+    public void taskHasNoCacheKeyWhenCacheSpecIsFalse() {
+        final TaskInternal task = taskWithOutputs();
+        expectTaskStateCreated(task);
+
+        TaskArtifactState state = repository.getStateFor(task);
+
+        context.checking(new Expectations() {{
+            one(cacheSpec).isSatisfiedBy(task);
+            will(returnValue(false));
+        }});
+
+        assertNull(state.getCacheKey());
+    }
+
+    @Test
+    public void taskHasNoCacheKeyWhenStartParameterOverrideRerunTasksIsSet() {
+        TaskInternal task = taskWithOutputs();
+        expectTaskStateCreated(task);
+
+        TaskArtifactState state = repository.getStateFor(task);
+
+        startParameter.setRerunTasks(true);
+        assertNull(state.getCacheKey());
+    }
+
+    @Test
+    public void determinesCacheKeyUsingBackingRepository() {
+        final TaskInternal task = taskWithOutputs();
+        expectTaskStateCreated(task);
+        final HashValue cacheKey = new HashValue("1234");
+
+        TaskArtifactState state = repository.getStateFor(task);
+
+        context.checking(new Expectations() {{
+            one(cacheSpec).isSatisfiedBy(task);
+            will(returnValue(true));
+            one(taskArtifactState).getCacheKey();
+            will(returnValue(cacheKey));
+        }});
+
+        assertThat(state.getCacheKey(), sameInstance(cacheKey));
+    }
+
     private void expectTaskStateCreated(final TaskInternal task) {
         context.checking(new Expectations() {{
             one(delegate).getStateFor(task);
@@ -146,6 +212,8 @@ public class ShortCircuitTaskArtifactStateRepositoryTest {
             will(returnValue(true));
             allowing(taskOutputsInternal).getUpToDateSpec();
             will(returnValue(upToDateSpec));
+            allowing(taskOutputsInternal).getCacheSpec();
+            will(returnValue(cacheSpec));
         }});
 
         return task;
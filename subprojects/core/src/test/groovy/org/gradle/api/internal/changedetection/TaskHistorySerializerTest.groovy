@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection
+
+import org.gradle.cache.DefaultSerializer
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class TaskHistorySerializerTest extends Specification {
+    final TaskHistorySerializer serializer = new TaskHistorySerializer()
+
+    def "can write and read task history"() {
+        given:
+        def history = new CacheBackedTaskHistoryRepository.TaskHistory()
+        history.configurations << execution("org.gradle.SomeTask", 12L, 13L, ["out/a", "out/b"], [prop: "value"])
+        history.configurations << execution("org.gradle.SomeTask", null, null, ["out/a"], [:])
+        history.configurations << execution(null, null, null, null, null)
+
+        when:
+        def copy = copy(history)
+
+        then:
+        copy.configurations.size() == 3
+        copy.configurations[0].taskClass == "org.gradle.SomeTask"
+        copy.configurations[0].inputFilesSnapshotId == 12L
+        copy.configurations[0].outputFilesSnapshotId == 13L
+        copy.configurations[0].outputFiles == ["out/a", "out/b"] as Set
+        copy.configurations[0].inputProperties == [prop: "value"]
+        copy.configurations[1].inputFilesSnapshotId == null
+        copy.configurations[1].outputFiles == ["out/a"] as Set
+        copy.configurations[1].inputProperties == [:]
+        copy.configurations[2].taskClass == null
+        copy.configurations[2].outputFiles == null
+        copy.configurations[2].inputProperties == null
+    }
+
+    def "strings are shared by the executions which are read"() {
+        given:
+        def history = new CacheBackedTaskHistoryRepository.TaskHistory()
+        history.configurations << execution("org.gradle.SomeTask", null, null, ["out/a"], [:])
+        history.configurations << execution("org.gradle.SomeTask", null, null, ["out/a"], [:])
+
+        when:
+        def copy = copy(history)
+
+        then:
+        copy.configurations[0].taskClass.is(copy.configurations[1].taskClass)
+        copy.configurations[0].outputFiles.iterator().next().is(copy.configurations[1].outputFiles.iterator().next())
+    }
+
+    def "can write and read input property values"() {
+        given:
+        def history = new CacheBackedTaskHistoryRepository.TaskHistory()
+        history.configurations << execution("org.gradle.SomeTask", null, null, [], [prop: value])
+
+        when:
+        def copy = copy(history)
+
+        then:
+        copy.configurations[0].inputProperties.prop == value
+
+        where:
+        value << [null, "value", "x" * 100000, true, 12, 12L, new File("file"), ["a", 1, null], ["a", "b"] as LinkedHashSet, [a: [1, 2]],
+                TimeUnit.SECONDS, 1.5d, [TimeUnit.SECONDS], new TreeSet(["a", "b"])]
+    }
+
+    def "can read task history written using java serialization by earlier versions"() {
+        given:
+        def history = new CacheBackedTaskHistoryRepository.TaskHistory()
+        history.configurations << execution("org.gradle.SomeTask", 12L, null, ["out/a"], [prop: "value"])
+        def outstr = new ByteArrayOutputStream()
+        new DefaultSerializer<Object>().write(outstr, history)
+
+        when:
+        def copy = serializer.read(new ByteArrayInputStream(outstr.toByteArray()))
+
+        then:
+        copy.configurations.size() == 1
+        copy.configurations[0].taskClass == "org.gradle.SomeTask"
+        copy.configurations[0].inputFilesSnapshotId == 12L
+        copy.configurations[0].outputFiles == ["out/a"] as Set
+        copy.configurations[0].inputProperties == [prop: "value"]
+    }
+
+    def "history of many executions is much smaller than when using java serialization"() {
+        given:
+        def history = new CacheBackedTaskHistoryRepository.TaskHistory()
+        3.times {
+            def outputFiles = (0..<20).collect { "/some/project/build/output${it}".toString() }
+            history.configurations << execution("org.gradle.api.tasks.compile.JavaCompile", 12L, 13L, outputFiles,
+                    [sourceCompatibility: "1.5", targetCompatibility: "1.5", debug: true, classpath: [new File("/some/lib.jar")] as LinkedHashSet])
+        }
+        def javaSerialized = new ByteArrayOutputStream()
+        new DefaultSerializer<Object>().write(javaSerialized, history)
+
+        when:
+        def outstr = new ByteArrayOutputStream()
+        serializer.write(outstr, history)
+
+        then:
+        outstr.size() * 3 < javaSerialized.size()
+    }
+
+    def copy(CacheBackedTaskHistoryRepository.TaskHistory history) {
+        def outstr = new ByteArrayOutputStream()
+        serializer.write(outstr, history)
+        return serializer.read(new ByteArrayInputStream(outstr.toByteArray()))
+    }
+
+    def execution(String taskClass, Long inputFilesSnapshotId, Long outputFilesSnapshotId, List<String> outputFiles, Map<String, Object> inputProperties) {
+        def execution = new CacheBackedTaskHistoryRepository.LazyTaskExecution()
+        execution.taskClass = taskClass
+        execution.inputFilesSnapshotId = inputFilesSnapshotId
+        execution.outputFilesSnapshotId = outputFilesSnapshotId
+        execution.outputFiles = outputFiles == null ? null : new HashSet<String>(outputFiles)
+        execution.inputProperties = inputProperties == null ? null : new HashMap<String, Object>(inputProperties)
+        return execution
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection
+
+import org.gradle.util.TemporaryFolder
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class TaskOutputPackerTest extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+
+    def "unpacks output files and directories into the location of the outputs"() {
+        def outputFile = tmpDir.file("build/output.txt")
+        def outputDir = tmpDir.file("build/classes")
+        def emptyDir = tmpDir.file("build/empty")
+        def missingFile = tmpDir.file("build/missing.txt")
+        outputFile.text = "output"
+        outputDir.file("a/b.class").text = "b"
+        outputDir.file("c.class").text = "c"
+        emptyDir.createDir()
+
+        def bytes = new ByteArrayOutputStream()
+        new TaskOutputPacker([outputFile, outputDir, emptyDir, missingFile]).writeTo(bytes)
+
+        def target = tmpDir.file("other")
+        def targetFile = target.file("output.txt")
+        def targetDir = target.file("classes")
+        def targetEmptyDir = target.file("empty")
+        def targetMissingFile = target.file("missing.txt")
+        targetDir.file("stale.class").text = "stale"
+        targetMissingFile.text = "stale"
+
+        when:
+        new TaskOutputPacker([targetMissingFile, targetEmptyDir, targetDir, targetFile]).readFrom(new ByteArrayInputStream(bytes.toByteArray()))
+
+        then:
+        targetFile.text == "output"
+        targetDir.assertHasDescendants("a/b.class", "c.class")
+        targetDir.file("a/b.class").text == "b"
+        targetEmptyDir.assertIsEmptyDir()
+        targetMissingFile.assertDoesNotExist()
+    }
+
+    def "rejects entries outside of the output locations"() {
+        def outputDir = tmpDir.file("build/classes")
+        def bytes = new ByteArrayOutputStream()
+        def zip = new ZipOutputStream(bytes)
+        zip.putNextEntry(new ZipEntry(entryName))
+        zip.write("broken".bytes)
+        zip.finish()
+
+        when:
+        new TaskOutputPacker([outputDir]).readFrom(new ByteArrayInputStream(bytes.toByteArray()))
+
+        then:
+        IOException e = thrown()
+        e.message == "Unexpected entry '${entryName}' found in packed task outputs."
+        tmpDir.file("build/evil").assertDoesNotExist()
+
+        where:
+        entryName << ["0/../evil", "1/file", "unknown"]
+    }
+}
@@ -17,10 +17,12 @@
 package org.gradle.api.internal.project;
 
 import org.gradle.api.internal.*;
+import org.gradle.api.internal.changedetection.InMemoryFileHashCache;
 import org.gradle.api.internal.classpath.DefaultModuleRegistry;
 import org.gradle.api.internal.classpath.DefaultPluginModuleRegistry;
 import org.gradle.api.internal.classpath.ModuleRegistry;
 import org.gradle.api.internal.classpath.PluginModuleRegistry;
+import org.gradle.cache.internal.BlockCacheStatisticsRegistry;
 import org.gradle.cache.internal.CacheFactory;
 import org.gradle.cache.internal.DefaultCacheFactory;
 import org.gradle.cache.internal.DefaultFileLockManager;
@@ -60,6 +62,11 @@ public class GlobalServicesRegistryTest {
         assertThat(registry.getFactory(CacheFactory.class), instanceOf(DefaultCacheFactory.class));
     }
 
+    @Test
+    public void providesABlockCacheStatisticsRegistry() {
+        assertThat(registry.get(BlockCacheStatisticsRegistry.class), instanceOf(BlockCacheStatisticsRegistry.class));
+    }
+
     @Test
     public void providesAModuleRegistry() {
         assertThat(registry.get(ModuleRegistry.class), instanceOf(DefaultModuleRegistry.class));
@@ -125,6 +132,11 @@ public class GlobalServicesRegistryTest {
         assertThat(registry.get(FileLockManager.class), instanceOf(DefaultFileLockManager.class));
     }
 
+    @Test
+    public void providesAnInMemoryFileHashCache() {
+        assertThat(registry.get(InMemoryFileHashCache.class), instanceOf(InMemoryFileHashCache.class));
+    }
+
     @Test
     public void providesAProcessEnvironment() {
         assertThat(registry.get(ProcessEnvironment.class), notNullValue());
@@ -25,6 +25,8 @@ import org.gradle.api.invocation.Gradle
 import org.gradle.cache.DirectoryCacheBuilder
 import org.gradle.cache.PersistentCache
 import org.gradle.internal.service.ServiceRegistry
+import org.gradle.api.internal.changedetection.InMemoryFileHashCache
+import org.gradle.internal.nativeplatform.filesystem.FileMetadataAccessor
 
 class TaskExecutionServicesTest extends Specification {
     final ServiceRegistry parent = Mock()
@@ -41,6 +43,8 @@ class TaskExecutionServicesTest extends Specification {
         _ * parent.get(ListenerManager) >> listenerManager
         _ * parent.get(StartParameter) >> startParameter
         _ * parent.get(CacheRepository) >> cacheRepository
+        _ * parent.get(InMemoryFileHashCache) >> new InMemoryFileHashCache(10)
+        _ * parent.get(FileMetadataAccessor) >> Mock(FileMetadataAccessor)
         _ * cacheRepository.cache(!null) >> cacheBuilder
         _ * cacheBuilder.forObject(gradle) >> cacheBuilder
         _ * cacheBuilder.withDisplayName(!null) >> cacheBuilder
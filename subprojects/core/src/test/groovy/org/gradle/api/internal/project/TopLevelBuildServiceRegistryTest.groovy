@@ -21,6 +21,7 @@ import org.gradle.api.internal.classpath.DefaultModuleRegistry
 import org.gradle.api.internal.classpath.ModuleRegistry
 import org.gradle.api.internal.classpath.PluginModuleRegistry
 import org.gradle.cache.CacheRepository
+import org.gradle.cache.internal.BlockCacheStatisticsRegistry
 import org.gradle.cache.internal.CacheFactory
 import org.gradle.cache.internal.DefaultCacheRepository
 import org.gradle.configuration.BuildConfigurer
@@ -225,6 +226,7 @@ public class TopLevelBuildServiceRegistryTest extends Specification {
     def providesAProfileEventAdapter() {
         setup:
         expectParentServiceLocated(BuildRequestMetaData)
+        parent.get(BlockCacheStatisticsRegistry) >> new BlockCacheStatisticsRegistry()
         expectListenerManagerCreated()
 
         expect:
@@ -24,6 +24,7 @@ import org.gradle.api.internal.AbstractTask;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.project.DefaultProject;
 import org.gradle.api.tasks.*;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 import org.gradle.util.*;
 import org.jmock.Expectations;
 import org.jmock.integration.junit4.JMock;
@@ -154,6 +155,16 @@ public class AnnotationProcessingTaskFactoryTest {
                 "Cannot use @TaskAction annotation on method TaskWithParamMethod.doStuff() as this method takes parameters.");
     }
 
+    @Test
+    public void passesInputChangesToMethodWithIncrementalTaskInputsParameter() {
+        TaskWithIncrementalAction task = expectTaskCreated(TaskWithIncrementalAction.class);
+
+        task.getActions().get(0).execute(task);
+
+        assertThat(task.inputChanges, notNullValue());
+        assertFalse(task.inputChanges.isIncremental());
+    }
+
     private void assertTaskCreationFails(Class<? extends Task> type, String message) {
         try {
             expectTaskCreated(type);
@@ -734,6 +745,15 @@ public class AnnotationProcessingTaskFactoryTest {
         }
     }
 
+    public static class TaskWithIncrementalAction extends DefaultTask {
+        IncrementalTaskInputs inputChanges;
+
+        @TaskAction
+        public void doStuff(IncrementalTaskInputs inputChanges) {
+            this.inputChanges = inputChanges;
+        }
+    }
+
     public static class TaskWithInputFile extends DefaultTask {
         File inputFile;
 
@@ -19,6 +19,7 @@ import org.gradle.api.file.FileCollection
 import org.gradle.api.internal.TaskExecutionHistory
 import org.gradle.api.internal.TaskInternal
 import org.gradle.api.internal.file.FileResolver
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs
 import spock.lang.Specification
 
 class DefaultTaskOutputsTest extends Specification {
@@ -86,6 +87,27 @@ class DefaultTaskOutputsTest extends Specification {
         outputs.upToDateSpec.isSatisfiedBy(task)
     }
 
+    public void cacheSpecIsNotSatisfiedByDefault() {
+        expect:
+        !outputs.cacheSpec.isSatisfiedBy(task)
+    }
+
+    public void canSpecifyCacheSpecUsingClosure() {
+        boolean cacheable = false
+
+        when:
+        outputs.cacheIf { cacheable }
+
+        then:
+        !outputs.cacheSpec.isSatisfiedBy(task)
+
+        when:
+        cacheable = true
+
+        then:
+        outputs.cacheSpec.isSatisfiedBy(task)
+    }
+
     public void getPreviousFilesDelegatesToTaskHistory() {
         TaskExecutionHistory history = Mock()
         FileCollection outputFiles = Mock()
@@ -101,6 +123,29 @@ class DefaultTaskOutputsTest extends Specification {
         1 * history.outputFiles >> outputFiles
     }
 
+    public void getInputChangesDelegatesToTaskHistory() {
+        TaskExecutionHistory history = Mock()
+        IncrementalTaskInputs inputChanges = Mock()
+
+        setup:
+        outputs.history = history
+
+        when:
+        def changes = outputs.inputChanges
+
+        then:
+        changes == inputChanges
+        1 * history.inputChanges >> inputChanges
+    }
+
+    public void getInputChangesRebuildsEverythingWhenNoTaskHistoryAvailable() {
+        when:
+        def changes = outputs.inputChanges
+
+        then:
+        !changes.incremental
+    }
+
     public void callsTaskStatusNaggerWhenFileMethodCalled() {
         when:
         outputs.file("aFile")
@@ -123,6 +168,25 @@ class DefaultTaskOutputsTest extends Specification {
         0 * taskStatusNagger.nagIfTaskNotInConfigurableState("TaskOutputs.files(Object...)");
     }
 
+    public void recordsChangedFilesUntilHistoryIsReplaced() {
+        def file = new File("file")
+
+        expect:
+        outputs.recordedChanges == null
+
+        when:
+        outputs.recordChangedFile(file)
+
+        then:
+        outputs.recordedChanges == [file] as Set
+
+        when:
+        outputs.history = null
+
+        then:
+        outputs.recordedChanges == null
+    }
+
     public void getPreviousFilesFailsWhenNoTaskHistoryAvailable() {
         when:
         outputs.previousFiles
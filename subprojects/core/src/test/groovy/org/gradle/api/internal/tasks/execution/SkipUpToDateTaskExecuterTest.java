@@ -21,9 +21,12 @@ import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.TaskOutputsInternal;
 import org.gradle.api.internal.changedetection.TaskArtifactState;
 import org.gradle.api.internal.changedetection.TaskArtifactStateRepository;
+import org.gradle.api.internal.changedetection.TaskOutputCache;
+import org.gradle.api.internal.file.collections.SimpleFileCollection;
 import org.gradle.api.internal.tasks.TaskExecuter;
 import org.gradle.api.internal.tasks.TaskStateInternal;
 import org.gradle.util.JUnit4GroovyMockery;
+import org.gradle.util.hash.HashValue;
 import org.jmock.Expectations;
 import org.jmock.Sequence;
 import org.jmock.integration.junit4.JMock;
@@ -32,6 +35,10 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.*;
+
 @RunWith(JMock.class)
 public class SkipUpToDateTaskExecuterTest {
     private final JUnit4Mockery context = new JUnit4GroovyMockery();
@@ -42,7 +49,10 @@ public class SkipUpToDateTaskExecuterTest {
     private final TaskArtifactStateRepository repository = context.mock(TaskArtifactStateRepository.class);
     private final TaskArtifactState taskArtifactState = context.mock(TaskArtifactState.class);
     private final TaskExecutionHistory executionHistory = context.mock(TaskExecutionHistory.class);
+    private final TaskOutputCache outputCache = context.mock(TaskOutputCache.class);
+    private final HashValue cacheKey = new HashValue("1234");
     private final SkipUpToDateTaskExecuter executer = new SkipUpToDateTaskExecuter(delegate, repository);
+    private final SkipUpToDateTaskExecuter cachingExecuter = new SkipUpToDateTaskExecuter(delegate, repository, outputCache);
 
     @Before
     public void setup() {
@@ -50,6 +60,12 @@ public class SkipUpToDateTaskExecuterTest {
         context.checking(new Expectations(){{
             allowing(task).getOutputs();
             will(returnValue(outputs));
+
+            allowing(outputs).getFiles();
+            will(returnValue(new SimpleFileCollection()));
+
+            allowing(outputCache).getDisplayName();
+            will(returnValue("cache"));
         }});
     }
     @Test
@@ -138,4 +154,159 @@ public class SkipUpToDateTaskExecuterTest {
 
         executer.execute(task, taskState);
     }
+
+    @Test
+    public void restoresOutputsFromCacheWhenTaskIsNotUpToDateAndCacheEntryIsAvailable() throws IOException {
+        context.checking(new Expectations() {{
+            Sequence sequence = context.sequence("seq");
+
+            one(repository).getStateFor(task);
+            will(returnValue(taskArtifactState));
+            inSequence(sequence);
+
+            one(taskArtifactState).isUpToDate();
+            will(returnValue(false));
+            inSequence(sequence);
+
+            one(taskArtifactState).getCacheKey();
+            will(returnValue(cacheKey));
+            inSequence(sequence);
+
+            one(taskArtifactState).beforeTask();
+            inSequence(sequence);
+
+            one(outputCache).load(with(equalTo(cacheKey)), with(notNullValue(TaskOutputCache.Reader.class)));
+            will(returnValue(true));
+            inSequence(sequence);
+
+            one(taskState).skipped("FROM-CACHE");
+            inSequence(sequence);
+
+            one(taskArtifactState).afterTask();
+            inSequence(sequence);
+
+            one(taskArtifactState).finished();
+            inSequence(sequence);
+        }});
+
+        cachingExecuter.execute(task, taskState);
+    }
+
+    @Test
+    public void executesTaskAndStoresOutputsInCacheWhenCacheEntryIsNotAvailable() throws IOException {
+        context.checking(new Expectations() {{
+            Sequence sequence = context.sequence("seq");
+
+            one(repository).getStateFor(task);
+            will(returnValue(taskArtifactState));
+
+            one(taskArtifactState).isUpToDate();
+            will(returnValue(false));
+
+            one(taskArtifactState).getCacheKey();
+            will(returnValue(cacheKey));
+
+            one(taskArtifactState).beforeTask();
+
+            one(outputCache).load(with(equalTo(cacheKey)), with(notNullValue(TaskOutputCache.Reader.class)));
+            will(returnValue(false));
+            inSequence(sequence);
+
+            one(taskArtifactState).getExecutionHistory();
+            will(returnValue(executionHistory));
+
+            one(outputs).setHistory(executionHistory);
+
+            one(delegate).execute(task, taskState);
+            inSequence(sequence);
+
+            allowing(taskState).getFailure();
+            will(returnValue(null));
+
+            one(taskArtifactState).afterTask();
+            inSequence(sequence);
+
+            one(outputCache).store(with(equalTo(cacheKey)), with(notNullValue(TaskOutputCache.Writer.class)));
+            inSequence(sequence);
+
+            one(outputs).setHistory(null);
+
+            one(taskArtifactState).finished();
+        }});
+
+        cachingExecuter.execute(task, taskState);
+    }
+
+    @Test
+    public void executesTaskWhenCacheEntryCannotBeLoaded() throws IOException {
+        context.checking(new Expectations() {{
+            one(repository).getStateFor(task);
+            will(returnValue(taskArtifactState));
+
+            one(taskArtifactState).isUpToDate();
+            will(returnValue(false));
+
+            one(taskArtifactState).getCacheKey();
+            will(returnValue(cacheKey));
+
+            one(taskArtifactState).beforeTask();
+
+            one(outputCache).load(with(equalTo(cacheKey)), with(notNullValue(TaskOutputCache.Reader.class)));
+            will(throwException(new IOException("broken")));
+
+            one(taskArtifactState).getExecutionHistory();
+            will(returnValue(executionHistory));
+
+            one(outputs).setHistory(executionHistory);
+
+            one(delegate).execute(task, taskState);
+
+            allowing(taskState).getFailure();
+            will(returnValue(null));
+
+            one(taskArtifactState).afterTask();
+
+            one(outputCache).store(with(equalTo(cacheKey)), with(notNullValue(TaskOutputCache.Writer.class)));
+
+            one(outputs).setHistory(null);
+
+            one(taskArtifactState).finished();
+        }});
+
+        cachingExecuter.execute(task, taskState);
+    }
+
+    @Test
+    public void executesTaskWithoutUsingCacheWhenTaskHasNoCacheKey() {
+        context.checking(new Expectations() {{
+            one(repository).getStateFor(task);
+            will(returnValue(taskArtifactState));
+
+            one(taskArtifactState).isUpToDate();
+            will(returnValue(false));
+
+            one(taskArtifactState).getCacheKey();
+            will(returnValue(null));
+
+            one(taskArtifactState).beforeTask();
+
+            one(taskArtifactState).getExecutionHistory();
+            will(returnValue(executionHistory));
+
+            one(outputs).setHistory(executionHistory);
+
+            one(delegate).execute(task, taskState);
+
+            allowing(taskState).getFailure();
+            will(returnValue(null));
+
+            one(taskArtifactState).afterTask();
+
+            one(outputs).setHistory(null);
+
+            one(taskArtifactState).finished();
+        }});
+
+        cachingExecuter.execute(task, taskState);
+    }
 }
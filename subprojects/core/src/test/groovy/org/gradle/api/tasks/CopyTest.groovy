@@ -15,8 +15,12 @@
  */
 package org.gradle.api.tasks
 
+import org.gradle.api.Action
+import org.gradle.api.file.FileTreeElement
 import org.gradle.api.internal.AbstractTask
-
+import org.gradle.api.specs.Spec
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs
+import org.gradle.api.tasks.incremental.InputFileDetails
 import org.gradle.util.JUnit4GroovyMockery
 import org.jmock.lib.legacy.ClassImposteriser
 import org.junit.Before
@@ -24,6 +28,8 @@ import org.junit.Test
 import org.junit.runner.RunWith
 import org.gradle.api.internal.file.copy.FileCopyActionImpl
 
+import static org.hamcrest.Matchers.notNullValue
+
 @RunWith (org.jmock.integration.junit4.JMock)
 public class CopyTest extends AbstractTaskTest {
     Copy copyTask;
@@ -54,6 +60,51 @@ public class CopyTest extends AbstractTaskTest {
         copyTask.copy()
     }
     
+    @Test public void copiesOnlyOutOfDateFilesWhenExecutedIncrementally() {
+        def changed = new File('changed')
+        def inputs = [
+                isIncremental: { true },
+                outOfDate: { Action action -> action.execute([getFile: { changed }] as InputFileDetails) },
+                removed: { Action action -> }
+        ] as IncrementalTaskInputs
+        Spec<FileTreeElement> spec = null
+
+        context.checking {
+            one(action).hasSource(); will(returnValue(true))
+            one(action).getDestinationDir(); will(returnValue(new File('dest')))
+            one(action).execute(withParam(notNullValue()))
+            will { spec = it }
+            one(action).getDidWork()
+        }
+
+        copyTask.copy(inputs)
+
+        assert spec.isSatisfiedBy([getFile: { changed }] as FileTreeElement)
+        assert !spec.isSatisfiedBy([getFile: { new File('unchanged') }] as FileTreeElement)
+    }
+
+    @Test public void copiesAllFilesWhenNotExecutedIncrementally() {
+        def inputs = [isIncremental: { false }] as IncrementalTaskInputs
+
+        context.checking {
+            one(action).hasSource(); will(returnValue(true))
+            one(action).getDestinationDir(); will(returnValue(new File('dest')))
+            one(action).execute()
+            one(action).getDidWork()
+        }
+
+        copyTask.copy(inputs)
+    }
+
+    @Test public void copiesAllFilesUsingOverriddenCopyMethodWhenExecutedIncrementally() {
+        def inputs = [isIncremental: { true }] as IncrementalTaskInputs
+        CustomCopy customTask = createTask(CustomCopy.class)
+
+        customTask.copy(inputs)
+
+        assert customTask.copied
+    }
+
     @Test public void usesConventionValuesForDestDirWhenNotSpecified() {
         copyTask.conventionMapping.destinationDir = { new File('convention') }
 
@@ -78,4 +129,13 @@ public class CopyTest extends AbstractTaskTest {
 
         copyTask.configureRootSpec()
     }
+
+    static class CustomCopy extends Copy {
+        boolean copied
+
+        @Override
+        protected void copy() {
+            copied = true
+        }
+    }
 }
@@ -22,6 +22,10 @@ import org.gradle.util.TemporaryFolder
 import org.junit.Rule
 import spock.lang.Specification
 
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CyclicBarrier
+import java.util.concurrent.TimeUnit
+
 import static org.gradle.cache.internal.FileLockManager.LockMode.*
 
 class DefaultCacheAccessTest extends Specification {
@@ -376,6 +380,187 @@ class DefaultCacheAccessTest extends Specification {
         0 * _._
     }
 
+    def "keeps lock during concurrent operation and allows other threads to use the cache"() {
+        Factory<String> action = Mock()
+        Factory<String> concurrentAction = Mock()
+        Factory<String> longRunningAction = Mock()
+
+        given:
+        manager.open(None)
+        def cache = manager.newCache(targetFile, String, Integer)
+
+        when:
+        manager.useCache("some operation", action)
+
+        then:
+        1 * action.create() >> {
+            manager.concurrentOperation("concurrent", concurrentAction)
+            canAccess cache
+        }
+        1 * concurrentAction.create() >> {
+            def failure = null
+            def thread = new Thread({
+                try {
+                    manager.useCache("worker operation", { canAccess cache } as Factory)
+                    manager.longRunningOperation("worker long running operation", longRunningAction)
+                } catch (Throwable t) {
+                    failure = t
+                }
+            } as Runnable)
+            thread.start()
+            thread.join()
+            assert failure == null
+        }
+        1 * longRunningAction.create()
+        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation") >> lock
+        _ * lock.readFile(_)
+        _ * lock.writeFile(_)
+        1 * lock.close()
+        0 * _._
+    }
+
+    def "thread which does not hold the lock can start nested concurrent operation"() {
+        Factory<String> action = Mock()
+        Factory<String> concurrentAction = Mock()
+        Factory<String> nestedAction = Mock()
+
+        given:
+        manager.open(None)
+        def cache = manager.newCache(targetFile, String, Integer)
+
+        when:
+        manager.useCache("some operation", action)
+
+        then:
+        1 * action.create() >> {
+            manager.concurrentOperation("concurrent", concurrentAction)
+            canAccess cache
+        }
+        1 * concurrentAction.create() >> {
+            def failure = null
+            def thread = new Thread({
+                try {
+                    manager.concurrentOperation("worker concurrent operation", nestedAction)
+                } catch (Throwable t) {
+                    failure = t
+                }
+            } as Runnable)
+            thread.start()
+            thread.join()
+            assert failure == null
+        }
+        1 * nestedAction.create() >> {
+            manager.useCache("worker operation", { canAccess cache } as Factory)
+        }
+        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation") >> lock
+        _ * lock.readFile(_)
+        _ * lock.writeFile(_)
+        1 * lock.close()
+        0 * _._
+    }
+
+    def "acquires lock for read action when initial lock mode is none"() {
+        Factory<String> action = Mock()
+
+        given:
+        manager.open(None)
+
+        when:
+        def result = manager.readCache("some operation", action)
+
+        then:
+        result == "result"
+        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation") >> lock
+        1 * action.create() >> "result"
+        1 * lock.close()
+        0 * _._
+    }
+
+    def "allows several threads to read the cache at the same time during concurrent operation"() {
+        Factory<String> action = Mock()
+        Factory<String> concurrentAction = Mock()
+        def barrier = new CyclicBarrier(2)
+
+        given:
+        manager.open(None)
+        def cache = manager.newCache(targetFile, String, Integer)
+
+        when:
+        manager.useCache("some operation", action)
+
+        then:
+        1 * action.create() >> {
+            canAccess cache
+            manager.concurrentOperation("concurrent", concurrentAction)
+        }
+        1 * concurrentAction.create() >> {
+            def failures = new CopyOnWriteArrayList()
+            def threads = (1..2).collect {
+                new Thread({
+                    try {
+                        manager.readCache("worker read", {
+                            canAccess cache
+                            // Both threads must be reading to pass the barrier
+                            barrier.await(10, TimeUnit.SECONDS)
+                        } as Factory)
+                    } catch (Throwable t) {
+                        failures << t
+                    }
+                } as Runnable)
+            }
+            threads*.start()
+            threads*.join()
+            assert failures.empty
+        }
+        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation") >> lock
+        _ * lock.readFile(_) >> {Factory factory -> factory.create()}
+        _ * lock.writeFile(_) >> {Runnable runnable -> runnable.run()}
+        3 * backingCache.get("key")
+        1 * backingCache.close()
+        1 * lock.close()
+        0 * _._
+    }
+
+    def "runs read action again while owning the cache when the read action updates the cache"() {
+        Factory<String> action = Mock()
+        Factory<String> concurrentAction = Mock()
+        Factory<String> readAction = Mock()
+
+        given:
+        manager.open(None)
+        def cache = manager.newCache(targetFile, String, Integer)
+
+        when:
+        manager.useCache("some operation", action)
+
+        then:
+        1 * action.create() >> {
+            manager.concurrentOperation("concurrent", concurrentAction)
+        }
+        1 * concurrentAction.create() >> {
+            def failure = null
+            def thread = new Thread({
+                try {
+                    manager.readCache("worker read", readAction)
+                } catch (Throwable t) {
+                    failure = t
+                }
+            } as Runnable)
+            thread.start()
+            thread.join()
+            assert failure == null
+        }
+        // The first attempt opens the backing cache, which is not allowed while reading
+        2 * readAction.create() >> { canAccess cache }
+        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation") >> lock
+        _ * lock.readFile(_) >> {Factory factory -> factory.create()}
+        _ * lock.writeFile(_) >> {Runnable runnable -> runnable.run()}
+        1 * backingCache.get("key")
+        1 * backingCache.close()
+        1 * lock.close()
+        0 * _._
+    }
+
     def "closes caches at the end of the cache action when initial lock mode is none"() {
         Factory<String> action = Mock()
 
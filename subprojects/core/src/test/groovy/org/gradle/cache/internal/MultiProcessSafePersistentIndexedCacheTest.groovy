@@ -16,14 +16,16 @@
 package org.gradle.cache.internal
 
 import org.gradle.internal.Factory
+import org.gradle.cache.DefaultSerializer
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache
 import spock.lang.Specification
 
 class MultiProcessSafePersistentIndexedCacheTest extends Specification {
     final FileAccess fileAccess = Mock()
-    final Factory<BTreePersistentIndexedCache<String, String>> factory = Mock()
-    final MultiProcessSafePersistentIndexedCache<String, String> cache = new MultiProcessSafePersistentIndexedCache<String, String>(factory, fileAccess)
-    final BTreePersistentIndexedCache<String, String> backingCache = Mock()
+    final Factory<BTreePersistentIndexedCache<String, Object>> factory = Mock()
+    final DefaultSerializer<Object> serializer = new DefaultSerializer<Object>()
+    final MultiProcessSafePersistentIndexedCache<String, Object> cache = new MultiProcessSafePersistentIndexedCache<String, Object>(factory, fileAccess, serializer)
+    final BTreePersistentIndexedCache<String, Object> backingCache = Mock()
     
     def "opens cache on first access"() {
         when:
@@ -50,39 +52,120 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         0 * _._
     }
 
-    def "holds write lock while putting entry into cache"() {
+    def "holds puts and removes in memory until end of unit of work"() {
         given:
         cacheOpened()
 
         when:
         cache.put("key", "value")
+        cache.put("other", "value")
+        cache.remove("other")
+        cache.put("key", "new value")
+
+        then:
+        0 * _._
+
+        when:
+        cache.onEndWork()
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * backingCache.update({ deserialize(it) == [key: "new value"] }, ["other"] as Set)
 
         then:
         1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
-        1 * backingCache.put("key", "value")
+        1 * backingCache.close()
         0 * _._
     }
 
-    def "holds write lock while removing entry from cache"() {
+    def "gets pending entry without reading cache"() {
+        when:
+        cache.put("key", "value")
+        cache.put("removed", "value")
+        cache.remove("removed")
+
+        then:
+        cache.get("key") == "value"
+        cache.get("removed") == null
+
+        and:
+        0 * _._
+    }
+
+    def "gets copy of pending entry"() {
+        def value = ["a"]
+
+        when:
+        cache.put("key", value)
+        value.add("b")
+        def result = cache.get("key")
+        result.add("c")
+
+        then:
+        result == ["a", "c"]
+        cache.get("key") == ["a"]
+
+        and:
+        0 * _._
+    }
+
+    def "writes pending updates when maximum size of pending values is reached"() {
+        def valueSize = serialize("value1").length
+        def cache = new MultiProcessSafePersistentIndexedCache<String, Object>(factory, fileAccess, serializer, valueSize + 1)
+
+        when:
+        cache.put("key1", "value1")
+        cache.remove("key2")
+
+        then:
+        0 * _._
+
+        when:
+        cache.put("key3", "value3")
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * factory.create() >> backingCache
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * backingCache.update({ deserialize(it) == [key1: "value1", key3: "value3"] }, ["key2"] as Set)
+        0 * _._
+    }
+
+    def "writes pending updates when cache is closed"() {
         given:
         cacheOpened()
+        cache.remove("key")
 
         when:
-        cache.remove("key")
+        cache.close()
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * backingCache.update([:], ["key"] as Set)
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * backingCache.compact(MultiProcessSafePersistentIndexedCache.COMPACTION_THRESHOLD)
 
         then:
         1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
-        1 * backingCache.remove("key")
+        1 * backingCache.close()
         0 * _._
     }
 
-    def "holds write lock while closing cache"() {
+    def "compacts and closes cache while holding write lock"() {
         given:
         cacheOpened()
 
         when:
         cache.close()
 
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * backingCache.compact(MultiProcessSafePersistentIndexedCache.COMPACTION_THRESHOLD)
+
         then:
         1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
         1 * backingCache.close()
@@ -124,6 +207,10 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         when:
         cache.close()
 
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * backingCache.compact(MultiProcessSafePersistentIndexedCache.COMPACTION_THRESHOLD)
+
         then:
         1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
         1 * backingCache.close()
@@ -142,4 +229,14 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         
         cache.get("something")
     }
+
+    def serialize(Object value) {
+        def outstr = new ByteArrayOutputStream()
+        serializer.write(outstr, value)
+        return outstr.toByteArray()
+    }
+
+    def deserialize(Map<String, byte[]> values) {
+        return values.collectEntries { key, value -> [key, serializer.read(new ByteArrayInputStream(value))] }
+    }
 }
@@ -23,10 +23,13 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertNull;
@@ -109,6 +112,30 @@ public class BTreePersistentIndexedCacheTest {
         cache.verify();
     }
 
+    @Test
+    public void appliesBatchOfPutsAndRemoves() throws Exception {
+        checkAdds(1, 2, 3, 4, 5, 6, 7, 8);
+
+        Map<String, byte[]> puts = new HashMap<String, byte[]>();
+        for (int i = 5; i <= 20; i++) {
+            ByteArrayOutputStream value = new ByteArrayOutputStream();
+            integerSerializer.write(value, i * 10);
+            puts.put(String.format("key_%d", i), value.toByteArray());
+        }
+        Set<String> removes = new HashSet<String>(Arrays.asList("key_1", "key_3", "key_25"));
+        cache.update(puts, removes);
+        cache.reset();
+
+        assertNull(cache.get("key_1"));
+        assertThat(cache.get("key_2"), equalTo(2));
+        assertNull(cache.get("key_3"));
+        assertThat(cache.get("key_4"), equalTo(4));
+        for (int i = 5; i <= 20; i++) {
+            assertThat(cache.get(String.format("key_%d", i)), equalTo(i * 10));
+        }
+        cache.verify();
+    }
+
     @Test
     public void reusesEmptySpaceWhenPuttingEntries() {
         BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(cacheFile, stringSerializer, stringSerializer, (short) 4, 100);
@@ -136,7 +163,116 @@ public class BTreePersistentIndexedCacheTest {
         cache.put("key_1", "1234");
         assertThat(cacheFile.length(), equalTo(len));
     }
-    
+
+    @Test
+    public void compactsFileWhenEnoughOfItIsFree() {
+        List<Integer> values = new ArrayList<Integer>();
+        for (int i = 0; i < 200; i++) {
+            values.add(i);
+        }
+        checkAdds(values);
+        for (int i = 0; i < 200; i += 4) {
+            cache.remove(String.format("key_%d", i));
+        }
+        long len = cacheFile.length();
+
+        long reclaimed = cache.compact(0.2);
+
+        assertThat(reclaimed, greaterThan(0L));
+        assertThat(cacheFile.length(), equalTo(len - reclaimed));
+        assertThat(tmpDir.file("cache.bin.compact").exists(), equalTo(false));
+        cache.verify();
+        for (int i = 0; i < 200; i++) {
+            assertThat(cache.get(String.format("key_%d", i)), equalTo(i % 4 == 0 ? null : i));
+        }
+
+        cache.reset();
+        cache.verify();
+        assertThat(cache.get("key_1"), equalTo(1));
+        assertThat(cache.get("key_4"), nullValue());
+    }
+
+    @Test
+    public void keepsExistingFileWhenCompactionFails() {
+        List<Integer> values = new ArrayList<Integer>();
+        for (int i = 0; i < 200; i++) {
+            values.add(i);
+        }
+        checkAdds(values);
+        for (int i = 0; i < 200; i += 4) {
+            cache.remove(String.format("key_%d", i));
+        }
+        long len = cacheFile.length();
+        // The compacted file cannot be created
+        tmpDir.file("cache.bin.compact").createDir().createFile("content");
+
+        assertThat(cache.compact(0.2), equalTo(0L));
+        assertThat(cacheFile.length(), equalTo(len));
+        cache.verify();
+        for (int i = 0; i < 200; i++) {
+            assertThat(cache.get(String.format("key_%d", i)), equalTo(i % 4 == 0 ? null : i));
+        }
+    }
+
+    @Test
+    public void doesNotCompactFileWhenNotEnoughOfItIsFree() {
+        checkAdds(1, 2, 3, 4, 5, 6, 7, 8);
+        cache.remove("key_1");
+        long len = cacheFile.length();
+
+        assertThat(cache.compact(0.9), equalTo(0L));
+        assertThat(cacheFile.length(), equalTo(len));
+        assertThat(cache.get("key_2"), equalTo(2));
+    }
+
+    @Test
+    public void canReadEntriesFromMultipleThreadsWhileEntriesAreUpdated() throws Exception {
+        final int count = 500;
+        for (int i = 0; i < count; i++) {
+            cache.put(String.format("key_%d", i), i);
+        }
+
+        final AtomicBoolean stopped = new AtomicBoolean();
+        final List<Throwable> failures = new CopyOnWriteArrayList<Throwable>();
+        List<Thread> readers = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            Thread reader = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        Random random = new Random();
+                        while (!stopped.get()) {
+                            int value = random.nextInt(count);
+                            Integer actual = cache.get(String.format("key_%d", value));
+                            if (actual == null || (actual != value && actual != -value)) {
+                                throw new AssertionError(String.format("Unexpected value %s for key_%d", actual, value));
+                            }
+                        }
+                    } catch (Throwable t) {
+                        failures.add(t);
+                    }
+                }
+            };
+            reader.start();
+            readers.add(reader);
+        }
+
+        for (int i = 0; i < count; i++) {
+            cache.put(String.format("key_%d", i), -i);
+            cache.put(String.format("other_%d", i), i);
+            if (i % 2 == 0) {
+                cache.remove(String.format("other_%d", i / 2));
+            }
+        }
+        stopped.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertThat(failures, equalTo(Collections.<Throwable>emptyList()));
+        cache.verify();
+    }
+
     @Test
     public void canHandleLargeNumberOfEntries() {
 
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree
+
+import spock.lang.Specification
+
+class CachingBlockStoreTest extends Specification {
+    final BlockStore backingStore = Mock()
+    final BlockCacheStatistics statistics = new BlockCacheStatistics("cache")
+    final CachingBlockStore store = new CachingBlockStore(backingStore, 250, statistics, TestPayload)
+    final TestPayload a = payload(0)
+    final TestPayload b = payload(100)
+    final TestPayload c = payload(200)
+
+    def "caches blocks which are read from backing store"() {
+        when:
+        def first = store.read(a.pos, TestPayload)
+        def second = store.read(a.pos, TestPayload)
+
+        then:
+        first.is(a)
+        second.is(a)
+        1 * backingStore.read(a.pos, TestPayload) >> a
+        statistics.hits == 1
+        statistics.misses == 1
+        statistics.evictions == 0
+    }
+
+    def "discards least recently used blocks when cached blocks exceed maximum size"() {
+        given:
+        backingStore.read(a.pos, TestPayload) >> a
+        backingStore.read(b.pos, TestPayload) >> b
+        backingStore.read(c.pos, TestPayload) >> c
+
+        when:
+        store.read(a.pos, TestPayload)
+        store.read(b.pos, TestPayload)
+        store.read(a.pos, TestPayload)
+        store.read(c.pos, TestPayload)
+
+        then:
+        statistics.hits == 1
+        statistics.misses == 3
+        statistics.evictions == 1
+
+        when:
+        store.read(a.pos, TestPayload)
+        store.read(c.pos, TestPayload)
+        store.read(b.pos, TestPayload)
+
+        then:
+        statistics.hits == 3
+        statistics.misses == 4
+    }
+
+    def "does not cache blocks which have been removed"() {
+        given:
+        backingStore.read(a.pos, TestPayload) >> a
+
+        when:
+        store.read(a.pos, TestPayload)
+        store.remove(a)
+        store.read(a.pos, TestPayload)
+
+        then:
+        statistics.hits == 0
+        statistics.misses == 2
+    }
+
+    def payload(long pos) {
+        def payload = new TestPayload()
+        new TestBlock(payload, new BlockPointer(pos))
+        return payload
+    }
+
+    static class TestPayload extends BlockPayload {
+        @Override
+        protected int getSize() {
+            return 100
+        }
+
+        @Override
+        protected int getType() {
+            return 0x55
+        }
+
+        @Override
+        protected void read(DataInputStream inputStream) {
+        }
+
+        @Override
+        protected void write(DataOutputStream outputStream) {
+        }
+    }
+
+    static class TestBlock extends Block {
+        final BlockPointer pos
+
+        TestBlock(BlockPayload payload, BlockPointer pos) {
+            super(payload)
+            this.pos = pos
+        }
+
+        @Override
+        BlockPointer getPos() {
+            return pos
+        }
+
+        @Override
+        int getSize() {
+            return payload.size
+        }
+
+        @Override
+        RuntimeException blockCorruptedException() {
+            return new CorruptedCacheException("corrupt")
+        }
+
+        @Override
+        boolean hasPos() {
+            return true
+        }
+
+        @Override
+        void setPos(BlockPointer pos) {
+        }
+
+        @Override
+        void setSize(int size) {
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree
+
+import org.gradle.cache.DefaultSerializer
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.TestFile
+import org.junit.Rule
+import spock.lang.Specification
+
+class MemoryMappedBlockStoreTest extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+    final DefaultSerializer<String> stringSerializer = new DefaultSerializer<String>()
+    final DefaultSerializer<Integer> integerSerializer = new DefaultSerializer<Integer>()
+    TestFile cacheFile
+
+    def setup() {
+        cacheFile = tmpDir.file("cache.bin")
+    }
+
+    def "persists entries across multiple chunks"() {
+        def cache = memoryMappedCache(64)
+
+        when:
+        (1..200).each { cache.put("key_$it".toString(), it) }
+        cache.reset()
+
+        then:
+        (1..200).every { cache.get("key_$it".toString()) == it }
+        cache.verify()
+
+        cleanup:
+        cache.close()
+    }
+
+    def "reads cache file written by file backed store"() {
+        def cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, (short) 4, 100)
+        (1..50).each { cache.put("key_$it".toString(), it) }
+        cache.close()
+
+        when:
+        cache = memoryMappedCache(1024)
+
+        then:
+        (1..50).every { cache.get("key_$it".toString()) == it }
+        cache.verify()
+
+        cleanup:
+        cache.close()
+    }
+
+    def "writes cache file which can be read by file backed store"() {
+        def cache = memoryMappedCache(1024)
+        (1..50).each { cache.put("key_$it".toString(), it) }
+        cache.remove("key_10")
+        cache.close()
+
+        when:
+        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, (short) 4, 100)
+
+        then:
+        cache.get("key_10") == null
+        (11..50).every { cache.get("key_$it".toString()) == it }
+        cache.verify()
+
+        cleanup:
+        cache.close()
+    }
+
+    def "discards unused part of last chunk when closed"() {
+        def cache = memoryMappedCache(MemoryMappedBlockStore.DEFAULT_CHUNK_SIZE)
+
+        when:
+        cache.put("key", 12)
+        cache.close()
+
+        then:
+        cacheFile.length() > 0
+        cacheFile.length() < MemoryMappedBlockStore.DEFAULT_CHUNK_SIZE
+    }
+
+    def "reuses padding left at end of file when the file could not be truncated"() {
+        def otherFile = tmpDir.file("other.bin")
+        [cacheFile, otherFile].each { file ->
+            def cache = memoryMappedCache(file, 1024)
+            (1..20).each { cache.put("key_$it".toString(), it) }
+            cache.close()
+        }
+        def padded = new RandomAccessFile(cacheFile, "rw")
+        padded.setLength((long) ((cacheFile.length() / 1024 + 1) * 1024))
+        padded.close()
+
+        when:
+        [cacheFile, otherFile].each { file ->
+            def cache = memoryMappedCache(file, 1024)
+            (21..40).each { cache.put("key_$it".toString(), it) }
+            cache.close()
+        }
+        def cache = memoryMappedCache(1024)
+
+        then:
+        cacheFile.length() == otherFile.length()
+        (1..40).every { cache.get("key_$it".toString()) == it }
+        cache.verify()
+
+        cleanup:
+        cache.close()
+    }
+
+    def "discards corrupt cache file"() {
+        def cache = memoryMappedCache(1024)
+        cache.put("key", 12)
+        cache.close()
+
+        def file = new RandomAccessFile(cacheFile, "rw")
+        file.seek(0)
+        file.write(0)
+        file.close()
+
+        when:
+        cache = memoryMappedCache(1024)
+
+        then:
+        cache.get("key") == null
+        cache.verify()
+
+        cleanup:
+        cache.close()
+    }
+
+    def memoryMappedCache(int chunkSize) {
+        return memoryMappedCache(cacheFile, chunkSize)
+    }
+
+    def memoryMappedCache(File file, int chunkSize) {
+        return new BTreePersistentIndexedCache<String, Integer>(file, new MemoryMappedBlockStore(file, chunkSize), stringSerializer, integerSerializer, (short) 4, 100)
+    }
+}
@@ -34,6 +34,7 @@ import org.hamcrest.Description
 import org.jmock.api.Invocation
 import spock.lang.Specification
 
+import static org.gradle.util.HelperUtil.createChildProject
 import static org.gradle.util.HelperUtil.createRootProject
 import static org.gradle.util.WrapUtil.toList
 import static org.gradle.util.WrapUtil.toSet
@@ -364,6 +365,69 @@ public class DefaultTaskExecutionPlanTest extends Specification {
         executedTasks == [c]
     }
 
+    def "does not start a task while another task from the same project is executing"() {
+        given:
+        ProjectInternal child = createChildProject(root, "child")
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task(child, "c")
+
+        when:
+        executionPlan.useExclusionPolicy(new ProjectExclusionPolicy())
+        executionPlan.addToTaskGraph([a, b, c])
+        def first = executionPlan.getTaskToExecute(anyTask)
+        def second = executionPlan.getTaskToExecute(anyTask)
+
+        then:
+        first.task == a
+        second.task == c
+
+        when:
+        executionPlan.taskComplete(first)
+        executionPlan.taskComplete(second)
+
+        then:
+        executedTasks == [b]
+    }
+
+    def "returns a later task whose dependencies are complete before an earlier task whose dependencies are not"() {
+        given:
+        Task a = task("a")
+        Task b = task("b", a)
+        Task c = task("c")
+
+        when:
+        executionPlan.addToTaskGraph([b, c])
+        def first = executionPlan.getTaskToExecute(anyTask)
+        def second = executionPlan.getTaskToExecute(anyTask)
+
+        then:
+        first.task == a
+        second.task == c
+
+        when:
+        executionPlan.taskComplete(first)
+        executionPlan.taskComplete(second)
+
+        then:
+        executedTasks == [b]
+    }
+
+    def "returns ready tasks with the longest critical path first"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", b)
+        Task d = task("d")
+
+        when:
+        executionPlan.addToTaskGraph([a, c, d])
+        executionPlan.prioritiseByCriticalPath([(a): 20L, (b): 10L, (c): 15L])
+
+        then:
+        executedTasks == [b, a, c, d]
+    }
+
     private void dependsOn(TaskInternal task, final Task... dependsOnTasks) {
         TaskDependency taskDependency = Mock()
         task.getTaskDependencies() >> taskDependency
@@ -386,10 +450,17 @@ public class DefaultTaskExecutionPlanTest extends Specification {
         return task;
     }
     
-    private TaskInternal createTask(final String name) {
+    private TaskInternal task(ProjectInternal project, final String name) {
+        def task = createTask(name, project);
+        dependsOn(task);
+        task.state.getFailure() >> null
+        return task;
+    }
+
+    private TaskInternal createTask(final String name, ProjectInternal project = root) {
         TaskInternal task = Mock()
         TaskState state = Mock()
-        task.getProject() >> root
+        task.getProject() >> project
         task.name >> name
         task.path >> ':' + name
         task.state >> state
@@ -426,6 +497,10 @@ public class DefaultTaskExecutionPlanTest extends Specification {
             action.run();
         }
 
+        public void concurrentOperation(String operationDisplayName, Runnable action) {
+            action.run();
+        }
+
         public <K, V> PersistentIndexedCache createCache(String cacheName, Class<K> keyType, Class<V> valueType) {
             throw new UnsupportedOperationException();
         }
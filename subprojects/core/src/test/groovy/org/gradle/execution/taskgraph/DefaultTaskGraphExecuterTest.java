@@ -565,6 +565,10 @@ public class DefaultTaskGraphExecuterTest {
             action.run();
         }
 
+        public void concurrentOperation(String operationDisplayName, Runnable action) {
+            action.run();
+        }
+
         public <K, V> PersistentIndexedCache createCache(String cacheName, Class<K> keyType, Class<V> valueType) {
             throw new UnsupportedOperationException();
         }
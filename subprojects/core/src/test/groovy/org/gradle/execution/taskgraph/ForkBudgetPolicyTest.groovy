@@ -0,0 +1,181 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph
+
+import org.gradle.api.InvalidUserDataException
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.tasks.ProcessForkingTask
+import spock.lang.Specification
+
+class ForkBudgetPolicyTest extends Specification {
+    def "always allows tasks which do not fork processes to start"() {
+        def forking = forkingTask(1, 100)
+        def plain = new TaskInfo(Mock(TaskInternal), [] as Set, 1)
+        def notForking = forkingTask(0, -1)
+        def policy = budgetPolicy(1, 100, forking, plain, notForking)
+
+        when:
+        policy.taskStarted(forking)
+
+        then:
+        policy.canStart(plain)
+        policy.canStart(notForking)
+    }
+
+    def "allows forking tasks to start while the process budget has capacity"() {
+        def a = forkingTask(2, -1)
+        def b = forkingTask(2, -1)
+        def c = forkingTask(1, -1)
+        def policy = budgetPolicy(4, 0, a, b, c)
+
+        when:
+        policy.taskStarted(a)
+        policy.taskStarted(b)
+
+        then:
+        !policy.canStart(c)
+
+        when:
+        policy.taskCompleted(a)
+
+        then:
+        policy.canStart(c)
+    }
+
+    def "allows forking tasks to start while the heap budget has capacity"() {
+        def a = forkingTask(2, 256)
+        def b = forkingTask(1, 768)
+        def c = forkingTask(1, 256)
+        def policy = budgetPolicy(0, 1024, a, b, c)
+
+        when:
+        policy.taskStarted(a)
+
+        then:
+        policy.canStart(c)
+        !policy.canStart(b)
+
+        when:
+        policy.taskCompleted(a)
+
+        then:
+        policy.canStart(b)
+    }
+
+    def "counts processes with unknown heap size against the process budget only"() {
+        def a = forkingTask(1, -1)
+        def b = forkingTask(1, 512)
+        def c = forkingTask(1, -1)
+        def policy = budgetPolicy(2, 512, a, b, c)
+
+        when:
+        policy.taskStarted(a)
+
+        then:
+        policy.canStart(b)
+
+        when:
+        policy.taskStarted(b)
+
+        then:
+        !policy.canStart(c)
+    }
+
+    def "allows a task which needs more than the whole budget to start when no other forking task is executing"() {
+        def big = forkingTask(8, 2048)
+        def small = forkingTask(1, 128)
+        def policy = budgetPolicy(2, 1024, big, small)
+
+        expect:
+        policy.canStart(big)
+
+        when:
+        policy.taskStarted(small)
+
+        then:
+        !policy.canStart(big)
+
+        when:
+        policy.taskCompleted(small)
+        policy.taskStarted(big)
+
+        then:
+        !policy.canStart(small)
+
+        when:
+        policy.taskCompleted(big)
+
+        then:
+        policy.canStart(small)
+    }
+
+    def "is unlimited when no budget is set"() {
+        def a = forkingTask(100, 4096)
+        def b = forkingTask(100, 4096)
+        def policy = budgetPolicy(0, 0, a, b)
+
+        when:
+        policy.taskStarted(a)
+
+        then:
+        policy.canStart(b)
+    }
+
+    def "determines the processes forked by each task once"() {
+        ForkingTaskInternal task = Mock()
+        def taskInfo = new TaskInfo(task, [] as Set, 0)
+
+        when:
+        def policy = budgetPolicy(2, 1024, taskInfo)
+        policy.canStart(taskInfo)
+        policy.taskStarted(taskInfo)
+        policy.taskCompleted(taskInfo)
+
+        then:
+        1 * task.maxForkedProcessCount >> 1
+        1 * task.forkedProcessHeapSizeMb >> 512
+    }
+
+    def "fails when the processes forked by a task cannot be determined"() {
+        ForkingTaskInternal task = Mock()
+        def failure = new InvalidUserDataException("Cannot parse heap size: 1.5g")
+        _ * task.maxForkedProcessCount >> 1
+        _ * task.forkedProcessHeapSizeMb >> { throw failure }
+
+        when:
+        budgetPolicy(2, 1024, new TaskInfo(task, [] as Set, 0))
+
+        then:
+        InvalidUserDataException e = thrown()
+        e.message == "Could not determine the processes forked by ${task}."
+        e.cause == failure
+    }
+
+    private ForkBudgetPolicy budgetPolicy(int maxForks, long maxHeapMb, TaskInfo... tasks) {
+        return new ForkBudgetPolicy(maxForks, maxHeapMb, tasks.collect { it.task })
+    }
+
+    private TaskInfo forkingTask(int forks, int heapMb) {
+        ForkingTaskInternal task = Mock()
+        _ * task.maxForkedProcessCount >> forks
+        _ * task.forkedProcessHeapSizeMb >> heapMb
+        return new TaskInfo(task, [] as Set, 0)
+    }
+
+    interface ForkingTaskInternal extends TaskInternal, ProcessForkingTask {
+    }
+}
@@ -18,16 +18,18 @@ package org.gradle.execution.taskgraph;
 
 
 import org.gradle.api.internal.changedetection.TaskArtifactStateCacheAccess
+import org.gradle.api.internal.changedetection.TaskDurationRepository
 import spock.lang.Specification
 import org.gradle.api.internal.DocumentationRegistry
 
 public class TaskPlanExecutorFactoryTest extends Specification {
     final TaskArtifactStateCacheAccess cache = Mock()
+    final TaskDurationRepository durationRepository = Mock()
     final DocumentationRegistry documentationRegistry = Mock()
 
     def "creates a default executor"() {
         when:
-        def factory = new TaskPlanExecutorFactory(cache, 0, documentationRegistry)
+        def factory = new TaskPlanExecutorFactory(cache, durationRepository, 0, 0, 0, documentationRegistry)
 
         then:
         factory.create().class == DefaultTaskPlanExecutor
@@ -35,7 +37,7 @@ public class TaskPlanExecutorFactoryTest extends Specification {
 
     def "creates a parallel executor"() {
         when:
-        def factory = new TaskPlanExecutorFactory(cache, parallelExecuterCount, documentationRegistry)
+        def factory = new TaskPlanExecutorFactory(cache, durationRepository, parallelExecuterCount, 0, 0, documentationRegistry)
 
         then:
         factory.create().class == ParallelTaskPlanExecutor
@@ -72,6 +72,8 @@ public class DefaultCommandLineConverterTest {
     private RefreshOptions expectedRefreshOptions = RefreshOptions.NONE;
     private boolean expectedRecompileScripts;
     private int expectedParallelExecutorCount;
+    private int expectedMaxForkedProcessCount;
+    private String expectedMaxForkedHeapSize;
 
     @Test
     public void withoutAnyOptions() {
@@ -111,6 +113,8 @@ public class DefaultCommandLineConverterTest {
         assertEquals(expectedRefreshDependencies, startParameter.isRefreshDependencies());
         assertEquals(expectedProjectCacheDir, startParameter.getProjectCacheDir());
         assertEquals(expectedParallelExecutorCount, startParameter.getParallelThreadCount());
+        assertEquals(expectedMaxForkedProcessCount, startParameter.getMaxForkedProcessCount());
+        assertEquals(expectedMaxForkedHeapSize, startParameter.getMaxForkedHeapSize());
     }
 
     @Test
@@ -406,4 +410,26 @@ public class DefaultCommandLineConverterTest {
     public void withInvalidParallelExecutorThreads() {
         checkConversion("--parallel-threads", "foo");
     }
+
+    @Test
+    public void withMaxForks() {
+        expectedMaxForkedProcessCount = 4;
+        checkConversion("--max-forks", "4");
+    }
+
+    @Test(expected = CommandLineArgumentException.class)
+    public void withInvalidMaxForks() {
+        checkConversion("--max-forks", "foo");
+    }
+
+    @Test
+    public void withMaxForkHeap() {
+        expectedMaxForkedHeapSize = "4g";
+        checkConversion("--max-fork-heap", "4g");
+    }
+
+    @Test(expected = CommandLineArgumentException.class)
+    public void withInvalidMaxForkHeap() {
+        checkConversion("--max-fork-heap", "lots");
+    }
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal
+
+import org.gradle.api.InvalidUserDataException
+import spock.lang.Specification
+
+class HeapSizeTest extends Specification {
+    def "converts heap size to megabytes"() {
+        expect:
+        HeapSize.toMegabytes(heapSize) == megabytes
+
+        where:
+        heapSize    | megabytes
+        null        | -1
+        "512m"      | 512
+        " 512M "    | 512
+        "2g"        | 2048
+        "2048k"     | 2
+        "1536k"     | 2
+        "268435456" | 256
+        "0"         | 0
+    }
+
+    def "fails for invalid heap size"() {
+        when:
+        HeapSize.toMegabytes(heapSize)
+
+        then:
+        InvalidUserDataException e = thrown()
+        e.message == "Cannot parse heap size: ${heapSize}"
+
+        where:
+        heapSize << ["lots", "1.5g", "", "m", "-512m", "99999999999g"]
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.util.hash
+
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+
+class MurmurHash3Test extends Specification {
+    def "calculates hash"() {
+        expect:
+        hash(input.getBytes("utf-8")) == new HashValue(expected)
+
+        where:
+        input                                         | expected
+        ""                                            | "0"
+        "hello"                                       | "029bbd41b3a7d8cb191dae486a901e5b"
+        "The quick brown fox jumps over the lazy dog" | "6c1b07bc7bbc4be347939ac4a93c437a"
+    }
+
+    def "calculates same hash when content is added in chunks"() {
+        def content = new byte[1000]
+        new Random(12).nextBytes(content)
+
+        expect:
+        hashInChunks(content, chunkSize) == hash(content)
+
+        where:
+        chunkSize << [1, 3, 15, 16, 17, 100, 999]
+    }
+
+    def "calculates different hash for different content"() {
+        expect:
+        hash([1, 2, 3] as byte[]) != hash([1, 2, 4] as byte[])
+        hash(new byte[16]) != hash(new byte[17])
+    }
+
+    private HashValue hash(byte[] content) {
+        def hash = new MurmurHash3()
+        hash.update(ByteBuffer.wrap(content))
+        return hash.digest()
+    }
+
+    private HashValue hashInChunks(byte[] content, int chunkSize) {
+        def hash = new MurmurHash3()
+        for (int offset = 0; offset < content.length; offset += chunkSize) {
+            hash.update(content, offset, Math.min(chunkSize, content.length - offset))
+        }
+        return hash.digest()
+    }
+}
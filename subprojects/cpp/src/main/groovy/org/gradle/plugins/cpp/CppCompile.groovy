@@ -17,11 +17,13 @@
 package org.gradle.plugins.cpp
 
 import org.gradle.api.DefaultTask
+import org.gradle.api.Incubating
+import org.gradle.api.internal.tasks.ProcessForkingTask
 import org.gradle.api.internal.tasks.compile.Compiler
 import org.gradle.api.tasks.TaskAction
 import org.gradle.plugins.binaries.model.CompileSpec
 
-class CppCompile extends DefaultTask {
+class CppCompile extends DefaultTask implements ProcessForkingTask {
     CompileSpec spec
     Compiler compiler
 
@@ -30,4 +32,15 @@ class CppCompile extends DefaultTask {
         def result = compiler.execute(spec)
         didWork = result.didWork
     }
+
+    // The native compiler runs as a single external process, whose memory use is not known
+    @Incubating
+    int getMaxForkedProcessCount() {
+        return 1
+    }
+
+    @Incubating
+    int getForkedProcessHeapSizeMb() {
+        return -1
+    }
 }
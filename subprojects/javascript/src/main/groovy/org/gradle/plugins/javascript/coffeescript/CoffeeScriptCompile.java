@@ -19,11 +19,17 @@ package org.gradle.plugins.javascript.coffeescript;
 import groovy.lang.Closure;
 import org.gradle.api.Action;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.logging.LogLevel;
+import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.SourceTask;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.api.tasks.incremental.InputFileDetails;
+import org.gradle.api.tasks.util.PatternSet;
 import org.gradle.internal.Factory;
 import org.gradle.plugins.javascript.coffeescript.compile.internal.DefaultCoffeeScriptCompileSpec;
 import org.gradle.plugins.javascript.coffeescript.compile.internal.rhino.RhinoCoffeeScriptCompiler;
@@ -33,6 +39,8 @@ import org.gradle.process.internal.WorkerProcessBuilder;
 
 import javax.inject.Inject;
 import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
 
 public class CoffeeScriptCompile extends SourceTask {
 
@@ -87,13 +95,13 @@ public class CoffeeScriptCompile extends SourceTask {
     }
 
     @TaskAction
-    public void doCompile() {
+    public void doCompile(IncrementalTaskInputs inputs) {
         RhinoWorkerHandleFactory handleFactory = new DefaultRhinoWorkerHandleFactory(workerProcessBuilderFactory);
 
         CoffeeScriptCompileSpec spec = new DefaultCoffeeScriptCompileSpec();
         spec.setCoffeeScriptJs(getCoffeeScriptJs().getSingleFile());
         spec.setDestinationDir(getDestinationDir());
-        spec.setSource(getSource());
+        spec.setSource(inputs.isIncremental() ? getOutOfDateSource(inputs) : getSource());
         spec.setOptions(getOptions());
 
         LogLevel logLevel = getProject().getGradle().getStartParameter().getLogLevel();
@@ -101,4 +109,52 @@ public class CoffeeScriptCompile extends SourceTask {
 
         setDidWork(compiler.compile(spec).getDidWork());
     }
+
+    /**
+     * Returns the source files which need to be compiled, given the changes since the last compilation.
+     */
+    private FileTree getOutOfDateSource(IncrementalTaskInputs inputs) {
+        final Set<File> outOfDate = new HashSet<File>();
+        final Set<File> removed = new HashSet<File>();
+        inputs.outOfDate(new Action<InputFileDetails>() {
+            public void execute(InputFileDetails details) {
+                outOfDate.add(details.getFile());
+            }
+        });
+        inputs.removed(new Action<InputFileDetails>() {
+            public void execute(InputFileDetails details) {
+                removed.add(details.getFile());
+            }
+        });
+
+        if (!removed.isEmpty() || changesCompiler(outOfDate)) {
+            // The outputs of removed source files are not known, and a different compiler may produce different outputs, so compile everything again
+            for (File file : getOutputs().getPreviousFiles()) {
+                file.delete();
+            }
+            return getSource();
+        }
+
+        PatternSet patterns = new PatternSet();
+        patterns.include(new Spec<FileTreeElement>() {
+            public boolean isSatisfiedBy(FileTreeElement element) {
+                return element.isDirectory() || outOfDate.contains(element.getFile());
+            }
+        });
+        return getSource().matching(patterns);
+    }
+
+    private boolean changesCompiler(Set<File> outOfDate) {
+        for (File file : getCoffeeScriptJs()) {
+            if (outOfDate.contains(file)) {
+                return true;
+            }
+        }
+        for (File file : getRhinoClasspath()) {
+            if (outOfDate.contains(file)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
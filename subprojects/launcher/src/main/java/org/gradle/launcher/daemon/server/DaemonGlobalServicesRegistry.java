@@ -0,0 +1,40 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.server;
+
+import org.gradle.api.internal.changedetection.InMemoryFileHashCache;
+import org.gradle.api.internal.project.GlobalServicesRegistry;
+import org.gradle.internal.nativeplatform.filesystem.FileWatcherFactory;
+import org.gradle.internal.service.ServiceRegistry;
+
+/**
+ * Contains the services shared by all builds run by the daemon.
+ */
+public class DaemonGlobalServicesRegistry extends GlobalServicesRegistry {
+    public DaemonGlobalServicesRegistry(ServiceRegistry loggingServices) {
+        super(loggingServices);
+    }
+
+    /**
+     * The daemon runs many builds, so it watches the files whose hashes are cached. This way, a file which changes without a change to its length or
+     * timestamp is hashed again.
+     */
+    @Override
+    protected InMemoryFileHashCache createInMemoryFileHashCache() {
+        return new InMemoryFileHashCache(100000, get(FileWatcherFactory.class).createWatcher());
+    }
+}
@@ -86,7 +86,7 @@ public class DaemonServices extends DefaultServiceRegistry {
                 get(DaemonContext.class),
                 "password",
                 new DefaultDaemonCommandExecuter(
-                        new DefaultGradleLauncherFactory(loggingServices),
+                        new DefaultGradleLauncherFactory(new DaemonGlobalServicesRegistry(loggingServices)),
                         get(ProcessEnvironment.class),
                         loggingManager,
                         getDaemonLogFile()),
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.nativeplatform.filesystem;
+
+import java.io.File;
+
+/**
+ * A {@link FileMetadataAccessor} which uses the methods of {@link File}, and so reads the state of the file several times.
+ */
+public class FallbackFileMetadataAccessor implements FileMetadataAccessor {
+    public FileMetadata stat(File file) {
+        if (file.isFile()) {
+            return new FileMetadata(FileMetadata.Type.File, file.length(), file.lastModified());
+        }
+        if (file.isDirectory()) {
+            return new FileMetadata(FileMetadata.Type.Directory, 0, file.lastModified());
+        }
+        return FileMetadata.MISSING;
+    }
+}
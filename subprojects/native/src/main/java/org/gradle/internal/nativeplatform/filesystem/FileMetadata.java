@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.nativeplatform.filesystem;
+
+/**
+ * The type, length and last modified time of a file, read at some point in time.
+ */
+public class FileMetadata {
+    public enum Type {
+        File, Directory, Missing
+    }
+
+    public static final FileMetadata MISSING = new FileMetadata(Type.Missing, 0, 0);
+
+    private final Type type;
+    private final long length;
+    private final long lastModified;
+
+    public FileMetadata(Type type, long length, long lastModified) {
+        this.type = type;
+        this.length = length;
+        this.lastModified = lastModified;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public boolean isFile() {
+        return type == Type.File;
+    }
+
+    public boolean isDirectory() {
+        return type == Type.Directory;
+    }
+
+    public boolean exists() {
+        return type != Type.Missing;
+    }
+
+    /**
+     * Returns the length of the file, in bytes. Returns 0 for a directory or a missing file.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the last modified time of the file, in milliseconds since the epoch. Returns 0 for a missing file.
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (length: %s, last modified: %s)", type, length, lastModified);
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.nativeplatform.filesystem;
+
+import java.io.File;
+
+/**
+ * Reads the metadata of files. Each implementation may read the last modified time of a file with a different resolution, so last modified times
+ * should only be compared with other times read using the same implementation.
+ */
+public interface FileMetadataAccessor {
+    /**
+     * Returns the metadata of the given file, following symbolic links. A file which is neither a regular file nor a directory, or whose metadata cannot be
+     * read, is reported as missing.
+     */
+    FileMetadata stat(File file);
+}
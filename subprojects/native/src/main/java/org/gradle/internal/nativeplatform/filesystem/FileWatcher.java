@@ -0,0 +1,57 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.nativeplatform.filesystem;
+
+import org.gradle.internal.Stoppable;
+
+import java.io.File;
+
+/**
+ * Watches directories for changes to their entries. Changes are collected until they are polled. Implementations are not thread-safe.
+ */
+public interface FileWatcher extends Stoppable {
+    /**
+     * Starts watching the entries of the given directory. Does nothing when the directory is already being watched. Changes to the entries which happen
+     * after this method returns are reported by {@link #pollChanges(Listener)}.
+     *
+     * @return true if the directory is being watched, false if the directory cannot be watched.
+     */
+    boolean watch(File dir);
+
+    /**
+     * Stops watching the entries of the given directory. Does nothing when the directory is not being watched.
+     */
+    void unwatch(File dir);
+
+    /**
+     * Passes the changes which have happened since the previous call to the given listener.
+     */
+    void pollChanges(Listener listener);
+
+    interface Listener {
+        /**
+         * Called when the given entry of a watched directory has been created, modified or removed.
+         */
+        void entryChanged(File file);
+
+        /**
+         * Called when changes to the entries of the given watched directory may have been missed, for example because too many changes happened at
+         * once. The directory is no longer watched when it no longer exists.
+         */
+        void directoryChanged(File dir);
+    }
+}
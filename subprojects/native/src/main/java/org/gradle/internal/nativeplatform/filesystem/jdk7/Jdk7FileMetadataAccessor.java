@@ -0,0 +1,51 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.nativeplatform.filesystem.jdk7;
+
+import org.gradle.internal.nativeplatform.filesystem.FileMetadata;
+import org.gradle.internal.nativeplatform.filesystem.FileMetadataAccessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A {@link FileMetadataAccessor} which reads all of the metadata of a file using a single call.
+ */
+public class Jdk7FileMetadataAccessor implements FileMetadataAccessor {
+    public FileMetadata stat(File file) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            // Includes NoSuchFileException
+            return FileMetadata.MISSING;
+        } catch (InvalidPathException e) {
+            return FileMetadata.MISSING;
+        }
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        if (attributes.isRegularFile()) {
+            return new FileMetadata(FileMetadata.Type.File, attributes.size(), lastModified);
+        }
+        if (attributes.isDirectory()) {
+            return new FileMetadata(FileMetadata.Type.Directory, 0, lastModified);
+        }
+        return FileMetadata.MISSING;
+    }
+}
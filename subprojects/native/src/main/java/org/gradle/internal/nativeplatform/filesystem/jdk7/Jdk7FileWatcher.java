@@ -0,0 +1,108 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.nativeplatform.filesystem.jdk7;
+
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.nativeplatform.filesystem.FileWatcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link FileWatcher} which uses a {@link WatchService}.
+ */
+public class Jdk7FileWatcher implements FileWatcher {
+    private final WatchService watchService;
+    private final Map<File, WatchKey> keys = new HashMap<File, WatchKey>();
+    private final Map<WatchKey, File> dirs = new HashMap<WatchKey, File>();
+    // Directories which could not be watched, for example because the limit on the number of watches has been reached
+    private final Set<File> unwatchable = new HashSet<File>();
+
+    public Jdk7FileWatcher(WatchService watchService) {
+        this.watchService = watchService;
+    }
+
+    public boolean watch(File dir) {
+        if (keys.containsKey(dir)) {
+            return true;
+        }
+        if (unwatchable.contains(dir)) {
+            return false;
+        }
+        WatchKey key;
+        try {
+            key = dir.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            unwatchable.add(dir);
+            return false;
+        }
+        keys.put(dir, key);
+        dirs.put(key, dir);
+        return true;
+    }
+
+    public void unwatch(File dir) {
+        WatchKey key = keys.remove(dir);
+        if (key != null) {
+            dirs.remove(key);
+            key.cancel();
+        }
+    }
+
+    public void pollChanges(Listener listener) {
+        WatchKey key;
+        while ((key = watchService.poll()) != null) {
+            File dir = dirs.get(key);
+            if (dir == null) {
+                // The directory is no longer watched, and these events were queued before its key was cancelled
+                continue;
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    listener.directoryChanged(dir);
+                } else {
+                    Path name = (Path) event.context();
+                    listener.entryChanged(new File(dir, name.toString()));
+                }
+            }
+            if (!key.reset()) {
+                // The directory is no longer accessible, for example because it has been removed
+                keys.remove(dir);
+                dirs.remove(key);
+                listener.directoryChanged(dir);
+            }
+        }
+    }
+
+    public void stop() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+}
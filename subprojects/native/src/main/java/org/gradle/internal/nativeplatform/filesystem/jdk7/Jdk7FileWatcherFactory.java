@@ -0,0 +1,52 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.nativeplatform.filesystem.jdk7;
+
+import org.gradle.internal.nativeplatform.filesystem.FallbackFileWatcher;
+import org.gradle.internal.nativeplatform.filesystem.FileWatcher;
+import org.gradle.internal.nativeplatform.filesystem.FileWatcherFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.WatchService;
+
+public class Jdk7FileWatcherFactory implements FileWatcherFactory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Jdk7FileWatcherFactory.class);
+
+    public FileWatcher createWatcher() {
+        WatchService watchService;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            LOGGER.debug("Unable to create watch service. Continuing with fallback.", e);
+            return new FallbackFileWatcher();
+        }
+        // The polling implementation only notices changes every few seconds, so changes made just before a build could be missed
+        if (watchService.getClass().getName().equals("sun.nio.fs.PollingWatchService")) {
+            LOGGER.debug("Native file system watching is not available. Continuing with fallback.");
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+            return new FallbackFileWatcher();
+        }
+        return new Jdk7FileWatcher(watchService);
+    }
+}
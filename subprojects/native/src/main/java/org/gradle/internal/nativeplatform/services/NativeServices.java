@@ -19,15 +19,21 @@ import com.sun.jna.Native;
 import net.rubygrapefruit.platform.NativeException;
 import net.rubygrapefruit.platform.NativeIntegrationUnavailableException;
 import net.rubygrapefruit.platform.Terminals;
+import org.gradle.api.JavaVersion;
 import org.gradle.internal.SystemProperties;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.jvm.Jvm;
 import org.gradle.internal.nativeplatform.*;
 import org.gradle.internal.nativeplatform.console.ConsoleDetector;
 import org.gradle.internal.nativeplatform.console.NativePlatformConsoleDetector;
 import org.gradle.internal.nativeplatform.console.NoOpConsoleDetector;
 import org.gradle.internal.nativeplatform.console.WindowsConsoleDetector;
+import org.gradle.internal.nativeplatform.filesystem.FallbackFileMetadataAccessor;
+import org.gradle.internal.nativeplatform.filesystem.FallbackFileWatcherFactory;
+import org.gradle.internal.nativeplatform.filesystem.FileMetadataAccessor;
 import org.gradle.internal.nativeplatform.filesystem.FileSystem;
 import org.gradle.internal.nativeplatform.filesystem.FileSystems;
+import org.gradle.internal.nativeplatform.filesystem.FileWatcherFactory;
 import org.gradle.internal.nativeplatform.jna.*;
 import org.gradle.internal.os.OperatingSystem;
 import org.gradle.internal.service.DefaultServiceRegistry;
@@ -82,6 +88,36 @@ public class NativeServices extends DefaultServiceRegistry {
         return FileSystems.getDefault();
     }
 
+    protected FileWatcherFactory createFileWatcherFactory() {
+        // Use java 7 APIs, if available
+        if (JavaVersion.current().isJava7()) {
+            String factoryClass = "org.gradle.internal.nativeplatform.filesystem.jdk7.Jdk7FileWatcherFactory";
+            try {
+                return (FileWatcherFactory) NativeServices.class.getClassLoader().loadClass(factoryClass).newInstance();
+            } catch (ClassNotFoundException e) {
+                LOGGER.debug("Unable to load {}. Continuing with fallback.", factoryClass);
+            } catch (Exception e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        return new FallbackFileWatcherFactory();
+    }
+
+    protected FileMetadataAccessor createFileMetadataAccessor() {
+        // Use java 7 APIs, if available
+        if (JavaVersion.current().isJava7()) {
+            String accessorClass = "org.gradle.internal.nativeplatform.filesystem.jdk7.Jdk7FileMetadataAccessor";
+            try {
+                return (FileMetadataAccessor) NativeServices.class.getClassLoader().loadClass(accessorClass).newInstance();
+            } catch (ClassNotFoundException e) {
+                LOGGER.debug("Unable to load {}. Continuing with fallback.", accessorClass);
+            } catch (Exception e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        return new FallbackFileMetadataAccessor();
+    }
+
     protected Jvm createJvm() {
         return Jvm.current();
     }
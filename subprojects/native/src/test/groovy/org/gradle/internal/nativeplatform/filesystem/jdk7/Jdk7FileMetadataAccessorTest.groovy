@@ -0,0 +1,56 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.nativeplatform.filesystem.jdk7
+
+import org.gradle.internal.nativeplatform.filesystem.FileMetadata
+import org.gradle.util.TemporaryFolder
+import org.junit.Rule
+import spock.lang.Specification
+
+class Jdk7FileMetadataAccessorTest extends Specification {
+    @Rule TemporaryFolder tmpDir
+    final Jdk7FileMetadataAccessor accessor = new Jdk7FileMetadataAccessor()
+
+    def "reads metadata of file"() {
+        def file = tmpDir.createFile("file").write("content")
+
+        when:
+        def metadata = accessor.stat(file)
+
+        then:
+        metadata.type == FileMetadata.Type.File
+        metadata.length == 7
+        Math.abs(metadata.lastModified - file.lastModified()) < 1000
+    }
+
+    def "reads metadata of directory"() {
+        def dir = tmpDir.createDir("dir")
+
+        when:
+        def metadata = accessor.stat(dir)
+
+        then:
+        metadata.type == FileMetadata.Type.Directory
+        metadata.length == 0
+    }
+
+    def "reports missing file"() {
+        expect:
+        accessor.stat(tmpDir.file("missing")).type == FileMetadata.Type.Missing
+        accessor.stat(tmpDir.file("missing/child")).type == FileMetadata.Type.Missing
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.nativeplatform.filesystem.jdk7
+
+import org.gradle.internal.nativeplatform.filesystem.FileWatcher
+import org.gradle.util.TemporaryFolder
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.nio.file.FileSystems
+
+class Jdk7FileWatcherTest extends Specification {
+    @Rule TemporaryFolder tmpDir
+    final FileWatcher.Listener listener = Mock()
+    final Jdk7FileWatcher watcher = new Jdk7FileWatcher(FileSystems.default.newWatchService())
+
+    def cleanup() {
+        watcher.stop()
+    }
+
+    def "reports changes to entries of watched directory"() {
+        def dir = tmpDir.createDir("dir")
+        def file = dir.createFile("file")
+
+        when:
+        watcher.watch(dir)
+        file.text = "new content"
+        poll()
+
+        then:
+        (1.._) * listener.entryChanged(file)
+        0 * listener._
+    }
+
+    def "does not report changes to entries of directories which are not watched"() {
+        def dir = tmpDir.createDir("dir")
+        def other = tmpDir.createDir("other")
+
+        when:
+        watcher.watch(dir)
+        other.createFile("file")
+        poll()
+
+        then:
+        0 * listener._
+    }
+
+    def "does not report changes to entries of directory which is no longer watched"() {
+        def dir = tmpDir.createDir("dir")
+        def file = dir.createFile("file")
+
+        when:
+        watcher.watch(dir)
+        file.text = "new content"
+        watcher.unwatch(dir)
+        file.text = "other content"
+        poll()
+
+        then:
+        0 * listener._
+    }
+
+    def "reports directory which has been removed"() {
+        def dir = tmpDir.createDir("dir")
+        def file = dir.createFile("file")
+
+        when:
+        watcher.watch(dir)
+        file.delete()
+        dir.delete()
+        poll()
+
+        then:
+        (0.._) * listener.entryChanged(file)
+        1 * listener.directoryChanged(dir)
+        0 * listener._
+    }
+
+    def "cannot watch directory which does not exist"() {
+        expect:
+        !watcher.watch(tmpDir.file("missing"))
+    }
+
+    def poll() {
+        // Changes are delivered asynchronously, so allow some time for them to arrive
+        Thread.sleep(500)
+        watcher.pollChanges(listener)
+    }
+}
@@ -17,7 +17,9 @@ package org.gradle.internal.nativeplatform.services
 
 import org.gradle.internal.nativeplatform.console.ConsoleDetector
 import org.gradle.internal.nativeplatform.ProcessEnvironment
+import org.gradle.internal.nativeplatform.filesystem.FileMetadataAccessor
 import org.gradle.internal.nativeplatform.filesystem.FileSystem
+import org.gradle.internal.nativeplatform.filesystem.FileWatcherFactory
 import org.gradle.internal.os.OperatingSystem
 import spock.lang.Specification
 
@@ -43,4 +45,14 @@ class NativeServicesTest extends Specification {
         expect:
         services.get(ConsoleDetector) != null
     }
+
+    def "makes a FileWatcherFactory available"() {
+        expect:
+        services.get(FileWatcherFactory) != null
+    }
+
+    def "makes a FileMetadataAccessor available"() {
+        expect:
+        services.get(FileMetadataAccessor) != null
+    }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance
+
+import org.gradle.performance.fixture.PerformanceTestRunner
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import static org.gradle.performance.fixture.DataAmount.kbytes
+import static org.gradle.performance.fixture.Duration.millis
+
+class FileHashingPerformanceTest extends Specification {
+    @Unroll("Project '#testProject' up-to-date check of touched inputs, #inputsPerSize files per size")
+    def "up-to-date check hashes touched input files"() {
+        expect:
+        // The input files are touched but not changed, so the time is spent hashing them and the task remains up-to-date
+        def result = new PerformanceTestRunner(testProject: testProject,
+                tasksToRun: ['processInputs'],
+                args: ["-PinputsPerSize=$inputsPerSize"],
+                runs: runs,
+                warmUpRuns: 1,
+                maxExecutionTimeRegression: [maxExecutionTimeRegression],
+                maxMemoryRegression: [kbytes(3000)]
+        ).run()
+        result.assertCurrentVersionHasNotRegressed()
+
+        where:
+        testProject   | inputsPerSize | runs | maxExecutionTimeRegression
+        "largeInputs" | 1             | 5    | millis(500)
+        "largeInputs" | 4             | 5    | millis(500)
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance
+
+import org.gradle.performance.fixture.PerformanceTestRunner
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import static org.gradle.performance.fixture.DataAmount.kbytes
+import static org.gradle.performance.fixture.Duration.millis
+
+class FileSnapshotPerformanceTest extends Specification {
+    @Unroll("Project '#testProject' up-to-date check of #inputFileCount input files")
+    def "up-to-date check loads and compares file snapshots"() {
+        expect:
+        def result = new PerformanceTestRunner(testProject: testProject,
+                tasksToRun: ['processManyInputs'],
+                args: ["-PinputFileCount=$inputFileCount"],
+                runs: runs,
+                warmUpRuns: 1,
+                maxExecutionTimeRegression: [maxExecutionTimeRegression],
+                maxMemoryRegression: [kbytes(3000)]
+        ).run()
+        result.assertCurrentVersionHasNotRegressed()
+
+        where:
+        testProject  | inputFileCount | runs | maxExecutionTimeRegression
+        "manyInputs" | 10000          | 5    | millis(500)
+        "manyInputs" | 50000          | 5    | millis(1000)
+    }
+}
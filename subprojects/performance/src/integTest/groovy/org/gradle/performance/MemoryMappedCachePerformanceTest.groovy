@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance
+
+import org.gradle.performance.fixture.PerformanceTestRunner
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import static org.gradle.performance.fixture.DataAmount.kbytes
+import static org.gradle.performance.fixture.Duration.millis
+
+class MemoryMappedCachePerformanceTest extends Specification {
+    @Unroll("Project '#testProject' up-to-date check with memory mapped #caches")
+    def "up-to-date check reads memory mapped task artifact caches"() {
+        expect:
+        // The baseline version ignores the property, so this compares the memory mapped caches against the file backed caches
+        def result = new PerformanceTestRunner(testProject: testProject,
+                tasksToRun: [task],
+                args: ["-Dorg.gradle.cache.memorymapped=$caches", projectProperty],
+                runs: runs,
+                warmUpRuns: 1,
+                maxExecutionTimeRegression: [maxExecutionTimeRegression],
+                maxMemoryRegression: [kbytes(3000)]
+        ).run()
+        result.assertCurrentVersionHasNotRegressed()
+
+        where:
+        testProject   | task                | projectProperty           | caches          | runs | maxExecutionTimeRegression
+        "manyInputs"  | 'processManyInputs' | "-PinputFileCount=50000"  | "fileHashes"    | 5    | millis(500)
+        "taskHistory" | 'allTasks'          | "-PtasksPerProject=1000"  | "taskArtifacts" | 5    | millis(500)
+    }
+}
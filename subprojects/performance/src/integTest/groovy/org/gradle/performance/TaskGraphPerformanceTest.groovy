@@ -0,0 +1,48 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance
+
+import org.gradle.performance.fixture.PerformanceTestRunner
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import static org.gradle.performance.fixture.DataAmount.kbytes
+import static org.gradle.performance.fixture.Duration.millis
+
+class TaskGraphPerformanceTest extends Specification {
+    @Unroll("Project '#testProject' task graph with #tasksPerProject tasks per project")
+    def "task graph population"() {
+        expect:
+        // Dry run, so that the time is spent configuring the build and populating the task graph
+        def result = new PerformanceTestRunner(testProject: testProject,
+                tasksToRun: ['allTasks'],
+                args: ['-m', "-PtasksPerProject=$tasksPerProject"],
+                runs: runs,
+                warmUpRuns: 1,
+                maxExecutionTimeRegression: [maxExecutionTimeRegression],
+                maxMemoryRegression: [maxMemoryRegression]
+        ).run()
+        result.assertCurrentVersionHasNotRegressed()
+
+        where:
+        testProject | tasksPerProject | runs | maxExecutionTimeRegression | maxMemoryRegression
+        "manyTasks" | 20              | 5    | millis(500)                | kbytes(1400)
+        "manyTasks" | 200             | 5    | millis(500)                | kbytes(3000)
+        "manyTasks" | 1000            | 5    | millis(1000)               | kbytes(10000)
+        "manyTasks" | 4000            | 3    | millis(2000)               | kbytes(40000)
+    }
+}
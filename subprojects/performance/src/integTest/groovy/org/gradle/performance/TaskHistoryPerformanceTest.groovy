@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance
+
+import org.gradle.performance.fixture.PerformanceTestRunner
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import static org.gradle.performance.fixture.DataAmount.kbytes
+import static org.gradle.performance.fixture.Duration.millis
+
+class TaskHistoryPerformanceTest extends Specification {
+    @Unroll("Project '#testProject' up-to-date check of #tasksPerProject tasks per project")
+    def "up-to-date check loads task history"() {
+        expect:
+        // The warm up run executes the tasks, so that the measured runs load the history of each task and find it up-to-date
+        def result = new PerformanceTestRunner(testProject: testProject,
+                tasksToRun: ['allTasks'],
+                args: ["-PtasksPerProject=$tasksPerProject"],
+                runs: runs,
+                warmUpRuns: 1,
+                maxExecutionTimeRegression: [maxExecutionTimeRegression],
+                maxMemoryRegression: [maxMemoryRegression]
+        ).run()
+        result.assertCurrentVersionHasNotRegressed()
+
+        where:
+        testProject   | tasksPerProject | runs | maxExecutionTimeRegression | maxMemoryRegression
+        "taskHistory" | 200             | 5    | millis(500)                | kbytes(3000)
+        "taskHistory" | 1000            | 5    | millis(1000)               | kbytes(10000)
+    }
+}
@@ -15,11 +15,30 @@
  */
 package org.gradle.api.internal.plugins;
 
+import org.gradle.api.Action;
 import org.gradle.api.internal.tasks.compile.SimpleStaleClassCleaner;
 import org.gradle.api.internal.tasks.compile.StaleClassCleaner;
 import org.gradle.api.tasks.Copy;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.api.tasks.incremental.InputFileDetails;
 
 public class ProcessResources extends Copy {
+    @Override
+    protected void copy(IncrementalTaskInputs inputs) {
+        final boolean[] removed = new boolean[1];
+        inputs.removed(new Action<InputFileDetails>() {
+            public void execute(InputFileDetails details) {
+                removed[0] = true;
+            }
+        });
+        if (removed[0]) {
+            // The location of the stale copy of a removed resource is not known, so remove all previous outputs and copy everything again
+            copy();
+            return;
+        }
+        super.copy(inputs);
+    }
+
     @Override
     protected void copy() {
         StaleClassCleaner cleaner = new SimpleStaleClassCleaner(getOutputs());
@@ -18,8 +18,8 @@ package org.gradle.api.internal.tasks.compile.daemon;
 import com.google.common.base.Objects;
 import com.google.common.collect.Sets;
 
-import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.Nullable;
+import org.gradle.process.internal.HeapSize;
 
 import java.io.File;
 import java.util.Collections;
@@ -66,8 +66,8 @@ public class DaemonForkOptions {
     }
 
     public boolean isCompatibleWith(DaemonForkOptions other) {
-        return getHeapSizeMb(minHeapSize) >= getHeapSizeMb(other.getMinHeapSize())
-                && getHeapSizeMb(maxHeapSize) >= getHeapSizeMb(other.getMaxHeapSize())
+        return HeapSize.toMegabytes(minHeapSize) >= HeapSize.toMegabytes(other.getMinHeapSize())
+                && HeapSize.toMegabytes(maxHeapSize) >= HeapSize.toMegabytes(other.getMaxHeapSize())
                 && getNormalizedJvmArgs(jvmArgs).containsAll(getNormalizedJvmArgs(other.getJvmArgs()))
                 && getNormalizedClasspath(classpath).containsAll(getNormalizedClasspath(other.getClasspath()))
                 && getNormalizedSharedPackages(sharedPackages).containsAll(getNormalizedSharedPackages(other.sharedPackages));
@@ -86,27 +86,8 @@ public class DaemonForkOptions {
         return new DaemonForkOptions(mergedMinHeapSize, mergedMaxHeapSize, mergedJvmArgs, mergedClasspath, mergedAllowedPackages);
     }
 
-    private int getHeapSizeMb(String heapSize) {
-        if (heapSize == null) {
-            return -1; // unspecified
-        }
-
-        String normalized = heapSize.trim().toLowerCase();
-        try {
-            if (normalized.endsWith("m")) {
-                return Integer.parseInt(normalized.substring(0, normalized.length() - 1));
-            }
-            if (normalized.endsWith("g")) {
-                return Integer.parseInt(normalized.substring(0, normalized.length() - 1)) * 1024;
-            }
-        } catch (NumberFormatException e) {
-            throw new InvalidUserDataException("Cannot parse heap size: " + heapSize, e);
-        }
-        throw new InvalidUserDataException("Cannot parse heap size: " + heapSize);
-    }
-    
     private String mergeHeapSize(String heapSize1, String heapSize2) {
-        int mergedHeapSizeMb = Math.max(getHeapSizeMb(heapSize1), getHeapSizeMb(heapSize2));
+        int mergedHeapSizeMb = Math.max(HeapSize.toMegabytes(heapSize1), HeapSize.toMegabytes(heapSize2));
         return mergedHeapSizeMb == -1 ? null : String.valueOf(mergedHeapSizeMb) + "m";
     }
     
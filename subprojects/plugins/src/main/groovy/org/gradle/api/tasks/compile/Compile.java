@@ -17,8 +17,10 @@
 package org.gradle.api.tasks.compile;
 
 import org.gradle.api.AntBuilder;
+import org.gradle.api.Incubating;
 import org.gradle.api.internal.file.TemporaryFileProvider;
 import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.internal.tasks.ProcessForkingTask;
 import org.gradle.api.internal.tasks.compile.*;
 import org.gradle.api.internal.tasks.compile.Compiler;
 import org.gradle.internal.Factory;
@@ -26,6 +28,7 @@ import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.WorkResult;
+import org.gradle.process.internal.HeapSize;
 import org.gradle.util.DeprecationLogger;
 
 import java.io.File;
@@ -37,7 +40,7 @@ import java.io.File;
  * @deprecated This class has been replaced by {@link JavaCompile}.
  */
 @Deprecated
-public class Compile extends AbstractCompile {
+public class Compile extends AbstractCompile implements ProcessForkingTask {
     private Compiler<JavaCompileSpec> javaCompiler;
     private File dependencyCacheDir;
     private final CompileOptions compileOptions = new CompileOptions();
@@ -95,4 +98,20 @@ public class Compile extends AbstractCompile {
     public void setJavaCompiler(Compiler<JavaCompileSpec> javaCompiler) {
         this.javaCompiler = javaCompiler;
     }
+
+    /**
+     * Returns the number of compiler processes this task forks at the same time: 1 when compiling in a forked process, 0 otherwise.
+     */
+    @Incubating
+    public int getMaxForkedProcessCount() {
+        return compileOptions.isFork() ? 1 : 0;
+    }
+
+    /**
+     * Returns the maximum heap size of the forked compiler process in megabytes, or -1 when not specified.
+     */
+    @Incubating
+    public int getForkedProcessHeapSizeMb() {
+        return HeapSize.toMegabytes(compileOptions.getForkOptions().getMemoryMaximumSize());
+    }
 }
@@ -18,11 +18,13 @@ package org.gradle.api.tasks.testing;
 
 import groovy.lang.Closure;
 import org.gradle.api.GradleException;
+import org.gradle.api.Incubating;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileTree;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.internal.ConventionTask;
 import org.gradle.api.internal.file.FileResolver;
+import org.gradle.api.internal.tasks.ProcessForkingTask;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.detection.DefaultTestExecuter;
@@ -52,6 +54,7 @@ import org.gradle.messaging.actor.ActorFactory;
 import org.gradle.process.JavaForkOptions;
 import org.gradle.process.ProcessForkOptions;
 import org.gradle.process.internal.DefaultJavaForkOptions;
+import org.gradle.process.internal.HeapSize;
 import org.gradle.process.internal.WorkerProcessBuilder;
 import org.gradle.util.ConfigureUtil;
 
@@ -106,7 +109,7 @@ import static java.util.Arrays.asList;
  *
  * @author Hans Dockter
  */
-public class Test extends ConventionTask implements JavaForkOptions, PatternFilterable, VerificationTask {
+public class Test extends ConventionTask implements JavaForkOptions, PatternFilterable, VerificationTask, ProcessForkingTask {
     private final ListenerBroadcast<TestListener> testListenerBroadcaster;
     private final ListenerBroadcast<TestOutputListener> testOutputListenerBroadcaster;
     private final StyledTextOutputFactory textOutputFactory;
@@ -962,6 +965,27 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         this.maxParallelForks = maxParallelForks;
     }
 
+    /**
+     * Returns the maximum number of test processes this task forks at the same time. Used by parallel builds to limit the number of forked processes.
+     *
+     * @return The maximum number of forked test processes.
+     */
+    @Incubating
+    public int getMaxForkedProcessCount() {
+        return getMaxParallelForks();
+    }
+
+    /**
+     * Returns the maximum heap size of each forked test process in megabytes, or -1 when not specified. Used by parallel builds to limit the heap in use
+     * by forked processes.
+     *
+     * @return The maximum heap size of each test process.
+     */
+    @Incubating
+    public int getForkedProcessHeapSizeMb() {
+        return HeapSize.toMegabytes(getMaxHeapSize());
+    }
+
     /**
      * Returns the classes files to scan for test classes.
      *
@@ -66,4 +66,20 @@ class TestTaskSpec extends Specification {
         1 * testListenerBroadcaster.removeAll({it.size() == 3})
         1 * testOutputListenerBroadcaster.removeAll({it.size() == 2})
     }
+
+    def "determines heap size of forked test processes"() {
+        when:
+        task.maxHeapSize = heapSize
+
+        then:
+        task.forkedProcessHeapSizeMb == megabytes
+
+        where:
+        heapSize    | megabytes
+        null        | -1
+        "1536k"     | 2
+        "268435456" | 256
+        "512m"      | 512
+        "1g"        | 1024
+    }
 }